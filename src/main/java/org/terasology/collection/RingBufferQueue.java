@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.collection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded queue for passing items from any number of threads to a single consuming thread, without locking.
+ * <p/>
+ * Items are kept in a ring of slots. Producers claim a slot by advancing the tail, and the consumer empties slots by
+ * advancing the head. A producer that finds the queue full can wait for the consumer to catch up, so that fast producers
+ * are slowed down rather than letting the queue grow without bound.
+ */
+public class RingBufferQueue<T> {
+    private static final long WAIT_NANOS = 100000;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    /* The number of slots claimed by producers */
+    private final AtomicLong tail = new AtomicLong();
+    /* The number of slots emptied by the consumer */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity The number of items the queue can hold, which must be a power of two
+     */
+    public RingBufferQueue(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "Capacity must be a power of two: %s", capacity);
+        slots = new AtomicReferenceArray<T>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds an item if there is room for it. Can be called from any thread.
+     *
+     * @return Whether the item was added
+     */
+    public boolean offer(T item) {
+        Preconditions.checkNotNull(item);
+        while (true) {
+            long claimed = tail.get();
+            if (claimed - head.get() >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                slots.set((int) claimed & mask, item);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Adds an item, waiting for the consumer to make room if the queue is full. Can be called from any thread, but not
+     * from the consumer.
+     *
+     * @return Whether the item was added, false if the thread was interrupted while waiting
+     */
+    public boolean put(T item) {
+        while (!offer(item)) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the oldest item. Must only be called from the consuming thread.
+     *
+     * @return The oldest item, or null if there is none
+     */
+    public T poll() {
+        long consumed = head.get();
+        int slot = (int) consumed & mask;
+        // A slot that has been claimed but not yet filled is treated as empty, until the producer fills it
+        T item = slots.get(slot);
+        if (item == null) {
+            return null;
+        }
+        slots.lazySet(slot, null);
+        head.lazySet(consumed + 1);
+        return item;
+    }
+
+    /**
+     * @return The number of items in the queue. This is only an estimate while other threads are adding items.
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -44,6 +44,7 @@ import org.terasology.components.BlockParticleEffectComponent;
 import org.terasology.components.BlockParticleEffectComponent.Particle;
 import org.terasology.components.world.LocationComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.RegisterComponentSystem;
 import org.terasology.game.CoreRegistry;
@@ -67,6 +68,7 @@ public class BlockParticleEmitterSystem implements UpdateSubscriberSystem, Rende
     private static final float TEX_SIZE = Block.TEXTURE_OFFSET / 4f;
 
     private EntityManager entityManager;
+    private EntityQuery particleEffects;
     private WorldProvider worldProvider;
     // TODO: lose dependency on worldRenderer?
     private WorldRenderer worldRenderer;
@@ -76,6 +78,7 @@ public class BlockParticleEmitterSystem implements UpdateSubscriberSystem, Rende
 
     public void initialise() {
         entityManager = CoreRegistry.get(EntityManager.class);
+        particleEffects = entityManager.getQuery(BlockParticleEffectComponent.class, LocationComponent.class);
         worldProvider = CoreRegistry.get(WorldProvider.class);
         worldRenderer = CoreRegistry.get(WorldRenderer.class);
         displayLists = new TObjectIntHashMap(BlockManager.getInstance().getBlockFamilyCount());
@@ -86,7 +89,7 @@ public class BlockParticleEmitterSystem implements UpdateSubscriberSystem, Rende
     }
 
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(BlockParticleEffectComponent.class, LocationComponent.class)) {
+        for (EntityRef entity : particleEffects) {
             BlockParticleEffectComponent particleEffect = entity.getComponent(BlockParticleEffectComponent.class);
             Iterator<Particle> iterator = particleEffect.particles.iterator();
             while (iterator.hasNext()) {
@@ -152,7 +155,7 @@ public class BlockParticleEmitterSystem implements UpdateSubscriberSystem, Rende
 
         Vector3f cameraPosition = worldRenderer.getActiveCamera().getPosition();
 
-        for (EntityRef entity : entityManager.iteratorEntities(BlockParticleEffectComponent.class, LocationComponent.class)) {
+        for (EntityRef entity : particleEffects) {
             LocationComponent location = entity.getComponent(LocationComponent.class);
             Vector3f worldPos = location.getWorldPosition();
 
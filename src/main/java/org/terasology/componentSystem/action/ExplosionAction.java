@@ -15,6 +15,8 @@
  */
 package org.terasology.componentSystem.action;
 
+import java.util.List;
+
 import javax.vecmath.Vector3f;
 
 import org.terasology.components.actions.ExplosionActionComponent;
@@ -37,6 +39,8 @@ import org.terasology.world.WorldProvider;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Immortius <immortius@gmail.com>
  */
@@ -48,13 +52,15 @@ public class ExplosionAction implements EventHandlerSystem {
     private BulletPhysics physicsRenderer;
     private BlockEntityRegistry blockEntityRegistry;
     private DroppedBlockFactory droppedBlockFactory;
+    private EntityManager entityManager;
 
     @Override
     public void initialise() {
         worldProvider = CoreRegistry.get(WorldProvider.class);
         physicsRenderer = CoreRegistry.get(BulletPhysics.class);
         blockEntityRegistry = CoreRegistry.get(BlockEntityRegistry.class);
-        droppedBlockFactory = new DroppedBlockFactory(CoreRegistry.get(EntityManager.class));
+        entityManager = CoreRegistry.get(EntityManager.class);
+        droppedBlockFactory = new DroppedBlockFactory(entityManager);
     }
 
     @Override
@@ -84,6 +90,21 @@ public class ExplosionAction implements EventHandlerSystem {
             return;
         }
 
+        // The blocks are destroyed and dropped in one batch, and pushed once their physics bodies exist
+        List<EntityRef> droppedBlocks = Lists.newArrayList();
+        List<Vector3f> impulses = Lists.newArrayList();
+        entityManager.beginBatch();
+        try {
+            explode(origin, droppedBlocks, impulses);
+        } finally {
+            entityManager.endBatch();
+        }
+        for (int i = 0; i < droppedBlocks.size(); i++) {
+            droppedBlocks.get(i).send(new ImpulseEvent(impulses.get(i)));
+        }
+    }
+
+    private void explode(Vector3f origin, List<EntityRef> droppedBlocks, List<Vector3f> impulses) {
         Vector3i blockPos = new Vector3i();
         for (int i = 0; i < 256; i++) {
             // TODO: Add a randomVector3f method to FastRandom?
@@ -114,7 +135,10 @@ public class ExplosionAction implements EventHandlerSystem {
                     blockEntity.destroy();
                     if (random.randomInt(4) == 0) {
                         EntityRef block = droppedBlockFactory.newInstance(target, currentBlock.getBlockFamily(), 5);
-                        block.send(new ImpulseEvent(impulse));
+                        if (block.exists()) {
+                            droppedBlocks.add(block);
+                            impulses.add(impulse);
+                        }
                     }
                 }
             }
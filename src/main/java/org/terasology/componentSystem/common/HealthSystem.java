@@ -17,7 +17,9 @@ package org.terasology.componentSystem.common;
 
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.HealthComponent;
+import org.terasology.entitySystem.ComponentAccess;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -33,12 +35,15 @@ import org.terasology.game.CoreRegistry;
  * @author Immortius <immortius@gmail.com>
  */
 @RegisterComponentSystem(authorativeOnly = true)
+@ComponentAccess(writes = HealthComponent.class)
 public class HealthSystem implements EventHandlerSystem, UpdateSubscriberSystem {
 
     private EntityManager entityManager;
+    private EntityQuery healthEntities;
 
     public void initialise() {
         entityManager = CoreRegistry.get(EntityManager.class);
+        healthEntities = entityManager.getQuery(HealthComponent.class);
     }
 
     @Override
@@ -46,7 +51,7 @@ public class HealthSystem implements EventHandlerSystem, UpdateSubscriberSystem
     }
 
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(HealthComponent.class)) {
+        for (EntityRef entity : healthEntities) {
             HealthComponent health = entity.getComponent(HealthComponent.class);
             if (health.currentHealth <= 0) continue;
 
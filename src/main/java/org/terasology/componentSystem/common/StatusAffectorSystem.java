@@ -21,6 +21,7 @@ import org.terasology.components.HealthComponent;
 import org.terasology.components.PoisonedComponent;
 import org.terasology.components.SpeedBoostComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -40,9 +41,15 @@ import org.terasology.physics.character.CharacterMovementComponent;
 @RegisterComponentSystem
 public class StatusAffectorSystem implements EventHandlerSystem, UpdateSubscriberSystem {
     protected EntityManager entityManager;
+    private EntityQuery speedBoostedEntities;
+    private EntityQuery poisonedEntities;
+    private EntityQuery curedEntities;
 
     public void initialise() {
         entityManager = CoreRegistry.get(EntityManager.class);
+        speedBoostedEntities = entityManager.getQuery(CharacterMovementComponent.class, SpeedBoostComponent.class);
+        poisonedEntities = entityManager.getQuery(HealthComponent.class, PoisonedComponent.class);
+        curedEntities = entityManager.getQuery(CuredComponent.class);
     }
 
     @Override
@@ -87,7 +94,7 @@ public class StatusAffectorSystem implements EventHandlerSystem, UpdateSubscribe
      * The Effects Duration Countdown "timer"
      */
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(CharacterMovementComponent.class, SpeedBoostComponent.class)) {
+        for (EntityRef entity : speedBoostedEntities) {
             SpeedBoostComponent speedEffect = entity.getComponent(SpeedBoostComponent.class);
             CharacterMovementComponent charmov = entity.getComponent(CharacterMovementComponent.class);
             speedEffect.speedBoostDuration = speedEffect.speedBoostDuration - delta;
@@ -101,7 +108,7 @@ public class StatusAffectorSystem implements EventHandlerSystem, UpdateSubscribe
                 entity.saveComponent(speedEffect);
             }
         }
-        for (EntityRef entity : entityManager.iteratorEntities(HealthComponent.class, PoisonedComponent.class)) {
+        for (EntityRef entity : poisonedEntities) {
             PoisonedComponent poisonedEffect = entity.getComponent(PoisonedComponent.class);
             HealthComponent health = entity.getComponent(HealthComponent.class);
             poisonedEffect.poisonDuration = poisonedEffect.poisonDuration - delta;
@@ -122,7 +129,7 @@ public class StatusAffectorSystem implements EventHandlerSystem, UpdateSubscribe
                 entity.saveComponent(poisonedEffect);
             }
         }
-        for (EntityRef entity : entityManager.iteratorEntities(CuredComponent.class)) {
+        for (EntityRef entity : curedEntities) {
             CuredComponent curedEffect = entity.getComponent(CuredComponent.class);
             PoisonedComponent poisonedEffect = entity.getComponent(PoisonedComponent.class);
             curedEffect.cureDuration = curedEffect.cureDuration - delta;
@@ -21,7 +21,9 @@ import javax.vecmath.Vector3f;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.SimpleAIComponent;
 import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.ComponentAccess;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -38,16 +40,19 @@ import org.terasology.world.WorldProvider;
  * @author Immortius <immortius@gmail.com>
  */
 @RegisterComponentSystem(authorativeOnly = true)
+@ComponentAccess(writes = {SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class})
 public class SimpleAISystem implements EventHandlerSystem, UpdateSubscriberSystem {
 
     private WorldProvider worldProvider;
     private EntityManager entityManager;
+    private EntityQuery aiEntities;
     private FastRandom random = new FastRandom();
     private Timer timer;
 
     @Override
     public void initialise() {
         entityManager = CoreRegistry.get(EntityManager.class);
+        aiEntities = entityManager.getQuery(SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class);
         timer = CoreRegistry.get(Timer.class);
         worldProvider = CoreRegistry.get(WorldProvider.class);
     }
@@ -58,7 +63,7 @@ public class SimpleAISystem implements EventHandlerSystem, UpdateSubscriberSyste
 
     @Override
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class)) {
+        for (EntityRef entity : aiEntities) {
             LocationComponent location = entity.getComponent(LocationComponent.class);
             Vector3f worldPos = location.getWorldPosition();
 
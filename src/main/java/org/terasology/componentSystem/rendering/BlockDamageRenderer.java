@@ -39,6 +39,7 @@ import org.terasology.componentSystem.RenderSystem;
 import org.terasology.components.HealthComponent;
 import org.terasology.world.block.BlockComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.RegisterComponentSystem;
 import org.terasology.game.CoreRegistry;
@@ -57,6 +58,7 @@ import org.terasology.world.WorldProvider;
 public class BlockDamageRenderer implements RenderSystem {
 
     private EntityManager entityManager;
+    private EntityQuery damagedBlocks;
     private WorldProvider worldProvider;
     private Mesh overlayMesh;
     private Texture effectsTexture;
@@ -64,6 +66,7 @@ public class BlockDamageRenderer implements RenderSystem {
     @Override
     public void initialise() {
         this.entityManager = CoreRegistry.get(EntityManager.class);
+        this.damagedBlocks = entityManager.getQuery(HealthComponent.class, BlockComponent.class);
         this.worldProvider = CoreRegistry.get(WorldProvider.class);
         this.effectsTexture = AssetManager.loadTexture("engine:effects");
         Vector2f texPos = new Vector2f(0.0f, 0.0f);
@@ -88,7 +91,7 @@ public class BlockDamageRenderer implements RenderSystem {
         glBlendFunc(GL_DST_COLOR, GL_ZERO);
         Vector3f cameraPosition = CoreRegistry.get(WorldRenderer.class).getActiveCamera().getPosition();
 
-        for (EntityRef entity : entityManager.iteratorEntities(HealthComponent.class, BlockComponent.class)) {
+        for (EntityRef entity : damagedBlocks) {
             HealthComponent health = entity.getComponent(HealthComponent.class);
             if (health.currentHealth == health.maxHealth) continue;
 
@@ -17,7 +17,9 @@
 package org.terasology.components.utility;
 
 import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.entitySystem.ComponentAccess;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.RegisterComponentSystem;
 import org.terasology.game.CoreRegistry;
@@ -26,17 +28,19 @@ import org.terasology.game.CoreRegistry;
  * @author Immortius
  */
 @RegisterComponentSystem
+@ComponentAccess(writes = LifespanComponent.class)
 public class LifespanSystem implements UpdateSubscriberSystem {
 
     private EntityManager entityManager;
+    private EntityQuery mortalEntities;
 
     @Override
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(LifespanComponent.class)) {
+        for (EntityRef entity : mortalEntities) {
             LifespanComponent lifespan = entity.getComponent(LifespanComponent.class);
             lifespan.lifespan -= delta;
             if (lifespan.lifespan < 0) {
-                entity.destroy();
+                entityManager.destroyDeferred(entity);
             } else {
                 entity.saveComponent(lifespan);
             }
@@ -46,6 +50,7 @@ public class LifespanSystem implements UpdateSubscriberSystem {
     @Override
     public void initialise() {
         entityManager = CoreRegistry.get(EntityManager.class);
+        mortalEntities = entityManager.getQuery(LifespanComponent.class);
     }
 
     @Override
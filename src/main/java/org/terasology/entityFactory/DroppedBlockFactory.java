@@ -50,7 +50,7 @@ public class DroppedBlockFactory {
         }
         Prefab prefab = CoreRegistry.get(PrefabManager.class).getPrefab("core:droppedBlock");
         if (prefab != null && prefab.getComponent(LocationComponent.class) != null) {
-            EntityRef blockEntity = entityManager.create(prefab, location);
+            EntityRef blockEntity = entityManager.createCopyOnWrite(prefab, location);
 
             BlockPickupComponent blockPickup = blockEntity.getComponent(BlockPickupComponent.class);
             blockPickup.blockFamily = blockFamily;
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the component types an {@link org.terasology.componentSystem.UpdateSubscriberSystem} reads and writes when
+ * updating. A system with this annotation may be updated on a worker thread, at the same time as other systems that
+ * neither write the types it reads nor access the types it writes. Systems without it are updated on their own, on the
+ * main thread.
+ * <p/>
+ * When updating, such a system may only get and save components of the declared types. Other changes to entities, such
+ * as adding and removing components or destroying entities, have to be deferred (see
+ * {@link EntityManager#destroyDeferred(EntityRef)}). Events it sends are delivered on the main thread when the event
+ * system next processes pending events, at the start of the next frame. The prefab components of entities created
+ * copy-on-write are copied under a lock when first read, so systems reading them may still be updated together.
+ *
+ * @see org.terasology.game.UpdateScheduler
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ComponentAccess {
+    Class<? extends Component>[] reads() default {};
+
+    Class<? extends Component>[] writes() default {};
+}
@@ -71,12 +71,68 @@ public interface EntityManager {
      */
     EntityRef create(Prefab prefab, Vector3f position);
 
+    /**
+     * Creates an entity that shares the components of the prefab instead of copying them. Each component is copied
+     * when it is first retrieved from the entity, so only the components that are used are copied. The components of
+     * the prefab must not be modified while entities share them.
+     *
+     * @param prefab
+     * @return A new entity, based on the given prefab
+     */
+    EntityRef createCopyOnWrite(Prefab prefab);
+
+    /**
+     * Creates an entity that shares the components of the prefab, other than its location, until they are first
+     * retrieved from the entity.
+     *
+     * @param prefab
+     * @param position
+     * @return A new entity, based on the given prefab, at the desired position
+     * @see #createCopyOnWrite(Prefab)
+     */
+    EntityRef createCopyOnWrite(Prefab prefab, Vector3f position);
+
     /**
      * @param other
      * @return A new entity with a copy of each of the other entity's components
      */
     EntityRef copy(EntityRef other);
 
+    /**
+     * Destroys all of the given entities, sending their removal events in one batch
+     *
+     * @param entities
+     */
+    void destroy(Iterable<EntityRef> entities);
+
+    /**
+     * Queues an entity to be destroyed at the end of the frame, by {@link #processDeferredDestruction()}. The entity
+     * remains usable until then. May be called from any thread.
+     *
+     * @param entity
+     */
+    void destroyDeferred(EntityRef entity);
+
+    /**
+     * Destroys all entities queued for destruction in one batch. Called at the end of each frame.
+     */
+    void processDeferredDestruction();
+
+    /**
+     * Starts a batch of entity creation and destruction. Until the batch ends, created entities are not announced to
+     * event handlers and destroyed entities are not removed. When the batch ends, the add events of all created
+     * entities are sent, and then the removal events of all destroyed entities before they are removed, each as one
+     * batch of events (see {@link EventSystem#send(java.util.List, Event)}).
+     * <p/>
+     * Batches may be nested, in which case the outermost batch is the one that ends.
+     */
+    void beginBatch();
+
+    /**
+     * Ends a batch started by {@link #beginBatch()}
+     */
+    void endBatch();
+
     /**
      * @param componentClass
      * @return The number of entities with this component class
@@ -89,6 +145,13 @@ public interface EntityManager {
 
     <T extends Component> Iterable<Map.Entry<EntityRef, T>> iterateComponents(Class<T> componentClass);
 
+    /**
+     * @param componentClasses
+     * @return The query for the entities with all of the given component classes. Queries are shared between callers
+     *         asking for the same classes.
+     */
+    EntityQuery getQuery(Class<? extends Component>... componentClasses);
+
 
     /**
      * @return The event system being used by the entity manager
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem;
+
+/**
+ * The entities having all of a set of component types. Queries are kept up to date as components are added and
+ * removed, so a system can obtain one once and iterate over it every frame.
+ * <p/>
+ * Iteration works over the entities matching when it started, so components may be added and removed and entities
+ * destroyed while iterating.
+ */
+public interface EntityQuery extends Iterable<EntityRef> {
+
+    /**
+     * @return The number of entities currently matching the query
+     */
+    int size();
+
+    /**
+     * Finds a matching entity without iterating over the query, for when any one will do. An iteration that is stopped
+     * early keeps the query from reusing its iterator, so this should be used instead.
+     *
+     * @return The first matching entity, or EntityRef.NULL if there is none
+     */
+    EntityRef getFirst();
+}
@@ -15,6 +15,8 @@
  */
 package org.terasology.entitySystem;
 
+import java.util.List;
+
 /**
  * Event system propagates events to registered handlers
  *
@@ -23,10 +25,34 @@ package org.terasology.entitySystem;
 public interface EventSystem {
 
     /**
-     * Process all pending events
+     * Process the pending events sent from other threads, for up to the processing budget. At least one event is
+     * processed if there are any.
      */
     public void process();
 
+    /**
+     * Process all pending events sent from other threads
+     */
+    public void flush();
+
+    /**
+     * @param milliseconds The time each call to {@link #process()} may spend processing pending events
+     */
+    public void setProcessingBudget(float milliseconds);
+
+    /**
+     * Makes the events sent from the calling thread be held by the thread, without limit, until it calls
+     * {@link #releaseEvents()}. Held events never wait for room in the queue of pending events, so threads the main
+     * thread is waiting for can send events without waiting for it in turn. Has no effect on the main thread.
+     */
+    public void holdEvents();
+
+    /**
+     * Hands the events held by the calling thread over to be sent by the next call to {@link #process()}, which sends
+     * them all regardless of the processing budget, and stops holding its events.
+     */
+    public void releaseEvents();
+
     /**
      * Registers an event
      *
@@ -69,6 +95,16 @@ public interface EventSystem {
      */
     void send(EntityRef entity, Event event);
 
+    /**
+     * Sends an event to each of the entities. Each handler receives the event for all the entities it applies to before
+     * the next handler does, so handlers can deal with the entities in one pass. If the event is cancelled it is not
+     * sent any further.
+     *
+     * @param entities
+     * @param event
+     */
+    void send(List<EntityRef> entities, Event event);
+
     /**
      * Sends an event to a handlers for a specific component of an entity
      *
@@ -30,5 +30,14 @@ public interface PersistableEntityManager extends EntityManager {
 
     void setNextId(int id);
 
+    /**
+     * @return The ids to reuse for new entities. The list can't be modified
+     */
     TIntList getFreedIds();
+
+    /**
+     * Adds an id to reuse for a new entity, which is the id of a destroyed entity moved on to the next generation of its
+     * slot
+     */
+    void addFreedId(int id);
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.DuplicateMemberException;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Defines classes generated at runtime, which are used to replace reflective calls with direct ones.
+ * <p/>
+ * Each generated class is defined in a class loader of its own below the loader of the class it works with, so it can
+ * only use the public members of public classes.
+ */
+public class ClassGenerator {
+    private static final Map<Class<?>, String> PRIMITIVE_DESCRIPTORS = ImmutableMap.<Class<?>, String>builder()
+            .put(Boolean.TYPE, "Z").put(Byte.TYPE, "B").put(Character.TYPE, "C").put(Short.TYPE, "S")
+            .put(Integer.TYPE, "I").put(Long.TYPE, "J").put(Float.TYPE, "F").put(Double.TYPE, "D")
+            .put(Void.TYPE, "V").build();
+
+    private final String packageName;
+    private final Map<ClassLoader, GeneratedClassLoader> classLoaders = Maps.newHashMap();
+    private int nextClassId = 1;
+
+    /**
+     * @param packageName The package to put the generated classes in
+     */
+    public ClassGenerator(String packageName) {
+        this.packageName = packageName;
+    }
+
+    /**
+     * @param baseName   The start of the name of the class, which is made unique
+     * @param interfaces The interfaces the class implements, which have to be public
+     * @return A new public final class file, without members
+     */
+    public synchronized ClassFile createClass(String baseName, Class<?>... interfaces) {
+        ClassFile classFile = new ClassFile(false, packageName + "." + baseName + "_" + nextClassId++, Object.class.getName());
+        // No stack map frames are written, so older class files are produced
+        classFile.setMajorVersion(ClassFile.JAVA_5);
+        classFile.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.FINAL | AccessFlag.SUPER);
+        String[] interfaceNames = new String[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceNames[i] = interfaces[i].getName();
+        }
+        classFile.setInterfaces(interfaceNames);
+        return classFile;
+    }
+
+    /**
+     * Adds a public constructor without parameters
+     */
+    public void addDefaultConstructor(ClassFile classFile) throws DuplicateMemberException {
+        Bytecode code = new Bytecode(classFile.getConstPool(), 1, 1);
+        code.addAload(0);
+        code.addInvokespecial(Object.class.getName(), MethodInfo.nameInit, "()V");
+        code.addOpcode(Opcode.RETURN);
+        MethodInfo constructor = new MethodInfo(classFile.getConstPool(), MethodInfo.nameInit, "()V");
+        constructor.setAccessFlags(AccessFlag.PUBLIC);
+        constructor.setCodeAttribute(code.toCodeAttribute());
+        classFile.addMethod(constructor);
+    }
+
+    /**
+     * @param classFile The class to define
+     * @param usedClass The class used by the generated class, whose class loader has to be able to see all classes it uses
+     * @return The defined class
+     */
+    public synchronized Class<?> define(ClassFile classFile, Class<?> usedClass) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        classFile.write(out);
+        out.close();
+
+        ClassLoader parent = usedClass.getClassLoader();
+        if (!canSee(parent, ClassGenerator.class)) {
+            // The used class comes from a parent loader, such as the bootstrap loader, so is also seen from this one
+            parent = ClassGenerator.class.getClassLoader();
+        }
+        GeneratedClassLoader classLoader = classLoaders.get(parent);
+        if (classLoader == null) {
+            classLoader = new GeneratedClassLoader(parent);
+            classLoaders.put(parent, classLoader);
+        }
+        return classLoader.define(classFile.getName(), bytes.toByteArray());
+    }
+
+    /**
+     * @return The descriptor of the type, as used in class files
+     */
+    public static String descriptorOf(Class<?> type) {
+        if (type.isPrimitive()) {
+            return PRIMITIVE_DESCRIPTORS.get(type);
+        } else if (type.isArray()) {
+            return type.getName().replace('.', '/');
+        }
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    /**
+     * @return Whether the class and all classes enclosing it are public
+     */
+    public static boolean isPublic(Class<?> type) {
+        if (type.isArray()) {
+            return isPublic(type.getComponentType());
+        }
+        for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean canSee(ClassLoader classLoader, Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, classLoader) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        public GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        public Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
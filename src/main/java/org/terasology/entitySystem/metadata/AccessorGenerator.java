@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import static org.terasology.entitySystem.common.ClassGenerator.descriptorOf;
+import static org.terasology.entitySystem.common.ClassGenerator.isPublic;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.DuplicateMemberException;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+
+import org.terasology.entitySystem.common.ClassGenerator;
+
+import com.google.common.primitives.Primitives;
+
+/**
+ * Creates instantiators and field accessors for component and container types. Where possible these are generated
+ * classes that use the constructor, fields and methods directly, otherwise they use reflection.
+ */
+public class AccessorGenerator {
+    private static final String OBJECT_DESCRIPTOR = descriptorOf(Object.class);
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private ClassGenerator classGenerator = new ClassGenerator("org.terasology.entitySystem.metadata.generated");
+
+    public <T> Instantiator<T> createInstantiator(Class<T> type) {
+        if (isPublic(type) && !Modifier.isAbstract(type.getModifiers())) {
+            try {
+                type.getConstructor();
+                ClassFile classFile = classGenerator.createClass(type.getSimpleName() + "Instantiator", Instantiator.class);
+                classGenerator.addDefaultConstructor(classFile);
+
+                Bytecode code = new Bytecode(classFile.getConstPool(), 2, 1);
+                code.addNew(type.getName());
+                code.addOpcode(Opcode.DUP);
+                code.addInvokespecial(type.getName(), MethodInfo.nameInit, "()V");
+                code.addOpcode(Opcode.ARETURN);
+                addMethod(classFile, "newInstance", "()" + OBJECT_DESCRIPTOR, code);
+
+                return instantiate(classFile, type);
+            } catch (NoSuchMethodException e) {
+                // Not public, so left to reflection
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to generate instantiator for " + type, e);
+            } catch (LinkageError e) {
+                logger.log(Level.WARNING, "Failed to generate instantiator for " + type, e);
+            }
+        }
+        return new ReflectedInstantiator<T>(type);
+    }
+
+    /**
+     * Defines the generated class and creates an instance of it through its default constructor
+     *
+     * @return The instance, as the interface the generated class implements
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T instantiate(ClassFile classFile, Class<?> usedClass) throws Exception {
+        return (T) classGenerator.define(classFile, usedClass).getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * @param type   The type of the objects accessed, which may be a subtype of the type declaring the field
+     * @param getter The getter to read the field through, or null to read the field itself
+     * @param setter The setter to write the field through, or null to write the field itself
+     */
+    public FieldAccessor createFieldAccessor(Class<?> type, Field field, Method getter, Method setter) {
+        boolean readable = (getter != null) ? isAccessible(getter) : isAccessible(field);
+        boolean writable = (setter != null) ? isAccessible(setter) : isAccessible(field) && !Modifier.isFinal(field.getModifiers());
+        if (isPublic(type) && isPublic(field.getType()) && readable && writable) {
+            try {
+                ClassFile classFile = classGenerator.createClass(type.getSimpleName() + "_" + field.getName(), FieldAccessor.class);
+                classGenerator.addDefaultConstructor(classFile);
+                addGetValue(classFile, type, field, getter);
+                addSetValue(classFile, type, field, setter);
+                addCopyValue(classFile, type, field, getter, setter);
+                return instantiate(classFile, type);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to generate accessor for " + field, e);
+            } catch (LinkageError e) {
+                logger.log(Level.WARNING, "Failed to generate accessor for " + field, e);
+            }
+        }
+        return new ReflectedFieldAccessor(field, getter, setter);
+    }
+
+    /**
+     * Adds <code>Object getValue(Object target)</code>, returning <code>((Type) target).getField()</code> or
+     * <code>((Type) target).field</code>, boxed if it is primitive
+     */
+    private void addGetValue(ClassFile classFile, Class<?> type, Field field, Method getter) throws DuplicateMemberException {
+        Class<?> fieldType = field.getType();
+        Bytecode code = new Bytecode(classFile.getConstPool(), 3, 2);
+        code.addAload(1);
+        code.addCheckcast(type.getName());
+        addRead(code, type, field, getter);
+        if (fieldType.isPrimitive()) {
+            Class<?> wrapper = Primitives.wrap(fieldType);
+            code.addInvokestatic(wrapper.getName(), "valueOf", "(" + descriptorOf(fieldType) + ")" + descriptorOf(wrapper));
+        }
+        code.addOpcode(Opcode.ARETURN);
+        addMethod(classFile, "getValue", "(" + OBJECT_DESCRIPTOR + ")" + OBJECT_DESCRIPTOR, code);
+    }
+
+    /**
+     * Adds <code>void setValue(Object target, Object value)</code>, doing <code>((Type) target).setField((FieldType)
+     * value)</code> or <code>((Type) target).field = (FieldType) value</code>, unboxing the value if the field is
+     * primitive
+     */
+    private void addSetValue(ClassFile classFile, Class<?> type, Field field, Method setter) throws DuplicateMemberException {
+        Class<?> fieldType = field.getType();
+        Bytecode code = new Bytecode(classFile.getConstPool(), 4, 3);
+        code.addAload(1);
+        code.addCheckcast(type.getName());
+        code.addAload(2);
+        if (fieldType.isPrimitive()) {
+            Class<?> wrapper = Primitives.wrap(fieldType);
+            code.addCheckcast(wrapper.getName());
+            code.addInvokevirtual(wrapper.getName(), fieldType.getName() + "Value", "()" + descriptorOf(fieldType));
+        } else {
+            code.addCheckcast(fieldType.getName());
+        }
+        addWrite(code, type, field, setter);
+        code.addOpcode(Opcode.RETURN);
+        addMethod(classFile, "setValue", "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR + ")V", code);
+    }
+
+    /**
+     * Adds <code>void copyValue(Object source, Object target)</code>, doing <code>((Type) target).field = ((Type)
+     * source).field</code> through the getter and setter if there are any, so primitives are not boxed
+     */
+    private void addCopyValue(ClassFile classFile, Class<?> type, Field field, Method getter, Method setter) throws DuplicateMemberException {
+        Bytecode code = new Bytecode(classFile.getConstPool(), 4, 3);
+        code.addAload(2);
+        code.addCheckcast(type.getName());
+        code.addAload(1);
+        code.addCheckcast(type.getName());
+        addRead(code, type, field, getter);
+        addWrite(code, type, field, setter);
+        code.addOpcode(Opcode.RETURN);
+        addMethod(classFile, "copyValue", "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR + ")V", code);
+    }
+
+    /**
+     * Replaces the object on the stack with the value of its field
+     */
+    private void addRead(Bytecode code, Class<?> type, Field field, Method getter) {
+        if (getter != null) {
+            code.addInvokevirtual(type.getName(), getter.getName(), "()" + descriptorOf(field.getType()));
+        } else {
+            code.addGetfield(field.getDeclaringClass().getName(), field.getName(), descriptorOf(field.getType()));
+        }
+    }
+
+    /**
+     * Sets the field of the object below the value on the stack to the value, removing both
+     */
+    private void addWrite(Bytecode code, Class<?> type, Field field, Method setter) {
+        if (setter != null) {
+            Class<?> returnType = setter.getReturnType();
+            code.addInvokevirtual(type.getName(), setter.getName(), "(" + descriptorOf(field.getType()) + ")" + descriptorOf(returnType));
+            if (returnType == Long.TYPE || returnType == Double.TYPE) {
+                code.addOpcode(Opcode.POP2);
+            } else if (returnType != Void.TYPE) {
+                code.addOpcode(Opcode.POP);
+            }
+        } else {
+            code.addPutfield(field.getDeclaringClass().getName(), field.getName(), descriptorOf(field.getType()));
+        }
+    }
+
+    private void addMethod(ClassFile classFile, String name, String descriptor, Bytecode code) throws DuplicateMemberException {
+        MethodInfo method = new MethodInfo(classFile.getConstPool(), name, descriptor);
+        method.setAccessFlags(AccessFlag.PUBLIC);
+        method.setCodeAttribute(code.toCodeAttribute());
+        classFile.addMethod(method);
+    }
+
+    private static boolean isAccessible(Field field) {
+        return Modifier.isPublic(field.getModifiers()) && isPublic(field.getDeclaringClass());
+    }
+
+    private static boolean isAccessible(Method method) {
+        return !Modifier.isStatic(method.getModifiers()) && isPublic(method.getDeclaringClass());
+    }
+}
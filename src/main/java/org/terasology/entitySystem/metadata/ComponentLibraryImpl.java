@@ -53,6 +53,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
     private Map<Class<? extends Component>, ComponentMetadata> componentSerializationLookup = Maps.newHashMap();
     private Map<String, Class<? extends Component>> componentTypeLookup = Maps.newHashMap();
     private Map<Class<?>, TypeHandler<?>> typeHandlers = Maps.newHashMap();
+    private AccessorGenerator accessorGenerator = new AccessorGenerator();
 
     public ComponentLibraryImpl() {
         registerTypeHandler(Boolean.class, new BooleanTypeHandler());
@@ -84,7 +85,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
             return;
         }
 
-        ComponentMetadata<T> info = new ComponentMetadata<T>(componentClass);
+        ComponentMetadata<T> info = new ComponentMetadata<T>(componentClass, accessorGenerator.createInstantiator(componentClass));
         for (Field field : componentClass.getDeclaredFields()) {
             if (Modifier.isTransient(field.getModifiers()) || Modifier.isStatic(field.getModifiers()))
                 continue;
@@ -93,7 +94,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
             if (typeHandler == null) {
                 logger.log(Level.SEVERE, "Unsupported field type in component type " + componentClass.getSimpleName() + ", " + field.getName() + " : " + field.getGenericType());
             } else {
-                info.addField(new FieldMetadata(field, componentClass, typeHandler));
+                info.addField(new FieldMetadata(field, componentClass, typeHandler, accessorGenerator));
             }
         }
         componentSerializationLookup.put(componentClass, info);
@@ -186,7 +187,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
             }
 
             logger.log(Level.WARNING, "Handling serialization of type " + typeClass + " via MappedContainer");
-            MappedContainerTypeHandler mappedHandler = new MappedContainerTypeHandler(typeClass);
+            MappedContainerTypeHandler mappedHandler = new MappedContainerTypeHandler(accessorGenerator.createInstantiator(typeClass));
             for (Field field : typeClass.getDeclaredFields()) {
                 if (Modifier.isTransient(field.getModifiers()) || Modifier.isStatic(field.getModifiers()))
                     continue;
@@ -196,7 +197,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
                 if (handler == null) {
                     logger.log(Level.SEVERE, "Unsupported field type in component type " + typeClass.getSimpleName() + ", " + field.getName() + " : " + field.getGenericType());
                 } else {
-                    mappedHandler.addField(new FieldMetadata(field, typeClass, handler));
+                    mappedHandler.addField(new FieldMetadata(field, typeClass, handler, accessorGenerator));
                 }
             }
             return mappedHandler;
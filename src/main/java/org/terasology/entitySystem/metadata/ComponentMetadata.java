@@ -32,10 +32,18 @@ public final class ComponentMetadata<T extends Component> {
     private static final Logger logger = Logger.getLogger(ComponentMetadata.class.getName());
 
     private Map<String, FieldMetadata> fields = Maps.newHashMap();
+    /* The fields again, for iterating over them when copying */
+    private FieldMetadata[] fieldList = new FieldMetadata[0];
     private Class<T> clazz;
+    private Instantiator<T> instantiator;
 
     public ComponentMetadata(Class<T> componentClass) {
+        this(componentClass, new ReflectedInstantiator<T>(componentClass));
+    }
+
+    public ComponentMetadata(Class<T> componentClass, Instantiator<T> instantiator) {
         this.clazz = componentClass;
+        this.instantiator = instantiator;
     }
 
     public Class<T> getType() {
@@ -44,6 +52,7 @@ public final class ComponentMetadata<T extends Component> {
 
     public void addField(FieldMetadata fieldInfo) {
         fields.put(fieldInfo.getName().toLowerCase(Locale.ENGLISH), fieldInfo);
+        fieldList = fields.values().toArray(new FieldMetadata[fields.size()]);
     }
 
     public FieldMetadata getField(String name) {
@@ -56,7 +65,7 @@ public final class ComponentMetadata<T extends Component> {
 
     public T newInstance() {
         try {
-            return clazz.newInstance();
+            return instantiator.newInstance();
         } catch (InstantiationException e) {
             logger.log(Level.SEVERE, "Exception instantiating component type: " + clazz, e);
         } catch (IllegalAccessException e) {
@@ -67,9 +76,9 @@ public final class ComponentMetadata<T extends Component> {
 
     public T clone(T component) {
         try {
-            T result = clazz.newInstance();
-            for (FieldMetadata field : fields.values()) {
-                field.setValue(result, field.copy(field.getValue(component)));
+            T result = instantiator.newInstance();
+            for (FieldMetadata field : fieldList) {
+                field.copyValue(component, result);
             }
             return result;
         } catch (InstantiationException e) {
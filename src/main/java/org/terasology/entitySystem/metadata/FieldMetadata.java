@@ -27,15 +27,26 @@ import org.terasology.protobuf.EntityData;
  */
 public final class FieldMetadata {
     private Field field;
-    private Method getter;
-    private Method setter;
+    private FieldAccessor accessor;
     private TypeHandler serializationHandler;
 
     public FieldMetadata(Field field, Class type, TypeHandler handler) {
+        this(field, type, handler, null);
+    }
+
+    /**
+     * @param accessorGenerator The generator for accessing the field, null to access it through reflection
+     */
+    public FieldMetadata(Field field, Class type, TypeHandler handler, AccessorGenerator accessorGenerator) {
         this.field = field;
         this.serializationHandler = handler;
-        getter = findGetter(type, field);
-        setter = findSetter(type, field);
+        Method getter = findGetter(type, field);
+        Method setter = findSetter(type, field);
+        if (accessorGenerator != null) {
+            accessor = accessorGenerator.createFieldAccessor(type, field, getter, setter);
+        } else {
+            accessor = new ReflectedFieldAccessor(field, getter, setter);
+        }
     }
 
     public EntityData.Value serialize(Object field) {
@@ -50,23 +61,28 @@ public final class FieldMetadata {
         return serializationHandler.copy(field);
     }
 
+    /**
+     * Sets the field of the target to a copy of the value of the field of the source
+     */
+    public void copyValue(Object source, Object target) throws IllegalAccessException, InvocationTargetException {
+        if (field.getType().isPrimitive()) {
+            // Primitive values are their own copies
+            accessor.copyValue(source, target);
+        } else {
+            accessor.setValue(target, copy(accessor.getValue(source)));
+        }
+    }
+
     public String getName() {
         return field.getName();
     }
 
     public Object getValue(Object obj) throws IllegalAccessException, InvocationTargetException {
-        if (getter != null) {
-            return getter.invoke(obj);
-        }
-        return field.get(obj);
+        return accessor.getValue(obj);
     }
 
     public void setValue(Object target, Object value) throws IllegalAccessException, InvocationTargetException {
-        if (setter != null) {
-            setter.invoke(target, value);
-        } else {
-            field.set(target, value);
-        }
+        accessor.setValue(target, value);
     }
 
     private Method findGetter(Class type, Field field) {
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Accesses a field through reflection
+ */
+class ReflectedFieldAccessor implements FieldAccessor {
+    private Field field;
+    private Method getter;
+    private Method setter;
+
+    public ReflectedFieldAccessor(Field field, Method getter, Method setter) {
+        this.field = field;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    @Override
+    public Object getValue(Object target) throws IllegalAccessException, InvocationTargetException {
+        if (getter != null) {
+            return getter.invoke(target);
+        }
+        return field.get(target);
+    }
+
+    @Override
+    public void setValue(Object target, Object value) throws IllegalAccessException, InvocationTargetException {
+        if (setter != null) {
+            setter.invoke(target, value);
+        } else {
+            field.set(target, value);
+        }
+    }
+
+    @Override
+    public void copyValue(Object source, Object target) throws IllegalAccessException, InvocationTargetException {
+        setValue(target, getValue(source));
+    }
+}
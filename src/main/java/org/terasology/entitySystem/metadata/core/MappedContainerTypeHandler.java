@@ -23,6 +23,7 @@ import java.util.logging.Logger;
 
 import org.terasology.entitySystem.metadata.AbstractTypeHandler;
 import org.terasology.entitySystem.metadata.FieldMetadata;
+import org.terasology.entitySystem.metadata.Instantiator;
 import org.terasology.protobuf.EntityData;
 
 import com.google.common.collect.Maps;
@@ -34,11 +35,11 @@ public class MappedContainerTypeHandler<T> extends AbstractTypeHandler<T> {
 
     private static Logger logger = Logger.getLogger(MappedContainerTypeHandler.class.getName());
 
-    private Class<T> clazz;
+    private Instantiator<T> instantiator;
     private Map<String, FieldMetadata> fields = Maps.newHashMap();
 
-    public MappedContainerTypeHandler(Class<T> clazz) {
-        this.clazz = clazz;
+    public MappedContainerTypeHandler(Instantiator<T> instantiator) {
+        this.instantiator = instantiator;
     }
 
     public void addField(FieldMetadata info) {
@@ -71,7 +72,7 @@ public class MappedContainerTypeHandler<T> extends AbstractTypeHandler<T> {
 
     public T deserialize(EntityData.Value value) {
         try {
-            T result = clazz.newInstance();
+            T result = instantiator.newInstance();
             for (EntityData.NameValue entry : value.getNameValueList()) {
                 FieldMetadata fieldInfo = fields.get(entry.getName().toLowerCase(Locale.ENGLISH));
                 if (fieldInfo != null) {
@@ -91,9 +92,9 @@ public class MappedContainerTypeHandler<T> extends AbstractTypeHandler<T> {
     public T copy(T value) {
         if (value != null) {
             try {
-                T result = clazz.newInstance();
+                T result = instantiator.newInstance();
                 for (FieldMetadata field : fields.values()) {
-                    field.setValue(result, field.copy(field.getValue(value)));
+                    field.copyValue(value, result);
                 }
                 return result;
             } catch (InstantiationException e) {
@@ -152,7 +152,7 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
     public void deserializeWorld(EntityData.World world) {
         entityManager.setNextId(world.getNextEntityId());
         for (Integer deadId : world.getFreedEntityIdList()) {
-            entityManager.getFreedIds().add(deadId);
+            entityManager.addFreedId(deadId);
         }
 
         for (EntityData.Prefab prefabData : world.getPrefabList()) {
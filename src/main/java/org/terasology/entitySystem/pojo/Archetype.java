@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.terasology.entitySystem.Component;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * The entities that have exactly the same set of component types. Their components are stored in one dense array
+ * (column) per type, with the components of an entity all at the same index (row).
+ */
+final class Archetype {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int index;
+    private final Set<Class<? extends Component>> types;
+    /* The type of each column. Archetypes have few types, so these are searched linearly */
+    private final Class<?>[] columnTypes;
+    private final Component[][] columns;
+    private final long[] typeMask;
+    private int[] entities = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /* The archetypes reached by adding or removing a type, filled in as they are used */
+    private final Map<Class<? extends Component>, Archetype> addTransitions = Maps.newHashMap();
+    private final Map<Class<? extends Component>, Archetype> removeTransitions = Maps.newHashMap();
+
+    /**
+     * @param index    The index of the archetype in its table
+     * @param typeMask The bits of the types in the table
+     */
+    public Archetype(int index, Set<Class<? extends Component>> types, long[] typeMask) {
+        this.index = index;
+        this.typeMask = typeMask;
+        this.types = ImmutableSet.copyOf(types);
+        columnTypes = this.types.toArray(new Class<?>[this.types.size()]);
+        columns = new Component[columnTypes.length][INITIAL_CAPACITY];
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Set<Class<? extends Component>> getTypes() {
+        return types;
+    }
+
+    /**
+     * @return The bits of the types of this archetype, as assigned by its table. Must not be modified.
+     */
+    public long[] getTypeMask() {
+        return typeMask;
+    }
+
+    public boolean hasType(Class<? extends Component> type) {
+        return columnOf(type) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getEntity(int row) {
+        return entities[row];
+    }
+
+    /**
+     * Copies the ids of all entities, by row, into the target array starting at the given offset
+     */
+    public void copyEntities(int[] target, int offset) {
+        System.arraycopy(entities, 0, target, offset, size);
+    }
+
+    /**
+     * @return The components of the given type of all entities, by row. Only the first {@link #size()} are used.
+     */
+    public Component[] getColumn(Class<? extends Component> type) {
+        int column = columnOf(type);
+        return (column >= 0) ? columns[column] : null;
+    }
+
+    public Component get(int row, Class<? extends Component> type) {
+        int column = columnOf(type);
+        return (column >= 0) ? columns[column][row] : null;
+    }
+
+    public void set(int row, Component component) {
+        columns[columnOf(component.getClass())][row] = component;
+    }
+
+    /**
+     * Adds an entity without any components, which have to be set afterwards.
+     *
+     * @return The row of the entity
+     */
+    public int add(int entityId) {
+        if (size == entities.length) {
+            grow();
+        }
+        entities[size] = entityId;
+        return size++;
+    }
+
+    /**
+     * Removes the entity in the given row, moving the last entity into its place.
+     *
+     * @return The id of the entity moved into the row, or the removed entity if it was the last one
+     */
+    public int remove(int row) {
+        int last = --size;
+        for (Component[] column : columns) {
+            column[row] = column[last];
+            column[last] = null;
+        }
+        entities[row] = entities[last];
+        return entities[row];
+    }
+
+    /**
+     * Copies the components of an entity in this archetype to a row of another archetype, which has all or all but one
+     * of the component types of this one.
+     */
+    public void copyTo(int row, Archetype target, int targetRow) {
+        for (int column = 0; column < columns.length; column++) {
+            int targetColumn = target.columnOf(columnTypes[column]);
+            if (targetColumn >= 0) {
+                target.columns[targetColumn][targetRow] = columns[column][row];
+            }
+        }
+    }
+
+    Archetype getAddTransition(Class<? extends Component> type) {
+        return addTransitions.get(type);
+    }
+
+    void setAddTransition(Class<? extends Component> type, Archetype archetype) {
+        addTransitions.put(type, archetype);
+    }
+
+    Archetype getRemoveTransition(Class<? extends Component> type) {
+        return removeTransitions.get(type);
+    }
+
+    void setRemoveTransition(Class<? extends Component> type, Archetype archetype) {
+        removeTransitions.put(type, archetype);
+    }
+
+    private int columnOf(Class<?> type) {
+        for (int column = 0; column < columnTypes.length; column++) {
+            if (columnTypes[column] == type) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int capacity = entities.length * 2;
+        entities = Arrays.copyOf(entities, capacity);
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = Arrays.copyOf(columns[column], capacity);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Archetype" + types;
+    }
+}
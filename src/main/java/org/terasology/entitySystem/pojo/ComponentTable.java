@@ -15,88 +15,229 @@
  */
 package org.terasology.entitySystem.pojo;
 
+import gnu.trove.impl.Constants;
 import gnu.trove.iterator.TIntIterator;
-import gnu.trove.iterator.TIntObjectIterator;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-import gnu.trove.set.TIntSet;
-import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.terasology.entitySystem.Component;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * A table for storing entities and components. Focused on allowing iteration across a components of a given type
+ * <p/>
+ * Entities are grouped by their set of component types into archetypes, which store the components densely, so that
+ * iterating over the entities with some types only visits the archetypes having all of them. Entities without
+ * components are not stored.
  *
  * @author Immortius <immortius@gmail.com>
  */
 class ComponentTable {
-    private Map<Class, TIntObjectMap<Component>> store = new HashMap<Class, TIntObjectMap<Component>>();
+    private static final long NO_LOCATION = -1;
+
+    private Map<Set<Class<? extends Component>>, Archetype> archetypes = Maps.newHashMap();
+    private List<Archetype> archetypesByIndex = Lists.newArrayList();
+    private Map<Class<? extends Component>, List<Archetype>> archetypesByType = Maps.newHashMap();
+    private Archetype emptyArchetype;
+
+    /* The archetypes matching each registered set of types, which new archetypes are added to */
+    private Map<Set<Class<? extends Component>>, List<Archetype>> queries = Maps.newHashMap();
+
+    /* The bit of each type in type masks. Kept when clearing, as masks may be held onto */
+    private TObjectIntMap<Class<? extends Component>> typeBits = new TObjectIntHashMap<Class<? extends Component>>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+
+    /* The index of the archetype of each entity in the upper and its row in the lower half, by entity slot */
+    private long[] entityLocations = new long[0];
+
+    public ComponentTable() {
+        emptyArchetype = getArchetype(Collections.<Class<? extends Component>>emptySet());
+    }
 
     public <T extends Component> T get(int entityId, Class<T> componentClass) {
-        TIntObjectMap<Component> entityMap = store.get(componentClass);
-        if (entityMap != null) {
-            return componentClass.cast(entityMap.get(entityId));
+        long location = getLocation(entityId);
+        if (location != NO_LOCATION) {
+            return componentClass.cast(getArchetype(location).get(getRow(location), componentClass));
         }
         return null;
     }
 
     public Component put(int entityId, Component component) {
-        TIntObjectMap<Component> entityMap = store.get(component.getClass());
-        if (entityMap == null) {
-            entityMap = new TIntObjectHashMap<Component>();
-            store.put(component.getClass(), entityMap);
+        Class<? extends Component> componentClass = component.getClass();
+        long location = getLocation(entityId);
+        Archetype archetype = (location != NO_LOCATION) ? getArchetype(location) : null;
+        if (archetype != null && archetype.hasType(componentClass)) {
+            int row = getRow(location);
+            Component oldComponent = archetype.get(row, componentClass);
+            archetype.set(row, component);
+            return oldComponent;
         }
-        return entityMap.put(entityId, component);
+
+        Archetype target = getAddTransition((archetype != null) ? archetype : emptyArchetype, componentClass);
+        int row = move(entityId, archetype, target);
+        target.set(row, component);
+        return null;
     }
 
     public <T extends Component> Component remove(int entityId, Class<T> componentClass) {
-        TIntObjectMap<Component> entityMap = store.get(componentClass);
-        if (entityMap != null) {
-            return entityMap.remove(entityId);
+        long location = getLocation(entityId);
+        if (location == NO_LOCATION || !getArchetype(location).hasType(componentClass)) {
+            return null;
         }
-        return null;
+
+        Archetype archetype = getArchetype(location);
+        Component oldComponent = archetype.get(getRow(location), componentClass);
+        Archetype target = getRemoveTransition(archetype, componentClass);
+        if (target == emptyArchetype) {
+            remove(entityId);
+        } else {
+            move(entityId, archetype, target);
+        }
+        return oldComponent;
     }
 
     public void remove(int entityId) {
-        for (TIntObjectMap<Component> entityMap : store.values()) {
-            entityMap.remove(entityId);
+        long location = getLocation(entityId);
+        if (location != NO_LOCATION) {
+            entityLocations[EntityIds.index(entityId)] = NO_LOCATION;
+            removeRow(getArchetype(location), getRow(location));
         }
     }
 
     public void clear() {
-        store.clear();
+        archetypes.clear();
+        archetypesByIndex.clear();
+        archetypesByType.clear();
+        Arrays.fill(entityLocations, NO_LOCATION);
+        for (List<Archetype> matches : queries.values()) {
+            matches.clear();
+        }
+        emptyArchetype = getArchetype(Collections.<Class<? extends Component>>emptySet());
     }
 
     public int getComponentCount(Class<? extends Component> componentClass) {
-        TIntObjectMap<Component> map = store.get(componentClass);
-        if (map == null)
+        List<Archetype> typeArchetypes = archetypesByType.get(componentClass);
+        if (typeArchetypes == null)
             return 0;
-        return map.size();
+        int count = 0;
+        for (Archetype archetype : typeArchetypes) {
+            count += archetype.size();
+        }
+        return count;
     }
 
     public Iterable<Component> iterateComponents(int entityId) {
         List<Component> components = Lists.newArrayList();
-        for (TIntObjectMap<Component> componentMap : store.values()) {
-            Component comp = componentMap.get(entityId);
-            if (comp != null) {
-                components.add(comp);
+        long location = getLocation(entityId);
+        if (location != NO_LOCATION) {
+            Archetype archetype = getArchetype(location);
+            int row = getRow(location);
+            for (Class<? extends Component> componentClass : archetype.getTypes()) {
+                components.add(archetype.get(row, componentClass));
             }
         }
         return components;
     }
 
-    public <T extends Component> TIntObjectIterator<T> componentIterator(Class<T> componentClass) {
-        TIntObjectMap<T> entityMap = (TIntObjectMap<T>) store.get(componentClass);
-        if (entityMap != null) {
-            return entityMap.iterator();
+    /**
+     * @return The archetypes of the entities having all the given component types
+     */
+    public List<Archetype> archetypesWith(Class<? extends Component>... componentClasses) {
+        // Start from the type with the fewest archetypes
+        List<Archetype> candidates = null;
+        for (Class<? extends Component> componentClass : componentClasses) {
+            List<Archetype> typeArchetypes = archetypesByType.get(componentClass);
+            if (typeArchetypes == null) {
+                return Collections.emptyList();
+            }
+            if (candidates == null || typeArchetypes.size() < candidates.size()) {
+                candidates = typeArchetypes;
+            }
         }
-        return null;
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+
+        List<Archetype> result = Lists.newArrayListWithCapacity(candidates.size());
+        for (Archetype archetype : candidates) {
+            if (hasTypes(archetype, componentClasses) && archetype.size() > 0) {
+                result.add(archetype);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The mask of the component types of an entity, which must not be modified
+     */
+    public long[] getTypeMask(int entityId) {
+        long location = getLocation(entityId);
+        return (location != NO_LOCATION) ? getArchetype(location).getTypeMask() : emptyArchetype.getTypeMask();
+    }
+
+    /**
+     * @return A mask with the bits of the given component types set
+     * @see #containsAll(long[], long[])
+     */
+    public long[] getTypeMask(Iterable<Class<? extends Component>> componentClasses) {
+        long[] mask = new long[0];
+        for (Class<? extends Component> componentClass : componentClasses) {
+            int bit = typeBits.get(componentClass);
+            if (bit < 0) {
+                bit = typeBits.size();
+                typeBits.put(componentClass, bit);
+            }
+            if (bit / 64 >= mask.length) {
+                mask = Arrays.copyOf(mask, bit / 64 + 1);
+            }
+            mask[bit / 64] |= 1L << bit;
+        }
+        return mask;
+    }
+
+    /**
+     * @return Whether the mask has all bits of the required mask set
+     */
+    public static boolean containsAll(long[] mask, long[] required) {
+        if (required.length > mask.length) {
+            return false;
+        }
+        for (int i = 0; i < required.length; i++) {
+            if ((mask[i] & required[i]) != required[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers a query for the archetypes having all the given component types. The returned list is kept up to date
+     * as archetypes are created, and is shared by all queries for the same types.
+     *
+     * @return The live list of the archetypes having all the given component types, including empty ones
+     */
+    public List<Archetype> registerQuery(Set<Class<? extends Component>> componentClasses) {
+        List<Archetype> matches = queries.get(componentClasses);
+        if (matches == null) {
+            matches = Lists.newArrayList();
+            for (Archetype archetype : archetypesByIndex) {
+                if (archetype.getTypes().containsAll(componentClasses)) {
+                    matches.add(archetype);
+                }
+            }
+            queries.put(ImmutableSet.copyOf(componentClasses), matches);
+        }
+        return matches;
     }
 
     /**
@@ -107,11 +248,128 @@ class ComponentTable {
      * @return An iterator over all entity ids.
      */
     public TIntIterator entityIdIterator() {
-        TIntSet idSet = new TIntHashSet();
-        for (TIntObjectMap<Component> componentMap : store.values()) {
-            idSet.addAll(componentMap.keys());
+        TIntArrayList entityIds = new TIntArrayList();
+        for (Archetype archetype : archetypesByIndex) {
+            for (int row = 0; row < archetype.size(); row++) {
+                entityIds.add(archetype.getEntity(row));
+            }
+        }
+        return entityIds.iterator();
+    }
+
+    /**
+     * Moves an entity into a row of another archetype, taking along the components the target archetype has.
+     *
+     * @param from The current archetype of the entity, null if it has none
+     * @return The row of the entity in the target archetype
+     */
+    private int move(int entityId, Archetype from, Archetype to) {
+        int row = to.add(entityId);
+        if (from != null) {
+            int oldRow = getRow(getLocation(entityId));
+            from.copyTo(oldRow, to, row);
+            removeRow(from, oldRow);
         }
-        return idSet.iterator();
+        setLocation(entityId, location(to, row));
+        return row;
     }
 
+    private void removeRow(Archetype archetype, int row) {
+        int movedEntity = archetype.remove(row);
+        if (row < archetype.size()) {
+            setLocation(movedEntity, location(archetype, row));
+        }
+    }
+
+    /**
+     * @return The location of the entity, or NO_LOCATION if it has no components. Entities that were in the same slot
+     *         before it are not mistaken for it.
+     */
+    private long getLocation(int entityId) {
+        int index = EntityIds.index(entityId);
+        if (index >= entityLocations.length) {
+            return NO_LOCATION;
+        }
+        long location = entityLocations[index];
+        if (location != NO_LOCATION && getArchetype(location).getEntity(getRow(location)) != entityId) {
+            return NO_LOCATION;
+        }
+        return location;
+    }
+
+    private void setLocation(int entityId, long location) {
+        int index = EntityIds.index(entityId);
+        if (index >= entityLocations.length) {
+            int oldLength = entityLocations.length;
+            entityLocations = Arrays.copyOf(entityLocations, Math.max(index + 1, oldLength * 2));
+            Arrays.fill(entityLocations, oldLength, entityLocations.length, NO_LOCATION);
+        }
+        entityLocations[index] = location;
+    }
+
+    private static long location(Archetype archetype, int row) {
+        return ((long) archetype.getIndex() << 32) | row;
+    }
+
+    private Archetype getArchetype(long location) {
+        return archetypesByIndex.get((int) (location >>> 32));
+    }
+
+    private static int getRow(long location) {
+        return (int) location;
+    }
+
+    private Archetype getAddTransition(Archetype archetype, Class<? extends Component> componentClass) {
+        Archetype result = archetype.getAddTransition(componentClass);
+        if (result == null) {
+            Set<Class<? extends Component>> types = Sets.newHashSet(archetype.getTypes());
+            types.add(componentClass);
+            result = getArchetype(types);
+            archetype.setAddTransition(componentClass, result);
+        }
+        return result;
+    }
+
+    private Archetype getRemoveTransition(Archetype archetype, Class<? extends Component> componentClass) {
+        Archetype result = archetype.getRemoveTransition(componentClass);
+        if (result == null) {
+            Set<Class<? extends Component>> types = Sets.newHashSet(archetype.getTypes());
+            types.remove(componentClass);
+            result = getArchetype(types);
+            archetype.setRemoveTransition(componentClass, result);
+        }
+        return result;
+    }
+
+    private Archetype getArchetype(Set<Class<? extends Component>> types) {
+        Archetype archetype = archetypes.get(types);
+        if (archetype == null) {
+            archetype = new Archetype(archetypesByIndex.size(), types, getTypeMask(types));
+            archetypes.put(archetype.getTypes(), archetype);
+            archetypesByIndex.add(archetype);
+            for (Class<? extends Component> type : types) {
+                List<Archetype> typeArchetypes = archetypesByType.get(type);
+                if (typeArchetypes == null) {
+                    typeArchetypes = Lists.newArrayList();
+                    archetypesByType.put(type, typeArchetypes);
+                }
+                typeArchetypes.add(archetype);
+            }
+            for (Map.Entry<Set<Class<? extends Component>>, List<Archetype>> query : queries.entrySet()) {
+                if (types.containsAll(query.getKey())) {
+                    query.getValue().add(archetype);
+                }
+            }
+        }
+        return archetype;
+    }
+
+    private static boolean hasTypes(Archetype archetype, Class<? extends Component>[] componentClasses) {
+        for (Class<? extends Component> componentClass : componentClasses) {
+            if (!archetype.hasType(componentClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
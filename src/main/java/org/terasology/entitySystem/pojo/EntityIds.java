@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+/**
+ * Entity ids consist of the index of the entity's slot, in the lower bits, and the generation of the slot, in the upper
+ * bits. The generation is increased each time a slot is reused, so ids of destroyed entities never match the id of
+ * the entity that took over their slot.
+ */
+final class EntityIds {
+    public static final int INDEX_BITS = 20;
+    public static final int MAX_INDEX = (1 << INDEX_BITS) - 1;
+    private static final int MAX_GENERATION = Integer.MAX_VALUE >>> INDEX_BITS;
+
+    private EntityIds() {
+    }
+
+    public static int index(int entityId) {
+        return entityId & MAX_INDEX;
+    }
+
+    public static int generation(int entityId) {
+        return entityId >>> INDEX_BITS;
+    }
+
+    /**
+     * @return The id for the next entity to use the slot of the given entity
+     */
+    public static int nextGeneration(int entityId) {
+        int generation = (generation(entityId) + 1) & MAX_GENERATION;
+        return (generation << INDEX_BITS) | index(entityId);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import static org.terasology.entitySystem.common.ClassGenerator.descriptorOf;
+import static org.terasology.entitySystem.common.ClassGenerator.isPublic;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.DuplicateMemberException;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Event;
+import org.terasology.entitySystem.EventReceiver;
+import org.terasology.entitySystem.common.ClassGenerator;
+
+/**
+ * Generates event receivers that call an event handler method directly, rather than through reflection.
+ * <p/>
+ * The generated classes can only call public methods of public classes.
+ */
+class EventReceiverGenerator {
+    private static final String HANDLER_FIELD = "handler";
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private ClassGenerator classGenerator = new ClassGenerator("org.terasology.entitySystem.pojo.generated");
+
+    /**
+     * @param handler The object to call the method on
+     * @param method  A method of the form <code>public void handlerMethod(EventType event, EntityRef entity)</code>
+     * @return A receiver calling the method, or null if it cannot be called from a generated class
+     */
+    public EventReceiver<Event> generate(Object handler, Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (!isPublic(handler.getClass()) || !isPublic(method.getDeclaringClass()) || !isPublic(parameterTypes[0])
+                || !isPublic(parameterTypes[1]) || method.getReturnType() != Void.TYPE || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+
+        try {
+            ClassFile classFile = createClassFile(handler.getClass(), method);
+            Class<?> receiverClass = classGenerator.define(classFile, handler.getClass());
+            Constructor<?> constructor = receiverClass.getConstructor(Object.class);
+            return (EventReceiver<Event>) constructor.newInstance(handler);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to generate event receiver for " + method, e);
+        } catch (LinkageError e) {
+            logger.log(Level.WARNING, "Failed to generate event receiver for " + method, e);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the class file for:
+     * <pre>
+     * public final class Receiver implements EventReceiver {
+     *     private final Object handler;
+     *
+     *     public Receiver(Object handler) {
+     *         this.handler = handler;
+     *     }
+     *
+     *     public void onEvent(Event event, EntityRef entity) {
+     *         ((HandlerType) handler).handlerMethod((EventType) event, (EntityRefType) entity);
+     *     }
+     * }
+     * </pre>
+     */
+    private ClassFile createClassFile(Class<?> handlerClass, Method method) throws DuplicateMemberException {
+        ClassFile classFile = classGenerator.createClass(handlerClass.getSimpleName() + "_" + method.getName(), EventReceiver.class);
+        String className = classFile.getName();
+        ConstPool constPool = classFile.getConstPool();
+
+        FieldInfo field = new FieldInfo(constPool, HANDLER_FIELD, descriptorOf(Object.class));
+        field.setAccessFlags(AccessFlag.PRIVATE | AccessFlag.FINAL);
+        classFile.addField(field);
+
+        Bytecode constructorCode = new Bytecode(constPool, 2, 2);
+        constructorCode.addAload(0);
+        constructorCode.addInvokespecial(Object.class.getName(), MethodInfo.nameInit, "()V");
+        constructorCode.addAload(0);
+        constructorCode.addAload(1);
+        constructorCode.addPutfield(className, HANDLER_FIELD, descriptorOf(Object.class));
+        constructorCode.addOpcode(Opcode.RETURN);
+        MethodInfo constructor = new MethodInfo(constPool, MethodInfo.nameInit, "(" + descriptorOf(Object.class) + ")V");
+        constructor.setAccessFlags(AccessFlag.PUBLIC);
+        constructor.setCodeAttribute(constructorCode.toCodeAttribute());
+        classFile.addMethod(constructor);
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Bytecode onEventCode = new Bytecode(constPool, 3, 3);
+        onEventCode.addAload(0);
+        onEventCode.addGetfield(className, HANDLER_FIELD, descriptorOf(Object.class));
+        onEventCode.addCheckcast(handlerClass.getName());
+        onEventCode.addAload(1);
+        onEventCode.addCheckcast(parameterTypes[0].getName());
+        onEventCode.addAload(2);
+        onEventCode.addCheckcast(parameterTypes[1].getName());
+        onEventCode.addInvokevirtual(handlerClass.getName(), method.getName(), "(" + descriptorOf(parameterTypes[0]) + descriptorOf(parameterTypes[1]) + ")V");
+        onEventCode.addOpcode(Opcode.RETURN);
+        MethodInfo onEvent = new MethodInfo(constPool, "onEvent", "(" + descriptorOf(Event.class) + descriptorOf(EntityRef.class) + ")V");
+        onEvent.setAccessFlags(AccessFlag.PUBLIC);
+        onEvent.setCodeAttribute(onEventCode.toCodeAttribute());
+        classFile.addMethod(onEvent);
+        return classFile;
+    }
+}
@@ -15,17 +15,16 @@
  */
 package org.terasology.entitySystem.pojo;
 
+import gnu.trove.TCollections;
 import gnu.trove.iterator.TIntIterator;
-import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,7 +39,6 @@ import org.terasology.entitySystem.EventSystem;
 import org.terasology.entitySystem.PersistableEntityManager;
 import org.terasology.entitySystem.Prefab;
 import org.terasology.entitySystem.PrefabManager;
-import org.terasology.entitySystem.common.NullIterator;
 import org.terasology.entitySystem.event.AddComponentEvent;
 import org.terasology.entitySystem.event.ChangedComponentEvent;
 import org.terasology.entitySystem.event.RemovedComponentEvent;
@@ -49,6 +47,8 @@ import org.terasology.entitySystem.metadata.extension.EntityRefTypeHandler;
 import org.terasology.entitySystem.metadata.extension.PrefabTypeHandler;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * Prototype entity manager. Not intended for final use, but a stand in for experimentation.
@@ -60,12 +60,31 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     private static Logger logger = Logger.getLogger(PojoEntityManager.class.getName());
 
+    private static final int INITIAL_SLOTS = 1024;
+    /* Marks a slot freed by destroying its entity. Entity ids never have the sign bit set */
+    private static final int FREED = Integer.MIN_VALUE;
+
     private int nextEntityId = 1;
+    /* The ids to reuse, which are the ids of destroyed entities moved on to the next generation of their slot */
     private TIntList freedIds = new TIntArrayList();
-    private Map<EntityRef, PojoEntityRef> entityCache = new WeakHashMap<EntityRef, PojoEntityRef>();
+    /*
+     * The id and reference of the entity in each slot, by the index of the slot. Free slots have the null id, or the
+     * id to reuse marked as freed if their entity was destroyed
+     */
+    private int[] slotIds = new int[INITIAL_SLOTS];
+    private PojoEntityRef[] slotRefs = new PojoEntityRef[INITIAL_SLOTS];
 
     private ComponentTable store = new ComponentTable();
+    private Map<Set<Class<? extends Component>>, PojoEntityQuery> queries = Maps.newHashMap();
+    /* The prefab components shared by entities created copy-on-write, which are copied when first accessed */
+    private Set<Component> sharedComponents = Sets.newIdentityHashSet();
     private EventSystem eventSystem;
+
+    /* The depth of nested batches, and the entities created and destroyed in the current batch */
+    private int batchDepth;
+    private List<EntityRef> batchCreated = Lists.newArrayList();
+    private Set<EntityRef> batchDestroyed = Sets.newLinkedHashSet();
+    private Set<EntityRef> deferredDestruction = Sets.newLinkedHashSet();
     private PrefabManager prefabManager;
     private ComponentLibrary componentLibrary;
 
@@ -81,16 +100,24 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         store.clear();
         nextEntityId = 1;
         freedIds.clear();
-        entityCache.clear();
+        Arrays.fill(slotIds, NULL_ID);
+        Arrays.fill(slotRefs, null);
+        sharedComponents.clear();
+        batchCreated.clear();
+        batchDestroyed.clear();
+        deferredDestruction.clear();
     }
 
     @Override
     public EntityRef create() {
         if (!freedIds.isEmpty()) {
-            createEntityRef(freedIds.removeAt(freedIds.size() - 1));
+            return occupy(freedIds.removeAt(freedIds.size() - 1));
         }
         if (nextEntityId == NULL_ID) nextEntityId++;
-        return createEntityRef(nextEntityId++);
+        if (nextEntityId > EntityIds.MAX_INDEX) {
+            throw new IllegalStateException("Out of entity slots");
+        }
+        return occupy(nextEntityId++);
     }
 
     @Override
@@ -104,9 +131,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         for (Component c : components) {
             store.put(entity.getId(), c);
         }
-        if (eventSystem != null) {
-            eventSystem.send(entity, AddComponentEvent.newInstance());
-        }
+        announce(entity);
         return entity;
     }
 
@@ -157,6 +182,34 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         return create(components);
     }
 
+    @Override
+    public EntityRef createCopyOnWrite(Prefab prefab) {
+        List<Component> components = Lists.newArrayList();
+        for (Component component : prefab.listComponents()) {
+            sharedComponents.add(component);
+            components.add(component);
+        }
+        components.add(new EntityInfoComponent(prefab.getName()));
+        return create(components);
+    }
+
+    @Override
+    public EntityRef createCopyOnWrite(Prefab prefab, Vector3f position) {
+        List<Component> components = Lists.newArrayList();
+        for (Component component : prefab.listComponents()) {
+            if (component instanceof LocationComponent) {
+                LocationComponent loc = (LocationComponent) componentLibrary.copy(component);
+                loc.setWorldPosition(position);
+                components.add(loc);
+            } else {
+                sharedComponents.add(component);
+                components.add(component);
+            }
+        }
+        components.add(new EntityInfoComponent(prefab.getName()));
+        return create(components);
+    }
+
     @Override
     public EntityRef copy(EntityRef other) {
         if (!other.exists()) {
@@ -195,17 +248,10 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T extends Component> Iterable<Map.Entry<EntityRef, T>> iterateComponents(Class<T> componentClass) {
-        TIntObjectIterator<T> iterator = store.componentIterator(componentClass);
-        if (iterator != null) {
-            List<Map.Entry<EntityRef, T>> list = new ArrayList<Map.Entry<EntityRef, T>>();
-            while (iterator.hasNext()) {
-                iterator.advance();
-                list.add(new EntityEntry<T>(createEntityRef(iterator.key()), iterator.value()));
-            }
-            return list;
-        }
-        return NullIterator.newInstance();
+        // The components of the view are all of the class of its query
+        return (Iterable) getQuery(componentClass).getComponents(componentClass);
     }
 
     public Iterable<EntityRef> iteratorEntities() {
@@ -220,53 +266,202 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         if (componentClasses.length == 0) {
             return iteratorEntities();
         }
-        TIntList idList = new TIntArrayList();
-        TIntObjectIterator<? extends Component> primeIterator = store.componentIterator(componentClasses[0]);
-        if (primeIterator == null) {
-            return NullIterator.newInstance();
+        return getQuery(componentClasses);
+    }
+
+    @Override
+    public PojoEntityQuery getQuery(Class<? extends Component>... componentClasses) {
+        Set<Class<? extends Component>> types = Sets.newHashSet(componentClasses);
+        PojoEntityQuery query = queries.get(types);
+        if (query == null) {
+            query = new PojoEntityQuery(this, store.registerQuery(types));
+            queries.put(types, query);
         }
+        return query;
+    }
+
+    /**
+     * @return The mask of the component types of the entity, which must not be modified
+     */
+    long[] getComponentTypeMask(int entityId) {
+        return store.getTypeMask(entityId);
+    }
+
+    /**
+     * @return The mask with the bits of the given component types, comparable to the masks of entities
+     */
+    long[] getComponentTypeMask(Class<? extends Component>... componentClasses) {
+        return store.getTypeMask(Arrays.asList(componentClasses));
+    }
 
-        while (primeIterator.hasNext()) {
-            primeIterator.advance();
-            int id = primeIterator.key();
-            boolean discard = false;
-            for (int i = 1; i < componentClasses.length; ++i) {
-                if (store.get(id, componentClasses[i]) == null) {
-                    discard = true;
-                    break;
+    boolean hasComponent(int entityId, Class<? extends Component> componentClass) {
+        return store.get(entityId, componentClass) != null;
+    }
+
+    Iterable<Component> iterateComponents(int entityId) {
+        Iterable<Component> components = store.iterateComponents(entityId);
+        if (!sharedComponents.isEmpty()) {
+            for (Component component : components) {
+                if (isShared(component)) {
+                    unshare(entityId, component.getClass());
                 }
             }
-            if (!discard) {
-                idList.add(primeIterator.key());
+            components = store.iterateComponents(entityId);
+        }
+        return components;
+    }
+
+    @Override
+    public void destroy(Iterable<EntityRef> entities) {
+        beginBatch();
+        try {
+            for (EntityRef entity : entities) {
+                entity.destroy();
+            }
+        } finally {
+            endBatch();
+        }
+    }
+
+    @Override
+    public void destroyDeferred(EntityRef entity) {
+        if (entity.exists()) {
+            // May be called from systems updating on worker threads
+            synchronized (deferredDestruction) {
+                deferredDestruction.add(entity);
             }
         }
-        return new EntityIterable(idList);
     }
 
-    boolean hasComponent(int entityId, Class<? extends Component> componentClass) {
-        return store.get(entityId, componentClass) != null;
+    @Override
+    public void processDeferredDestruction() {
+        List<EntityRef> entities;
+        synchronized (deferredDestruction) {
+            if (deferredDestruction.isEmpty()) {
+                return;
+            }
+            entities = Lists.newArrayList(deferredDestruction);
+            deferredDestruction.clear();
+        }
+        destroy(entities);
     }
 
-    Iterable<Component> iterateComponents(int entityId) {
-        return store.iterateComponents(entityId);
+    @Override
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    @Override
+    public void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("No batch to end");
+        }
+        if (--batchDepth > 0) {
+            return;
+        }
+        if (!batchCreated.isEmpty()) {
+            List<EntityRef> created = Lists.newArrayList(batchCreated);
+            batchCreated.clear();
+            if (eventSystem != null) {
+                eventSystem.send(created, AddComponentEvent.newInstance());
+            }
+        }
+        if (!batchDestroyed.isEmpty()) {
+            List<EntityRef> destroyed = Lists.newArrayList(batchDestroyed);
+            batchDestroyed.clear();
+            if (eventSystem != null) {
+                eventSystem.send(destroyed, RemovedComponentEvent.newInstance());
+            }
+            for (EntityRef entity : destroyed) {
+                // Entities may have been destroyed by the handlers already
+                if (entity.exists()) {
+                    remove(entity.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the add event for a new entity, or holds it back until the end of the current batch
+     */
+    private void announce(EntityRef entity) {
+        if (batchDepth > 0) {
+            batchCreated.add(entity);
+        } else if (eventSystem != null) {
+            eventSystem.send(entity, AddComponentEvent.newInstance());
+        }
     }
 
     void destroy(int entityId) {
         EntityRef ref = createEntityRef(entityId);
+        if (batchDepth > 0) {
+            batchDestroyed.add(ref);
+            return;
+        }
         if (eventSystem != null) {
             eventSystem.send(ref, RemovedComponentEvent.newInstance());
         }
-        entityCache.remove(ref);
-        freedIds.add(entityId);
-        if (ref instanceof PojoEntityRef) {
-            ((PojoEntityRef) ref).invalidate();
-        }
+        remove(entityId);
+    }
+
+    /**
+     * Removes an entity and its components, invalidating its references
+     */
+    private void remove(int entityId) {
+        int index = EntityIds.index(entityId);
+        PojoEntityRef ref = slotRefs[index];
+        slotRefs[index] = null;
+        addFreedId(EntityIds.nextGeneration(entityId));
+        ref.invalidate();
         store.remove(entityId);
     }
 
     <T extends Component> T getComponent(int entityId, Class<T> componentClass) {
-        //return componentLibrary.copy(store.get(entityId, componentClass));
-        return store.get(entityId, componentClass);
+        T component = store.get(entityId, componentClass);
+        if (isShared(component)) {
+            return componentClass.cast(unshare(entityId, componentClass));
+        }
+        return component;
+    }
+
+    private boolean isShared(Component component) {
+        return !sharedComponents.isEmpty() && component != null && sharedComponents.contains(component);
+    }
+
+    /**
+     * Replaces a shared prefab component of an entity with its own copy, without sending any events. Systems reading
+     * the same component types may be updated at the same time, so this is done under a lock and only by the first of
+     * them.
+     *
+     * @return The copy
+     */
+    private Component unshare(int entityId, Class<? extends Component> componentClass) {
+        synchronized (sharedComponents) {
+            Component component = store.get(entityId, componentClass);
+            if (isShared(component)) {
+                component = componentLibrary.copy(component);
+                store.put(entityId, component);
+            }
+            return component;
+        }
+    }
+
+    /**
+     * Replaces the shared prefab components in the first rows of a column with copies of their own
+     */
+    void unshare(Component[] column, int rows) {
+        if (sharedComponents.isEmpty()) {
+            return;
+        }
+        for (int row = 0; row < rows; row++) {
+            if (isShared(column[row])) {
+                synchronized (sharedComponents) {
+                    if (isShared(column[row])) {
+                        column[row] = componentLibrary.copy(column[row]);
+                    }
+                }
+            }
+        }
     }
 
     <T extends Component> T addComponent(int entityId, T component) {
@@ -297,38 +492,71 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     @Override
     public EntityRef createEntityRefWithId(int id) {
-        if (!freedIds.contains(id)) {
-            return createEntityRef(id);
+        if (isAlive(id)) {
+            return slotRefs[EntityIds.index(id)];
+        }
+        if (isAvailable(id)) {
+            // The entity may not have been loaded yet, so the reference holds its slot
+            return occupy(id);
         }
         return EntityRef.NULL;
     }
 
     @Override
     public EntityRef createEntityWithId(int id, Iterable<Component> components) {
-        if (!freedIds.contains(id)) {
-            EntityRef entity = createEntityRef(id);
+        if (isAlive(id) || isAvailable(id)) {
+            EntityRef entity = createEntityRefWithId(id);
             for (Component c : components) {
                 store.put(id, c);
             }
-            if (eventSystem != null) {
-                eventSystem.send(entity, AddComponentEvent.newInstance());
-            }
+            announce(entity);
             return entity;
         }
         return EntityRef.NULL;
     }
 
-    private EntityRef createEntityRef(int entityId) {
-        if (entityId == NULL_ID) {
-            return EntityRef.NULL;
+    /**
+     * @return Whether the entity with the given id exists. The id of a destroyed entity stays invalid after its slot is
+     *         reused.
+     */
+    boolean isAlive(int entityId) {
+        int index = EntityIds.index(entityId);
+        return entityId > NULL_ID && index < slotIds.length && slotIds[index] == entityId;
+    }
+
+    /**
+     * @return Whether the slot of the given id is free, without having been freed by destroying the entity with the id
+     */
+    private boolean isAvailable(int entityId) {
+        int index = EntityIds.index(entityId);
+        return entityId > NULL_ID && (index >= slotIds.length || slotIds[index] == NULL_ID);
+    }
+
+    /**
+     * @return The reference of a new entity with the given id, in its slot
+     */
+    private PojoEntityRef occupy(int entityId) {
+        int index = EntityIds.index(entityId);
+        ensureSlot(index);
+        PojoEntityRef ref = new PojoEntityRef(this, entityId);
+        slotIds[index] = entityId;
+        slotRefs[index] = ref;
+        return ref;
+    }
+
+    private void ensureSlot(int index) {
+        if (index >= slotIds.length) {
+            int length = Math.max(index + 1, slotIds.length * 2);
+            slotIds = Arrays.copyOf(slotIds, length);
+            slotRefs = Arrays.copyOf(slotRefs, length);
         }
-        PojoEntityRef newRef = new PojoEntityRef(this, entityId);
-        PojoEntityRef existing = entityCache.get(newRef);
-        if (existing != null) {
-            return existing;
+    }
+
+    EntityRef createEntityRef(int entityId) {
+        if (isAlive(entityId)) {
+            return slotRefs[EntityIds.index(entityId)];
         }
-        entityCache.put(newRef, newRef);
-        return newRef;
+        return EntityRef.NULL;
     }
 
     public int getNextId() {
@@ -340,41 +568,14 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
     }
 
     public TIntList getFreedIds() {
-        return freedIds;
+        return TCollections.unmodifiableList(freedIds);
     }
 
-    private static class EntityEntry<T> implements Map.Entry<EntityRef, T> {
-        private EntityRef key;
-        private T value;
-
-        public EntityEntry(EntityRef ref, T value) {
-            this.key = ref;
-            this.value = value;
-        }
-
-        public EntityRef getKey() {
-            return key;
-        }
-
-        public T getValue() {
-            return value;
-        }
-
-        public T setValue(T value) {
-            throw new UnsupportedOperationException();
-        }
-    }
-
-    private class EntityIterable implements Iterable<EntityRef> {
-        private TIntList list;
-
-        public EntityIterable(TIntList list) {
-            this.list = list;
-        }
-
-        public Iterator<EntityRef> iterator() {
-            return new EntityIterator(list.iterator());
-        }
+    public void addFreedId(int id) {
+        int index = EntityIds.index(id);
+        ensureSlot(index);
+        slotIds[index] = id | FREED;
+        freedIds.add(id);
     }
 
     private class EntityIterator implements Iterator<EntityRef> {
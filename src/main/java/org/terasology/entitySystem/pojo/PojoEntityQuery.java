@@ -0,0 +1,245 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.util.Iterator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.EntityQuery;
+import org.terasology.entitySystem.EntityRef;
+
+/**
+ * A query over the archetypes of a {@link ComponentTable}. The table adds newly created archetypes to the query, so
+ * iterating only costs the number of matching entities.
+ */
+class PojoEntityQuery implements EntityQuery {
+    private final PojoEntityManager entityManager;
+    private final List<Archetype> archetypes;
+
+    /* Reused by all iterations that do not overlap with another, which may be on other threads. It is only handed back
+     * once an iteration has run to the end. */
+    private final QueryIterator iterator = new QueryIterator();
+    private final AtomicBoolean iteratorInUse = new AtomicBoolean();
+    private volatile ComponentView componentView;
+
+    PojoEntityQuery(PojoEntityManager entityManager, List<Archetype> archetypes) {
+        this.entityManager = entityManager;
+        this.archetypes = archetypes;
+    }
+
+    /**
+     * @return The matching archetypes, which are kept up to date by the component table
+     */
+    List<Archetype> getArchetypes() {
+        return archetypes;
+    }
+
+    /**
+     * @param type The component type of the query, which must be for that type only
+     * @return A view of the components of the matching entities, which reuses its iterator in the same way as the query.
+     *         Each entry is only valid until the next one is taken.
+     */
+    Iterable<Map.Entry<EntityRef, Component>> getComponents(Class<? extends Component> type) {
+        ComponentView view = componentView;
+        if (view == null) {
+            view = new ComponentView(type);
+            componentView = view;
+        }
+        return view;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < archetypes.size(); i++) {
+            size += archetypes.get(i).size();
+        }
+        return size;
+    }
+
+    @Override
+    public EntityRef getFirst() {
+        for (int i = 0; i < archetypes.size(); i++) {
+            Archetype archetype = archetypes.get(i);
+            if (archetype.size() > 0) {
+                return entityManager.createEntityRef(archetype.getEntity(0));
+            }
+        }
+        return EntityRef.NULL;
+    }
+
+    @Override
+    public Iterator<EntityRef> iterator() {
+        QueryIterator result = (iteratorInUse.compareAndSet(false, true)) ? iterator : new QueryIterator();
+        result.start();
+        return result;
+    }
+
+    private class QueryIterator implements Iterator<EntityRef> {
+        private int[] entities = new int[0];
+        private int size;
+        private int next;
+        private boolean finished;
+
+        /**
+         * Takes a snapshot of the matching entities, so that they can change while being iterated over
+         */
+        void start() {
+            size = 0;
+            next = 0;
+            finished = false;
+            for (int i = 0; i < archetypes.size(); i++) {
+                Archetype archetype = archetypes.get(i);
+                if (size + archetype.size() > entities.length) {
+                    int[] newEntities = new int[Math.max(entities.length * 2, size + archetype.size())];
+                    System.arraycopy(entities, 0, newEntities, 0, size);
+                    entities = newEntities;
+                }
+                archetype.copyEntities(entities, size);
+                size += archetype.size();
+            }
+            if (size == 0) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (!finished) {
+                finished = true;
+                if (this == iterator) {
+                    iteratorInUse.set(false);
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            if (!finished && next < size) {
+                return true;
+            }
+            finish();
+            return false;
+        }
+
+        public EntityRef next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            return entityManager.createEntityRef(entities[next++]);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class ComponentView implements Iterable<Map.Entry<EntityRef, Component>> {
+        private final Class<? extends Component> type;
+        private final ComponentIterator iterator = new ComponentIterator();
+        private final AtomicBoolean iteratorInUse = new AtomicBoolean();
+
+        ComponentView(Class<? extends Component> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Iterator<Map.Entry<EntityRef, Component>> iterator() {
+            ComponentIterator result = (iteratorInUse.compareAndSet(false, true)) ? iterator : new ComponentIterator();
+            result.start();
+            return result;
+        }
+
+        /**
+         * Iterates over a snapshot of the entities and their components, and is itself the entry of the current one
+         */
+        private class ComponentIterator implements Iterator<Map.Entry<EntityRef, Component>>, Map.Entry<EntityRef, Component> {
+            private int[] entities = new int[0];
+            private Component[] components = new Component[0];
+            private int size;
+            private int next;
+            private boolean finished;
+
+            void start() {
+                size = 0;
+                next = 0;
+                finished = false;
+                for (int i = 0; i < archetypes.size(); i++) {
+                    Archetype archetype = archetypes.get(i);
+                    if (size + archetype.size() > entities.length) {
+                        int capacity = Math.max(entities.length * 2, size + archetype.size());
+                        entities = Arrays.copyOf(entities, capacity);
+                        components = Arrays.copyOf(components, capacity);
+                    }
+                    Component[] column = archetype.getColumn(type);
+                    entityManager.unshare(column, archetype.size());
+                    archetype.copyEntities(entities, size);
+                    System.arraycopy(column, 0, components, size, archetype.size());
+                    size += archetype.size();
+                }
+                if (size == 0) {
+                    finish();
+                }
+            }
+
+            private void finish() {
+                if (!finished) {
+                    finished = true;
+                    // Not holding on to the components until the next iteration
+                    Arrays.fill(components, 0, size, null);
+                    if (this == iterator) {
+                        iteratorInUse.set(false);
+                    }
+                }
+            }
+
+            public boolean hasNext() {
+                if (!finished && next < size) {
+                    return true;
+                }
+                finish();
+                return false;
+            }
+
+            public Map.Entry<EntityRef, Component> next() {
+                if (finished || next >= size) {
+                    throw new NoSuchElementException();
+                }
+                next++;
+                return this;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            public EntityRef getKey() {
+                return entityManager.createEntityRef(entities[next - 1]);
+            }
+
+            public Component getValue() {
+                return components[next - 1];
+            }
+
+            public Component setValue(Component value) {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+}
@@ -39,7 +39,7 @@ public class PojoEntityRef extends EntityRef {
 
     @Override
     public boolean exists() {
-        return id != PojoEntityManager.NULL_ID;
+        return entityManager.isAlive(id);
     }
 
     @Override
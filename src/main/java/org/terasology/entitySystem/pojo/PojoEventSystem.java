@@ -19,19 +19,17 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.reflections.Reflections;
+import org.terasology.collection.RingBufferQueue;
 import org.terasology.entitySystem.AbstractEvent;
 import org.terasology.entitySystem.Component;
-import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.Event;
 import org.terasology.entitySystem.EventHandlerSystem;
@@ -47,42 +45,110 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Queues;
-import com.google.common.collect.Sets;
 
 /**
+ * Handlers are kept in chains per event type, sorted by priority, and are selected by comparing the component types
+ * they require with the type mask of the entity, so sending an event does not allocate.
+ *
  * @author Immortius <immortius@gmail.com>
  */
 public class PojoEventSystem implements EventSystem {
 
     private Logger logger = Logger.getLogger(getClass().getName());
 
-    private EntityManager entitySystem;
-    private Map<Class<? extends Event>, Multimap<Class<? extends Component>, EventHandlerInfo>> componentSpecificHandlers = Maps.newHashMap();
-    private Comparator<EventHandlerInfo> priorityComparator = new EventHandlerPriorityComparator();
+    private PojoEntityManager entitySystem;
+    private Map<Class<? extends Event>, EventHandlerInfo[]> handlerChains = Maps.newHashMap();
+    private Map<Class<? extends Event>, Map<Class<? extends Component>, EventHandlerInfo[]>> componentSpecificHandlers = Maps.newHashMap();
+    private EventReceiverGenerator receiverGenerator = new EventReceiverGenerator();
 
     // Event metadata
     private BiMap<String, Class<? extends Event>> eventIdMap = HashBiMap.create();
     private Multimap<Class<? extends Event>, Class<? extends Event>> childEvents = HashMultimap.create();
 
+    private static final int PENDING_EVENT_CAPACITY = 4096;
+    private static final float DEFAULT_PROCESSING_BUDGET = 2f;
+
     private Thread mainThread;
-    private BlockingQueue<PendingEvent>  pendingEvents = Queues.newLinkedBlockingQueue();
+    private RingBufferQueue<PendingEvent> pendingEvents = new RingBufferQueue<PendingEvent>(PENDING_EVENT_CAPACITY);
+    private ThreadLocal<List<PendingEvent>> heldEvents = new ThreadLocal<List<PendingEvent>>();
+    private Queue<List<PendingEvent>> releasedEvents = new ConcurrentLinkedQueue<List<PendingEvent>>();
+    private volatile long processingBudget;
 
-    public PojoEventSystem(EntityManager entitySystem) {
+    public PojoEventSystem(PojoEntityManager entitySystem) {
         this.entitySystem = entitySystem;
         this.mainThread = Thread.currentThread();
+        setProcessingBudget(DEFAULT_PROCESSING_BUDGET);
     }
 
+    @Override
     public void process() {
+        sendReleasedEvents();
+        long endTime = System.nanoTime() + processingBudget;
         for (PendingEvent event = pendingEvents.poll(); event != null; event = pendingEvents.poll()) {
-            if (event.getComponent() != null) {
-                send(event.getEntity(), event.getEvent(), event.getComponent());
-            } else {
-                send(event.getEntity(), event.getEvent());
+            send(event);
+            if (System.nanoTime() >= endTime) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        sendReleasedEvents();
+        for (PendingEvent event = pendingEvents.poll(); event != null; event = pendingEvents.poll()) {
+            send(event);
+        }
+    }
+
+    @Override
+    public void setProcessingBudget(float milliseconds) {
+        processingBudget = (long) (milliseconds * 1000000);
+    }
+
+    @Override
+    public void holdEvents() {
+        if (Thread.currentThread() != mainThread && heldEvents.get() == null) {
+            heldEvents.set(Lists.<PendingEvent>newArrayList());
+        }
+    }
+
+    @Override
+    public void releaseEvents() {
+        List<PendingEvent> events = heldEvents.get();
+        if (events != null) {
+            heldEvents.remove();
+            if (!events.isEmpty()) {
+                releasedEvents.add(events);
             }
         }
     }
 
+    private void sendReleasedEvents() {
+        for (List<PendingEvent> events = releasedEvents.poll(); events != null; events = releasedEvents.poll()) {
+            for (PendingEvent event : events) {
+                send(event);
+            }
+        }
+    }
+
+    private void enqueue(PendingEvent event) {
+        List<PendingEvent> events = heldEvents.get();
+        if (events != null) {
+            events.add(event);
+        } else {
+            // Waits for the main thread if it is falling behind
+            pendingEvents.put(event);
+        }
+    }
+
+    private void send(PendingEvent event) {
+        if (event.getComponent() != null) {
+            send(event.getEntity(), event.getEvent(), event.getComponent());
+        } else {
+            send(event.getEntity(), event.getEvent());
+        }
+    }
+
     @Override
     public void registerEvent(String name, Class<? extends Event> eventType) {
         if (name != null && !name.isEmpty()) {
@@ -116,13 +182,11 @@ public class PojoEventSystem implements EventSystem {
 
                 if (types.length == 2 && Event.class.isAssignableFrom(types[0]) && EntityRef.class.isAssignableFrom(types[1])) {
                     logger.info("Found method: " + method.toString());
-                    ReflectedEventHandlerInfo handlerInfo = new ReflectedEventHandlerInfo(handler, method, receiveEventAnnotation.priority(), receiveEventAnnotation.components());
-                    for (Class<? extends Component> c : receiveEventAnnotation.components()) {
-                        addEventHandler((Class<? extends Event>) types[0], handlerInfo, c);
-                        for (Class<? extends Event> childType : childEvents.get((Class<? extends Event>) types[0])) {
-                            addEventHandler(childType, handlerInfo, c);
-                        }
+                    EventReceiver<Event> receiver = receiverGenerator.generate(handler, method);
+                    if (receiver == null) {
+                        receiver = new ReflectedEventReceiver(handler, method);
                     }
+                    addEventHandler((Class<? extends Event>) types[0], new HandlerMethodInfo(receiver, receiveEventAnnotation.priority(), receiveEventAnnotation.components()));
                 } else {
                     logger.warning("Invalid event handler method: " + method.getName());
                 }
@@ -130,15 +194,6 @@ public class PojoEventSystem implements EventSystem {
         }
     }
 
-    private void addEventHandler(Class<? extends Event> type, EventHandlerInfo handlerInfo, Class<? extends Component> c) {
-        Multimap<Class<? extends Component>, EventHandlerInfo> componentMap = componentSpecificHandlers.get(type);
-        if (componentMap == null) {
-            componentMap = HashMultimap.create();
-            componentSpecificHandlers.put(type, componentMap);
-        }
-        componentMap.put(c, handlerInfo);
-    }
-
     @Override
     public <T extends Event> void registerEventReceiver(EventReceiver<T> eventReceiver, Class<T> eventClass, Class<? extends Component>... componentTypes) {
         registerEventReceiver(eventReceiver, eventClass, EventPriority.PRIORITY_NORMAL, componentTypes);
@@ -146,27 +201,70 @@ public class PojoEventSystem implements EventSystem {
 
     @Override
     public <T extends Event> void registerEventReceiver(EventReceiver<T> eventReceiver, Class<T> eventClass, int priority, Class<? extends Component>... componentTypes) {
-        EventHandlerInfo info = new ReceiverEventHandlerInfo<T>(eventReceiver, priority, componentTypes);
-        for (Class<? extends Component> c : componentTypes) {
-            addEventHandler(eventClass, info, c);
-            for (Class<? extends Event> childType : childEvents.get(eventClass)) {
-                addEventHandler(childType, info, c);
+        addEventHandler(eventClass, new EventHandlerInfo((EventReceiver<Event>) eventReceiver, priority, componentTypes));
+    }
+
+    private void addEventHandler(Class<? extends Event> type, EventHandlerInfo handlerInfo) {
+        // Handlers are only selected through the components they require
+        if (handlerInfo.components.length == 0) {
+            return;
+        }
+        addToChains(type, handlerInfo);
+        for (Class<? extends Event> childType : childEvents.get(type)) {
+            addToChains(childType, handlerInfo);
+        }
+    }
+
+    private void addToChains(Class<? extends Event> type, EventHandlerInfo handlerInfo) {
+        handlerChains.put(type, insert(handlerChains.get(type), handlerInfo));
+
+        Map<Class<? extends Component>, EventHandlerInfo[]> componentMap = componentSpecificHandlers.get(type);
+        if (componentMap == null) {
+            componentMap = Maps.newHashMap();
+            componentSpecificHandlers.put(type, componentMap);
+        }
+        for (Class<? extends Component> c : handlerInfo.components) {
+            componentMap.put(c, insert(componentMap.get(c), handlerInfo));
+        }
+    }
+
+    /**
+     * @return A copy of the chain with the handler inserted after all handlers of the same or a higher priority
+     */
+    private static EventHandlerInfo[] insert(EventHandlerInfo[] chain, EventHandlerInfo handlerInfo) {
+        if (chain == null) {
+            return new EventHandlerInfo[]{handlerInfo};
+        }
+        for (EventHandlerInfo existing : chain) {
+            if (existing == handlerInfo) {
+                return chain;
             }
         }
+        int index = 0;
+        while (index < chain.length && chain[index].priority >= handlerInfo.priority) {
+            index++;
+        }
+        EventHandlerInfo[] result = new EventHandlerInfo[chain.length + 1];
+        System.arraycopy(chain, 0, result, 0, index);
+        result[index] = handlerInfo;
+        System.arraycopy(chain, index, result, index + 1, chain.length - index);
+        return result;
     }
 
     @Override
     public void send(EntityRef entity, Event event) {
         if (Thread.currentThread() != mainThread) {
-            pendingEvents.offer(new PendingEvent(entity, event));
+            enqueue(new PendingEvent(entity, event));
         } else {
-            Set<EventHandlerInfo> selectedHandlersSet = selectEventHandlers(event.getClass(), entity);
-            List<EventHandlerInfo> selectedHandlers = Lists.newArrayList(selectedHandlersSet);
-            Collections.sort(selectedHandlers, priorityComparator);
+            EventHandlerInfo[] handlers = handlerChains.get(event.getClass());
+            if (handlers == null) {
+                return;
+            }
 
-            for (EventHandlerInfo handler : selectedHandlers) {
+            long[] initialTypes = entitySystem.getComponentTypeMask(entity.getId());
+            for (EventHandlerInfo handler : handlers) {
                 // Check isValid at each stage in case components were removed.
-                if (handler.isValidFor(entity)) {
+                if (handler.isValidFor(initialTypes) && handler.isValidFor(entitySystem.getComponentTypeMask(entity.getId()))) {
                     handler.invoke(entity, event);
                     if (event.isCancelled())
                         return;
@@ -176,79 +274,109 @@ public class PojoEventSystem implements EventSystem {
     }
 
     @Override
-    public void send(EntityRef entity, Event event, Component component) {
+    public void send(List<EntityRef> entities, Event event) {
         if (Thread.currentThread() != mainThread) {
-            pendingEvents.offer(new PendingEvent(entity, event, component));
+            for (EntityRef entity : entities) {
+                enqueue(new PendingEvent(entity, event));
+            }
         } else {
-            Multimap<Class<? extends Component>, EventHandlerInfo> handlers = componentSpecificHandlers.get(event.getClass());
-            if (handlers != null) {
-                for (EventHandlerInfo eventHandler : handlers.get(component.getClass())) {
-                    if (eventHandler.isValidFor(entity)) {
-                        eventHandler.invoke(entity, event);
+            EventHandlerInfo[] handlers = handlerChains.get(event.getClass());
+            if (handlers == null) {
+                return;
+            }
+
+            long[][] initialTypes = new long[entities.size()][];
+            for (int i = 0; i < initialTypes.length; i++) {
+                initialTypes[i] = entitySystem.getComponentTypeMask(entities.get(i).getId());
+            }
+            for (EventHandlerInfo handler : handlers) {
+                for (int i = 0; i < initialTypes.length; i++) {
+                    EntityRef entity = entities.get(i);
+                    if (handler.isValidFor(initialTypes[i]) && handler.isValidFor(entitySystem.getComponentTypeMask(entity.getId()))) {
+                        handler.invoke(entity, event);
+                        if (event.isCancelled())
+                            return;
                     }
                 }
             }
         }
     }
 
-    private Set<EventHandlerInfo> selectEventHandlers(Class<? extends Event> eventType, EntityRef entity) {
-        Set<EventHandlerInfo> result = Sets.newHashSet();
-        Multimap<Class<? extends Component>, EventHandlerInfo> handlers = componentSpecificHandlers.get(eventType);
-        if (handlers == null)
-            return result;
-
-        for (Class<? extends Component> compClass : handlers.keySet()) {
-            if (entity.hasComponent(compClass)) {
-                for (EventHandlerInfo eventHandler : handlers.get(compClass)) {
-                    if (eventHandler.isValidFor(entity)) {
-                        result.add(eventHandler);
+    @Override
+    public void send(EntityRef entity, Event event, Component component) {
+        if (Thread.currentThread() != mainThread) {
+            enqueue(new PendingEvent(entity, event, component));
+        } else {
+            Map<Class<? extends Component>, EventHandlerInfo[]> componentMap = componentSpecificHandlers.get(event.getClass());
+            if (componentMap != null) {
+                EventHandlerInfo[] handlers = componentMap.get(component.getClass());
+                if (handlers != null) {
+                    for (EventHandlerInfo handler : handlers) {
+                        if (handler.isValidFor(entitySystem.getComponentTypeMask(entity.getId()))) {
+                            handler.invoke(entity, event);
+                        }
                     }
                 }
             }
         }
-        return result;
     }
 
-    private static class EventHandlerPriorityComparator implements Comparator<EventHandlerInfo> {
+    private class EventHandlerInfo {
+        private EventReceiver<Event> receiver;
+        private Class<? extends Component>[] components;
+        private long[] componentMask;
+        private int priority;
 
-        @Override
-        public int compare(EventHandlerInfo o1, EventHandlerInfo o2) {
-            return o2.getPriority() - o1.getPriority();
+        public EventHandlerInfo(EventReceiver<Event> receiver, int priority, Class<? extends Component>... components) {
+            this.receiver = receiver;
+            this.priority = priority;
+            this.components = Arrays.copyOf(components, components.length);
+            this.componentMask = entitySystem.getComponentTypeMask(components);
+        }
+
+        public boolean isValidFor(long[] entityTypes) {
+            return ComponentTable.containsAll(entityTypes, componentMask);
+        }
+
+        public void invoke(EntityRef entity, Event event) {
+            receiver.onEvent(event, entity);
         }
     }
 
-    private interface EventHandlerInfo {
-        public boolean isValidFor(EntityRef entity);
+    /**
+     * A handler for a method of an event handler system. Failures of the method are logged rather than passed on, as
+     * when invoking it through reflection.
+     */
+    private class HandlerMethodInfo extends EventHandlerInfo {
 
-        public void invoke(EntityRef entity, Event event);
+        public HandlerMethodInfo(EventReceiver<Event> receiver, int priority, Class<? extends Component>... components) {
+            super(receiver, priority, components);
+        }
 
-        public int getPriority();
+        @Override
+        public void invoke(EntityRef entity, Event event) {
+            try {
+                super.invoke(entity, event);
+            } catch (RuntimeException ex) {
+                logger.log(Level.SEVERE, "Failed to invoke event", ex);
+            }
+        }
     }
 
-
-    private class ReflectedEventHandlerInfo implements EventHandlerInfo {
+    /**
+     * Calls a handler method through reflection, for methods that generated receivers cannot call
+     */
+    private class ReflectedEventReceiver implements EventReceiver<Event> {
         private EventHandlerSystem handler;
         private Method method;
-        private Class<? extends Component>[] components;
-        private int priority;
 
-        public ReflectedEventHandlerInfo(EventHandlerSystem handler, Method method, int priority, Class<? extends Component>... components) {
+        public ReflectedEventReceiver(EventHandlerSystem handler, Method method) {
             this.handler = handler;
             this.method = method;
-            this.components = Arrays.copyOf(components, components.length);
-            this.priority = priority;
         }
 
-        public boolean isValidFor(EntityRef entity) {
-            for (Class<? extends Component> component : components) {
-                if (!entity.hasComponent(component)) {
-                    return false;
-                }
-            }
-            return true;
-        }
-
-        public void invoke(EntityRef entity, Event event) {
+        @Override
+        public void onEvent(Event event, EntityRef entity) {
             try {
                 method.invoke(handler, event, entity);
             } catch (IllegalAccessException ex) {
@@ -259,41 +387,5 @@ public class PojoEventSystem implements EventSystem {
                 logger.log(Level.SEVERE, "Failed to invoke event", ex);
             }
         }
-
-        public int getPriority() {
-            return priority;
-        }
-    }
-
-    private class ReceiverEventHandlerInfo<T extends Event> implements EventHandlerInfo {
-        private EventReceiver<T> receiver;
-        private Class<? extends Component>[] components;
-        private int priority;
-
-        public ReceiverEventHandlerInfo(EventReceiver<T> receiver, int priority, Class<? extends Component>... components) {
-            this.receiver = receiver;
-            this.priority = priority;
-            this.components = Arrays.copyOf(components, components.length);
-        }
-
-        @Override
-        public boolean isValidFor(EntityRef entity) {
-            for (Class<? extends Component> component : components) {
-                if (!entity.hasComponent(component)) {
-                    return false;
-                }
-            }
-            return true;
-        }
-
-        @Override
-        public void invoke(EntityRef entity, Event event) {
-            receiver.onEvent((T) event, entity);
-        }
-
-        @Override
-        public int getPriority() {
-            return priority;
-        }
     }
 }
@@ -44,10 +44,12 @@ public class ComponentSystemManager {
 
     private Map<String, ComponentSystem> namedLookup = Maps.newHashMap();
     private List<UpdateSubscriberSystem> updateSubscribers = Lists.newArrayList();
+    private UpdateScheduler updateScheduler;
     private List<RenderSystem> renderSubscribers = Lists.newArrayList();
     private List<ComponentSystem> store = Lists.newArrayList();
 
     public ComponentSystemManager() {
+        updateScheduler = new UpdateScheduler(CoreRegistry.get(EntityManager.class).getEventSystem());
     }
 
     // TODO: Mod support
@@ -84,6 +86,7 @@ public class ComponentSystemManager {
         store.add(object);
         if (object instanceof UpdateSubscriberSystem) {
             updateSubscribers.add((UpdateSubscriberSystem) object);
+            updateScheduler.add((UpdateSubscriberSystem) object);
         }
         if (object instanceof RenderSystem) {
             renderSubscribers.add((RenderSystem) object);
@@ -104,6 +107,7 @@ public class ComponentSystemManager {
         namedLookup.clear();
         store.clear();
         updateSubscribers.clear();
+        updateScheduler.clear();
         renderSubscribers.clear();
     }
 
@@ -115,6 +119,13 @@ public class ComponentSystemManager {
         return updateSubscribers;
     }
 
+    /**
+     * @return The scheduler for updating the update subscribers
+     */
+    public UpdateScheduler getUpdateScheduler() {
+        return updateScheduler;
+    }
+
     public Iterable<RenderSystem> iterateRenderSubscribers() {
         return renderSubscribers;
     }
@@ -16,135 +16,362 @@
 package org.terasology.game;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
-import javax.vecmath.Vector2f;
 import javax.vecmath.Vector4f;
 
+import org.terasology.logic.manager.PathManager;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.WorldBiomeProviderImpl;
 import org.terasology.world.block.Block;
 import org.terasology.world.generator.core.PerlinTerrainGenerator;
 
+import com.google.common.collect.Lists;
+
 /**
  * Simple preview generator. Generates heightmap images using the terrain generator.
+ * <p/>
+ * Maps are split into tiles that are rendered in parallel. Rendering is progressive: every tile is first sampled
+ * coarsely, and each following pass halves the sample spacing, only evaluating the pixels that have not been sampled
+ * yet. Finished tiles can be cached on disk, keyed by seed, map style and zoom.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
 public class TerrainPreviewGenerator {
 
-    private enum MapStyle {
+    private static final Logger logger = Logger.getLogger(TerrainPreviewGenerator.class.getName());
+
+    public enum MapStyle {
         BIOMES, FOLIAGE_LUT, COLOR_LUT
     }
 
+    /**
+     * Notified on the calling thread whenever the whole map has been refined to a finer sample spacing.
+     */
+    public interface RefinementListener {
+        /**
+         * @param image The map rendered so far
+         * @param step  The spacing of the samples in pixels, 1 once the map is complete
+         */
+        void onRefined(BufferedImage image, int step);
+    }
+
     /* CONST */
     private static final int ZOOM_FACTOR = 8;
-    private static final Vector2f POSITION = new Vector2f(0.0f, 0.0f);
+    private static final int TILE_SIZE = 128;
+    private static final int COARSEST_STEP = 8;
+
+    /* The heights sampled for the surface of a column, from the top down */
+    private static final int[] HEIGHTS = new int[64];
+
+    static {
+        for (int i = 0; i < HEIGHTS.length; i++) {
+            HEIGHTS[i] = 255 - i * 4;
+        }
+    }
+
+    private final String seed;
+    private final ExecutorService threads;
+    private File cacheDirectory;
 
     private WorldBiomeProvider biomeProvider;
     PerlinTerrainGenerator generator;
 
     public static void main(String[] args) {
-        TerrainPreviewGenerator gen = new TerrainPreviewGenerator("rAtAiWyKgDlEeFjKiSsPzKaOuKhRrWqV");
+        String seed = args.length > 0 ? args[0] : "rAtAiWyKgDlEeFjKiSsPzKaOuKhRrWqV";
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int zoom = args.length > 2 ? Integer.parseInt(args[2]) : ZOOM_FACTOR;
 
-        gen.generateMap(MapStyle.BIOMES, "Biomes.png");
-        gen.generateMap(MapStyle.COLOR_LUT, "ColorLut.png");
-        gen.generateMap(MapStyle.FOLIAGE_LUT, "FoliageLut.png");
+        PathManager.getInstance().determineRootPath(true);
+        TerrainPreviewGenerator gen = new TerrainPreviewGenerator(seed);
+        gen.setCacheDirectory(new File(PathManager.getInstance().getDataPath(), "previewCache"));
+        try {
+            gen.generateMap(MapStyle.BIOMES, size, zoom, "Biomes.png");
+            gen.generateMap(MapStyle.COLOR_LUT, size, zoom, "ColorLut.png");
+            gen.generateMap(MapStyle.FOLIAGE_LUT, size, zoom, "FoliageLut.png");
+        } finally {
+            gen.dispose();
+        }
     }
 
     public TerrainPreviewGenerator(String seed) {
+        this.seed = seed;
         this.biomeProvider = new WorldBiomeProviderImpl(seed);
         generator = new PerlinTerrainGenerator();
         generator.setWorldSeed(seed);
         generator.setWorldBiomeProvider(biomeProvider);
+        threads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param cacheDirectory The directory to cache finished tiles in, or null to disable caching
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public void dispose() {
+        threads.shutdown();
     }
 
     public void generateMap(MapStyle mapStyle, String fileName) {
-        BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = image.createGraphics();
-
-        int counter = 0;
-        for (int x = -128; x < 128; x++) {
-            for (int z = -128; z < 128; z++) {
-                switch (mapStyle) {
-                    case BIOMES:
-                        WorldBiomeProvider.Biome bt = biomeProvider.getBiomeAt(x * ZOOM_FACTOR + (int) POSITION.x, z * ZOOM_FACTOR + (int) POSITION.y);
-
-                        Color color = Color.BLACK;
-
-                        switch (bt) {
-                            case PLAINS:
-                                color = new Color(0, 0, 25);
-                                break;
-                            case MOUNTAINS:
-                                color = new Color(25, 0, 0);
-                                break;
-                            case SNOW:
-                                color = new Color(25, 25, 25);
-                                break;
-                            case DESERT:
-                                color = new Color(25, 25, 0);
-                                break;
-                            case FOREST:
-                                color = new Color(0, 25, 0);
-                                break;
-                        }
+        generateMap(mapStyle, 256, ZOOM_FACTOR, fileName);
+    }
 
-                        for (int height = 256; height > 0; height -= 4) {
-                            double n = generator.calcDensity(x * ZOOM_FACTOR + (int) POSITION.x, height - 1, z * ZOOM_FACTOR + (int) POSITION.y);
+    private void generateMap(MapStyle mapStyle, int size, int zoom, String fileName) {
+        final long startTime = System.nanoTime();
+        BufferedImage image = generateMap(mapStyle, 0, 0, size, size, zoom, new RefinementListener() {
+            @Override
+            public void onRefined(BufferedImage image, int step) {
+                logger.log(Level.INFO, String.format("Refined to %d pixel(s) after %.2f s", step, (System.nanoTime() - startTime) / 1e9));
+            }
+        });
 
-                            if (n >= 0) {
-                                if (height > 32)
-                                    g.setColor(new Color(Math.min(height + color.getRed(), 255), Math.min(height + color.getGreen(), 255), Math.min(height + color.getBlue(), 255)));
-                                else
-                                    g.setColor(new Color(0, 0, (int) (255.0 * (32.0 - (32.0 - height)) / 32.0)));
+        try {
+            ImageIO.write(image, "png", new File(fileName));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                                g.fillRect(x + 128, z + 128, 1, 1);
-                                break;
-                            }
-                        }
-                        break;
-                    case COLOR_LUT:
-                    case FOLIAGE_LUT:
-                        float humidity = biomeProvider.getHumidityAt(x * ZOOM_FACTOR + (int) POSITION.x, z * ZOOM_FACTOR + (int) POSITION.y);
-                        float temp = biomeProvider.getTemperatureAt(x * ZOOM_FACTOR + (int) POSITION.x, z * ZOOM_FACTOR + (int) POSITION.y);
-                        humidity *= temp;
+    /**
+     * Renders a map of the world.
+     *
+     * @param mapStyle The style of the map
+     * @param centerX  The world position at the center of the map
+     * @param centerZ  The world position at the center of the map
+     * @param width    The width of the map in pixels
+     * @param height   The height of the map in pixels
+     * @param zoom     The number of blocks per pixel
+     * @param listener Notified of each refinement of the map, may be null
+     * @return The map
+     */
+    public BufferedImage generateMap(MapStyle mapStyle, int centerX, int centerZ, int width, int height, int zoom, RefinementListener listener) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int originX = floorDiv(centerX, zoom) - width / 2;
+        int originZ = floorDiv(centerZ, zoom) - height / 2;
 
-                        Vector4f vecCol = new Vector4f();
+        List<Tile> tiles = Lists.newArrayList();
+        List<Tile> pendingTiles = Lists.newArrayList();
+        for (int tileZ = floorDiv(originZ, TILE_SIZE); tileZ * TILE_SIZE < originZ + height; tileZ++) {
+            for (int tileX = floorDiv(originX, TILE_SIZE); tileX * TILE_SIZE < originX + width; tileX++) {
+                Tile tile = new Tile(mapStyle, tileX, tileZ, zoom);
+                tiles.add(tile);
+                if (tile.loadFromCache()) {
+                    tile.drawTo(image, originX, originZ);
+                } else {
+                    pendingTiles.add(tile);
+                }
+            }
+        }
 
-                        if (mapStyle == MapStyle.COLOR_LUT)
-                            vecCol = Block.ColorSource.COLOR_LUT.calcColor(temp, humidity);
-                        else if (mapStyle == MapStyle.FOLIAGE_LUT)
-                            vecCol = Block.ColorSource.FOLIAGE_LUT.calcColor(temp, humidity);
+        for (int step = COARSEST_STEP; step >= 1 && !pendingTiles.isEmpty(); step /= 2) {
+            List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(pendingTiles.size());
+            for (final Tile tile : pendingTiles) {
+                final int tileStep = step;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        tile.refine(tileStep);
+                        return null;
+                    }
+                });
+            }
+            invokeAll(tasks);
 
-                        for (int height = 256; height > 0; height -= 4) {
-                            double n = generator.calcDensity(x * ZOOM_FACTOR + (int) POSITION.x, height - 1, z * ZOOM_FACTOR + (int) POSITION.y);
+            for (Tile tile : pendingTiles) {
+                tile.drawTo(image, originX, originZ);
+            }
+            if (listener != null) {
+                listener.onRefined(image, step);
+            }
+        }
 
-                            if (n >= 0) {
-                                g.setColor(new Color(vecCol.x, vecCol.y, vecCol.z));
-                                g.fillRect(x + 128, z + 128, 1, 1);
+        for (Tile tile : pendingTiles) {
+            tile.saveToCache();
+        }
+        return image;
+    }
 
-                                break;
-                            }
+    private void invokeAll(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> result : threads.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while rendering the map", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to render the map", e.getCause());
+        }
+    }
+
+    /**
+     * Calculates the color of a pixel from the climate and the density of the column, sampled at {@link #HEIGHTS}.
+     */
+    private int calcPixel(MapStyle mapStyle, float temp, float humidity, double[] density, int offset) {
+        for (int i = 0; i < HEIGHTS.length; i++) {
+            if (density[offset + i] < 0) {
+                continue;
+            }
+            int height = HEIGHTS[i] + 1;
+
+            switch (mapStyle) {
+                case BIOMES:
+                    if (height <= 32) {
+                        return new Color(0, 0, (int) (255.0 * (32.0 - (32.0 - height)) / 32.0)).getRGB();
+                    }
+
+                    Color color = Color.BLACK;
+
+                    switch (WorldBiomeProvider.Biome.forClimate(temp, humidity)) {
+                        case PLAINS:
+                            color = new Color(0, 0, 25);
+                            break;
+                        case MOUNTAINS:
+                            color = new Color(25, 0, 0);
+                            break;
+                        case SNOW:
+                            color = new Color(25, 25, 25);
+                            break;
+                        case DESERT:
+                            color = new Color(25, 25, 0);
+                            break;
+                        case FOREST:
+                            color = new Color(0, 25, 0);
+                            break;
+                    }
+                    return new Color(Math.min(height + color.getRed(), 255), Math.min(height + color.getGreen(), 255), Math.min(height + color.getBlue(), 255)).getRGB();
+                case COLOR_LUT:
+                case FOLIAGE_LUT:
+                    Block.ColorSource source = (mapStyle == MapStyle.COLOR_LUT) ? Block.ColorSource.COLOR_LUT : Block.ColorSource.FOLIAGE_LUT;
+                    Vector4f vecCol = source.calcColor(temp, humidity * temp);
+                    return new Color(vecCol.x, vecCol.y, vecCol.z).getRGB();
+            }
+        }
+        return Color.BLACK.getRGB();
+    }
+
+    private static int floorDiv(int value, int divisor) {
+        return (value >= 0) ? value / divisor : -((-value + divisor - 1) / divisor);
+    }
+
+    /**
+     * A square of TILE_SIZE pixels, aligned to the pixel grid of its zoom level so that it can be cached.
+     */
+    private class Tile {
+        private final MapStyle mapStyle;
+        private final int tileX;
+        private final int tileZ;
+        private final int zoom;
+        private int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+
+        public Tile(MapStyle mapStyle, int tileX, int tileZ, int zoom) {
+            this.mapStyle = mapStyle;
+            this.tileX = tileX;
+            this.tileZ = tileZ;
+            this.zoom = zoom;
+        }
+
+        /**
+         * Samples the pixels at the given spacing that have not been sampled by a coarser pass, and fills the square
+         * of step x step pixels each sample stands for.
+         */
+        public void refine(int step) {
+            boolean coarsest = step == COARSEST_STEP;
+            int[] columns = new int[TILE_SIZE];
+            int[] rowZ = new int[1];
+            for (int j = 0; j < TILE_SIZE; j += step) {
+                // Rows already sampled by the previous pass only need the columns in between
+                boolean sampledRow = !coarsest && j % (2 * step) == 0;
+                int count = 0;
+                for (int i = sampledRow ? step : 0; i < TILE_SIZE; i += sampledRow ? 2 * step : step) {
+                    columns[count++] = i;
+                }
+
+                int[] xs = new int[count];
+                for (int k = 0; k < count; k++) {
+                    xs[k] = (tileX * TILE_SIZE + columns[k]) * zoom;
+                }
+                rowZ[0] = (tileZ * TILE_SIZE + j) * zoom;
+
+                float[] temperatures = new float[count];
+                float[] humidities = new float[count];
+                double[] density = new double[count * HEIGHTS.length];
+                biomeProvider.getTemperatures(temperatures, xs, rowZ);
+                biomeProvider.getHumidities(humidities, xs, rowZ);
+                generator.calcDensity(density, xs, HEIGHTS, rowZ);
+
+                for (int k = 0; k < count; k++) {
+                    int rgb = calcPixel(mapStyle, temperatures[k], humidities[k], density, k * HEIGHTS.length);
+                    for (int z = j; z < Math.min(j + step, TILE_SIZE); z++) {
+                        for (int x = columns[k]; x < Math.min(columns[k] + step, TILE_SIZE); x++) {
+                            pixels[z * TILE_SIZE + x] = rgb;
                         }
-                        break;
+                    }
                 }
+            }
+        }
 
-                counter++;
+        public void drawTo(BufferedImage image, int originX, int originZ) {
+            int minX = Math.max(tileX * TILE_SIZE, originX);
+            int minZ = Math.max(tileZ * TILE_SIZE, originZ);
+            int maxX = Math.min((tileX + 1) * TILE_SIZE, originX + image.getWidth());
+            int maxZ = Math.min((tileZ + 1) * TILE_SIZE, originZ + image.getHeight());
+            int offset = (minZ - tileZ * TILE_SIZE) * TILE_SIZE + (minX - tileX * TILE_SIZE);
+            image.setRGB(minX - originX, minZ - originZ, maxX - minX, maxZ - minZ, pixels, offset, TILE_SIZE);
+        }
 
-                if (counter % 1024 == 0)
-                    System.out.printf("%.2f %%\n", (counter / (256.0 * 256.0)) * 100.0);
+        public boolean loadFromCache() {
+            File file = getCacheFile();
+            if (file == null || !file.exists()) {
+                return false;
+            }
+            try {
+                BufferedImage cached = ImageIO.read(file);
+                if (cached == null || cached.getWidth() != TILE_SIZE || cached.getHeight() != TILE_SIZE) {
+                    return false;
+                }
+                cached.getRGB(0, 0, TILE_SIZE, TILE_SIZE, pixels, 0, TILE_SIZE);
+                return true;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to read cached preview tile " + file, e);
+                return false;
             }
         }
 
-        try {
-            ImageIO.write(image, "png", new File(fileName));
-        } catch (IOException e) {
-            e.printStackTrace();
+        public void saveToCache() {
+            File file = getCacheFile();
+            if (file == null) {
+                return;
+            }
+            file.getParentFile().mkdirs();
+            BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(0, 0, TILE_SIZE, TILE_SIZE, pixels, 0, TILE_SIZE);
+            try {
+                ImageIO.write(image, "png", file);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to cache preview tile " + file, e);
+            }
+        }
+
+        private File getCacheFile() {
+            if (cacheDirectory == null) {
+                return null;
+            }
+            String seedKey = seed.replaceAll("[^A-Za-z0-9]", "") + "_" + Integer.toHexString(seed.hashCode());
+            return new File(cacheDirectory, seedKey + File.separator + mapStyle.name().toLowerCase() + File.separator + zoom + File.separator + tileX + "_" + tileZ + ".png");
         }
     }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.ComponentAccess;
+import org.terasology.entitySystem.EventSystem;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Updates the update subscriber systems each frame. Systems that declare the components they access (see
+ * {@link ComponentAccess}) are updated concurrently with the other systems they don't conflict with, on a pool of
+ * worker threads. All systems have been updated when {@link #update(float)} returns.
+ * <p/>
+ * The systems are grouped into stages, which are updated one after another. A system is placed in the stage after the
+ * last stage containing a system registered before it that it conflicts with, so conflicting systems are still
+ * updated in the order they were registered.
+ */
+public class UpdateScheduler {
+
+    private final EventSystem eventSystem;
+    private final int workerCount;
+    private ExecutorService workers;
+
+    private List<ScheduledSystem> systems = Lists.newArrayList();
+    /* The systems of each stage, built when first needed */
+    private List<List<ScheduledSystem>> stages;
+
+    /**
+     * Creates a scheduler using a worker thread for each processor
+     */
+    public UpdateScheduler(EventSystem eventSystem) {
+        this(eventSystem, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param eventSystem The event system that the systems send events through
+     * @param workerCount The number of worker threads. With one or none, all systems are updated on the main thread.
+     */
+    public UpdateScheduler(EventSystem eventSystem, int workerCount) {
+        this.eventSystem = eventSystem;
+        this.workerCount = workerCount;
+    }
+
+    public void add(UpdateSubscriberSystem system) {
+        systems.add(new ScheduledSystem(system));
+        stages = null;
+    }
+
+    public void clear() {
+        systems.clear();
+        stages = null;
+    }
+
+    /**
+     * @return The systems of each stage, in the order the stages are updated
+     */
+    public List<List<UpdateSubscriberSystem>> getStages() {
+        List<List<UpdateSubscriberSystem>> result = Lists.newArrayList();
+        for (List<ScheduledSystem> stage : getScheduledStages()) {
+            List<UpdateSubscriberSystem> stageSystems = Lists.newArrayList();
+            for (ScheduledSystem system : stage) {
+                stageSystems.add(system.system);
+            }
+            result.add(stageSystems);
+        }
+        return result;
+    }
+
+    /**
+     * Updates all systems, returning once all are done
+     *
+     * @param delta
+     */
+    public void update(final float delta) {
+        for (List<ScheduledSystem> stage : getScheduledStages()) {
+            if (stage.size() == 1 || workerCount <= 1) {
+                for (ScheduledSystem system : stage) {
+                    system.update(delta);
+                }
+            } else {
+                updateConcurrently(stage, delta);
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+
+    private void updateConcurrently(List<ScheduledSystem> stage, final float delta) {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(workerCount, new ThreadFactoryBuilder().setNameFormat("Update worker %d").setDaemon(true).build());
+        }
+        // Events sent from the main thread are handled straight away, so it only waits to not have handlers running
+        // alongside the systems. The workers hold their events rather than waiting for room in the queue of pending
+        // events, which the waiting main thread wouldn't make, so they are sent when events are next processed.
+        List<Future<?>> results = Lists.newArrayListWithCapacity(stage.size());
+        for (final ScheduledSystem system : stage) {
+            results.add(workers.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    eventSystem.holdEvents();
+                    try {
+                        system.update(delta);
+                    } finally {
+                        eventSystem.releaseEvents();
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        RuntimeException failure = null;
+        for (Future<?> result : results) {
+            try {
+                waitFor(result);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                if (failure == null) {
+                    failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits for a result, even if interrupted, as the systems must not be left running into the next part of the frame
+     */
+    private static void waitFor(Future<?> result) throws ExecutionException {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                result.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<List<ScheduledSystem>> getScheduledStages() {
+        if (stages == null) {
+            stages = Lists.newArrayList();
+            int[] stageIndices = new int[systems.size()];
+            for (int i = 0; i < systems.size(); i++) {
+                ScheduledSystem system = systems.get(i);
+                int stageIndex = 0;
+                for (int j = 0; j < i; j++) {
+                    if (stageIndices[j] >= stageIndex && system.conflictsWith(systems.get(j))) {
+                        stageIndex = stageIndices[j] + 1;
+                    }
+                }
+                stageIndices[i] = stageIndex;
+                if (stageIndex == stages.size()) {
+                    stages.add(Lists.<ScheduledSystem>newArrayList());
+                }
+                stages.get(stageIndex).add(system);
+            }
+        }
+        return stages;
+    }
+
+    private static class ScheduledSystem {
+        private final UpdateSubscriberSystem system;
+        private final String name;
+        /* The declared component types, null if the system didn't declare them */
+        private final Set<Class<? extends Component>> reads;
+        private final Set<Class<? extends Component>> writes;
+
+        public ScheduledSystem(UpdateSubscriberSystem system) {
+            this.system = system;
+            this.name = system.getClass().getSimpleName();
+            ComponentAccess access = system.getClass().getAnnotation(ComponentAccess.class);
+            if (access != null) {
+                reads = ImmutableSet.copyOf(Arrays.asList(access.reads()));
+                writes = ImmutableSet.copyOf(Arrays.asList(access.writes()));
+            } else {
+                reads = null;
+                writes = null;
+            }
+        }
+
+        public boolean conflictsWith(ScheduledSystem other) {
+            if (writes == null || other.writes == null) {
+                return true;
+            }
+            return !Collections.disjoint(writes, other.writes) || !Collections.disjoint(writes, other.reads) || !Collections.disjoint(reads, other.writes);
+        }
+
+        public void update(float delta) {
+            // Only recorded for the main thread
+            PerformanceMonitor.startActivity(name);
+            try {
+                system.update(delta);
+            } finally {
+                PerformanceMonitor.endActivity();
+            }
+        }
+    }
+}
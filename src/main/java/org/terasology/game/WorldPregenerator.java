@@ -0,0 +1,440 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.sources.ClasspathSource;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.logic.manager.Config;
+import org.terasology.logic.manager.PathManager;
+import org.terasology.logic.mod.Mod;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.math.Vector3i;
+import org.terasology.utilities.FastRandom;
+import org.terasology.world.WorldBiomeProviderImpl;
+import org.terasology.world.WorldInfo;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkProvider;
+import org.terasology.world.chunks.ChunkStore;
+import org.terasology.world.chunks.store.ChunkStoreGZip;
+import org.terasology.world.generator.core.ChunkGeneratorManager;
+import org.terasology.world.generator.core.ChunkGeneratorManagerImpl;
+import org.terasology.world.generator.core.FloraGenerator;
+import org.terasology.world.generator.core.ForestGenerator;
+import org.terasology.world.generator.core.PerlinTerrainGenerator;
+import org.terasology.world.lighting.InternalLightProcessor;
+import org.terasology.world.lighting.LightPropagator;
+import org.terasology.world.liquid.LiquidsGenerator;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Headless world pregeneration. Runs the full chunk pipeline (generation, second pass, internal lighting and light
+ * propagation) for a square area of chunks on all cores, and writes the result into the chunk store of a saved world
+ * so that the game can open it.
+ * <p/>
+ * The area is swept row by row (along z). Each pipeline stage trails the previous one by a row, which matches the
+ * adjacency requirements of LocalChunkProvider, so only a handful of rows are held in memory at any time.
+ * <p/>
+ * Usage: WorldPregenerator -title &lt;world title&gt; -radius &lt;chunks&gt; [-seed &lt;seed&gt;]
+ * [-generators &lt;class,class,...&gt;] [-center &lt;chunkX,chunkZ&gt;] [-threads &lt;count&gt;]
+ * <p/>
+ * If the world already exists its seed and generators are used, and chunks that are already stored are reused.
+ */
+public class WorldPregenerator {
+    private static final Logger logger = Logger.getLogger(WorldPregenerator.class.getName());
+
+    /* Rows (and columns) each pipeline stage requires beyond the area being completed */
+    private static final int GENERATION_MARGIN = 4;
+    private static final int SECOND_PASS_MARGIN = 3;
+    private static final int INTERNAL_LIGHT_MARGIN = 2;
+    private static final int LIGHT_PROPAGATION_MARGIN = 1;
+
+    private static final String[] DEFAULT_GENERATORS = {
+            PerlinTerrainGenerator.class.getName(),
+            FloraGenerator.class.getName(),
+            LiquidsGenerator.class.getName(),
+            ForestGenerator.class.getName()
+    };
+
+    private final ChunkGeneratorManager generator;
+    private final ChunkStore store;
+    private final ExecutorService threads;
+
+    private final ConcurrentMap<Vector3i, Chunk> chunks = Maps.newConcurrentMap();
+    private final ChunkProvider chunkProvider = new PregenerationChunkProvider();
+    private final AtomicInteger generatedChunks = new AtomicInteger();
+    private final AtomicInteger loadedChunks = new AtomicInteger();
+
+    public static void main(String[] args) {
+        String title = null;
+        String seed = null;
+        String[] generators = DEFAULT_GENERATORS;
+        Vector3i center = Vector3i.zero();
+        int radius = -1;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                if (arg.equals("-title")) {
+                    title = value;
+                } else if (arg.equals("-seed")) {
+                    seed = value;
+                } else if (arg.equals("-radius")) {
+                    radius = Integer.parseInt(value);
+                } else if (arg.equals("-generators")) {
+                    generators = value.split(",");
+                } else if (arg.equals("-center")) {
+                    String[] coords = value.split(",");
+                    center = new Vector3i(Integer.parseInt(coords[0].trim()), 0, Integer.parseInt(coords[1].trim()));
+                } else if (arg.equals("-threads")) {
+                    threadCount = Integer.parseInt(value);
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (title == null || title.isEmpty() || radius < 0 || threadCount < 1) {
+                throw new IllegalArgumentException("A world title and a radius are required");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: WorldPregenerator -title <world title> -radius <chunks> [-seed <seed>] [-generators <class,class,...>] [-center <chunkX,chunkZ>] [-threads <count>]");
+            System.exit(1);
+        }
+
+        try {
+            PathManager.getInstance().determineRootPath(true);
+            initAssets();
+
+            File worldPath = PathManager.getInstance().getWorldSavePath(title);
+            File manifestFile = new File(worldPath, WorldInfo.DEFAULT_FILE_NAME);
+            File chunkFile = new File(worldPath, title + ".dat");
+
+            WorldInfo worldInfo;
+            ChunkStore store;
+            if (manifestFile.exists()) {
+                worldInfo = WorldInfo.load(manifestFile);
+                logger.log(Level.INFO, "Extending existing world \"{0}\", using its seed and generators", title);
+                store = chunkFile.exists() ? ChunkStoreGZip.load(chunkFile) : new ChunkStoreGZip();
+            } else {
+                if (seed == null || seed.isEmpty()) {
+                    seed = new FastRandom().randomCharacterString(32);
+                }
+                worldInfo = new WorldInfo(title, seed, Config.getInstance().getDayNightLengthInMs() / 4, generators);
+                store = new ChunkStoreGZip();
+            }
+            BlockManager.getInstance().loadHeadless(worldInfo.getBlockIdMap());
+            logger.log(Level.INFO, "World seed: \"{0}\"", worldInfo.getSeed());
+
+            ChunkGeneratorManager generator = ChunkGeneratorManagerImpl.buildChunkGenerator(Arrays.asList(worldInfo.getChunkGenerators()));
+            generator.setWorldSeed(worldInfo.getSeed());
+            generator.setWorldBiomeProvider(new WorldBiomeProviderImpl(worldInfo.getSeed()));
+
+            WorldPregenerator pregenerator = new WorldPregenerator(generator, store, threadCount);
+            try {
+                pregenerator.pregenerate(center, radius);
+            } finally {
+                pregenerator.dispose();
+            }
+
+            store.dispose();
+            saveChunkStore(store, chunkFile);
+            worldInfo.setBlockIdMap(BlockManager.getInstance().getBlockIdMap());
+            WorldInfo.save(manifestFile, worldInfo);
+        } catch (Throwable t) {
+            logger.log(Level.SEVERE, "Pregeneration failed", t);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Registers the engine and mod assets, as the game does on start up (without any of the display setup).
+     */
+    private static void initAssets() {
+        AssetType.registerAssetTypes();
+        AssetManager.getInstance().addAssetSource(new ClasspathSource("engine", WorldPregenerator.class.getProtectionDomain().getCodeSource(), "org/terasology/data"));
+        ModManager modManager = new ModManager();
+        for (Mod mod : modManager.getMods()) {
+            mod.setEnabled(true);
+        }
+    }
+
+    private static void saveChunkStore(ChunkStore store, File chunkFile) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(chunkFile)));
+        try {
+            out.writeObject(store);
+        } finally {
+            out.close();
+        }
+    }
+
+    public WorldPregenerator(ChunkGeneratorManager generator, ChunkStore store, int threadCount) {
+        this.generator = generator;
+        this.store = store;
+        this.threads = Executors.newFixedThreadPool(threadCount);
+    }
+
+    /**
+     * Brings all chunks within the given radius (in chunks) of the center chunk to the complete state, and stores
+     * them along with the partially processed chunks around them.
+     */
+    public void pregenerate(Vector3i center, int radius) throws InterruptedException {
+        final int minX = center.x - radius, maxX = center.x + radius;
+        final int minZ = center.z - radius, maxZ = center.z + radius;
+        int rowCount = maxZ - minZ + 1 + 2 * GENERATION_MARGIN;
+
+        logger.log(Level.INFO, "Pregenerating {0} chunks around {1}", new Object[]{(2 * radius + 1) * (2 * radius + 1), center});
+        long startTime = System.nanoTime();
+
+        for (int z = minZ - GENERATION_MARGIN; z <= maxZ + GENERATION_MARGIN; z++) {
+            processRow(z, minX - GENERATION_MARGIN, maxX + GENERATION_MARGIN, new ChunkStage() {
+                @Override
+                public void process(Vector3i pos) {
+                    obtainChunk(pos);
+                }
+            });
+            if (z - 1 >= minZ - SECOND_PASS_MARGIN && z - 1 <= maxZ + SECOND_PASS_MARGIN) {
+                processRow(z - 1, minX - SECOND_PASS_MARGIN, maxX + SECOND_PASS_MARGIN, new ChunkStage() {
+                    @Override
+                    public void process(Vector3i pos) {
+                        secondPass(pos);
+                    }
+                });
+            }
+            if (z - 2 >= minZ - INTERNAL_LIGHT_MARGIN && z - 2 <= maxZ + INTERNAL_LIGHT_MARGIN) {
+                processRow(z - 2, minX - INTERNAL_LIGHT_MARGIN, maxX + INTERNAL_LIGHT_MARGIN, new ChunkStage() {
+                    @Override
+                    public void process(Vector3i pos) {
+                        generateInternalLighting(pos);
+                    }
+                });
+            }
+            if (z - 3 >= minZ - LIGHT_PROPAGATION_MARGIN && z - 3 <= maxZ + LIGHT_PROPAGATION_MARGIN) {
+                processRow(z - 3, minX - LIGHT_PROPAGATION_MARGIN, maxX + LIGHT_PROPAGATION_MARGIN, new ChunkStage() {
+                    @Override
+                    public void process(Vector3i pos) {
+                        propagateLighting(pos);
+                    }
+                });
+            }
+            if (z - 4 >= minZ && z - 4 <= maxZ) {
+                for (int x = minX; x <= maxX; x++) {
+                    Chunk chunk = chunks.get(new Vector3i(x, 0, z - 4));
+                    if (chunk.getChunkState() == Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) {
+                        chunk.setChunkState(Chunk.State.COMPLETE);
+                    }
+                }
+            }
+
+            // No later stage touches this row any more
+            storeRow(z - 4);
+
+            int rowsDone = z - (minZ - GENERATION_MARGIN) + 1;
+            if (rowsDone % 8 == 0 || rowsDone == rowCount) {
+                double seconds = (System.nanoTime() - startTime) / 1e9;
+                logger.log(Level.INFO, String.format("Row %d/%d, %d chunks generated, %.1f chunks/s", rowsDone, rowCount, generatedChunks.get(), generatedChunks.get() / seconds));
+            }
+        }
+
+        Iterator<Chunk> remaining = chunks.values().iterator();
+        while (remaining.hasNext()) {
+            store.put(remaining.next());
+            remaining.remove();
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        logger.log(Level.INFO, String.format("Generated %d chunks (%d loaded from the store) in %.1f s: %.1f chunks/s", generatedChunks.get(), loadedChunks.get(), seconds, generatedChunks.get() / seconds));
+    }
+
+    public void dispose() {
+        threads.shutdown();
+    }
+
+    private void processRow(int z, int minX, int maxX, final ChunkStage stage) throws InterruptedException {
+        List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(maxX - minX + 1);
+        for (int x = minX; x <= maxX; x++) {
+            final Vector3i pos = new Vector3i(x, 0, z);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    stage.process(pos);
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> result : threads.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to process chunk row " + z, e.getCause());
+            }
+        }
+    }
+
+    private void storeRow(int z) {
+        Iterator<Chunk> iterator = chunks.values().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            if (chunk.getPos().z == z) {
+                store.put(chunk);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void obtainChunk(Vector3i pos) {
+        if (chunks.containsKey(pos)) {
+            return;
+        }
+        Chunk chunk;
+        if (store.contains(pos)) {
+            chunk = store.get(pos);
+            loadedChunks.incrementAndGet();
+        } else {
+            chunk = generator.generateChunk(pos);
+            generatedChunks.incrementAndGet();
+        }
+        chunks.put(pos, chunk);
+    }
+
+    private void secondPass(Vector3i pos) {
+        WorldView view = WorldView.createLocalView(pos, chunkProvider);
+        if (view == null) {
+            return;
+        }
+        view.lock();
+        try {
+            Chunk chunk = chunks.get(pos);
+            if (chunk.getChunkState() != Chunk.State.ADJACENCY_GENERATION_PENDING) {
+                return;
+            }
+            generator.secondPassChunk(pos, view);
+            chunk.setChunkState(Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        } finally {
+            view.unlock();
+        }
+    }
+
+    private void generateInternalLighting(Vector3i pos) {
+        Chunk chunk = chunks.get(pos);
+        chunk.lock();
+        try {
+            if (chunk.getChunkState() != Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
+                return;
+            }
+            InternalLightProcessor.generateInternalLighting(chunk);
+            chunk.setChunkState(Chunk.State.LIGHT_PROPAGATION_PENDING);
+        } finally {
+            chunk.unlock();
+        }
+    }
+
+    private void propagateLighting(Vector3i pos) {
+        WorldView view = WorldView.createLocalView(pos, chunkProvider);
+        if (view == null) {
+            return;
+        }
+        view.lock();
+        try {
+            Chunk chunk = chunks.get(pos);
+            if (chunk.getChunkState() != Chunk.State.LIGHT_PROPAGATION_PENDING) {
+                return;
+            }
+            new LightPropagator(view).propagateOutOfTargetChunk();
+            chunk.setChunkState(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+        } finally {
+            view.unlock();
+        }
+    }
+
+    private interface ChunkStage {
+        void process(Vector3i pos);
+    }
+
+    /**
+     * Exposes the rows held in memory to world views.
+     */
+    private class PregenerationChunkProvider implements ChunkProvider {
+
+        @Override
+        public void setWorldEntity(EntityRef entity) {
+        }
+
+        @Override
+        public void addRegionEntity(EntityRef entity, int distance) {
+        }
+
+        @Override
+        public void removeRegionEntity(EntityRef entity) {
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public boolean isChunkAvailable(Vector3i pos) {
+            return chunks.containsKey(pos);
+        }
+
+        @Override
+        public Chunk getChunk(int x, int y, int z) {
+            return getChunk(new Vector3i(x, y, z));
+        }
+
+        @Override
+        public Chunk getChunk(Vector3i chunkPos) {
+            return chunks.get(chunkPos);
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public float size() {
+            return chunks.size();
+        }
+    }
+}
@@ -65,7 +65,7 @@ public class EntitySystemBuilder {
         PrefabManager prefabManager = new PojoPrefabManager(library);
         CoreRegistry.put(PrefabManager.class, prefabManager);
 
-        PersistableEntityManager entityManager = new PojoEntityManager(library, prefabManager);
+        PojoEntityManager entityManager = new PojoEntityManager(library, prefabManager);
         entityManager.setEventSystem(new PojoEventSystem(entityManager));
         CoreRegistry.put(EntityManager.class, entityManager);
         CoreRegistry.put(EventSystem.class, entityManager.getEventSystem());
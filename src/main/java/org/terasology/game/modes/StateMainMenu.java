@@ -15,7 +15,6 @@
  */
 package org.terasology.game.modes;
 
-import java.util.Iterator;
 
 import org.terasology.components.LocalPlayerComponent;
 import org.terasology.entitySystem.ComponentSystem;
@@ -122,9 +121,9 @@ public class StateMainMenu implements GameState {
             system.initialise();
         }
         
-        Iterator<EntityRef> iterator = entityManager.iteratorEntities(LocalPlayerComponent.class).iterator();
-        if (iterator.hasNext()) {
-            CoreRegistry.get(LocalPlayer.class).setEntity(iterator.next());
+        EntityRef playerEntity = entityManager.getQuery(LocalPlayerComponent.class).getFirst();
+        if (playerEntity.exists()) {
+            CoreRegistry.get(LocalPlayer.class).setEntity(playerEntity);
         }
         
         playBackgroundMusic();
@@ -19,7 +19,6 @@ import org.lwjgl.opengl.Display;
 import org.terasology.asset.AssetManager;
 import org.terasology.asset.AssetType;
 import org.terasology.asset.AssetUri;
-import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.componentSystem.controllers.LocalPlayerSystem;
 import org.terasology.componentSystem.controllers.MenuControlSystem;
 import org.terasology.components.LocalPlayerComponent;
@@ -47,6 +46,8 @@ import org.terasology.logic.manager.GUIManager;
 import org.terasology.logic.manager.PathManager;
 import org.terasology.logic.mod.Mod;
 import org.terasology.logic.mod.ModManager;
+import org.terasology.logic.spatial.SpatialIndex;
+import org.terasology.logic.spatial.SpatialIndexSystem;
 import org.terasology.math.Vector3i;
 import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.physics.BulletPhysics;
@@ -71,7 +72,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -137,6 +137,9 @@ public class StateSinglePlayer implements GameState {
         inputSystem = new InputSystem();
         CoreRegistry.put(InputSystem.class, inputSystem);
         componentSystemManager.register(inputSystem, "engine:InputSystem");
+        SpatialIndexSystem spatialIndexSystem = new SpatialIndexSystem();
+        CoreRegistry.put(SpatialIndex.class, spatialIndexSystem.getIndex());
+        componentSystemManager.register(spatialIndexSystem, "engine:SpatialIndexSystem");
 
         componentSystemManager.loadEngineSystems();
         componentSystemManager.loadSystems("miniions", "org.terasology.mods.miniions");
@@ -188,7 +191,8 @@ public class StateSinglePlayer implements GameState {
     @Override
     public void deactivate() {
         // TODO: Shutdown background threads
-        eventSystem.process();
+        eventSystem.flush();
+        componentSystemManager.getUpdateScheduler().shutdown();
         for (ComponentSystem system : componentSystemManager.iterateAll()) {
             system.shutdown();
         }
@@ -217,10 +221,10 @@ public class StateSinglePlayer implements GameState {
 
         eventSystem.process();
 
-        for (UpdateSubscriberSystem updater : componentSystemManager.iterateUpdateSubscribers()) {
-            PerformanceMonitor.startActivity(updater.getClass().getSimpleName());
-            updater.update(delta);
-        }
+        // All systems are done before the world is rendered
+        componentSystemManager.getUpdateScheduler().update(delta);
+
+        entityManager.processDeferredDestruction();
 
         if (worldRenderer != null && shouldUpdateWorld()) {
             worldRenderer.update(delta);
@@ -261,9 +265,9 @@ public class StateSinglePlayer implements GameState {
         CoreRegistry.put(WorldRenderer.class, worldRenderer);
 
         // Create the world entity
-        Iterator<EntityRef> worldEntityIterator = entityManager.iteratorEntities(WorldComponent.class).iterator();
-        if (worldEntityIterator.hasNext()) {
-            worldRenderer.getChunkProvider().setWorldEntity(worldEntityIterator.next());
+        EntityRef existingWorldEntity = entityManager.getQuery(WorldComponent.class).getFirst();
+        if (existingWorldEntity.exists()) {
+            worldRenderer.getChunkProvider().setWorldEntity(existingWorldEntity);
         } else {
             EntityRef worldEntity = entityManager.create();
             worldEntity.addComponent(new WorldComponent());
@@ -307,9 +311,9 @@ public class StateSinglePlayer implements GameState {
         Timer timer = CoreRegistry.get(Timer.class);
         long startTime = timer.getTimeInMs();
 
-        Iterator<EntityRef> iterator = entityManager.iteratorEntities(LocalPlayerComponent.class).iterator();
-        if (iterator.hasNext()) {
-            CoreRegistry.get(LocalPlayer.class).setEntity(iterator.next());
+        EntityRef existingPlayerEntity = entityManager.getQuery(LocalPlayerComponent.class).getFirst();
+        if (existingPlayerEntity.exists()) {
+            CoreRegistry.get(LocalPlayer.class).setEntity(existingPlayerEntity);
             worldRenderer.setPlayer(CoreRegistry.get(LocalPlayer.class));
         } else {
             // Load spawn zone so player spawn location can be determined
@@ -53,6 +53,7 @@ import org.terasology.logic.LocalPlayer;
 import org.terasology.world.block.BlockPickupComponent;
 import org.terasology.physics.character.CharacterMovementComponent;
 import org.terasology.rendering.cameras.Camera;
+import org.terasology.rendering.primitives.ChunkTessellator;
 import org.terasology.rendering.world.WorldRenderer;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.family.BlockFamily;
@@ -291,6 +292,18 @@ public class GroovyManager {
         public void debugCollision() {
             Config.getInstance().setDebugCollision(!Config.getInstance().isDebugCollision());
         }
+
+        public void greedyMeshing() {
+            ChunkTessellator tessellator = CoreRegistry.get(WorldRenderer.class).getChunkTesselator();
+            tessellator.setGreedyMeshing(!tessellator.isGreedyMeshing());
+        }
+        public void caveCulling() {
+            WorldRenderer worldRenderer = CoreRegistry.get(WorldRenderer.class);
+            worldRenderer.setCaveCulling(!worldRenderer.isCaveCulling());
+        }
+        public void lod(int halfDetailDistance, int quarterDetailDistance) {
+            CoreRegistry.get(WorldRenderer.class).setLodDistances(halfDetailDistance, quarterDetailDistance);
+        }
         public void setSpawn() {
             EntityRef playerEntity = CoreRegistry.get(LocalPlayer.class).getEntity();
             PlayerComponent spawn = playerEntity.getComponent(PlayerComponent.class);
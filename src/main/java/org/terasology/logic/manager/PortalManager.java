@@ -57,9 +57,14 @@ public class PortalManager {
      */
     public void tickSpawn() {
         // Loop through Portals, calculate probability to spawn something, then maybe spawn something
-        for (Portal p : _portalStore) {
-            spawnLocal(p);
-            spawnWild(p);
+        _entityManager.beginBatch();
+        try {
+            for (Portal p : _portalStore) {
+                spawnLocal(p);
+                spawnWild(p);
+            }
+        } finally {
+            _entityManager.endBatch();
         }
     }
 
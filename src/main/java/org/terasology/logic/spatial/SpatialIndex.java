@@ -0,0 +1,535 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.spatial;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.entitySystem.EntityRef;
+
+/**
+ * An index of entities by position, for finding the entities near a point, in an area or along a ray. The entities are
+ * sorted into a uniform grid of cubic cells, of which only the cells containing entities are stored.
+ * <p/>
+ * Queries do not allocate, and add their results to a collection or array given by the caller. They may be run from
+ * several threads at once, but not while the index is being changed.
+ */
+public class SpatialIndex {
+    public static final float DEFAULT_CELL_SIZE = 8;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int NONE = -1;
+    /* Cell coordinates are packed into 21 bits each to form the key of a cell */
+    private static final int COORDINATE_BITS = 21;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+    private final float cellSize;
+    private final float inverseCellSize;
+
+    /* The indexed entities, densely packed. The entities in a cell form a linked list through next and previous */
+    private EntityRef[] entities = new EntityRef[INITIAL_CAPACITY];
+    private float[] positions = new float[3 * INITIAL_CAPACITY];
+    private int[] entityCells = new int[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int[] previous = new int[INITIAL_CAPACITY];
+    private int size;
+    private TIntIntHashMap entityLookup = new TIntIntHashMap(INITIAL_CAPACITY, 0.5f, 0, NONE);
+
+    /* The cells containing entities, densely packed, with the first entity of each */
+    private int[] cellCoordinates = new int[3 * INITIAL_CAPACITY];
+    private int[] cellHeads = new int[INITIAL_CAPACITY];
+    private int cellCount;
+    private TLongIntHashMap cellLookup = new TLongIntHashMap(INITIAL_CAPACITY, 0.5f, 0, NONE);
+
+    private final ThreadLocal<NearestSearch> nearestSearches = new ThreadLocal<NearestSearch>() {
+        @Override
+        protected NearestSearch initialValue() {
+            return new NearestSearch();
+        }
+    };
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize The edge length of the cells. Queries are fastest when it is around the distances usually queried.
+     */
+    public SpatialIndex(float cellSize) {
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0f / cellSize;
+    }
+
+    /**
+     * @return The number of indexed entities
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(EntityRef entity) {
+        return entityLookup.containsKey(entity.getId());
+    }
+
+    public void clear() {
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+        entityLookup.clear();
+        cellCount = 0;
+        cellLookup.clear();
+    }
+
+    /**
+     * Adds an entity to the index at the given position, or moves it there if it is already indexed
+     *
+     * @param entity
+     * @param position
+     */
+    public void update(EntityRef entity, Vector3f position) {
+        int cellX = cellCoordinate(position.x);
+        int cellY = cellCoordinate(position.y);
+        int cellZ = cellCoordinate(position.z);
+        int index = entityLookup.get(entity.getId());
+        if (index == NONE) {
+            index = size++;
+            if (index == entities.length) {
+                grow();
+            }
+            entityLookup.put(entity.getId(), index);
+            link(index, getOrCreateCell(cellX, cellY, cellZ));
+        } else {
+            int cell = entityCells[index];
+            if (cellCoordinates[3 * cell] != cellX || cellCoordinates[3 * cell + 1] != cellY || cellCoordinates[3 * cell + 2] != cellZ) {
+                // Unlinked first, as that may move the cells about
+                unlink(index);
+                link(index, getOrCreateCell(cellX, cellY, cellZ));
+            }
+        }
+        entities[index] = entity;
+        positions[3 * index] = position.x;
+        positions[3 * index + 1] = position.y;
+        positions[3 * index + 2] = position.z;
+    }
+
+    public void remove(EntityRef entity) {
+        int index = entityLookup.remove(entity.getId());
+        if (index == NONE) {
+            return;
+        }
+        unlink(index);
+        int last = --size;
+        if (index != last) {
+            move(last, index);
+        }
+        entities[last] = null;
+    }
+
+    /**
+     * Adds the entities within a box to the output
+     *
+     * @param min    The minimum corner of the box
+     * @param max    The maximum corner of the box
+     * @param output
+     * @return The number of entities added
+     */
+    public int getEntitiesInBox(Vector3f min, Vector3f max, Collection<EntityRef> output) {
+        return collect(min.x, min.y, min.z, max.x, max.y, max.z, false, output);
+    }
+
+    /**
+     * Adds the entities within a distance of a point to the output
+     *
+     * @param center
+     * @param radius
+     * @param output
+     * @return The number of entities added
+     */
+    public int getEntitiesInRadius(Vector3f center, float radius, Collection<EntityRef> output) {
+        return collect(center.x - radius, center.y - radius, center.z - radius, center.x + radius, center.y + radius, center.z + radius, true, output);
+    }
+
+    /**
+     * Finds the entities nearest to a point, filling the output array nearest first
+     *
+     * @param position
+     * @param maxDistance The distance beyond which entities are not considered
+     * @param output      Receives as many entities as it has room for
+     * @return The number of entities found, which is less than the length of the output if there were too few in range
+     */
+    public int getNearest(Vector3f position, float maxDistance, EntityRef[] output) {
+        if (output.length == 0) {
+            return 0;
+        }
+        NearestSearch search = nearestSearches.get();
+        search.reset(output.length, position, maxDistance * maxDistance);
+
+        int centerX = cellCoordinate(position.x);
+        int centerY = cellCoordinate(position.y);
+        int centerZ = cellCoordinate(position.z);
+        int maxRing = Math.max(Math.abs(cellCoordinate(position.x + maxDistance) - centerX), Math.abs(cellCoordinate(position.x - maxDistance) - centerX));
+        maxRing = Math.max(maxRing, Math.max(Math.abs(cellCoordinate(position.y + maxDistance) - centerY), Math.abs(cellCoordinate(position.y - maxDistance) - centerY)));
+        maxRing = Math.max(maxRing, Math.max(Math.abs(cellCoordinate(position.z + maxDistance) - centerZ), Math.abs(cellCoordinate(position.z - maxDistance) - centerZ)));
+
+        // Working outwards in rings of cells, until no further ring can hold anything nearer than found so far
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double ringCells = Math.pow(2.0 * ring + 1, 3) - Math.pow(2.0 * ring - 1, 3);
+            if (ringCells > cellCount) {
+                // Fewer cells are occupied than are in the ring, so it is quicker to start over looking at all of them
+                search.reset(output.length, position, maxDistance * maxDistance);
+                for (int cell = 0; cell < cellCount; cell++) {
+                    search.offerCell(cellHeads[cell]);
+                }
+                break;
+            }
+            searchRing(search, centerX, centerY, centerZ, ring);
+            float ringDistance = ring * cellSize;
+            if (search.isFull() && search.getFurthestDistanceSquared() <= ringDistance * ringDistance) {
+                break;
+            }
+        }
+        return search.copyTo(output);
+    }
+
+    /**
+     * Finds the first entity hit by a ray, with each entity treated as a sphere around its position. Entities whose
+     * sphere contains the origin of the ray are ignored, so a ray may be cast from within the entity casting it.
+     *
+     * @param origin
+     * @param direction    The direction of the ray, which need not be normalized
+     * @param maxDistance  The length of the ray, which must be finite
+     * @param entityRadius The radius of the sphere of each entity
+     * @return The first entity hit, or EntityRef.NULL if none
+     */
+    public EntityRef getFirstAlongRay(Vector3f origin, Vector3f direction, float maxDistance, float entityRadius) {
+        float length = direction.length();
+        if (length == 0 || size == 0) {
+            return EntityRef.NULL;
+        }
+        float dirX = direction.x / length;
+        float dirY = direction.y / length;
+        float dirZ = direction.z / length;
+        float radiusSquared = entityRadius * entityRadius;
+        int reach = (int) Math.ceil(entityRadius * inverseCellSize);
+
+        // Steps through the cells the ray passes through, as each entity it can hit is within reach of one of them
+        int x = cellCoordinate(origin.x);
+        int y = cellCoordinate(origin.y);
+        int z = cellCoordinate(origin.z);
+        int stepX = (int) Math.signum(dirX);
+        int stepY = (int) Math.signum(dirY);
+        int stepZ = (int) Math.signum(dirZ);
+        float nextX = (stepX != 0) ? ((x + Math.max(stepX, 0)) * cellSize - origin.x) / dirX : Float.POSITIVE_INFINITY;
+        float nextY = (stepY != 0) ? ((y + Math.max(stepY, 0)) * cellSize - origin.y) / dirY : Float.POSITIVE_INFINITY;
+        float nextZ = (stepZ != 0) ? ((z + Math.max(stepZ, 0)) * cellSize - origin.z) / dirZ : Float.POSITIVE_INFINITY;
+        float deltaX = Math.abs(cellSize / dirX);
+        float deltaY = Math.abs(cellSize / dirY);
+        float deltaZ = Math.abs(cellSize / dirZ);
+
+        float nearest = maxDistance;
+        int hit = NONE;
+        float entered = 0;
+        // Cells entered beyond the nearest hit so far cannot lead to a nearer one
+        while (entered <= nearest) {
+            for (int cellX = x - reach; cellX <= x + reach; cellX++) {
+                for (int cellY = y - reach; cellY <= y + reach; cellY++) {
+                    for (int cellZ = z - reach; cellZ <= z + reach; cellZ++) {
+                        int cell = cellLookup.get(cellKey(cellX, cellY, cellZ));
+                        if (cell == NONE) {
+                            continue;
+                        }
+                        for (int index = cellHeads[cell]; index != NONE; index = next[index]) {
+                            float toX = positions[3 * index] - origin.x;
+                            float toY = positions[3 * index + 1] - origin.y;
+                            float toZ = positions[3 * index + 2] - origin.z;
+                            float along = toX * dirX + toY * dirY + toZ * dirZ;
+                            float outside = toX * toX + toY * toY + toZ * toZ - radiusSquared;
+                            float discriminant = along * along - outside;
+                            if (outside > 0 && along > 0 && discriminant >= 0) {
+                                float distance = along - (float) Math.sqrt(discriminant);
+                                if (distance <= nearest) {
+                                    nearest = distance;
+                                    hit = index;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            if (nextX <= nextY && nextX <= nextZ) {
+                entered = nextX;
+                nextX += deltaX;
+                x += stepX;
+            } else if (nextY <= nextZ) {
+                entered = nextY;
+                nextY += deltaY;
+                y += stepY;
+            } else {
+                entered = nextZ;
+                nextZ += deltaZ;
+                z += stepZ;
+            }
+        }
+        return (hit != NONE) ? entities[hit] : EntityRef.NULL;
+    }
+
+    private int collect(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, boolean sphere, Collection<EntityRef> output) {
+        int minCellX = cellCoordinate(minX);
+        int minCellY = cellCoordinate(minY);
+        int minCellZ = cellCoordinate(minZ);
+        int maxCellX = cellCoordinate(maxX);
+        int maxCellY = cellCoordinate(maxY);
+        int maxCellZ = cellCoordinate(maxZ);
+        int found = 0;
+        double rangeCells = (maxCellX - minCellX + 1.0) * (maxCellY - minCellY + 1.0) * (maxCellZ - minCellZ + 1.0);
+        if (rangeCells > cellCount) {
+            for (int cell = 0; cell < cellCount; cell++) {
+                int cellX = cellCoordinates[3 * cell];
+                int cellY = cellCoordinates[3 * cell + 1];
+                int cellZ = cellCoordinates[3 * cell + 2];
+                if (cellX >= minCellX && cellX <= maxCellX && cellY >= minCellY && cellY <= maxCellY && cellZ >= minCellZ && cellZ <= maxCellZ) {
+                    found += collectCell(cellHeads[cell], minX, minY, minZ, maxX, maxY, maxZ, sphere, output);
+                }
+            }
+        } else {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                    for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                        int cell = cellLookup.get(cellKey(cellX, cellY, cellZ));
+                        if (cell != NONE) {
+                            found += collectCell(cellHeads[cell], minX, minY, minZ, maxX, maxY, maxZ, sphere, output);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int collectCell(int head, float minX, float minY, float minZ, float maxX, float maxY, float maxZ, boolean sphere, Collection<EntityRef> output) {
+        float centerX = 0.5f * (minX + maxX);
+        float centerY = 0.5f * (minY + maxY);
+        float centerZ = 0.5f * (minZ + maxZ);
+        float radius = 0.5f * (maxX - minX);
+        int found = 0;
+        for (int index = head; index != NONE; index = next[index]) {
+            float x = positions[3 * index];
+            float y = positions[3 * index + 1];
+            float z = positions[3 * index + 2];
+            boolean inside;
+            if (sphere) {
+                inside = distanceSquared(index, centerX, centerY, centerZ) <= radius * radius;
+            } else {
+                inside = x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+            }
+            if (inside) {
+                output.add(entities[index]);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Offers the entities of all cells at the given distance, in cells, from the center cell
+     */
+    private void searchRing(NearestSearch search, int centerX, int centerY, int centerZ, int ring) {
+        for (int x = centerX - ring; x <= centerX + ring; x++) {
+            boolean onFaceX = x == centerX - ring || x == centerX + ring;
+            for (int y = centerY - ring; y <= centerY + ring; y++) {
+                boolean onFace = onFaceX || y == centerY - ring || y == centerY + ring;
+                // Within the ring, only the cells on the near and far faces along z are part of it
+                int stepZ = (onFace || ring == 0) ? 1 : 2 * ring;
+                for (int z = centerZ - ring; z <= centerZ + ring; z += stepZ) {
+                    int cell = cellLookup.get(cellKey(x, y, z));
+                    if (cell != NONE) {
+                        search.offerCell(cellHeads[cell]);
+                    }
+                }
+            }
+        }
+    }
+
+    private float distanceSquared(int index, float x, float y, float z) {
+        float dx = positions[3 * index] - x;
+        float dy = positions[3 * index + 1] - y;
+        float dz = positions[3 * index + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int cellCoordinate(float position) {
+        return (int) Math.floor(position * inverseCellSize);
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return ((x & COORDINATE_MASK) << (2 * COORDINATE_BITS)) | ((y & COORDINATE_MASK) << COORDINATE_BITS) | (z & COORDINATE_MASK);
+    }
+
+    private int getOrCreateCell(int x, int y, int z) {
+        long key = cellKey(x, y, z);
+        int cell = cellLookup.get(key);
+        if (cell == NONE) {
+            cell = cellCount++;
+            if (cell == cellHeads.length) {
+                cellHeads = Arrays.copyOf(cellHeads, 2 * cell);
+                cellCoordinates = Arrays.copyOf(cellCoordinates, 6 * cell);
+            }
+            cellCoordinates[3 * cell] = x;
+            cellCoordinates[3 * cell + 1] = y;
+            cellCoordinates[3 * cell + 2] = z;
+            cellHeads[cell] = NONE;
+            cellLookup.put(key, cell);
+        }
+        return cell;
+    }
+
+    private void link(int index, int cell) {
+        int head = cellHeads[cell];
+        entityCells[index] = cell;
+        previous[index] = NONE;
+        next[index] = head;
+        if (head != NONE) {
+            previous[head] = index;
+        }
+        cellHeads[cell] = index;
+    }
+
+    /**
+     * Removes an entity from the list of its cell, removing the cell if it becomes empty
+     */
+    private void unlink(int index) {
+        int cell = entityCells[index];
+        if (previous[index] != NONE) {
+            next[previous[index]] = next[index];
+        } else {
+            cellHeads[cell] = next[index];
+        }
+        if (next[index] != NONE) {
+            previous[next[index]] = previous[index];
+        }
+        if (cellHeads[cell] == NONE) {
+            removeCell(cell);
+        }
+    }
+
+    private void removeCell(int cell) {
+        cellLookup.remove(cellKey(cellCoordinates[3 * cell], cellCoordinates[3 * cell + 1], cellCoordinates[3 * cell + 2]));
+        int last = --cellCount;
+        if (cell != last) {
+            System.arraycopy(cellCoordinates, 3 * last, cellCoordinates, 3 * cell, 3);
+            cellHeads[cell] = cellHeads[last];
+            cellLookup.put(cellKey(cellCoordinates[3 * cell], cellCoordinates[3 * cell + 1], cellCoordinates[3 * cell + 2]), cell);
+            for (int index = cellHeads[cell]; index != NONE; index = next[index]) {
+                entityCells[index] = cell;
+            }
+        }
+    }
+
+    /**
+     * Moves an entity to another index, which must be unused
+     */
+    private void move(int from, int to) {
+        entities[to] = entities[from];
+        System.arraycopy(positions, 3 * from, positions, 3 * to, 3);
+        entityCells[to] = entityCells[from];
+        next[to] = next[from];
+        previous[to] = previous[from];
+        if (previous[to] != NONE) {
+            next[previous[to]] = to;
+        } else {
+            cellHeads[entityCells[to]] = to;
+        }
+        if (next[to] != NONE) {
+            previous[next[to]] = to;
+        }
+        entityLookup.put(entities[to].getId(), to);
+    }
+
+    private void grow() {
+        int capacity = 2 * entities.length;
+        entities = Arrays.copyOf(entities, capacity);
+        positions = Arrays.copyOf(positions, 3 * capacity);
+        entityCells = Arrays.copyOf(entityCells, capacity);
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+    }
+
+    /**
+     * The nearest entities found so far by a search, sorted by distance. Kept per thread to not allocate per search.
+     */
+    private class NearestSearch {
+        private int[] indices = new int[0];
+        private float[] distancesSquared = new float[0];
+        private int count;
+        private int limit;
+        private float x;
+        private float y;
+        private float z;
+        private float maxDistanceSquared;
+
+        void reset(int limit, Vector3f position, float maxDistanceSquared) {
+            if (indices.length < limit) {
+                indices = new int[limit];
+                distancesSquared = new float[limit];
+            }
+            this.count = 0;
+            this.limit = limit;
+            this.x = position.x;
+            this.y = position.y;
+            this.z = position.z;
+            this.maxDistanceSquared = maxDistanceSquared;
+        }
+
+        boolean isFull() {
+            return count == limit;
+        }
+
+        float getFurthestDistanceSquared() {
+            return distancesSquared[count - 1];
+        }
+
+        void offerCell(int head) {
+            for (int index = head; index != NONE; index = next[index]) {
+                offer(index, distanceSquared(index, x, y, z));
+            }
+        }
+
+        private void offer(int index, float distanceSquared) {
+            if (distanceSquared > maxDistanceSquared || (isFull() && distanceSquared >= getFurthestDistanceSquared())) {
+                return;
+            }
+            int position = isFull() ? count - 1 : count++;
+            while (position > 0 && distancesSquared[position - 1] > distanceSquared) {
+                indices[position] = indices[position - 1];
+                distancesSquared[position] = distancesSquared[position - 1];
+                position--;
+            }
+            indices[position] = index;
+            distancesSquared[position] = distanceSquared;
+        }
+
+        int copyTo(EntityRef[] output) {
+            for (int i = 0; i < count; i++) {
+                output[i] = entities[indices[i]];
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.spatial;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.entitySystem.event.AddComponentEvent;
+import org.terasology.entitySystem.event.ChangedComponentEvent;
+import org.terasology.entitySystem.event.RemovedComponentEvent;
+import org.terasology.game.CoreRegistry;
+
+/**
+ * Keeps a {@link SpatialIndex} of all entities with a location, by world position. Entities are indexed as their
+ * location is added, saved or removed. As locations are also moved without being saved, the positions of all entities
+ * are refreshed when this system is updated, so queries see positions as of the start of the frame at the latest.
+ * <p/>
+ * The index is only changed on the main thread, while no other system is being updated, so systems updated on worker
+ * threads may query it.
+ */
+public class SpatialIndexSystem implements EventHandlerSystem, UpdateSubscriberSystem {
+
+    private final SpatialIndex index = new SpatialIndex();
+    private final Vector3f position = new Vector3f();
+    private EntityQuery locatedEntities;
+
+    public SpatialIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void initialise() {
+        locatedEntities = CoreRegistry.get(EntityManager.class).getQuery(LocationComponent.class);
+        index.clear();
+    }
+
+    @Override
+    public void shutdown() {
+        index.clear();
+    }
+
+    @Override
+    public void update(float delta) {
+        for (EntityRef entity : locatedEntities) {
+            updatePosition(entity);
+        }
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void onAdded(AddComponentEvent event, EntityRef entity) {
+        updatePosition(entity);
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void onChanged(ChangedComponentEvent event, EntityRef entity) {
+        updatePosition(entity);
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void onRemoved(RemovedComponentEvent event, EntityRef entity) {
+        index.remove(entity);
+    }
+
+    private void updatePosition(EntityRef entity) {
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        if (location != null) {
+            index.update(entity, location.getWorldPosition(position));
+        }
+    }
+}
@@ -23,6 +23,7 @@ import javax.vecmath.Vector3f;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.world.LocationComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -56,6 +57,7 @@ import org.terasology.world.block.Block;
 public class SimpleMinionAISystem implements EventHandlerSystem, UpdateSubscriberSystem {
 
     private EntityManager entityManager;
+    private EntityQuery minions;
     private WorldProvider worldProvider;
     private BlockEntityRegistry blockEntityRegistry;
     private FastRandom random = new FastRandom();
@@ -64,6 +66,7 @@ public class SimpleMinionAISystem implements EventHandlerSystem, UpdateSubscribe
 
     public void initialise() {
         entityManager = CoreRegistry.get(EntityManager.class);
+        minions = entityManager.getQuery(SimpleMinionAIComponent.class, CharacterMovementComponent.class, LocationComponent.class, MinionComponent.class);
         worldProvider = CoreRegistry.get(WorldProvider.class);
         blockEntityRegistry = CoreRegistry.get(BlockEntityRegistry.class);
         timer = CoreRegistry.get(Timer.class);
@@ -75,7 +78,7 @@ public class SimpleMinionAISystem implements EventHandlerSystem, UpdateSubscribe
     }
 
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(SimpleMinionAIComponent.class, CharacterMovementComponent.class, LocationComponent.class, MinionComponent.class)) {
+        for (EntityRef entity : minions) {
             LocationComponent location = entity.getComponent(LocationComponent.class);
             SimpleMinionAIComponent ai = entity.getComponent(SimpleMinionAIComponent.class);
             CharacterMovementComponent moveComp = entity.getComponent(CharacterMovementComponent.class);
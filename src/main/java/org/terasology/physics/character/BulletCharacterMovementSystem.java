@@ -28,6 +28,7 @@ import com.google.common.collect.Lists;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.world.LocationComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -86,6 +87,7 @@ public final class BulletCharacterMovementSystem implements UpdateSubscriberSyst
     private Logger logger = Logger.getLogger(getClass().getName());
 
     private EntityManager entityManager;
+    private EntityQuery movingEntities;
     private WorldProvider worldProvider;
     private BulletPhysics physics;
 
@@ -97,6 +99,7 @@ public final class BulletCharacterMovementSystem implements UpdateSubscriberSyst
 
     public void initialise() {
         entityManager = CoreRegistry.get(EntityManager.class);
+        movingEntities = entityManager.getQuery(CharacterMovementComponent.class, LocationComponent.class);
         worldProvider = CoreRegistry.get(WorldProvider.class);
         physics = CoreRegistry.get(BulletPhysics.class);
     }
@@ -114,7 +117,7 @@ public final class BulletCharacterMovementSystem implements UpdateSubscriberSyst
     }
 
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(CharacterMovementComponent.class, LocationComponent.class)) {
+        for (EntityRef entity : movingEntities) {
             LocationComponent location = entity.getComponent(LocationComponent.class);
             if (!worldProvider.isBlockActive(location.getWorldPosition())) {
                 continue;
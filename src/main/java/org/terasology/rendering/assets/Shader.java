@@ -35,6 +35,7 @@ import org.terasology.logic.manager.Config;
 import org.terasology.rendering.assets.metadata.ParamMetadata;
 import org.terasology.rendering.assets.metadata.ParamType;
 import org.terasology.rendering.assets.metadata.ShaderMetadata;
+import org.terasology.rendering.primitives.ChunkVertexFormat;
 import org.terasology.world.block.Block;
 
 import com.google.common.collect.Maps;
@@ -44,7 +45,8 @@ import com.google.common.io.CharStreams;
  * @author Immortius
  */
 public class Shader implements Asset {
-    private static final String PreProcessorPreamble = "#version 120 \n float TEXTURE_OFFSET = " + Block.TEXTURE_OFFSET + "; \n";
+    private static final String PreProcessorPreamble = "#version 120 \n #extension GL_ARB_shader_texture_lod : enable \n float TEXTURE_OFFSET = " + Block.TEXTURE_OFFSET + "; \n float TEXTURE_OFFSET_WIDTH = " + Block.TEXTURE_OFFSET_WIDTH + "; \n"
+            + " float VERTEX_POSITION_SCALE = " + (1.0f / ChunkVertexFormat.POSITION_SCALE) + "; \n float VERTEX_TEX_COORD_SCALE = " + (1.0f / ChunkVertexFormat.TEX_COORD_SCALE) + "; \n";
     private static String IncludedFunctionsVertex = "", IncludedFunctionsFragment = "";
 
     private final AssetUri uri;
@@ -28,19 +28,19 @@ import static org.lwjgl.opengl.GL11.glEnableClientState;
 import static org.lwjgl.opengl.GL11.glNormalPointer;
 import static org.lwjgl.opengl.GL11.glTexCoordPointer;
 import static org.lwjgl.opengl.GL11.glVertexPointer;
-import gnu.trove.list.TFloatList;
-import gnu.trove.list.TIntList;
-import gnu.trove.list.array.TFloatArrayList;
-import gnu.trove.list.array.TIntArrayList;
 
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL15;
 import org.terasology.logic.manager.VertexBufferObjectManager;
+import org.terasology.utilities.DirectBufferPool;
 
 import com.bulletphysics.collision.shapes.IndexedMesh;
 
@@ -49,29 +49,100 @@ import com.bulletphysics.collision.shapes.IndexedMesh;
  */
 public class ChunkMesh {
 
+    /* Direct memory for the vertex data, which is borrowed by the tessellator and returned once uploaded */
+    private static final DirectBufferPool BUFFER_POOL = new DirectBufferPool(64 * 1024 * 1024);
+
     /**
      * Data structure for storing vertex data. Abused like a "struct" in C/C++. Just sad.
+     * <p/>
+     * The vertices are written in the {@link ChunkVertexFormat} straight into pooled direct buffers, which grow as
+     * needed and are uploaded as they are once the mesh is finished.
      */
     public static class VertexElements {
 
-        public VertexElements() {
-            vertCount = 0;
-            normals = new TFloatArrayList();
-            vertices = new TFloatArrayList();
-            tex = new TFloatArrayList();
-            color = new TFloatArrayList();
-            indices = new TIntArrayList();
-        }
+        private static final int INITIAL_VERTICES = 256;
 
-        public final TFloatList normals;
-        public final TFloatList vertices;
-        public final TFloatList tex;
-        public final TFloatList color;
-        public final TIntList indices;
+        /* Calculates the lighting of the vertices added without one, while tessellating a chunk */
+        ChunkNeighbourhood neighbourhood;
+        private final float[] light = new float[3];
+
+        private ByteBuffer vertices;
+        private ByteBuffer indices;
         public int vertCount;
+        public int indexCount;
 
         public ByteBuffer finalVertices;
-        public IntBuffer finalIndices;
+        public ByteBuffer finalIndices;
+
+        /**
+         * Adds a vertex, which is lit by the chunk neighbourhood being tessellated (and left dark without one).
+         */
+        public void addVertex(float x, float y, float z, float u, float v, float w, Vector4f color, Vector3f normal) {
+            if (neighbourhood != null) {
+                neighbourhood.calcVertexLighting(x, y, z, light);
+            } else {
+                light[0] = 0;
+                light[1] = 0;
+                light[2] = 0;
+            }
+            addVertex(x, y, z, u, v, w, color.x, color.y, color.z, color.w, normal, light);
+        }
+
+        /**
+         * Adds a vertex with the given sunlight, block light and ambient occlusion.
+         */
+        public void addVertex(float x, float y, float z, float u, float v, float w, float r, float g, float b, float a, Vector3f normal, float[] light) {
+            if (vertices == null) {
+                vertices = BUFFER_POOL.acquire(INITIAL_VERTICES * ChunkVertexFormat.STRIDE);
+            } else if (vertices.remaining() < ChunkVertexFormat.STRIDE) {
+                vertices = BUFFER_POOL.grow(vertices, vertices.position() + ChunkVertexFormat.STRIDE);
+            }
+
+            ChunkVertexFormat.putPosition(vertices, x, y, z);
+            ChunkVertexFormat.putTexCoord(vertices, u, v, w);
+            ChunkVertexFormat.putColor(vertices, r, g, b, a);
+            ChunkVertexFormat.putLight(vertices, light[0], light[1], light[2]);
+            ChunkVertexFormat.putNormal(vertices, normal.x, normal.y, normal.z);
+            vertCount++;
+        }
+
+        public void addIndex(int index) {
+            if (indices == null) {
+                indices = BUFFER_POOL.acquire(INITIAL_VERTICES * 6);
+            } else if (indices.remaining() < 4) {
+                indices = BUFFER_POOL.grow(indices, indices.position() + 4);
+            }
+
+            indices.putInt(index);
+            indexCount++;
+        }
+
+        /**
+         * Makes the data written so far the final buffers to be uploaded.
+         */
+        void finish() {
+            neighbourhood = null;
+            if (vertices != null)
+                vertices.flip();
+            if (indices != null)
+                indices.flip();
+            finalVertices = vertices;
+            finalIndices = indices;
+        }
+
+        /**
+         * Returns the buffers to the pool, after which the vertex data is gone.
+         */
+        void release() {
+            if (vertices != null)
+                BUFFER_POOL.release(vertices);
+            if (indices != null)
+                BUFFER_POOL.release(indices);
+            vertices = null;
+            indices = null;
+            finalVertices = null;
+            finalIndices = null;
+        }
     }
 
     /**
@@ -100,14 +171,6 @@ public class ChunkMesh {
         WATER_AND_ICE;
     }
 
-    /* CONST */
-    private static final int STRIDE = (3 + 3 + 3 + 3 + 4) * 4;
-    private static final int OFFSET_VERTEX = 0;
-    private static final int OFFSET_TEX_0 = (3 * 4);
-    private static final int OFFSET_TEX_1 = ((3 + 3) * 4);
-    private static final int OFFSET_COLOR = ((3 + 3 + 3) * 4);
-    private static final int OFFSET_NORMAL = ((3 + 3 + 3 + 4) * 4);
-
     /* VERTEX DATA */
     private final int[] _vertexBuffers = new int[4];
     private final int[] _idxBuffers = new int[4];
@@ -116,6 +179,12 @@ public class ChunkMesh {
     /* STATS */
     private int _triangleCount = -1;
 
+    /* CULLING */
+    private int _visibility = ChunkVisibility.ALL;
+
+    /* LEVEL OF DETAIL */
+    private int _lodScale = 1;
+
     /* TEMPORARY DATA */
     public VertexElements[] _vertexElements = new VertexElements[4];
 
@@ -145,8 +214,10 @@ public class ChunkMesh {
                 if (_vertexElements == null || _disposed)
                     return false;
 
-                for (int i = 0; i < _vertexBuffers.length; i++)
+                for (int i = 0; i < _vertexBuffers.length; i++) {
                     generateVBO(i);
+                    _vertexElements[i].release();
+                }
 
                 // Free unused space on the heap
                 _vertexElements = null;
@@ -165,10 +236,10 @@ public class ChunkMesh {
     private void generateVBO(int id) {
         if (_lock.tryLock()) {
             try {
-                if (!_disposed && _vertexElements[id].finalIndices.limit() > 0 && _vertexElements[id].finalVertices.limit() > 0) {
+                if (!_disposed && _vertexElements[id].indexCount > 0 && _vertexElements[id].vertCount > 0) {
                     _vertexBuffers[id] = VertexBufferObjectManager.getInstance().getVboId();
                     _idxBuffers[id] = VertexBufferObjectManager.getInstance().getVboId();
-                    _vertexCount[id] = _vertexElements[id].finalIndices.limit();
+                    _vertexCount[id] = _vertexElements[id].indexCount;
 
                     VertexBufferObjectManager.getInstance().bufferVboElementData(_idxBuffers[id], _vertexElements[id].finalIndices, GL15.GL_STATIC_DRAW);
                     VertexBufferObjectManager.getInstance().bufferVboData(_vertexBuffers[id], _vertexElements[id].finalVertices, GL15.GL_STATIC_DRAW);
@@ -189,29 +260,28 @@ public class ChunkMesh {
                 if (_vertexBuffers[id] <= 0 || _disposed)
                     return;
 
+                GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
+
                 glEnableClientState(GL_VERTEX_ARRAY);
                 glEnableClientState(GL_TEXTURE_COORD_ARRAY);
                 glEnableClientState(GL_COLOR_ARRAY);
+                glEnableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
                 glEnableClientState(GL_NORMAL_ARRAY);
 
                 GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, _idxBuffers[id]);
                 GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, _vertexBuffers[id]);
 
-                glVertexPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_VERTEX);
-
-                GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
-                glTexCoordPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_0);
-
-                GL13.glClientActiveTexture(GL13.GL_TEXTURE1);
-                glTexCoordPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_1);
-
-                glColorPointer(4, GL11.GL_FLOAT, STRIDE, OFFSET_COLOR);
-
-                glNormalPointer(GL11.GL_FLOAT, STRIDE, OFFSET_NORMAL);
+                // See ChunkVertexFormat for the layout
+                glVertexPointer(3, GL11.GL_SHORT, ChunkVertexFormat.STRIDE, ChunkVertexFormat.OFFSET_POSITION);
+                glTexCoordPointer(3, GL11.GL_SHORT, ChunkVertexFormat.STRIDE, ChunkVertexFormat.OFFSET_TEX_COORD);
+                glColorPointer(4, GL11.GL_UNSIGNED_BYTE, ChunkVertexFormat.STRIDE, ChunkVertexFormat.OFFSET_COLOR);
+                GL14.glSecondaryColorPointer(3, GL11.GL_UNSIGNED_BYTE, ChunkVertexFormat.STRIDE, ChunkVertexFormat.OFFSET_LIGHT);
+                glNormalPointer(GL11.GL_BYTE, ChunkVertexFormat.STRIDE, ChunkVertexFormat.OFFSET_NORMAL);
 
                 GL11.glDrawElements(GL11.GL_TRIANGLES, _vertexCount[id], GL11.GL_UNSIGNED_INT, 0);
 
                 glDisableClientState(GL_NORMAL_ARRAY);
+                glDisableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
                 glDisableClientState(GL_COLOR_ARRAY);
                 glDisableClientState(GL_TEXTURE_COORD_ARRAY);
                 glDisableClientState(GL_VERTEX_ARRAY);
@@ -258,6 +328,11 @@ public class ChunkMesh {
                     _idxBuffers[i] = 0;
                 }
 
+                if (_vertexElements != null) {
+                    for (VertexElements elements : _vertexElements)
+                        elements.release();
+                }
+
                 _disposed = true;
                 _vertexElements = null;
                 _indexedMesh = null;
@@ -267,6 +342,28 @@ public class ChunkMesh {
         }
     }
 
+    /**
+     * @return Which faces of the mesh segment see each other, see {@link ChunkVisibility}
+     */
+    public int getVisibility() {
+        return _visibility;
+    }
+
+    public void setVisibility(int visibility) {
+        _visibility = visibility;
+    }
+
+    /**
+     * @return The edge length in blocks of the cells the mesh was built from, 1 for a mesh at full detail
+     */
+    public int getLodScale() {
+        return _lodScale;
+    }
+
+    public void setLodScale(int lodScale) {
+        _lodScale = lodScale;
+    }
+
     public boolean isGenerated() {
         return _vertexElements == null;
     }
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import java.util.Arrays;
+
+import org.terasology.math.Side;
+import org.terasology.math.TeraMath;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+
+/**
+ * A snapshot of the blocks, sunlight and block light around a chunk mesh, copied into flat arrays before tessellation.
+ * <p/>
+ * The snapshot covers the mesh region plus one block of padding on every side, which is everything that face culling
+ * and the per-vertex lighting look at. Lookups outside the snapshot fall back to the world view. The lighting of the
+ * block corners is cached, as each corner is shared by up to twelve faces.
+ */
+final class ChunkNeighbourhood {
+
+    private static final byte OCCLUDER_NONE = 0;
+    private static final byte OCCLUDER_SOLID = 1;
+    private static final byte OCCLUDER_BILLBOARD = 2;
+
+    /* Ambient occlusion by the number of solid (major) and billboard (minor) occluders */
+    private static final int OCCLUSION_STEPS = 5;
+    private static final float[] OCCLUSION = new float[OCCLUSION_STEPS * OCCLUSION_STEPS];
+
+    static {
+        for (int solid = 0; solid < OCCLUSION_STEPS; solid++) {
+            for (int billboard = 0; billboard < OCCLUSION_STEPS; billboard++) {
+                OCCLUSION[solid * OCCLUSION_STEPS + billboard] = (float) ((Math.pow(0.60, solid) + Math.pow(0.86, billboard)) / 2.0);
+            }
+        }
+    }
+
+    private WorldView view;
+    private int minX, minY, minZ;
+    private int sizeX, sizeY, sizeZ;
+
+    private byte[] ids = new byte[0];
+    private byte[] sunlight = new byte[0];
+    private byte[] light = new byte[0];
+    private final Block[] blocksById = new Block[256];
+    private final byte[] occluderById = new byte[256];
+    private final boolean[] opaqueById = new boolean[256];
+
+    private float[] cornerLighting = new float[0];
+    private int[] cornerStamps = new int[0];
+    private int stamp = 0;
+
+    private final int[] sampleIndices = new int[8];
+
+    /**
+     * Copies the given region of the view, which should include the padding around the mesh.
+     */
+    public void snapshot(WorldView view, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        setRegion(view, minX, minY, minZ, sizeX, sizeY, sizeZ);
+
+        int index = 0;
+        for (int x = minX; x < minX + sizeX; x++) {
+            for (int z = minZ; z < minZ + sizeZ; z++) {
+                for (int y = minY; y < minY + sizeY; y++, index++) {
+                    Block block = view.getBlock(x, y, z);
+                    byte id = block.getId();
+                    if (blocksById[id & 0xff] == null) {
+                        blocksById[id & 0xff] = block;
+                        occluderById[id & 0xff] = occluderType(block);
+                        opaqueById[id & 0xff] = isOpaque(block);
+                    }
+                    ids[index] = id;
+                    sunlight[index] = view.getSunlight(x, y, z);
+                    light[index] = view.getLight(x, y, z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Uses the view without copying anything, for views too large to be copied (miniatures).
+     */
+    public void wrap(WorldView view) {
+        setRegion(view, 0, 0, 0, 0, 0, 0);
+    }
+
+    private void setRegion(WorldView view, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        this.view = view;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+
+        int volume = sizeX * sizeY * sizeZ;
+        if (ids.length < volume) {
+            ids = new byte[volume];
+            sunlight = new byte[volume];
+            light = new byte[volume];
+            cornerLighting = new float[volume * 3];
+            cornerStamps = new int[volume];
+        }
+        Arrays.fill(blocksById, null);
+
+        // Invalidates the cached corners
+        if (++stamp == 0) {
+            Arrays.fill(cornerStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    private boolean contains(int x, int y, int z) {
+        return x >= minX && y >= minY && z >= minZ && x < minX + sizeX && y < minY + sizeY && z < minZ + sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        return ((x - minX) * sizeZ + (z - minZ)) * sizeY + (y - minY);
+    }
+
+    public Block getBlock(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            return view.getBlock(x, y, z);
+        }
+        return blocksById[ids[index(x, y, z)] & 0xff];
+    }
+
+    /**
+     * @return Whether the block blocks the view entirely, false outside the snapshot
+     */
+    public boolean isOpaque(int x, int y, int z) {
+        return contains(x, y, z) && opaqueById[ids[index(x, y, z)] & 0xff];
+    }
+
+    public byte getSunlight(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            return view.getSunlight(x, y, z);
+        }
+        return sunlight[index(x, y, z)];
+    }
+
+    public byte getLight(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            return view.getLight(x, y, z);
+        }
+        return light[index(x, y, z)];
+    }
+
+    /**
+     * Calculates the sunlight, block light and ambient occlusion of a vertex, from the four blocks above and the four
+     * blocks below it.
+     *
+     * @param output Receives sunlight, block light and ambient occlusion, in that order
+     */
+    public void calcVertexLighting(float vertexX, float vertexY, float vertexZ, float[] output) {
+        // The samples lie 0.1 around the vertex horizontally, 0.8 above and 0.1 below it
+        int x1 = TeraMath.floorToInt((vertexX + 0.1f) + 0.5f);
+        int x0 = TeraMath.floorToInt((vertexX - 0.1f) + 0.5f);
+        int yTop = TeraMath.floorToInt((vertexY + 0.8f) + 0.5f);
+        int yBottom = TeraMath.floorToInt((vertexY - 0.1f) + 0.5f);
+        int z1 = TeraMath.floorToInt((vertexZ + 0.1f) + 0.5f);
+        int z0 = TeraMath.floorToInt((vertexZ - 0.1f) + 0.5f);
+
+        boolean cached = x0 == x1 - 1 && yBottom == yTop - 1 && z0 == z1 - 1 && contains(x0, yBottom, z0) && contains(x1, yTop, z1);
+        if (!cached) {
+            calcLighting(x0, x1, yBottom, yTop, z0, z1, output);
+            return;
+        }
+
+        // The vertex is on a block corner, which is identified by the upper sample
+        int corner = index(x1, yTop, z1);
+        if (cornerStamps[corner] != stamp) {
+            calcLighting(x0, x1, yBottom, yTop, z0, z1, output);
+            cornerLighting[corner * 3] = output[0];
+            cornerLighting[corner * 3 + 1] = output[1];
+            cornerLighting[corner * 3 + 2] = output[2];
+            cornerStamps[corner] = stamp;
+        } else {
+            output[0] = cornerLighting[corner * 3];
+            output[1] = cornerLighting[corner * 3 + 1];
+            output[2] = cornerLighting[corner * 3 + 2];
+        }
+    }
+
+    private void calcLighting(int x0, int x1, int yBottom, int yTop, int z0, int z1, float[] output) {
+        int sunlightSum = 0;
+        int sunlightCount = 0;
+        int lightSum = 0;
+        int lightCount = 0;
+        int solidOccluders = 0;
+        int billboardOccluders = 0;
+
+        if (contains(x0, yBottom, z0) && contains(x1, yTop, z1)) {
+            int[] samples = sampleIndices;
+            samples[0] = index(x1, yTop, z1);
+            samples[1] = index(x1, yTop, z0);
+            samples[2] = index(x0, yTop, z0);
+            samples[3] = index(x0, yTop, z1);
+            samples[4] = index(x1, yBottom, z1);
+            samples[5] = index(x1, yBottom, z0);
+            samples[6] = index(x0, yBottom, z0);
+            samples[7] = index(x0, yBottom, z1);
+
+            for (int i = 0; i < 8; i++) {
+                int sample = samples[i];
+                if (sunlight[sample] > 0) {
+                    sunlightSum += sunlight[sample];
+                    sunlightCount++;
+                }
+                if (light[sample] > 0) {
+                    lightSum += light[sample];
+                    lightCount++;
+                }
+                if (i < 4) {
+                    byte occluder = occluderById[ids[sample] & 0xff];
+                    if (occluder == OCCLUDER_SOLID) {
+                        solidOccluders++;
+                    } else if (occluder == OCCLUDER_BILLBOARD) {
+                        billboardOccluders++;
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < 8; i++) {
+                int x = (i == 0 || i == 1 || i == 4 || i == 5) ? x1 : x0;
+                int y = (i < 4) ? yTop : yBottom;
+                int z = (i == 0 || i == 3 || i == 4 || i == 7) ? z1 : z0;
+
+                byte sampleSunlight = getSunlight(x, y, z);
+                if (sampleSunlight > 0) {
+                    sunlightSum += sampleSunlight;
+                    sunlightCount++;
+                }
+                byte sampleLight = getLight(x, y, z);
+                if (sampleLight > 0) {
+                    lightSum += sampleLight;
+                    lightCount++;
+                }
+                if (i < 4) {
+                    byte occluder = occluderType(getBlock(x, y, z));
+                    if (occluder == OCCLUDER_SOLID) {
+                        solidOccluders++;
+                    } else if (occluder == OCCLUDER_BILLBOARD) {
+                        billboardOccluders++;
+                    }
+                }
+            }
+        }
+
+        output[0] = (sunlightCount == 0) ? 0 : (float) sunlightSum / sunlightCount / 15f;
+        output[1] = (lightCount == 0) ? 0 : (float) lightSum / lightCount / 15f;
+        output[2] = OCCLUSION[solidOccluders * OCCLUSION_STEPS + billboardOccluders];
+    }
+
+    private static boolean isOpaque(Block block) {
+        if (block.getId() == 0 || block.isInvisible() || block.isTranslucent() || block.isLiquid()) {
+            return false;
+        }
+        for (Side side : Side.values()) {
+            if (!block.isFullSide(side)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte occluderType(Block block) {
+        if (!block.isShadowCasting()) {
+            return OCCLUDER_NONE;
+        }
+        return block.isTranslucent() ? OCCLUDER_BILLBOARD : OCCLUDER_SOLID;
+    }
+}
@@ -15,23 +15,25 @@
  */
 package org.terasology.rendering.primitives;
 
-import gnu.trove.iterator.TIntIterator;
-
 import javax.vecmath.Vector3f;
 import javax.vecmath.Vector4f;
 
-import org.lwjgl.BufferUtils;
 import org.terasology.math.Region3i;
 import org.terasology.math.Side;
 import org.terasology.math.Vector3i;
 import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.utilities.ScratchArena;
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.MiniatureChunk;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.BlockPart;
+import org.terasology.world.block.shapes.BlockMeshPart;
 import org.terasology.world.chunks.Chunk;
 
+import com.google.common.base.Supplier;
+
 /**
  * Generates tessellated chunk meshes from chunks.
  *
@@ -39,39 +41,161 @@ import org.terasology.world.chunks.Chunk;
  */
 public final class ChunkTessellator {
 
-    private static final int FLOAT_BYTES = 4;
-    private static final int INT_BYTES = 4;
     private static int _statVertexArrayUpdateCount = 0;
 
+    private static final ScratchArena.Slot SCRATCH_SLOT = ScratchArena.newSlot();
+    private static final Supplier<Scratch> SCRATCH_FACTORY = new Supplier<Scratch>() {
+        @Override
+        public Scratch get() {
+            return new Scratch();
+        }
+    };
+
     private WorldBiomeProvider biomeProvider;
+    private volatile boolean greedyMeshing = false;
 
     public ChunkTessellator(WorldBiomeProvider biomeProvider) {
         this.biomeProvider = biomeProvider;
     }
 
+    public boolean isGreedyMeshing() {
+        return greedyMeshing;
+    }
+
+    /**
+     * Enables merging adjacent, identical faces of opaque blocks into larger quads for the meshes generated from now on.
+     */
+    public void setGreedyMeshing(boolean greedyMeshing) {
+        this.greedyMeshing = greedyMeshing;
+    }
+
     public ChunkMesh generateMesh(WorldView worldView, Vector3i chunkPos, int meshHeight, int verticalOffset) {
         PerformanceMonitor.startActivity("GenerateMesh");
+        Scratch scratch = ScratchArena.get().object(SCRATCH_SLOT, SCRATCH_FACTORY);
         ChunkMesh mesh = new ChunkMesh();
 
-        Vector3i chunkOffset = new Vector3i(chunkPos.x * Chunk.SIZE_X, chunkPos.y * Chunk.SIZE_Y, chunkPos.z * Chunk.SIZE_Z);
+        ChunkClimate climate = biomeProvider.getChunkClimate(chunkPos.x, chunkPos.z);
+
+        PerformanceMonitor.startActivity("SnapshotNeighbourhood");
+        ChunkNeighbourhood neighbourhood = scratch.neighbourhood;
+        neighbourhood.snapshot(worldView, -1, verticalOffset - 1, -1, Chunk.SIZE_X + 2, meshHeight + 2, Chunk.SIZE_Z + 2);
+        PerformanceMonitor.endActivity();
+        setLighting(mesh, neighbourhood);
+
+        PerformanceMonitor.startActivity("CalculateVisibility");
+        mesh.setVisibility(scratch.visibility.calculate(neighbourhood, Chunk.SIZE_X, Chunk.SIZE_Z, verticalOffset, meshHeight));
+        PerformanceMonitor.endActivity();
+
+        GreedyMesher mesher = null;
+        if (greedyMeshing) {
+            mesher = scratch.mesher;
+            mesher.reset(Chunk.SIZE_X, meshHeight, Chunk.SIZE_Z, verticalOffset);
+        }
 
         for (int x = 0; x < Chunk.SIZE_X; x++) {
             for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                float biomeTemp = biomeProvider.getTemperatureAt(chunkOffset.x + x, chunkOffset.z + z);
-                float biomeHumidity = biomeProvider.getHumidityAt(chunkOffset.x + x, chunkOffset.z + z);
-
                 for (int y = verticalOffset; y < verticalOffset + meshHeight; y++) {
-                    Block block = worldView.getBlock(x, y, z);
+                    Block block = neighbourhood.getBlock(x, y, z);
 
                     if (block == null || block.isInvisible())
                         continue;
 
-                    generateBlockVertices(worldView, mesh, x, y, z, biomeTemp, biomeHumidity);
+                    generateBlockVertices(neighbourhood, mesh, scratch, climate, mesher, x, y, z);
+                }
+            }
+        }
+
+        if (mesher != null) {
+            PerformanceMonitor.startActivity("GreedyMeshing");
+            mesher.appendTo(mesh, ChunkMesh.RENDER_TYPE.OPAQUE.getIndex());
+            PerformanceMonitor.endActivity();
+        }
+
+        finish(mesh);
+        _statVertexArrayUpdateCount++;
+
+        PerformanceMonitor.endActivity();
+        return mesh;
+    }
+
+    /**
+     * Generates a mesh at a reduced level of detail for distant chunks. The blocks are grouped into cells of
+     * scale x scale x scale blocks, each of which is drawn as a single large block looking like the topmost of its
+     * blocks that has full faces. Other shapes and billboards are left out, and the cells are lit flatly by the blocks
+     * in front of their faces.
+     *
+     * @param scale The edge length of the cells, which must divide the size of the chunk and the mesh height
+     */
+    public ChunkMesh generateLodMesh(WorldView worldView, Vector3i chunkPos, int meshHeight, int verticalOffset, int scale) {
+        PerformanceMonitor.startActivity("GenerateLodMesh");
+        Scratch scratch = ScratchArena.get().object(SCRATCH_SLOT, SCRATCH_FACTORY);
+        ChunkMesh mesh = new ChunkMesh();
+        mesh.setLodScale(scale);
+
+        ChunkClimate climate = biomeProvider.getChunkClimate(chunkPos.x, chunkPos.z);
+
+        // The padding holds the cells next to the mesh, which decide whether the faces on its border are visible
+        PerformanceMonitor.startActivity("SnapshotNeighbourhood");
+        ChunkNeighbourhood neighbourhood = scratch.neighbourhood;
+        neighbourhood.snapshot(worldView, -scale, verticalOffset - scale, -scale, Chunk.SIZE_X + 2 * scale, meshHeight + 2 * scale, Chunk.SIZE_Z + 2 * scale);
+        PerformanceMonitor.endActivity();
+
+        PerformanceMonitor.startActivity("CalculateVisibility");
+        mesh.setVisibility(scratch.visibility.calculate(neighbourhood, Chunk.SIZE_X, Chunk.SIZE_Z, verticalOffset, meshHeight));
+        PerformanceMonitor.endActivity();
+
+        int cellsX = Chunk.SIZE_X / scale;
+        int cellsY = meshHeight / scale;
+        int cellsZ = Chunk.SIZE_Z / scale;
+        Block[] cells = scratch.cells(cellsX + 2, cellsY + 2, cellsZ + 2);
+        int index = 0;
+        for (int x = -1; x <= cellsX; x++) {
+            for (int y = -1; y <= cellsY; y++) {
+                for (int z = -1; z <= cellsZ; z++) {
+                    cells[index++] = sampleCell(neighbourhood, scratch.mesher, x * scale, verticalOffset + y * scale, z * scale, scale);
                 }
             }
         }
 
-        generateOptimizedBuffers(worldView, mesh);
+        GreedyMesher mesher = scratch.mesher;
+        for (ChunkMesh.RENDER_TYPE renderType : ChunkMesh.RENDER_TYPE.values()) {
+            if (renderType == ChunkMesh.RENDER_TYPE.BILLBOARD)
+                continue;
+
+            mesher.reset(cellsX, cellsY, cellsZ, verticalOffset, scale);
+            for (int x = 0; x < cellsX; x++) {
+                for (int y = 0; y < cellsY; y++) {
+                    for (int z = 0; z < cellsZ; z++) {
+                        Block block = cells[cellIndex(x, y, z, cellsY, cellsZ)];
+                        if (block == null || getRenderType(block) != renderType)
+                            continue;
+
+                        for (Side side : Side.values()) {
+                            Vector3i offset = side.getVector3i();
+                            Block adjacentCell = cells[cellIndex(x + offset.x, y + offset.y, z + offset.z, cellsY, cellsZ)];
+                            if (adjacentCell != null && !isSideVisibleForBlockTypes(adjacentCell, block, side))
+                                continue;
+                            if (side == Side.BOTTOM && verticalOffset + y * scale == 0)
+                                continue;
+
+                            BlockMeshPart part = block.getMeshPart(BlockPart.fromSide(side));
+                            if (part == null || !mesher.isMergeable(part, side))
+                                continue;
+
+                            int blockX = x * scale;
+                            int blockY = verticalOffset + y * scale;
+                            int blockZ = z * scale;
+                            Vector4f colorOffset = calcColorOffset(block, BlockPart.fromSide(side), climate, blockX, blockZ, scratch.colorOffset);
+                            calcFaceLighting(neighbourhood, side, blockX, blockY, blockZ, scale, scratch.faceLighting);
+                            mesher.addFace(side, blockX, blockY, blockZ, block, part, colorOffset, scratch.faceLighting);
+                        }
+                    }
+                }
+            }
+            mesher.appendTo(mesh, renderType.getIndex());
+        }
+
+        finish(mesh);
         _statVertexArrayUpdateCount++;
 
         PerformanceMonitor.endActivity();
@@ -80,11 +204,15 @@ public final class ChunkTessellator {
 
     public ChunkMesh generateMinaturizedMesh(MiniatureChunk miniatureChunk) {
         PerformanceMonitor.startActivity("GenerateMinuatureMesh");
+        Scratch scratch = ScratchArena.get().object(SCRATCH_SLOT, SCRATCH_FACTORY);
         ChunkMesh mesh = new ChunkMesh();
 
         MiniatureChunk[] chunks = { miniatureChunk };
         WorldView localWorldView = new WorldView(chunks, Region3i.createFromCenterExtents(Vector3i.zero(), Vector3i.zero()), Vector3i.zero());
         localWorldView.setChunkSize(new Vector3i(MiniatureChunk.CHUNK_SIZE));
+        ChunkNeighbourhood neighbourhood = scratch.neighbourhood;
+        neighbourhood.wrap(localWorldView);
+        setLighting(mesh, neighbourhood);
 
         for (int x = 0; x < MiniatureChunk.SIZE_X; x++) {
             for (int z = 0; z < MiniatureChunk.SIZE_Z; z++) {
@@ -94,167 +222,41 @@ public final class ChunkTessellator {
                     if (block == null || block.isInvisible())
                         continue;
 
-                    generateBlockVertices(localWorldView, mesh, x, y, z, 0.0f, 0.0f);
+                    generateBlockVertices(neighbourhood, mesh, scratch, null, null, x, y, z);
                 }
             }
         }
 
-        generateOptimizedBuffers(localWorldView, mesh);
+        finish(mesh);
         _statVertexArrayUpdateCount++;
 
         PerformanceMonitor.endActivity();
         return mesh;
     }
 
-    private void generateOptimizedBuffers(WorldView worldView, ChunkMesh mesh) {
-        PerformanceMonitor.startActivity("OptimizeBuffers");
-
-        for (int j = 0; j < mesh._vertexElements.length; j++) {
-            // Vertices double to account for light info
-            mesh._vertexElements[j].finalVertices = BufferUtils.createByteBuffer(mesh._vertexElements[j].vertices.size() * 2 * 4 + mesh._vertexElements[j].tex.size() * 4 + mesh._vertexElements[j].color.size() * 4 + mesh._vertexElements[j].normals.size() * 4);
-
-            int cTex = 0;
-            int cColor = 0;
-            for (int i = 0; i < mesh._vertexElements[j].vertices.size(); i += 3, cTex += 3, cColor += 4) {
-
-                Vector3f vertexPos = new Vector3f(mesh._vertexElements[j].vertices.get(i), mesh._vertexElements[j].vertices.get(i + 1), mesh._vertexElements[j].vertices.get(i + 2));
-
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.x);
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.y);
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.z);
-
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex + 1));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex + 2));
-
-                float[] result = new float[3];
-                calcLightingValuesForVertexPos(worldView, vertexPos, result);
-
-                mesh._vertexElements[j].finalVertices.putFloat(result[0]);
-                mesh._vertexElements[j].finalVertices.putFloat(result[1]);
-                mesh._vertexElements[j].finalVertices.putFloat(result[2]);
-
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 1));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 2));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 3));
-
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].normals.get(i));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].normals.get(i + 1));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].normals.get(i + 2));
-            }
-
-            mesh._vertexElements[j].finalIndices = BufferUtils.createIntBuffer(mesh._vertexElements[j].indices.size());
-            TIntIterator indexIterator = mesh._vertexElements[j].indices.iterator();
-            while (indexIterator.hasNext()) {
-                mesh._vertexElements[j].finalIndices.put(indexIterator.next());
-            }
-
-            mesh._vertexElements[j].finalVertices.flip();
-            mesh._vertexElements[j].finalIndices.flip();
-        }
-        PerformanceMonitor.endActivity();
+    private void setLighting(ChunkMesh mesh, ChunkNeighbourhood neighbourhood) {
+        for (ChunkMesh.VertexElements elements : mesh._vertexElements)
+            elements.neighbourhood = neighbourhood;
     }
 
-    private void calcLightingValuesForVertexPos(WorldView worldView, Vector3f vertexPos, float[] output) {
-        PerformanceMonitor.startActivity("calcLighting");
-        float[] lights = new float[8];
-        float[] blockLights = new float[8];
-        Block[] blocks = new Block[4];
-
-        PerformanceMonitor.startActivity("gatherLightInfo");
-        blocks[0] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-        blocks[1] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blocks[2] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blocks[3] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-
-        lights[0] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-        lights[1] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        lights[2] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        lights[3] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-
-        lights[4] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        lights[5] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        lights[6] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        lights[7] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-
-        blockLights[0] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-        blockLights[1] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blockLights[2] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blockLights[3] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-
-        blockLights[4] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        blockLights[5] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        blockLights[6] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        blockLights[7] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        PerformanceMonitor.endActivity();
-
-        float resultLight = 0;
-        float resultBlockLight = 0;
-        int counterLight = 0;
-        int counterBlockLight = 0;
-
-        int occCounter = 0;
-        int occCounterBillboard = 0;
-        for (int i = 0; i < 8; i++) {
-            if (lights[i] > 0) {
-                resultLight += lights[i];
-                counterLight++;
-            }
-            if (blockLights[i] > 0) {
-                resultBlockLight += blockLights[i];
-                counterBlockLight++;
-            }
-
-            if (i < 4) {
-                Block b = blocks[i];
-
-                if (b.isShadowCasting() && !b.isTranslucent()) {
-                    occCounter++;
-                } else if (b.isShadowCasting()) {
-                    occCounterBillboard++;
-                }
-            }
-        }
-
-        double resultAmbientOcclusion = (Math.pow(0.60, occCounter) + Math.pow(0.86, occCounterBillboard)) / 2.0;
-
-        if (counterLight == 0)
-            output[0] = 0;
-        else
-            output[0] = resultLight / counterLight / 15f;
-
-        if (counterBlockLight == 0)
-            output[1] = 0;
-        else
-            output[1] = resultBlockLight / counterBlockLight / 15f;
-
-        output[2] = (float) resultAmbientOcclusion;
-        PerformanceMonitor.endActivity();
+    /**
+     * Turns the vertex data written during the tessellation into the final buffers of the mesh.
+     */
+    private void finish(ChunkMesh mesh) {
+        for (ChunkMesh.VertexElements elements : mesh._vertexElements)
+            elements.finish();
     }
 
-    private void generateBlockVertices(WorldView view, ChunkMesh mesh, int x, int y, int z, float temp, float hum) {
+    private void generateBlockVertices(ChunkNeighbourhood view, ChunkMesh mesh, Scratch scratch, ChunkClimate climate, GreedyMesher mesher, int x, int y, int z) {
         Block block = view.getBlock(x, y, z);
-
-        /*
-         * Determine the render process.
-         */
-        ChunkMesh.RENDER_TYPE renderType = ChunkMesh.RENDER_TYPE.TRANSLUCENT;
-
-        if (!block.isTranslucent())
-            renderType = ChunkMesh.RENDER_TYPE.OPAQUE;
-        // TODO: Review special case, or alternatively compare uris.
-        if (block.getURI().toString().equals("engine:water") || block.getURI().toString().equals("engine:ice"))
-            renderType = ChunkMesh.RENDER_TYPE.WATER_AND_ICE;
-        if (block.isDoubleSided())
-            renderType = ChunkMesh.RENDER_TYPE.BILLBOARD;
+        ChunkMesh.RENDER_TYPE renderType = getRenderType(block);
 
         if (block.getMeshPart(BlockPart.CENTER) != null) {
-            Vector4f colorOffset = block.calcColorOffsetFor(BlockPart.CENTER, temp, hum);
+            Vector4f colorOffset = calcColorOffset(block, BlockPart.CENTER, climate, x, z, scratch.colorOffset);
             block.getMeshPart(BlockPart.CENTER).appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
         }
 
-        boolean[] drawDir = new boolean[6];
+        boolean[] drawDir = scratch.drawDir;
 
         for (Side side : Side.values()) {
             Vector3i offset = side.getVector3i();
@@ -284,7 +286,7 @@ public final class ChunkTessellator {
             if (bottomBlock.isLiquid() || bottomBlock.getId() == 0x0) {
                 for (Side dir : Side.values()) {
                     if (drawDir[dir.ordinal()]) {
-                        Vector4f colorOffset = block.calcColorOffsetFor(BlockPart.fromSide(dir), temp, hum);
+                        Vector4f colorOffset = calcColorOffset(block, BlockPart.fromSide(dir), climate, x, z, scratch.colorOffset);
                         block.getLoweredLiquidMesh(dir).appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
                     }
                 }
@@ -294,12 +296,112 @@ public final class ChunkTessellator {
 
         for (Side dir : Side.values()) {
             if (drawDir[dir.ordinal()]) {
-                Vector4f colorOffset = block.calcColorOffsetFor(BlockPart.fromSide(dir), temp, hum);
-                block.getMeshPart(BlockPart.fromSide(dir)).appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
+                Vector4f colorOffset = calcColorOffset(block, BlockPart.fromSide(dir), climate, x, z, scratch.colorOffset);
+                BlockMeshPart part = block.getMeshPart(BlockPart.fromSide(dir));
+
+                if (mesher != null && renderType == ChunkMesh.RENDER_TYPE.OPAQUE && mesher.isMergeable(part, dir)
+                        && isUniformlyLit(view, part, x, y, z, scratch)) {
+                    mesher.addFace(dir, x, y, z, block, part, colorOffset, scratch.faceLighting);
+                } else {
+                    part.appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
+                }
             }
         }
     }
 
+    /**
+     * Determines the render process of a block.
+     */
+    private ChunkMesh.RENDER_TYPE getRenderType(Block block) {
+        ChunkMesh.RENDER_TYPE renderType = ChunkMesh.RENDER_TYPE.TRANSLUCENT;
+
+        if (!block.isTranslucent())
+            renderType = ChunkMesh.RENDER_TYPE.OPAQUE;
+        // TODO: Review special case, or alternatively compare uris.
+        if (block.getURI().toString().equals("engine:water") || block.getURI().toString().equals("engine:ice"))
+            renderType = ChunkMesh.RENDER_TYPE.WATER_AND_ICE;
+        if (block.isDoubleSided())
+            renderType = ChunkMesh.RENDER_TYPE.BILLBOARD;
+        return renderType;
+    }
+
+    /**
+     * Picks the block a level of detail cell looks like: the topmost block with a full top face, if any.
+     */
+    private Block sampleCell(ChunkNeighbourhood view, GreedyMesher mesher, int minX, int minY, int minZ, int scale) {
+        for (int y = minY + scale - 1; y >= minY; y--) {
+            for (int x = minX; x < minX + scale; x++) {
+                for (int z = minZ; z < minZ + scale; z++) {
+                    Block block = view.getBlock(x, y, z);
+                    if (block.getId() == 0x0 || block.isInvisible() || block.isDoubleSided())
+                        continue;
+                    BlockMeshPart top = block.getMeshPart(BlockPart.TOP);
+                    if (top != null && mesher.isMergeable(top, Side.TOP))
+                        return block;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int cellIndex(int x, int y, int z, int cellsY, int cellsZ) {
+        return ((x + 1) * (cellsZ + 2) + (z + 1)) * (cellsY + 2) + (y + 1);
+    }
+
+    /**
+     * Lights the face of a level of detail cell by the brightest of the blocks in front of it, without ambient
+     * occlusion.
+     */
+    private void calcFaceLighting(ChunkNeighbourhood view, Side side, int minX, int minY, int minZ, int scale, float[] output) {
+        Vector3i offset = side.getVector3i();
+        int frontX = (offset.x < 0) ? minX - 1 : ((offset.x > 0) ? minX + scale : minX);
+        int frontY = (offset.y < 0) ? minY - 1 : ((offset.y > 0) ? minY + scale : minY);
+        int frontZ = (offset.z < 0) ? minZ - 1 : ((offset.z > 0) ? minZ + scale : minZ);
+        int sizeX = (offset.x != 0) ? 1 : scale;
+        int sizeY = (offset.y != 0) ? 1 : scale;
+        int sizeZ = (offset.z != 0) ? 1 : scale;
+
+        int sunlight = 0;
+        int light = 0;
+        for (int x = frontX; x < frontX + sizeX; x++) {
+            for (int y = frontY; y < frontY + sizeY; y++) {
+                for (int z = frontZ; z < frontZ + sizeZ; z++) {
+                    sunlight = Math.max(sunlight, view.getSunlight(x, y, z));
+                    light = Math.max(light, view.getLight(x, y, z));
+                }
+            }
+        }
+        output[0] = sunlight / 15f;
+        output[1] = light / 15f;
+        output[2] = 1.0f;
+    }
+
+    /**
+     * Returns true if the lighting is the same at all vertices of the part, leaving it in scratch.faceLighting.
+     */
+    private boolean isUniformlyLit(ChunkNeighbourhood view, BlockMeshPart part, int x, int y, int z, Scratch scratch) {
+        for (int i = 0; i < part.size(); i++) {
+            Vector3f vertex = part.getVertex(i);
+
+            float[] result = (i == 0) ? scratch.faceLighting : scratch.lighting;
+            view.calcVertexLighting(vertex.x + x, vertex.y + y, vertex.z + z, result);
+            if (i > 0 && (result[0] != scratch.faceLighting[0] || result[1] != scratch.faceLighting[1] || result[2] != scratch.faceLighting[2]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the color offset of a block part, with a neutral climate if there is no chunk climate (miniatures).
+     */
+    private Vector4f calcColorOffset(Block block, BlockPart part, ChunkClimate climate, int x, int z, Vector4f target) {
+        if (climate == null) {
+            target.set(block.calcColorOffsetFor(part, 0.0f, 0.0f));
+            return target;
+        }
+        return block.calcColorOffsetFor(part, climate, x, z, target);
+    }
+
     /**
      * Returns true if the side should be rendered adjacent to the second side provided.
      *
@@ -322,4 +424,24 @@ public final class ChunkTessellator {
     public static int getVertexArrayUpdateCount() {
         return _statVertexArrayUpdateCount;
     }
+
+    /**
+     * Temporary data of a single tessellation, reused across the meshes generated on the same thread.
+     */
+    private static final class Scratch {
+        final Vector4f colorOffset = new Vector4f();
+        final boolean[] drawDir = new boolean[6];
+        final float[] lighting = new float[3];
+        final float[] faceLighting = new float[3];
+        final ChunkNeighbourhood neighbourhood = new ChunkNeighbourhood();
+        final ChunkVisibility visibility = new ChunkVisibility();
+        final GreedyMesher mesher = new GreedyMesher();
+        private Block[] cells = new Block[0];
+
+        Block[] cells(int sizeX, int sizeY, int sizeZ) {
+            if (cells.length < sizeX * sizeY * sizeZ)
+                cells = new Block[sizeX * sizeY * sizeZ];
+            return cells;
+        }
+    }
 }
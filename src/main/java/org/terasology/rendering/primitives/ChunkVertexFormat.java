@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The packed layout of the vertices of chunk meshes. Each vertex takes 24 bytes:
+ * <ul>
+ * <li>Position: three shorts in 1/POSITION_SCALE blocks, relative to the chunk</li>
+ * <li>Texture coordinates: three shorts, the atlas coordinates in 1/TEX_COORD_SCALE and the tiling code of the
+ * {@link GreedyMesher} as is</li>
+ * <li>Color offset: four normalized unsigned bytes</li>
+ * <li>Sunlight, block light and ambient occlusion: three normalized unsigned bytes and one byte of padding, passed to
+ * the shader as the secondary color</li>
+ * <li>Normal: three normalized signed bytes and one byte of padding</li>
+ * </ul>
+ * The chunk shader scales the position and texture coordinates back, see the preamble in
+ * {@link org.terasology.rendering.assets.Shader}.
+ */
+public final class ChunkVertexFormat {
+
+    /* Miniature chunks are 512 blocks wide, which must still fit into a short */
+    public static final int POSITION_SCALE = 32;
+    public static final int TEX_COORD_SCALE = 16384;
+
+    public static final int OFFSET_POSITION = 0;
+    public static final int OFFSET_TEX_COORD = 6;
+    public static final int OFFSET_COLOR = 12;
+    public static final int OFFSET_LIGHT = 16;
+    public static final int OFFSET_NORMAL = 20;
+    public static final int STRIDE = 24;
+
+    private ChunkVertexFormat() {
+    }
+
+    public static void putPosition(ByteBuffer target, float x, float y, float z) {
+        target.putShort(packPosition(x));
+        target.putShort(packPosition(y));
+        target.putShort(packPosition(z));
+    }
+
+    /**
+     * @param w The third texture coordinate, which is stored unscaled
+     */
+    public static void putTexCoord(ByteBuffer target, float u, float v, float w) {
+        target.putShort(packTexCoord(u));
+        target.putShort(packTexCoord(v));
+        target.putShort((short) Math.round(w));
+    }
+
+    public static void putColor(ByteBuffer target, float r, float g, float b, float a) {
+        target.put(packUnsigned(r));
+        target.put(packUnsigned(g));
+        target.put(packUnsigned(b));
+        target.put(packUnsigned(a));
+    }
+
+    public static void putLight(ByteBuffer target, float sunlight, float blockLight, float occlusion) {
+        target.put(packUnsigned(sunlight));
+        target.put(packUnsigned(blockLight));
+        target.put(packUnsigned(occlusion));
+        target.put((byte) 0);
+    }
+
+    public static void putNormal(ByteBuffer target, float x, float y, float z) {
+        target.put(packSigned(x));
+        target.put(packSigned(y));
+        target.put(packSigned(z));
+        target.put((byte) 0);
+    }
+
+    public static short packPosition(float value) {
+        return (short) Math.round(value * POSITION_SCALE);
+    }
+
+    public static short packTexCoord(float value) {
+        return (short) Math.round(value * TEX_COORD_SCALE);
+    }
+
+    /**
+     * @return The value in [0..1] as a normalized unsigned byte
+     */
+    public static byte packUnsigned(float value) {
+        return (byte) Math.round(Math.max(0.0f, Math.min(1.0f, value)) * 255.0f);
+    }
+
+    /**
+     * @return The value in [-1..1] as a normalized signed byte
+     */
+    public static byte packSigned(float value) {
+        return (byte) Math.round(Math.max(-1.0f, Math.min(1.0f, value)) * 127.0f);
+    }
+}
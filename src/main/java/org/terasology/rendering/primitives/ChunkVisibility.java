@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import org.terasology.math.Side;
+
+/**
+ * Determines which faces of a chunk mesh segment can see each other through the blocks that are not opaque.
+ * <p/>
+ * The result is a bit mask with one bit for each of the 15 pairs of distinct faces. Two faces see each other if a
+ * connected region of non-opaque blocks touches both, which the renderer uses to skip segments hidden behind solid
+ * terrain (cave culling).
+ */
+public final class ChunkVisibility {
+
+    /* The bit of each pair of faces, by the ordinals of the sides */
+    private static final int[][] PAIR_BITS = new int[6][6];
+
+    /* All faces see each other, which is assumed for segments without a mesh */
+    public static final int ALL = (1 << 15) - 1;
+    public static final int NONE = 0;
+
+    static {
+        int bit = 0;
+        for (int a = 0; a < 6; a++) {
+            for (int b = a + 1; b < 6; b++) {
+                PAIR_BITS[a][b] = 1 << bit;
+                PAIR_BITS[b][a] = 1 << bit;
+                bit++;
+            }
+        }
+    }
+
+    private int[] queue = new int[0];
+    private boolean[] visited = new boolean[0];
+
+    /**
+     * @return Whether the given faces see each other according to the visibility bit mask
+     */
+    public static boolean connects(int visibility, Side from, Side to) {
+        return from != to && (visibility & PAIR_BITS[from.ordinal()][to.ordinal()]) != 0;
+    }
+
+    /**
+     * Calculates the visibility of the blocks of a segment by flood filling the connected regions of non-opaque blocks.
+     *
+     * @param minY The y coordinate of the lowest layer of the segment
+     */
+    int calculate(ChunkNeighbourhood neighbourhood, int sizeX, int sizeZ, int minY, int sizeY) {
+        int volume = sizeX * sizeY * sizeZ;
+        if (visited.length < volume) {
+            visited = new boolean[volume];
+            queue = new int[volume];
+        }
+
+        int opaqueCount = 0;
+        for (int x = 0; x < sizeX; x++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int y = 0; y < sizeY; y++) {
+                    boolean opaque = neighbourhood.isOpaque(x, y + minY, z);
+                    visited[(x * sizeZ + z) * sizeY + y] = opaque;
+                    if (opaque)
+                        opaqueCount++;
+                }
+            }
+        }
+        if (opaqueCount == 0)
+            return ALL;
+        if (opaqueCount == volume)
+            return NONE;
+
+        int result = NONE;
+        for (int start = 0; start < volume; start++) {
+            if (visited[start])
+                continue;
+
+            // Collect the faces touched by the region of the start block
+            int faces = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            visited[start] = true;
+            while (head < tail) {
+                int index = queue[head++];
+                int y = index % sizeY;
+                int z = (index / sizeY) % sizeZ;
+                int x = index / (sizeY * sizeZ);
+
+                if (x == 0)
+                    faces |= 1 << Side.LEFT.ordinal();
+                else if (!visited[index - sizeY * sizeZ])
+                    tail = visit(index - sizeY * sizeZ, tail);
+                if (x == sizeX - 1)
+                    faces |= 1 << Side.RIGHT.ordinal();
+                else if (!visited[index + sizeY * sizeZ])
+                    tail = visit(index + sizeY * sizeZ, tail);
+
+                if (z == 0)
+                    faces |= 1 << Side.FRONT.ordinal();
+                else if (!visited[index - sizeY])
+                    tail = visit(index - sizeY, tail);
+                if (z == sizeZ - 1)
+                    faces |= 1 << Side.BACK.ordinal();
+                else if (!visited[index + sizeY])
+                    tail = visit(index + sizeY, tail);
+
+                if (y == 0)
+                    faces |= 1 << Side.BOTTOM.ordinal();
+                else if (!visited[index - 1])
+                    tail = visit(index - 1, tail);
+                if (y == sizeY - 1)
+                    faces |= 1 << Side.TOP.ordinal();
+                else if (!visited[index + 1])
+                    tail = visit(index + 1, tail);
+            }
+
+            for (int a = 0; a < 6; a++) {
+                if ((faces & (1 << a)) == 0)
+                    continue;
+                for (int b = a + 1; b < 6; b++) {
+                    if ((faces & (1 << b)) != 0)
+                        result |= PAIR_BITS[a][b];
+                }
+            }
+            if (result == ALL)
+                break;
+        }
+        return result;
+    }
+
+    private int visit(int index, int tail) {
+        visited[index] = true;
+        queue[tail] = index;
+        return tail + 1;
+    }
+}
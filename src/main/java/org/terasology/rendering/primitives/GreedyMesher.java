@@ -0,0 +1,358 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.vecmath.Vector2f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.shapes.BlockMeshPart;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Merges the coplanar, adjacent faces of a chunk mesh that look identical into larger quads.
+ * <p/>
+ * Only square faces covering the full side of a block are merged, and only if they share the block, color offset and
+ * lighting, with the lighting being the same at all four corners. The texture tile of a merged quad is repeated by the
+ * chunk shader: its texture coordinates hold the origin of the tile in the atlas, and the third coordinate tells the
+ * shader how to derive the position within the tile from the position of the fragment.
+ */
+final class GreedyMesher {
+
+    /* Texture coordinate marking a quad as tiled, followed by the axis of its normal (times 8) and its orientation */
+    static final float TILED_TEX_COORD = 2.0f;
+
+    private static final int NOT_MERGEABLE = -1;
+    private static final float EPSILON = 0.001f;
+
+    /* The axes spanning the plane of the faces facing along each axis, as expected by the chunk shader */
+    private static final int[] PLANE_U_AXIS = {2, 0, 0};
+    private static final int[] PLANE_V_AXIS = {1, 2, 1};
+
+    private final Map<Side, Map<BlockMeshPart, Integer>> orientations = Maps.newEnumMap(Side.class);
+
+    private final int[][] faces = new int[Side.values().length][];
+    private Block[] faceBlocks = new Block[256];
+    private BlockMeshPart[] faceParts = new BlockMeshPart[256];
+    private float[] faceAttributes = new float[256 * 7];
+    private int faceCount;
+
+    private final int[] size = new int[3];
+    private int offsetY;
+    private int scale = 1;
+
+    public GreedyMesher() {
+        for (Side side : Side.values())
+            orientations.put(side, Maps.<BlockMeshPart, Integer>newIdentityHashMap());
+    }
+
+    /**
+     * Prepares the mesher for a mesh of the given size.
+     *
+     * @param offsetY The y coordinate of the lowest layer of blocks in the mesh
+     */
+    public void reset(int sizeX, int sizeY, int sizeZ, int offsetY) {
+        reset(sizeX, sizeY, sizeZ, offsetY, 1);
+    }
+
+    /**
+     * Prepares the mesher for a mesh of cells of scale x scale x scale blocks, each of which looks like a single block
+     * (see {@link ChunkTessellator#generateLodMesh}). The faces are still added at block coordinates, those of the
+     * lowest corner of their cell.
+     *
+     * @param sizeX The number of cells along the x axis, likewise for the other axes
+     */
+    public void reset(int sizeX, int sizeY, int sizeZ, int offsetY, int scale) {
+        size[0] = sizeX;
+        size[1] = sizeY;
+        size[2] = sizeZ;
+        this.offsetY = offsetY;
+        this.scale = scale;
+        faceCount = 0;
+
+        int volume = sizeX * sizeY * sizeZ;
+        for (int i = 0; i < faces.length; i++) {
+            if (faces[i] == null || faces[i].length < volume)
+                faces[i] = new int[volume];
+            Arrays.fill(faces[i], 0, volume, -1);
+        }
+    }
+
+    /**
+     * @return Whether the given face can be merged with its neighbours, if it is uniformly lit
+     */
+    public boolean isMergeable(BlockMeshPart part, Side side) {
+        return getOrientation(part, side) != NOT_MERGEABLE;
+    }
+
+    /**
+     * Adds a face to be merged, which must be mergeable.
+     *
+     * @param light The sunlight, block light and ambient occlusion at all corners of the face
+     */
+    public void addFace(Side side, int x, int y, int z, Block block, BlockMeshPart part, Vector4f colorOffset, float[] light) {
+        if (faceCount == faceBlocks.length) {
+            faceBlocks = Arrays.copyOf(faceBlocks, faceCount * 2);
+            faceParts = Arrays.copyOf(faceParts, faceCount * 2);
+            faceAttributes = Arrays.copyOf(faceAttributes, faceCount * 2 * 7);
+        }
+
+        faceBlocks[faceCount] = block;
+        faceParts[faceCount] = part;
+        int offset = faceCount * 7;
+        faceAttributes[offset] = colorOffset.x;
+        faceAttributes[offset + 1] = colorOffset.y;
+        faceAttributes[offset + 2] = colorOffset.z;
+        faceAttributes[offset + 3] = colorOffset.w;
+        faceAttributes[offset + 4] = light[0];
+        faceAttributes[offset + 5] = light[1];
+        faceAttributes[offset + 6] = light[2];
+
+        faces[side.ordinal()][index(x / scale, (y - offsetY) / scale, z / scale)] = faceCount++;
+    }
+
+    /**
+     * Merges the added faces and appends the resulting quads to the mesh.
+     */
+    public void appendTo(ChunkMesh mesh, int meshBit) {
+        int[] pos = new int[3];
+        for (Side side : Side.values()) {
+            int[] sideFaces = faces[side.ordinal()];
+            int axis = normalAxis(side);
+            int uAxis = PLANE_U_AXIS[axis];
+            int vAxis = PLANE_V_AXIS[axis];
+
+            for (int layer = 0; layer < size[axis]; layer++) {
+                pos[axis] = layer;
+                for (int v = 0; v < size[vAxis]; v++) {
+                    for (int u = 0; u < size[uAxis]; u++) {
+                        pos[uAxis] = u;
+                        pos[vAxis] = v;
+                        int face = sideFaces[index(pos[0], pos[1], pos[2])];
+                        if (face < 0)
+                            continue;
+
+                        // Grow the quad along the first axis, then add rows for as long as they match entirely
+                        int width = 1;
+                        while (u + width < size[uAxis] && matches(sideFaces, pos, uAxis, u + width, vAxis, v, face))
+                            width++;
+
+                        int height = 1;
+                        boolean rowMatches = true;
+                        while (v + height < size[vAxis] && rowMatches) {
+                            for (int i = 0; i < width && rowMatches; i++)
+                                rowMatches = matches(sideFaces, pos, uAxis, u + i, vAxis, v + height, face);
+                            if (rowMatches)
+                                height++;
+                        }
+
+                        for (int j = 0; j < height; j++) {
+                            for (int i = 0; i < width; i++) {
+                                pos[uAxis] = u + i;
+                                pos[vAxis] = v + j;
+                                sideFaces[index(pos[0], pos[1], pos[2])] = -1;
+                            }
+                        }
+                        pos[uAxis] = u;
+                        pos[vAxis] = v;
+
+                        appendQuad(mesh._vertexElements[meshBit], side, face, pos, width, height);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean matches(int[] sideFaces, int[] pos, int uAxis, int u, int vAxis, int v, int face) {
+        pos[uAxis] = u;
+        pos[vAxis] = v;
+        int other = sideFaces[index(pos[0], pos[1], pos[2])];
+        if (other < 0)
+            return false;
+        if (faceBlocks[other] != faceBlocks[face] || faceParts[other] != faceParts[face])
+            return false;
+        for (int i = 0; i < 7; i++) {
+            if (faceAttributes[other * 7 + i] != faceAttributes[face * 7 + i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends the quad covering width x height faces starting at the given block position.
+     */
+    private void appendQuad(ChunkMesh.VertexElements elements, Side side, int face, int[] pos, int width, int height) {
+        BlockMeshPart part = faceParts[face];
+        int axis = normalAxis(side);
+        int uAxis = PLANE_U_AXIS[axis];
+        int vAxis = PLANE_V_AXIS[axis];
+        float texZ = TILED_TEX_COORD + axis * 8 + getOrientation(part, side);
+
+        float originU = Float.MAX_VALUE;
+        float originV = Float.MAX_VALUE;
+        for (int i = 0; i < part.size(); i++) {
+            originU = Math.min(originU, part.getTexCoord(i).x);
+            originV = Math.min(originV, part.getTexCoord(i).y);
+        }
+
+        float[] vertex = new float[3];
+        float[] light = {faceAttributes[face * 7 + 4], faceAttributes[face * 7 + 5], faceAttributes[face * 7 + 6]};
+        int nextIndex = elements.vertCount;
+        for (int i = 0; i < part.size(); i++) {
+            Vector3f partVertex = part.getVertex(i);
+            vertex[axis] = pos[axis] * scale + (scale - 1) * 0.5f + component(partVertex, axis) * scale;
+            vertex[uAxis] = (component(partVertex, uAxis) < 0) ? pos[uAxis] * scale - 0.5f : (pos[uAxis] + width) * scale - 0.5f;
+            vertex[vAxis] = (component(partVertex, vAxis) < 0) ? pos[vAxis] * scale - 0.5f : (pos[vAxis] + height) * scale - 0.5f;
+
+            int color = face * 7;
+            elements.addVertex(vertex[0], vertex[1] + offsetY, vertex[2], originU, originV, texZ,
+                    faceAttributes[color], faceAttributes[color + 1], faceAttributes[color + 2], faceAttributes[color + 3],
+                    part.getNormal(i), light);
+        }
+
+        for (int i = 0; i < part.indicesSize(); i++)
+            elements.addIndex(part.getIndex(i) + nextIndex);
+    }
+
+    /**
+     * Determines how the texture tile is laid out on a face: bit 0 swaps the axes of the plane, bits 1 and 2 mirror the
+     * first and second axis.
+     *
+     * @return The orientation, or NOT_MERGEABLE if the face is not an axis aligned square covering the full side
+     */
+    private int getOrientation(BlockMeshPart part, Side side) {
+        Map<BlockMeshPart, Integer> sideOrientations = orientations.get(side);
+        Integer result = sideOrientations.get(part);
+        if (result == null) {
+            result = calcOrientation(part, side);
+            sideOrientations.put(part, result);
+        }
+        return result;
+    }
+
+    private static int calcOrientation(BlockMeshPart part, Side side) {
+        if (part.size() != 4 || part.indicesSize() != 6)
+            return NOT_MERGEABLE;
+
+        int axis = normalAxis(side);
+        int uAxis = PLANE_U_AXIS[axis];
+        int vAxis = PLANE_V_AXIS[axis];
+        float expected = 0.5f * component(side.getVector3i(), axis);
+
+        float originU = Float.MAX_VALUE;
+        float originV = Float.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            originU = Math.min(originU, part.getTexCoord(i).x);
+            originV = Math.min(originV, part.getTexCoord(i).y);
+        }
+
+        int[] corners = new int[4];
+        int[] texCorners = new int[4];
+        int cornersSeen = 0;
+        for (int i = 0; i < 4; i++) {
+            Vector3f vertex = part.getVertex(i);
+            if (Math.abs(component(vertex, axis) - expected) > EPSILON)
+                return NOT_MERGEABLE;
+
+            int cornerU = toUnit(component(vertex, uAxis) + 0.5f);
+            int cornerV = toUnit(component(vertex, vAxis) + 0.5f);
+            Vector2f texCoord = part.getTexCoord(i);
+            int texU = toUnit((texCoord.x - originU) / Block.TEXTURE_OFFSET_WIDTH);
+            int texV = toUnit((texCoord.y - originV) / Block.TEXTURE_OFFSET_WIDTH);
+            if (cornerU < 0 || cornerV < 0 || texU < 0 || texV < 0)
+                return NOT_MERGEABLE;
+
+            corners[i] = cornerU + 2 * cornerV;
+            texCorners[i] = texU + 2 * texV;
+            cornersSeen |= 1 << corners[i];
+        }
+        if (cornersSeen != 0xF)
+            return NOT_MERGEABLE;
+
+        for (int orientation = 0; orientation < 8; orientation++) {
+            boolean matches = true;
+            for (int i = 0; i < 4 && matches; i++) {
+                int u = corners[i] & 1;
+                int v = corners[i] >> 1;
+                if ((orientation & 1) != 0) {
+                    int temp = u;
+                    u = v;
+                    v = temp;
+                }
+                if ((orientation & 2) != 0)
+                    u = 1 - u;
+                if ((orientation & 4) != 0)
+                    v = 1 - v;
+                matches = texCorners[i] == u + 2 * v;
+            }
+            if (matches)
+                return orientation;
+        }
+        return NOT_MERGEABLE;
+    }
+
+    /**
+     * @return 0 or 1 if the value is close to either, -1 otherwise
+     */
+    private static int toUnit(float value) {
+        if (Math.abs(value) < EPSILON)
+            return 0;
+        if (Math.abs(value - 1.0f) < EPSILON)
+            return 1;
+        return -1;
+    }
+
+    private int index(int x, int y, int z) {
+        return (y * size[0] + x) * size[2] + z;
+    }
+
+    private static int normalAxis(Side side) {
+        if (side.getVector3i().x != 0)
+            return 0;
+        if (side.getVector3i().y != 0)
+            return 1;
+        return 2;
+    }
+
+    private static float component(Vector3f vector, int axis) {
+        switch (axis) {
+            case 0:
+                return vector.x;
+            case 1:
+                return vector.y;
+            default:
+                return vector.z;
+        }
+    }
+
+    private static int component(Vector3i vector, int axis) {
+        switch (axis) {
+            case 0:
+                return vector.x;
+            case 1:
+                return vector.y;
+            default:
+                return vector.z;
+        }
+    }
+}
@@ -15,21 +15,35 @@
  */
 package org.terasology.rendering.world;
 
-import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import org.terasology.game.CoreRegistry;
-import org.terasology.game.GameEngine;
-import org.terasology.logic.manager.Config;
+import javax.vecmath.Vector3f;
+
+import org.terasology.math.TeraMath;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.rendering.primitives.ChunkMesh;
 import org.terasology.rendering.primitives.ChunkTessellator;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.WorldView;
 import org.terasology.world.chunks.Chunk;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Maps;
 
 /**
  * Provides the mechanism for updating and generating chunks.
+ * <p/>
+ * Chunk updates are meshed by a fixed number of threads, player triggered updates first and the others by their
+ * distance to the viewer. Each chunk is queued at most once: requests for a chunk that is already queued or being
+ * meshed are dropped, as the job takes all segments that are dirty by the time it starts.
+ * <p/>
+ * Chunks far from the viewer are meshed at a reduced level of detail, which changes as the viewer moves.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
@@ -40,10 +54,24 @@ public final class ChunkUpdateManager {
     }
 
     /* CONST */
-    private static final int MAX_THREADS = Config.getInstance().getMaxThreads();
+    private static final int MESHING_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int MAX_QUEUED_UPDATES = 2 * MESHING_THREADS;
+    private static final int HALF_DETAIL_SCALE = 2;
+    private static final int QUARTER_DETAIL_SCALE = 4;
+
+    private static final Logger logger = Logger.getLogger(ChunkUpdateManager.class.getName());
 
     /* CHUNK UPDATES */
-    private static final Set<Chunk> currentlyProcessedChunks = Sets.newHashSet();
+    private final BlockingQueue<ChunkUpdate> updateQueue = new PriorityBlockingQueue<ChunkUpdate>(64);
+    private final ConcurrentMap<Chunk, ChunkUpdate> currentlyProcessedChunks = Maps.newConcurrentMap();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final ExecutorService meshingThreads;
+
+    private final Vector3f viewPosition = new Vector3f();
+
+    /* LEVEL OF DETAIL */
+    private volatile int halfDetailDistance = 8;
+    private volatile int quarterDetailDistance = 16;
 
     private final ChunkTessellator tessellator;
     private final WorldProvider worldProvider;
@@ -51,50 +79,207 @@ public final class ChunkUpdateManager {
     public ChunkUpdateManager(ChunkTessellator tessellator, WorldProvider worldProvider) {
         this.tessellator = tessellator;
         this.worldProvider = worldProvider;
+
+        meshingThreads = Executors.newFixedThreadPool(MESHING_THREADS);
+        for (int i = 0; i < MESHING_THREADS; i++) {
+            meshingThreads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+                    while (!Thread.currentThread().isInterrupted()) {
+                        try {
+                            processChunkUpdate(updateQueue.take());
+                        } catch (InterruptedException e) {
+                            break;
+                        } catch (Exception e) {
+                            logger.log(Level.SEVERE, "Error in thread", e);
+                        }
+                    }
+                    logger.log(Level.INFO, "Thread shutdown safely");
+                }
+            });
+        }
     }
 
     /**
-     * Updates the given chunk using a new thread from the thread pool. If the maximum amount of chunk updates
-     * is reached, the chunk update is ignored. Chunk updates can be forced though.
+     * Sets the position the distances of queued chunk updates are measured from.
+     */
+    public void setViewPosition(Vector3f position) {
+        synchronized (viewPosition) {
+            viewPosition.set(position);
+        }
+    }
+
+    /**
+     * Sets the distances in chunks from the viewer from which on chunks are meshed at half and at quarter the detail.
+     * Use Integer.MAX_VALUE to keep the chunks at full detail.
+     */
+    public void setLodDistances(int halfDetailDistance, int quarterDetailDistance) {
+        this.halfDetailDistance = halfDetailDistance;
+        this.quarterDetailDistance = quarterDetailDistance;
+    }
+
+    public int getHalfDetailDistance() {
+        return halfDetailDistance;
+    }
+
+    public int getQuarterDetailDistance() {
+        return quarterDetailDistance;
+    }
+
+    /**
+     * @return The edge length of the level of detail cells the chunk should be meshed with at its distance to the
+     *         viewer, 1 for full detail
+     */
+    public int getLodScale(Chunk chunk) {
+        int viewChunkX;
+        int viewChunkZ;
+        synchronized (viewPosition) {
+            viewChunkX = TeraMath.calcChunkPosX(TeraMath.floorToInt(viewPosition.x + 0.5f));
+            viewChunkZ = TeraMath.calcChunkPosZ(TeraMath.floorToInt(viewPosition.z + 0.5f));
+        }
+        int distance = Math.max(Math.abs(chunk.getPos().x - viewChunkX), Math.abs(chunk.getPos().z - viewChunkZ));
+        if (distance >= quarterDetailDistance) {
+            return QUARTER_DETAIL_SCALE;
+        }
+        if (distance >= halfDetailDistance) {
+            return HALF_DETAIL_SCALE;
+        }
+        return 1;
+    }
+
+    /**
+     * @return Whether the chunk has meshes at another level of detail than it should have at its distance to the viewer
+     */
+    public boolean isLodOutdated(Chunk chunk) {
+        ChunkMesh[] meshes = chunk.getMesh();
+        if (meshes == null) {
+            return false;
+        }
+        int lodScale = getLodScale(chunk);
+        for (ChunkMesh mesh : meshes) {
+            if (mesh.getLodScale() != lodScale) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues an update of the given chunk. If the maximum amount of queued updates is reached, the chunk update is
+     * ignored. Player triggered chunk updates are always queued.
      *
      * @param chunk The chunk to update
      * @param type  The chunk update type
-     * @return True if a chunk update was executed
+     * @return True if a chunk update was queued
      */
-    // TODO: Review this system
     public boolean queueChunkUpdate(Chunk chunk, final UPDATE_TYPE type) {
+        if (chunk.getPendingMesh() != null) {
+            // The result of the last update has to be applied first
+            return false;
+        }
+        if (type == UPDATE_TYPE.DEFAULT && currentlyProcessedChunks.size() >= MAX_QUEUED_UPDATES) {
+            return false;
+        }
 
-        if (!currentlyProcessedChunks.contains(chunk) && (currentlyProcessedChunks.size() < MAX_THREADS || type != UPDATE_TYPE.DEFAULT)) {
-            executeChunkUpdate(chunk);
-            return true;
+        ChunkUpdate update = new ChunkUpdate(chunk, type, distanceToView(chunk), nextSequence.getAndIncrement());
+        if (currentlyProcessedChunks.putIfAbsent(chunk, update) != null) {
+            return false;
         }
+        updateQueue.offer(update);
+        return true;
+    }
 
-        return false;
+    /**
+     * Stops the meshing threads, dropping the queued chunk updates.
+     */
+    public void dispose() {
+        meshingThreads.shutdownNow();
+        updateQueue.clear();
+        currentlyProcessedChunks.clear();
     }
 
-    private void executeChunkUpdate(final Chunk c) {
-        currentlyProcessedChunks.add(c);
-
-        // Create a new thread and start processing
-        Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                ChunkMesh[] newMeshes = new ChunkMesh[WorldRenderer.VERTICAL_SEGMENTS];
-                WorldView worldView = worldProvider.getLocalView(c.getPos());
-                if (worldView != null) {
-                    c.setDirty(false);
-                    for (int seg = 0; seg < WorldRenderer.VERTICAL_SEGMENTS; seg++) {
-                        newMeshes[seg] = tessellator.generateMesh(worldView, c.getPos(), Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS, seg * (Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS));
-                    }
+    private void processChunkUpdate(ChunkUpdate update) {
+        Chunk c = update.chunk;
+        PerformanceMonitor.startThread("Chunk Update");
+        try {
+            WorldView worldView = worldProvider.getLocalView(c.getPos());
+            if (worldView != null) {
+                c.setPendingMesh(generateMeshes(c, worldView));
+            }
+        } finally {
+            currentlyProcessedChunks.remove(c);
+            PerformanceMonitor.endThread("Chunk Update");
+        }
+    }
+
+    private float distanceToView(Chunk chunk) {
+        float x = (chunk.getPos().x + 0.5f) * Chunk.SIZE_X;
+        float z = (chunk.getPos().z + 0.5f) * Chunk.SIZE_Z;
+        synchronized (viewPosition) {
+            x -= viewPosition.x;
+            z -= viewPosition.z;
+        }
+        return (float) Math.sqrt(x * x + z * z);
+    }
 
-                    c.setPendingMesh(newMeshes);
+    /**
+     * Generates the meshes of the dirty segments of a chunk and marks them clean. The current meshes of the other
+     * segments are reused if they have the level of detail of the chunk, so they must only be disposed if they are not
+     * part of the result.
+     *
+     * @return The meshes of all segments
+     */
+    public ChunkMesh[] generateMeshes(Chunk c, WorldView worldView) {
+        ChunkMesh[] currentMeshes = c.getMesh();
+        int dirtySegments = c.takeDirtySegments();
+        if (currentMeshes == null) {
+            dirtySegments = Chunk.ALL_SEGMENTS;
+        }
 
+        int lodScale = getLodScale(c);
+        int meshHeight = Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS;
+        ChunkMesh[] newMeshes = new ChunkMesh[WorldRenderer.VERTICAL_SEGMENTS];
+        for (int seg = 0; seg < WorldRenderer.VERTICAL_SEGMENTS; seg++) {
+            if ((dirtySegments & (1 << seg)) != 0 || currentMeshes[seg].isDisposed() || currentMeshes[seg].getLodScale() != lodScale) {
+                if (lodScale == 1) {
+                    newMeshes[seg] = tessellator.generateMesh(worldView, c.getPos(), meshHeight, seg * meshHeight);
+                } else {
+                    newMeshes[seg] = tessellator.generateLodMesh(worldView, c.getPos(), meshHeight, seg * meshHeight, lodScale);
                 }
-                currentlyProcessedChunks.remove(c);
+            } else {
+                newMeshes[seg] = currentMeshes[seg];
             }
-        };
-
-        CoreRegistry.get(GameEngine.class).submitTask("Chunk Update", r);
+        }
+        return newMeshes;
     }
 
+
+    /**
+     * A queued chunk update, ordered by its type, its distance to the viewer and finally the order of the requests.
+     */
+    static final class ChunkUpdate implements Comparable<ChunkUpdate> {
+        final Chunk chunk;
+        final UPDATE_TYPE type;
+        final float distance;
+        final long sequence;
+
+        ChunkUpdate(Chunk chunk, UPDATE_TYPE type, float distance, long sequence) {
+            this.chunk = chunk;
+            this.type = type;
+            this.distance = distance;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(ChunkUpdate other) {
+            if (type != other.type) {
+                return (type == UPDATE_TYPE.PLAYER_TRIGGERED) ? -1 : 1;
+            }
+            if (distance != other.distance) {
+                return (distance < other.distance) ? -1 : 1;
+            }
+            return (sequence < other.sequence) ? -1 : ((sequence == other.sequence) ? 0 : 1);
+        }
+    }
 }
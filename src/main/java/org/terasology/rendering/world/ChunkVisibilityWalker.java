@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.world;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.math.AABB;
+import org.terasology.math.Side;
+import org.terasology.math.TeraMath;
+import org.terasology.rendering.primitives.ChunkMesh;
+import org.terasology.rendering.primitives.ChunkVisibility;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Predicate;
+
+/**
+ * Finds the chunk mesh segments that may be visible from the camera, by walking from the segment of the camera through
+ * the faces of the segments that see each other (see {@link ChunkVisibility}).
+ * <p/>
+ * The walk only steps into segments inside the view frustum and never turns back into a direction opposite to one
+ * it has already taken, which confines it to the segments that are potentially visible from the camera.
+ */
+final class ChunkVisibilityWalker {
+
+    private final TLongObjectHashMap<Chunk> chunks = new TLongObjectHashMap<Chunk>();
+    private final TObjectIntHashMap<Chunk> visibleSegments = new TObjectIntHashMap<Chunk>();
+    private final Queue<Step> steps = new ArrayDeque<Step>();
+    private boolean culling;
+
+    /**
+     * Determines the visible segments of the given chunks.
+     *
+     * @param inView Whether a segment, given by its bounding box, is inside the view frustum
+     */
+    public void walk(Iterable<Chunk> candidates, Vector3f cameraPosition, Predicate<AABB> inView) {
+        chunks.clear();
+        visibleSegments.clear();
+        for (Chunk chunk : candidates) {
+            chunks.put(key(chunk.getPos().x, chunk.getPos().z), chunk);
+        }
+
+        int segmentHeight = Chunk.SIZE_Y / Chunk.VERTICAL_SEGMENTS;
+        int segment = TeraMath.clamp(TeraMath.floorToInt(cameraPosition.y + 0.5f) / segmentHeight, 0, Chunk.VERTICAL_SEGMENTS - 1);
+        Chunk start = chunks.get(key(TeraMath.calcChunkPosX(TeraMath.floorToInt(cameraPosition.x + 0.5f)), TeraMath.calcChunkPosZ(TeraMath.floorToInt(cameraPosition.z + 0.5f))));
+
+        // Without the chunk of the camera there is nothing to walk from
+        culling = start != null;
+        if (!culling) {
+            return;
+        }
+
+        markVisible(start, segment);
+        steps.add(new Step(start, segment, null, 0));
+        while (!steps.isEmpty()) {
+            Step step = steps.poll();
+            int visibility = getVisibility(step.chunk, step.segment);
+
+            for (Side side : Side.values()) {
+                if ((step.directions & (1 << side.reverse().ordinal())) != 0) {
+                    continue;
+                }
+                if (step.entry != null && !ChunkVisibility.connects(visibility, step.entry, side)) {
+                    continue;
+                }
+
+                Chunk next = step.chunk;
+                int nextSegment = step.segment + side.getVector3i().y;
+                if (side.isHorizontal()) {
+                    next = chunks.get(key(step.chunk.getPos().x + side.getVector3i().x, step.chunk.getPos().z + side.getVector3i().z));
+                }
+                if (next == null || nextSegment < 0 || nextSegment >= Chunk.VERTICAL_SEGMENTS || isVisible(next, nextSegment)) {
+                    continue;
+                }
+                if (!inView.apply(next.getSubMeshAABB(nextSegment))) {
+                    continue;
+                }
+
+                markVisible(next, nextSegment);
+                steps.add(new Step(next, nextSegment, side.reverse(), step.directions | (1 << side.ordinal())));
+            }
+        }
+    }
+
+    /**
+     * @return The bit mask of the segments of the chunk found visible by the last walk, all if it could not walk
+     */
+    public int getVisibleSegments(Chunk chunk) {
+        if (!culling) {
+            return Chunk.ALL_SEGMENTS;
+        }
+        return visibleSegments.get(chunk);
+    }
+
+    private boolean isVisible(Chunk chunk, int segment) {
+        return (visibleSegments.get(chunk) & (1 << segment)) != 0;
+    }
+
+    private void markVisible(Chunk chunk, int segment) {
+        visibleSegments.put(chunk, visibleSegments.get(chunk) | (1 << segment));
+    }
+
+    private static int getVisibility(Chunk chunk, int segment) {
+        ChunkMesh[] mesh = chunk.getMesh();
+        if (mesh == null || mesh[segment] == null) {
+            return ChunkVisibility.ALL;
+        }
+        return mesh[segment].getVisibility();
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static final class Step {
+        final Chunk chunk;
+        final int segment;
+        /* The face the segment was entered through, null for the segment of the camera */
+        final Side entry;
+        /* The directions taken so far, as bits by side */
+        final int directions;
+
+        Step(Chunk chunk, int segment, Side entry, int directions) {
+            this.chunk = chunk;
+            this.segment = segment;
+            this.entry = entry;
+            this.directions = directions;
+        }
+    }
+}
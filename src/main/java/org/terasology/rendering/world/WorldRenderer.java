@@ -104,7 +104,10 @@ import org.terasology.world.chunks.ChunkStore;
 import org.terasology.world.chunks.LocalChunkProvider;
 import org.terasology.world.chunks.store.ChunkStoreGZip;
 import org.terasology.world.generator.core.ChunkGeneratorManager;
+import org.terasology.world.scheduling.BlockUpdateScheduler;
+import org.terasology.world.scheduling.BlockUpdateSchedulerImpl;
 
+import com.google.common.base.Predicate;
 import com.google.common.collect.Lists;
 
 /**
@@ -167,6 +170,10 @@ public final class WorldRenderer {
     /* UPDATING */
     private final ChunkUpdateManager _chunkUpdateManager;
 
+    /* CULLING */
+    private final ChunkVisibilityWalker _visibilityWalker = new ChunkVisibilityWalker();
+    private boolean _caveCulling = true;
+
     /* EVENTS */
     private final WorldTimeEventManager _worldTimeEventManager;
 
@@ -211,6 +218,9 @@ public final class WorldRenderer {
         CoreRegistry.put(BlockEntityRegistry.class, entityWorldProvider);
         CoreRegistry.get(ComponentSystemManager.class).register(entityWorldProvider, "engine:BlockEntityRegistry");
         _worldProvider = new WorldProviderWrapper(entityWorldProvider);
+        BlockUpdateSchedulerImpl blockUpdateScheduler = new BlockUpdateSchedulerImpl(_worldProvider, _chunkProvider);
+        CoreRegistry.put(BlockUpdateScheduler.class, blockUpdateScheduler);
+        CoreRegistry.get(ComponentSystemManager.class).register(blockUpdateScheduler, "engine:BlockUpdateScheduler");
         _bulletPhysics = new BulletPhysics(_worldProvider);
         _chunkTesselator = new ChunkTessellator(_worldProvider.getBiomeProvider());
         _skysphere = new Skysphere(this);
@@ -399,11 +409,22 @@ public final class WorldRenderer {
         _statVisibleChunks = 0;
         _statIgnoredPhases = 0;
 
+        _chunkUpdateManager.setViewPosition(getActiveCamera().getPosition());
+
+        PerformanceMonitor.startActivity("Walk Visible Segments");
+        _visibilityWalker.walk(_caveCulling ? _chunksInProximity : Collections.<Chunk>emptyList(), getActiveCamera().getPosition(), new Predicate<AABB>() {
+            @Override
+            public boolean apply(AABB aabb) {
+                return getActiveCamera().getViewFrustum().intersects(aabb);
+            }
+        });
+        PerformanceMonitor.endActivity();
+
         for (int i = 0; i < _chunksInProximity.size(); i++) {
             Chunk c = _chunksInProximity.get(i);
             ChunkMesh[] mesh = c.getMesh();
 
-            if (isChunkVisible(c) && isChunkValidForRender(c)) {
+            if (isChunkVisible(c) && isChunkValidForRender(c) && _visibilityWalker.getVisibleSegments(c) != 0) {
 
                 if (triangleCount(mesh, ChunkMesh.RENDER_PHASE.OPAQUE) > 0)
                     _renderQueueChunksOpaque.add(c);
@@ -426,19 +447,10 @@ public final class WorldRenderer {
                     c.setAnimated(false);
 
                 if (c.getPendingMesh() != null) {
-                    for (int j = 0; j < c.getPendingMesh().length; j++) {
-                        c.getPendingMesh()[j].generateVBOs();
-                    }
-                    if (c.getMesh() != null) {
-                        for (int j = 0; j < c.getMesh().length; j++) {
-                            c.getMesh()[j].dispose();
-                        }
-                    }
-                    c.setMesh(c.getPendingMesh());
-                    c.setPendingMesh(null);
+                    applyPendingMesh(c);
                 }
 
-                if ((c.isDirty() || mesh == null) && isChunkValidForRender(c)) {
+                if ((c.isDirty() || mesh == null || _chunkUpdateManager.isLodOutdated(c)) && isChunkValidForRender(c)) {
                     _statDirtyChunks++;
                     _chunkUpdateManager.queueChunkUpdate(c, ChunkUpdateManager.UPDATE_TYPE.DEFAULT);
                 }
@@ -457,6 +469,31 @@ public final class WorldRenderer {
         }
     }
 
+    /**
+     * Uploads the pending meshes of a chunk and replaces its current meshes by them, disposing those not reused.
+     */
+    private void applyPendingMesh(Chunk c) {
+        ChunkMesh[] pendingMesh = c.getPendingMesh();
+        ChunkMesh[] mesh = c.getMesh();
+
+        for (int j = 0; j < pendingMesh.length; j++) {
+            pendingMesh[j].generateVBOs();
+            // A reused mesh may have been disposed while the others were generated
+            if (pendingMesh[j].isDisposed()) {
+                c.setDirty(true);
+            }
+        }
+        if (mesh != null) {
+            for (int j = 0; j < mesh.length; j++) {
+                if (mesh[j] != pendingMesh[j]) {
+                    mesh[j].dispose();
+                }
+            }
+        }
+        c.setMesh(pendingMesh);
+        c.setPendingMesh(null);
+    }
+
     private int triangleCount(ChunkMesh[] mesh, ChunkMesh.RENDER_PHASE type) {
         int count = 0;
 
@@ -658,8 +695,9 @@ public final class WorldRenderer {
             Vector3f cameraPosition = camera.getPosition();
             GL11.glTranslated(chunk.getPos().x * Chunk.SIZE_X - cameraPosition.x, chunk.getPos().y * Chunk.SIZE_Y - cameraPosition.y, chunk.getPos().z * Chunk.SIZE_Z - cameraPosition.z);
 
+            int visibleSegments = _visibilityWalker.getVisibleSegments(chunk);
             for (int i = 0; i < VERTICAL_SEGMENTS; i++) {
-                if (!chunk.getMesh()[i].isEmpty()) {
+                if ((visibleSegments & (1 << i)) != 0 && !chunk.getMesh()[i].isEmpty()) {
                     if (Config.getInstance().isRenderChunkBoundingBoxes()) {
                         AABBRenderer aabbRenderer = new AABBRenderer(chunk.getSubMeshAABB(i));
                         aabbRenderer.renderLocally(1f);
@@ -869,6 +907,7 @@ public final class WorldRenderer {
      * Disposes this world.
      */
     public void dispose() {
+        _chunkUpdateManager.dispose();
         _worldProvider.dispose();
         WorldInfo worldInfo = _worldProvider.getWorldInfo();
         try {
@@ -905,6 +944,7 @@ public final class WorldRenderer {
         int newChunkPosZ = calcCamChunkOffsetZ();
         int viewingDistance = Config.getInstance().getActiveViewingDistance();
 
+        _chunkUpdateManager.setViewPosition(getActiveCamera().getPosition());
         _chunkProvider.update();
         for (Vector3i pos : Region3i.createFromCenterExtents(new Vector3i(newChunkPosX, 0, newChunkPosZ), new Vector3i(viewingDistance / 2, 0, viewingDistance / 2))) {
             Chunk chunk = _chunkProvider.getChunk(pos);
@@ -916,28 +956,8 @@ public final class WorldRenderer {
                 if (view == null) {
                     continue;
                 }
-                chunk.setDirty(false);
-
-                ChunkMesh[] newMeshes = new ChunkMesh[VERTICAL_SEGMENTS];
-                for (int seg = 0; seg < VERTICAL_SEGMENTS; seg++) {
-                    newMeshes[seg] = _chunkTesselator.generateMesh(view, chunk.getPos(), Chunk.SIZE_Y / VERTICAL_SEGMENTS, seg * (Chunk.SIZE_Y / VERTICAL_SEGMENTS));
-                }
-
-                chunk.setPendingMesh(newMeshes);
-
-                if (chunk.getPendingMesh() != null) {
-
-                    for (int j = 0; j < chunk.getPendingMesh().length; j++) {
-                        chunk.getPendingMesh()[j].generateVBOs();
-                    }
-                    if (chunk.getMesh() != null) {
-                        for (int j = 0; j < chunk.getMesh().length; j++) {
-                            chunk.getMesh()[j].dispose();
-                        }
-                    }
-                    chunk.setMesh(chunk.getPendingMesh());
-                    chunk.setPendingMesh(null);
-                }
+                chunk.setPendingMesh(_chunkUpdateManager.generateMeshes(chunk, view));
+                applyPendingMesh(chunk);
                 return false;
             }
         }
@@ -1040,6 +1060,21 @@ public final class WorldRenderer {
         this._wireframe = _wireframe;
     }
 
+    public boolean isCaveCulling() {
+        return _caveCulling;
+    }
+
+    public void setCaveCulling(boolean _caveCulling) {
+        this._caveCulling = _caveCulling;
+    }
+
+    /**
+     * Sets the distances in chunks from the player from which on chunks are meshed at half and at quarter the detail.
+     */
+    public void setLodDistances(int halfDetailDistance, int quarterDetailDistance) {
+        _chunkUpdateManager.setLodDistances(halfDetailDistance, quarterDetailDistance);
+    }
+
     public BulletPhysics getBulletRenderer() {
         return _bulletPhysics;
     }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe pool of direct byte buffers in power of two size classes, so that data streamed to the graphics card
+ * does not allocate (and leave the garbage collector to free) new native memory all the time.
+ * <p/>
+ * Buffers are borrowed with {@link #acquire(int)} and handed back with {@link #release(ByteBuffer)} once their
+ * contents are no longer needed. Buffers larger than the largest size class are not pooled, and released buffers are
+ * dropped once the pool holds the maximum number of bytes.
+ */
+public final class DirectBufferPool {
+
+    private static final int MIN_SIZE_CLASS = 12;
+    private static final int MAX_SIZE_CLASS = 24;
+
+    private final Queue<ByteBuffer>[] pools;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * @param maxPooledBytes The maximum number of bytes held by released buffers
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DirectBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        pools = new Queue[MAX_SIZE_CLASS - MIN_SIZE_CLASS + 1];
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+        }
+    }
+
+    /**
+     * @return A cleared direct buffer in native byte order with a capacity of at least the given number of bytes
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int sizeClass = sizeClass(minCapacity);
+        if (sizeClass > MAX_SIZE_CLASS) {
+            return allocate(minCapacity);
+        }
+
+        ByteBuffer buffer = pools[sizeClass - MIN_SIZE_CLASS].poll();
+        if (buffer == null) {
+            return allocate(1 << sizeClass);
+        }
+        pooledBytes.addAndGet(-buffer.capacity());
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used anymore afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        int sizeClass = sizeClass(capacity);
+        if (!buffer.isDirect() || sizeClass > MAX_SIZE_CLASS || capacity != 1 << sizeClass) {
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        pools[sizeClass - MIN_SIZE_CLASS].offer(buffer);
+    }
+
+    /**
+     * Replaces a buffer by a larger one holding the same contents up to its position, releasing the old buffer.
+     *
+     * @return The new buffer, positioned after the copied contents
+     */
+    public ByteBuffer grow(ByteBuffer buffer, int minCapacity) {
+        ByteBuffer result = acquire(Math.max(minCapacity, buffer.capacity() * 2));
+        buffer.flip();
+        result.put(buffer);
+        release(buffer);
+        return result;
+    }
+
+    /**
+     * @return The number of bytes held by released buffers
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity <= 1 << MIN_SIZE_CLASS) {
+            return MIN_SIZE_CLASS;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+}
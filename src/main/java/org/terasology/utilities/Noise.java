@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+/**
+ * A seeded 3D noise function with Fractional Brownian Motion and batch evaluation over grids.
+ */
+public interface Noise {
+
+    /**
+     * Returns the noise value at the given position.
+     *
+     * @param x Position on the x-axis
+     * @param y Position on the y-axis
+     * @param z Position on the z-axis
+     * @return The noise value
+     */
+    public double noise(double x, double y, double z);
+
+    /**
+     * Returns Fractional Brownian Motion at the given position.
+     *
+     * @param x Position on the x-axis
+     * @param y Position on the y-axis
+     * @param z Position on the z-axis
+     * @return The noise value
+     */
+    public double fBm(double x, double y, double z);
+
+    /**
+     * Fills a grid with Fractional Brownian Motion. The grid is spanned by the given sample coordinates along each
+     * axis, and the value for (xs[i], ys[j], zs[k]) is stored at index (i * ys.length + j) * zs.length + k. The
+     * results are identical to calling {@link #fBm(double, double, double)} for each point.
+     *
+     * @param target The array to fill, of at least xs.length * ys.length * zs.length
+     * @param xs     The sample coordinates along the x-axis
+     * @param ys     The sample coordinates along the y-axis
+     * @param zs     The sample coordinates along the z-axis
+     */
+    public void fBm(double[] target, double[] xs, double[] ys, double[] zs);
+
+    /**
+     * As {@link #fBm(double[], double[], double[], double[])}, narrowed to float.
+     */
+    public void fBm(float[] target, double[] xs, double[] ys, double[] zs);
+
+    public void setOctaves(int octaves);
+
+    public int getOctaves();
+}
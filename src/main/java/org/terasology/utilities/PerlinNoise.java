@@ -15,6 +15,8 @@
  */
 package org.terasology.utilities;
 
+import java.util.Arrays;
+
 import org.terasology.math.TeraMath;
 
 /**
@@ -22,15 +24,22 @@ import org.terasology.math.TeraMath;
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
-public class PerlinNoise {
+public class PerlinNoise implements Noise {
+
+    static final double LACUNARITY = 2.1379201;
+    static final double H = 0.836281;
 
-    private static final double LACUNARITY = 2.1379201;
-    private static final double H = 0.836281;
+    private static final ScratchArena.Slot[] AXIS_SLOTS = new ScratchArena.Slot[12];
+    private static final ScratchArena.Slot RESULT_SLOT = ScratchArena.newSlot();
+
+    static {
+        for (int i = 0; i < AXIS_SLOTS.length; i++)
+            AXIS_SLOTS[i] = ScratchArena.newSlot();
+    }
 
     private double[] _spectralWeights;
 
     private final int[] _noisePermutations;
-    private boolean _recomputeSpectralWeights = true;
     private int _octaves = 9;
 
     /**
@@ -39,29 +48,49 @@ public class PerlinNoise {
      * @param seed The seed value
      */
     public PerlinNoise(int seed) {
+        _noisePermutations = createPermutations(seed);
+        _spectralWeights = createSpectralWeights(_octaves);
+    }
+
+    /**
+     * Creates the permutation table for the given seed, replicated to 512 entries so lookups need no wrapping.
+     * Shared by all noise implementations so they handle seeds identically.
+     *
+     * @param seed The seed value
+     * @return The permutation table
+     */
+    static int[] createPermutations(int seed) {
         FastRandom rand = new FastRandom(seed);
 
-        _noisePermutations = new int[512];
-        int[] _noiseTable = new int[256];
+        int[] noisePermutations = new int[512];
+        int[] noiseTable = new int[256];
 
         // Init. the noise table
         for (int i = 0; i < 256; i++)
-            _noiseTable[i] = i;
+            noiseTable[i] = i;
 
         // Shuffle the array
         for (int i = 0; i < 256; i++) {
             int j = rand.randomInt() % 256;
             j = (j < 0) ? -j : j;
 
-            int swap = _noiseTable[i];
-            _noiseTable[i] = _noiseTable[j];
-            _noiseTable[j] = swap;
+            int swap = noiseTable[i];
+            noiseTable[i] = noiseTable[j];
+            noiseTable[j] = swap;
         }
 
         // Finally replicate the noise permutations in the remaining 256 index positions
         for (int i = 0; i < 256; i++)
-            _noisePermutations[i] = _noisePermutations[i + 256] = _noiseTable[i];
+            noisePermutations[i] = noisePermutations[i + 256] = noiseTable[i];
+
+        return noisePermutations;
+    }
 
+    static double[] createSpectralWeights(int octaves) {
+        double[] spectralWeights = new double[octaves];
+        for (int i = 0; i < octaves; i++)
+            spectralWeights[i] = java.lang.Math.pow(LACUNARITY, -H * i);
+        return spectralWeights;
     }
 
     /**
@@ -72,6 +101,7 @@ public class PerlinNoise {
      * @param z Position on the z-axis
      * @return The noise value
      */
+    @Override
     public double noise(double x, double y, double z) {
         int X = (int) TeraMath.fastFloor(x) & 255, Y = (int) TeraMath.fastFloor(y) & 255, Z = (int) TeraMath.fastFloor(z) & 255;
 
@@ -101,18 +131,10 @@ public class PerlinNoise {
      * @param z Position on the z-axis
      * @return The noise value
      */
+    @Override
     public double fBm(double x, double y, double z) {
         double result = 0.0;
 
-        if (_recomputeSpectralWeights) {
-            _spectralWeights = new double[_octaves];
-
-            for (int i = 0; i < _octaves; i++)
-                _spectralWeights[i] = java.lang.Math.pow(LACUNARITY, -H * i);
-
-            _recomputeSpectralWeights = false;
-        }
-
         for (int i = 0; i < _octaves; i++) {
             result += noise(x, y, z) * _spectralWeights[i];
 
@@ -124,6 +146,88 @@ public class PerlinNoise {
         return result;
     }
 
+    @Override
+    public void fBm(double[] target, double[] xs, double[] ys, double[] zs) {
+        int sizeX = xs.length, sizeY = ys.length, sizeZ = zs.length;
+        Arrays.fill(target, 0, sizeX * sizeY * sizeZ, 0.0);
+
+        // Per axis lattice cells, offsets and fade curves - these only depend on a single coordinate
+        ScratchArena arena = ScratchArena.get();
+        double[] scaledX = arena.doubles(AXIS_SLOTS[0], sizeX), scaledY = arena.doubles(AXIS_SLOTS[1], sizeY), scaledZ = arena.doubles(AXIS_SLOTS[2], sizeZ);
+        double[] x = arena.doubles(AXIS_SLOTS[3], sizeX), y = arena.doubles(AXIS_SLOTS[4], sizeY), z = arena.doubles(AXIS_SLOTS[5], sizeZ);
+        int[] latticeX = arena.ints(AXIS_SLOTS[6], sizeX), latticeY = arena.ints(AXIS_SLOTS[7], sizeY), latticeZ = arena.ints(AXIS_SLOTS[8], sizeZ);
+        double[] fadeX = arena.doubles(AXIS_SLOTS[9], sizeX), fadeY = arena.doubles(AXIS_SLOTS[10], sizeY), fadeZ = arena.doubles(AXIS_SLOTS[11], sizeZ);
+        System.arraycopy(xs, 0, scaledX, 0, sizeX);
+        System.arraycopy(ys, 0, scaledY, 0, sizeY);
+        System.arraycopy(zs, 0, scaledZ, 0, sizeZ);
+
+        for (int octave = 0; octave < _octaves; octave++) {
+            calcLattice(scaledX, sizeX, x, latticeX, fadeX);
+            calcLattice(scaledY, sizeY, y, latticeY, fadeY);
+            calcLattice(scaledZ, sizeZ, z, latticeZ, fadeZ);
+            double weight = _spectralWeights[octave];
+
+            int index = 0;
+            for (int i = 0; i < sizeX; i++) {
+                double fx = x[i], u = fadeX[i];
+                int pX = _noisePermutations[latticeX[i]], pX1 = _noisePermutations[latticeX[i] + 1];
+                for (int j = 0; j < sizeY; j++) {
+                    double fy = y[j], v = fadeY[j];
+                    int A = pX + latticeY[j], B = pX1 + latticeY[j];
+                    int pA = _noisePermutations[A], pA1 = _noisePermutations[A + 1], pB = _noisePermutations[B], pB1 = _noisePermutations[B + 1];
+                    for (int k = 0; k < sizeZ; k++) {
+                        double fz = z[k], w = fadeZ[k];
+                        int Z = latticeZ[k];
+                        int AA = pA + Z, AB = pA1 + Z, BA = pB + Z, BB = pB1 + Z;
+
+                        target[index++] += lerp(w, lerp(v, lerp(u, grad(_noisePermutations[AA], fx, fy, fz),
+                                grad(_noisePermutations[BA], fx - 1, fy, fz)),
+                                lerp(u, grad(_noisePermutations[AB], fx, fy - 1, fz),
+                                        grad(_noisePermutations[BB], fx - 1, fy - 1, fz))),
+                                lerp(v, lerp(u, grad(_noisePermutations[(AA + 1)], fx, fy, fz - 1),
+                                        grad(_noisePermutations[(BA + 1)], fx - 1, fy, fz - 1)),
+                                        lerp(u, grad(_noisePermutations[(AB + 1)], fx, fy - 1, fz - 1),
+                                                grad(_noisePermutations[(BB + 1)], fx - 1, fy - 1, fz - 1)))) * weight;
+                    }
+                }
+            }
+
+            scale(scaledX, sizeX);
+            scale(scaledY, sizeY);
+            scale(scaledZ, sizeZ);
+        }
+    }
+
+    @Override
+    public void fBm(float[] target, double[] xs, double[] ys, double[] zs) {
+        int size = xs.length * ys.length * zs.length;
+        double[] result = ScratchArena.get().doubles(RESULT_SLOT, size);
+        fBm(result, xs, ys, zs);
+        for (int i = 0; i < size; i++)
+            target[i] = (float) result[i];
+    }
+
+    /**
+     * Splits each coordinate into its lattice cell and its offset inside the cell, and calculates the fade value.
+     */
+    private static void calcLattice(double[] coords, int size, double[] offset, int[] lattice, double[] fade) {
+        for (int i = 0; i < size; i++) {
+            double floor = TeraMath.fastFloor(coords[i]);
+            lattice[i] = (int) floor & 255;
+            offset[i] = coords[i] - floor;
+            fade[i] = fade(offset[i]);
+        }
+    }
+
+    /**
+     * Moves the coordinates to the next octave, in the same order of operations as the single point fBm so that
+     * results stay bit-identical.
+     */
+    private static void scale(double[] coords, int size) {
+        for (int i = 0; i < size; i++)
+            coords[i] *= LACUNARITY;
+    }
+
     private static double fade(double t) {
         return t * t * t * (t * (t * 6 - 15) + 10);
     }
@@ -138,11 +242,13 @@ public class PerlinNoise {
         return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
     }
 
+    @Override
     public void setOctaves(int octaves) {
         _octaves = octaves;
-        _recomputeSpectralWeights = true;
+        _spectralWeights = createSpectralWeights(octaves);
     }
 
+    @Override
     public int getOctaves() {
         return _octaves;
     }
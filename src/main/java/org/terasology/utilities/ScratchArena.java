@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Supplier;
+
+/**
+ * Per thread scratch storage for the temporary arrays and objects of chunk generation and tessellation, so that
+ * the hot paths run without producing garbage once the buffers have grown to their working size.
+ * <p/>
+ * Each use site claims a {@link Slot} once (typically in a static field) and borrows from it with
+ * {@code ScratchArena.get().doubles(slot, size)}. Borrowed storage is only valid until the same slot is borrowed
+ * again on the same thread, so it must neither be retained nor handed to another thread, and a slot must not be
+ * used re-entrantly. The contents of borrowed arrays are undefined and they may be longer than requested.
+ */
+public final class ScratchArena {
+
+    private static final AtomicInteger nextSlotId = new AtomicInteger();
+
+    private static final ThreadLocal<ScratchArena> arenas = new ThreadLocal<ScratchArena>() {
+        @Override
+        protected ScratchArena initialValue() {
+            return new ScratchArena();
+        }
+    };
+
+    private Object[] contents = new Object[16];
+
+    private ScratchArena() {
+    }
+
+    /**
+     * @return The arena of the calling thread
+     */
+    public static ScratchArena get() {
+        return arenas.get();
+    }
+
+    /**
+     * @return A new slot, distinct from all others
+     */
+    public static Slot newSlot() {
+        return new Slot(nextSlotId.getAndIncrement());
+    }
+
+    public double[] doubles(Slot slot, int size) {
+        Object content = content(slot);
+        if (content != null && ((double[]) content).length >= size) {
+            return (double[]) content;
+        }
+        double[] result = new double[size];
+        contents[slot.id] = result;
+        return result;
+    }
+
+    public float[] floats(Slot slot, int size) {
+        Object content = content(slot);
+        if (content != null && ((float[]) content).length >= size) {
+            return (float[]) content;
+        }
+        float[] result = new float[size];
+        contents[slot.id] = result;
+        return result;
+    }
+
+    public int[] ints(Slot slot, int size) {
+        Object content = content(slot);
+        if (content != null && ((int[]) content).length >= size) {
+            return (int[]) content;
+        }
+        int[] result = new int[size];
+        contents[slot.id] = result;
+        return result;
+    }
+
+    public boolean[] booleans(Slot slot, int size) {
+        Object content = content(slot);
+        if (content != null && ((boolean[]) content).length >= size) {
+            return (boolean[]) content;
+        }
+        boolean[] result = new boolean[size];
+        contents[slot.id] = result;
+        return result;
+    }
+
+    /**
+     * Borrows an arbitrary object, creating it with the given factory the first time the slot is used on this thread.
+     * The object keeps whatever state the previous borrower left in it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T object(Slot slot, Supplier<T> factory) {
+        Object content = content(slot);
+        if (content == null) {
+            content = factory.get();
+            contents[slot.id] = content;
+        }
+        return (T) content;
+    }
+
+    private Object content(Slot slot) {
+        if (slot.id >= contents.length) {
+            contents = Arrays.copyOf(contents, Math.max(slot.id + 1, contents.length * 2));
+        }
+        return contents[slot.id];
+    }
+
+    /**
+     * Identifies one use site of the scratch storage.
+     */
+    public static final class Slot {
+        private final int id;
+
+        private Slot(int id) {
+            this.id = id;
+        }
+    }
+}
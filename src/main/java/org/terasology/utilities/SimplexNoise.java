@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import org.terasology.math.TeraMath;
+
+/**
+ * Simplex noise based on the reference implementation by Stefan Gustavson. Uses the same permutation table and
+ * fBm parameters as {@link PerlinNoise}, so a given seed produces a consistent (though differently shaped) result
+ * with either backend.
+ */
+public class SimplexNoise implements Noise {
+
+    private static final double F3 = 1.0 / 3.0;
+    private static final double G3 = 1.0 / 6.0;
+
+    private static final int[][] GRAD3 = {
+            {1, 1, 0}, {-1, 1, 0}, {1, -1, 0}, {-1, -1, 0},
+            {1, 0, 1}, {-1, 0, 1}, {1, 0, -1}, {-1, 0, -1},
+            {0, 1, 1}, {0, -1, 1}, {0, 1, -1}, {0, -1, -1}
+    };
+
+    private double[] _spectralWeights;
+
+    private final int[] _noisePermutations;
+    private final int[] _gradientIndices;
+    private int _octaves = 9;
+
+    /**
+     * Init. a new generator with a given seed value.
+     *
+     * @param seed The seed value
+     */
+    public SimplexNoise(int seed) {
+        _noisePermutations = PerlinNoise.createPermutations(seed);
+        _spectralWeights = PerlinNoise.createSpectralWeights(_octaves);
+
+        _gradientIndices = new int[_noisePermutations.length];
+        for (int i = 0; i < _gradientIndices.length; i++)
+            _gradientIndices[i] = _noisePermutations[i] % 12;
+    }
+
+    @Override
+    public double noise(double x, double y, double z) {
+        // Skew the input space to determine which simplex cell we're in
+        double s = (x + y + z) * F3;
+        int i = (int) TeraMath.fastFloor(x + s);
+        int j = (int) TeraMath.fastFloor(y + s);
+        int k = (int) TeraMath.fastFloor(z + s);
+
+        // Unskew the cell origin back to (x,y,z) space
+        double t = (i + j + k) * G3;
+        double x0 = x - (i - t);
+        double y0 = y - (j - t);
+        double z0 = z - (k - t);
+
+        // Determine which of the six simplices we're in
+        int i1, j1, k1, i2, j2, k2;
+        if (x0 >= y0) {
+            if (y0 >= z0) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            } else if (x0 >= z0) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 0; k2 = 1;
+            } else {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 1; j2 = 0; k2 = 1;
+            }
+        } else {
+            if (y0 < z0) {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 0; j2 = 1; k2 = 1;
+            } else if (x0 < z0) {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 0; j2 = 1; k2 = 1;
+            } else {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            }
+        }
+
+        double x1 = x0 - i1 + G3, y1 = y0 - j1 + G3, z1 = z0 - k1 + G3;
+        double x2 = x0 - i2 + 2.0 * G3, y2 = y0 - j2 + 2.0 * G3, z2 = z0 - k2 + 2.0 * G3;
+        double x3 = x0 - 1.0 + 3.0 * G3, y3 = y0 - 1.0 + 3.0 * G3, z3 = z0 - 1.0 + 3.0 * G3;
+
+        int ii = i & 255, jj = j & 255, kk = k & 255;
+        int[] p = _noisePermutations;
+        int gi0 = _gradientIndices[ii + p[jj + p[kk]]];
+        int gi1 = _gradientIndices[ii + i1 + p[jj + j1 + p[kk + k1]]];
+        int gi2 = _gradientIndices[ii + i2 + p[jj + j2 + p[kk + k2]]];
+        int gi3 = _gradientIndices[ii + 1 + p[jj + 1 + p[kk + 1]]];
+
+        return 32.0 * (corner(gi0, x0, y0, z0) + corner(gi1, x1, y1, z1) + corner(gi2, x2, y2, z2) + corner(gi3, x3, y3, z3));
+    }
+
+    private static double corner(int gradient, double x, double y, double z) {
+        double t = 0.6 - x * x - y * y - z * z;
+        if (t < 0) {
+            return 0.0;
+        }
+        t *= t;
+        int[] g = GRAD3[gradient];
+        return t * t * (g[0] * x + g[1] * y + g[2] * z);
+    }
+
+    @Override
+    public double fBm(double x, double y, double z) {
+        double result = 0.0;
+
+        for (int i = 0; i < _octaves; i++) {
+            result += noise(x, y, z) * _spectralWeights[i];
+
+            x *= PerlinNoise.LACUNARITY;
+            y *= PerlinNoise.LACUNARITY;
+            z *= PerlinNoise.LACUNARITY;
+        }
+
+        return result;
+    }
+
+    @Override
+    public void fBm(double[] target, double[] xs, double[] ys, double[] zs) {
+        int index = 0;
+        for (double x : xs) {
+            for (double y : ys) {
+                for (double z : zs) {
+                    target[index++] = fBm(x, y, z);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void fBm(float[] target, double[] xs, double[] ys, double[] zs) {
+        int index = 0;
+        for (double x : xs) {
+            for (double y : ys) {
+                for (double z : zs) {
+                    target[index++] = (float) fBm(x, y, z);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setOctaves(int octaves) {
+        _octaves = octaves;
+        _spectralWeights = PerlinNoise.createSpectralWeights(octaves);
+    }
+
+    @Override
+    public int getOctaves() {
+        return _octaves;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.vecmath.Vector4f;
+
+import org.terasology.world.block.Block;
+import org.terasology.world.chunks.Chunk;
+
+/**
+ * The climate of the columns of a single chunk: temperature, humidity and biome, as well as the block colors they
+ * resolve to. Instances are immutable (colors are resolved once on first use) and are shared between threads.
+ *
+ * @see WorldBiomeProvider#getChunkClimate(int, int)
+ */
+public class ChunkClimate {
+
+    private final float[] temperatures;
+    private final float[] humidities;
+    private final WorldBiomeProvider.Biome[] biomes;
+    private final AtomicReferenceArray<float[]> colors = new AtomicReferenceArray<float[]>(Block.ColorSource.values().length);
+
+    /**
+     * @param temperatures The temperature of each column, stored at x * Chunk.SIZE_Z + z
+     * @param humidities   The humidity of each column
+     * @param biomes       The biome of each column
+     */
+    ChunkClimate(float[] temperatures, float[] humidities, WorldBiomeProvider.Biome[] biomes) {
+        this.temperatures = temperatures;
+        this.humidities = humidities;
+        this.biomes = biomes;
+    }
+
+    /**
+     * @param x The X-coordinate within the chunk
+     * @param z The Z-coordinate within the chunk
+     * @return The temperature of the column
+     */
+    public float getTemperature(int x, int z) {
+        return temperatures[x * Chunk.SIZE_Z + z];
+    }
+
+    /**
+     * @param x The X-coordinate within the chunk
+     * @param z The Z-coordinate within the chunk
+     * @return The humidity of the column
+     */
+    public float getHumidity(int x, int z) {
+        return humidities[x * Chunk.SIZE_Z + z];
+    }
+
+    /**
+     * @param x The X-coordinate within the chunk
+     * @param z The Z-coordinate within the chunk
+     * @return The biome of the column
+     */
+    public WorldBiomeProvider.Biome getBiome(int x, int z) {
+        return biomes[x * Chunk.SIZE_Z + z];
+    }
+
+    /**
+     * Retrieves the color the given source yields for the climate of a column.
+     *
+     * @param source The color source
+     * @param x      The X-coordinate within the chunk
+     * @param z      The Z-coordinate within the chunk
+     * @param target The vector to store the color in
+     * @return The target
+     */
+    public Vector4f getColor(Block.ColorSource source, int x, int z, Vector4f target) {
+        float[] sourceColors = colors.get(source.ordinal());
+        if (sourceColors == null) {
+            // Resolving the colors twice from different threads is harmless, they are identical
+            sourceColors = calcColors(source);
+            colors.set(source.ordinal(), sourceColors);
+        }
+        int index = (x * Chunk.SIZE_Z + z) * 4;
+        target.set(sourceColors[index], sourceColors[index + 1], sourceColors[index + 2], sourceColors[index + 3]);
+        return target;
+    }
+
+    private float[] calcColors(Block.ColorSource source) {
+        float[] result = new float[temperatures.length * 4];
+        for (int i = 0; i < temperatures.length; i++) {
+            Vector4f color = source.calcColor(temperatures[i], humidities[i]);
+            result[i * 4] = color.x;
+            result[i * 4 + 1] = color.y;
+            result[i * 4 + 2] = color.z;
+            result[i * 4 + 3] = color.w;
+        }
+        return result;
+    }
+}
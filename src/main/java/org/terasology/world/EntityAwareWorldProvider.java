@@ -18,9 +18,11 @@ package org.terasology.world;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
+import org.terasology.collection.RingBufferQueue;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.HealthComponent;
 import org.terasology.components.world.LocationComponent;
@@ -28,6 +30,7 @@ import org.terasology.world.block.BlockComponent;
 import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.Prefab;
 import org.terasology.entitySystem.ReceiveEvent;
 import org.terasology.entitySystem.event.AddComponentEvent;
 import org.terasology.entitySystem.event.RemovedComponentEvent;
@@ -38,7 +41,6 @@ import org.terasology.world.block.Block;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Queues;
 
 import javax.vecmath.Vector3f;
 
@@ -56,12 +58,26 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
 
     private List<EntityRef> tempBlocks = Lists.newArrayList();
 
+    private static final int BLOCK_CHANGE_CAPACITY = 16384;
+    private static final float DEFAULT_BLOCK_CHANGE_BUDGET = 2f;
+
     private Thread mainThread;
-    private BlockingQueue<BlockChangedEvent> eventQueue = Queues.newLinkedBlockingQueue();
+    /* Block changes from other threads. Changes to a block that is already queued are merged into its pending event */
+    private RingBufferQueue<Vector3i> changedBlocks = new RingBufferQueue<Vector3i>(BLOCK_CHANGE_CAPACITY);
+    private ConcurrentMap<Vector3i, BlockChangedEvent> pendingBlockChanges = new ConcurrentHashMap<Vector3i, BlockChangedEvent>();
+    private volatile long blockChangeBudget;
 
     public EntityAwareWorldProvider(WorldProviderCore base) {
         super(base);
         mainThread = Thread.currentThread();
+        setBlockChangeBudget(DEFAULT_BLOCK_CHANGE_BUDGET);
+    }
+
+    /**
+     * @param milliseconds The time each update may spend sending the block changes made by other threads
+     */
+    public void setBlockChangeBudget(float milliseconds) {
+        blockChangeBudget = (long) (milliseconds * 1000000);
     }
 
     @Override
@@ -94,13 +110,29 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
             if (Thread.currentThread().equals(mainThread)) {
                 getOrCreateEntityAt(new Vector3i(x, y, z)).send(new BlockChangedEvent(new Vector3i(x, y, z), type, oldType));
             } else {
-                eventQueue.add(new BlockChangedEvent(new Vector3i(x, y, z), type, oldType));
+                queueBlockChange(new BlockChangedEvent(new Vector3i(x, y, z), type, oldType));
             }
             return true;
         }
         return false;
     }
 
+    private void queueBlockChange(BlockChangedEvent event) {
+        Vector3i pos = event.getBlockPosition();
+        while (true) {
+            BlockChangedEvent pending = pendingBlockChanges.get(pos);
+            if (pending == null) {
+                if (pendingBlockChanges.putIfAbsent(pos, event) == null) {
+                    // Waits for the main thread if it is falling behind
+                    changedBlocks.put(pos);
+                    return;
+                }
+            } else if (pendingBlockChanges.replace(pos, pending, new BlockChangedEvent(pos, event.getNewType(), pending.getOldType()))) {
+                return;
+            }
+        }
+    }
+
     @Override
     public EntityRef getEntityAt(Vector3i blockPosition) {
         EntityRef result = blockComponentLookup.get(blockPosition);
@@ -112,7 +144,9 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
         EntityRef blockEntity = blockComponentLookup.get(blockPosition);
         if (blockEntity == null || !blockEntity.exists()) {
             Block block = getBlock(blockPosition.x, blockPosition.y, blockPosition.z);
-            blockEntity = entityManager.create(block.getEntityPrefab());
+            Prefab prefab = block.getEntityPrefab().isEmpty() ? null : entityManager.getPrefabManager().getPrefab(block.getEntityPrefab());
+            // Most block entities never change most of their prefab's components, so these are shared until used
+            blockEntity = (prefab != null) ? entityManager.createCopyOnWrite(prefab) : entityManager.create(block.getEntityPrefab());
             if (block.isEntityTemporary()) {
                 tempBlocks.add(blockEntity);
             }
@@ -140,19 +174,19 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
 
     @Override
     public void update(float delta) {
-        int processed = 0;
         PerformanceMonitor.startActivity("BlockChangedEventQueue");
-        BlockChangedEvent event = eventQueue.poll();
-        while (event != null) {
+        long endTime = System.nanoTime() + blockChangeBudget;
+        for (Vector3i pos = changedBlocks.poll(); pos != null; pos = changedBlocks.poll()) {
+            BlockChangedEvent event = pendingBlockChanges.remove(pos);
             logger.finer(String.format("%s: %s -> %s", event.getBlockPosition(), event.getOldType().getBlockFamily(), event.getNewType().getBlockFamily()));
             getOrCreateEntityAt(event.getBlockPosition()).send(event);
-            if (processed++ >= 4) {
+            if (System.nanoTime() >= endTime) {
                 break;
             }
-            event = eventQueue.poll();
         }
         PerformanceMonitor.endActivity();
         PerformanceMonitor.startActivity("Temp Blocks Cleanup");
+        List<EntityRef> unusedTempBlocks = Lists.newArrayList();
         for (EntityRef entity : tempBlocks) {
             BlockComponent blockComp = entity.getComponent(BlockComponent.class);
             if (blockComp == null || !blockComp.temporary)
@@ -160,10 +194,11 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
 
             HealthComponent healthComp = entity.getComponent(HealthComponent.class);
             if (healthComp == null || healthComp.currentHealth == healthComp.maxHealth) {
-                entity.destroy();
+                unusedTempBlocks.add(entity);
             }
         }
         tempBlocks.clear();
+        entityManager.destroy(unusedTempBlocks);
         PerformanceMonitor.endActivity();
     }
 }
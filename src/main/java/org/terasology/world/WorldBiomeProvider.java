@@ -33,6 +33,30 @@ public interface WorldBiomeProvider {
         public boolean isVegetationFriendly() {
             return vegetationFriendly;
         }
+
+        /**
+         * Determines the biome of a position from its climate.
+         *
+         * @param temperature  The temperature
+         * @param baseHumidity The humidity, before scaling it by the temperature
+         * @return The biome
+         */
+        public static Biome forClimate(float temperature, float baseHumidity) {
+            double temp = temperature;
+            double humidity = baseHumidity * temp;
+
+            if (temp >= 0.5 && humidity < 0.3) {
+                return DESERT;
+            } else if (humidity >= 0.3 && humidity <= 0.6 && temp >= 0.5) {
+                return PLAINS;
+            } else if (temp <= 0.3 && humidity > 0.5) {
+                return SNOW;
+            } else if (humidity >= 0.2 && humidity <= 0.6 && temp < 0.5) {
+                return MOUNTAINS;
+            }
+
+            return FOREST;
+        }
     }
 
 
@@ -54,6 +78,36 @@ public interface WorldBiomeProvider {
      */
     public float getTemperatureAt(int x, int z);
 
+    /**
+     * Fills a grid with the humidity at the given positions. The humidity at (xs[i], zs[k]) is stored at
+     * i * zs.length + k.
+     *
+     * @param target The array to fill
+     * @param xs     The X-coordinates
+     * @param zs     The Z-coordinates
+     */
+    public void getHumidities(float[] target, int[] xs, int[] zs);
+
+    /**
+     * Fills a grid with the temperature at the given positions. The temperature at (xs[i], zs[k]) is stored at
+     * i * zs.length + k.
+     *
+     * @param target The array to fill
+     * @param xs     The X-coordinates
+     * @param zs     The Z-coordinates
+     */
+    public void getTemperatures(float[] target, int[] xs, int[] zs);
+
+    /**
+     * Returns the climate of a chunk's columns. Climates are cached, so code working on whole chunks should use this
+     * rather than the per position methods.
+     *
+     * @param chunkX The X-coordinate of the chunk
+     * @param chunkZ The Z-coordinate of the chunk
+     * @return The climate of the chunk
+     */
+    public ChunkClimate getChunkClimate(int chunkX, int chunkZ);
+
     public float getFog(float time);
 
     /*
@@ -16,8 +16,14 @@
 
 package org.terasology.world;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.terasology.math.TeraMath;
+import org.terasology.math.Vector3i;
 import org.terasology.utilities.PerlinNoise;
+import org.terasology.utilities.ScratchArena;
+import org.terasology.world.chunks.Chunk;
 
 /**
  * @author Immortius
@@ -25,8 +31,19 @@ import org.terasology.utilities.PerlinNoise;
 // TODO: Evolve this class into a world description provider (density, height, etc) to feed into the world generators
 public class WorldBiomeProviderImpl implements WorldBiomeProvider {
 
+    private static final ScratchArena.Slot CLIMATE_SLOT = ScratchArena.newSlot();
+    private static final double[] ORIGIN = new double[]{0};
+    private static final int CLIMATE_CACHE_SIZE = 1024;
+
     PerlinNoise temperatureNoise, humidityNoise, fogNoise;
 
+    private final Map<Vector3i, ChunkClimate> climateCache = new LinkedHashMap<Vector3i, ChunkClimate>(CLIMATE_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Vector3i, ChunkClimate> eldest) {
+            return size() > CLIMATE_CACHE_SIZE;
+        }
+    };
+
     public WorldBiomeProviderImpl(String worldSeed) {
         temperatureNoise = new PerlinNoise(worldSeed.hashCode() + 5);
         humidityNoise = new PerlinNoise(worldSeed.hashCode() + 6);
@@ -45,6 +62,71 @@ public class WorldBiomeProviderImpl implements WorldBiomeProvider {
         return (float) TeraMath.clamp((result + 1.0f) / 2.0f);
     }
 
+    @Override
+    public void getHumidities(float[] target, int[] xs, int[] zs) {
+        fillClimate(humidityNoise, target, xs, zs);
+    }
+
+    @Override
+    public void getTemperatures(float[] target, int[] xs, int[] zs) {
+        fillClimate(temperatureNoise, target, xs, zs);
+    }
+
+    private void fillClimate(PerlinNoise noise, float[] target, int[] xs, int[] zs) {
+        double[] sampleX = new double[xs.length], sampleZ = new double[zs.length];
+        for (int i = 0; i < xs.length; i++) {
+            sampleX[i] = xs[i] * 0.0005;
+        }
+        for (int i = 0; i < zs.length; i++) {
+            sampleZ[i] = 0.0005 * zs[i];
+        }
+        int size = xs.length * zs.length;
+        double[] result = ScratchArena.get().doubles(CLIMATE_SLOT, size);
+        noise.fBm(result, sampleX, ORIGIN, sampleZ);
+        for (int i = 0; i < size; i++) {
+            target[i] = (float) TeraMath.clamp((result[i] + 1.0f) / 2.0f);
+        }
+    }
+
+    @Override
+    public ChunkClimate getChunkClimate(int chunkX, int chunkZ) {
+        Vector3i key = new Vector3i(chunkX, 0, chunkZ);
+        synchronized (climateCache) {
+            ChunkClimate climate = climateCache.get(key);
+            if (climate != null) {
+                return climate;
+            }
+        }
+
+        // Evaluated outside the lock, in the rare case two threads race for a chunk both calculate the same climate
+        ChunkClimate climate = calcChunkClimate(chunkX, chunkZ);
+        synchronized (climateCache) {
+            climateCache.put(key, climate);
+        }
+        return climate;
+    }
+
+    private ChunkClimate calcChunkClimate(int chunkX, int chunkZ) {
+        int[] xs = new int[Chunk.SIZE_X], zs = new int[Chunk.SIZE_Z];
+        for (int i = 0; i < Chunk.SIZE_X; i++) {
+            xs[i] = chunkX * Chunk.SIZE_X + i;
+        }
+        for (int i = 0; i < Chunk.SIZE_Z; i++) {
+            zs[i] = chunkZ * Chunk.SIZE_Z + i;
+        }
+
+        float[] temperatures = new float[Chunk.SIZE_X * Chunk.SIZE_Z];
+        float[] humidities = new float[Chunk.SIZE_X * Chunk.SIZE_Z];
+        getTemperatures(temperatures, xs, zs);
+        getHumidities(humidities, xs, zs);
+
+        Biome[] biomes = new Biome[Chunk.SIZE_X * Chunk.SIZE_Z];
+        for (int i = 0; i < biomes.length; i++) {
+            biomes[i] = Biome.forClimate(temperatures[i], humidities[i]);
+        }
+        return new ChunkClimate(temperatures, humidities, biomes);
+    }
+
     @Override
     public float getFog(float time) {
         return (float) TeraMath.clamp(fogNoise.fBm(time * 0.372891, time * 0.578291, time * 0.78319) * 10.0, 0.0, 15.0);
@@ -52,20 +134,7 @@ public class WorldBiomeProviderImpl implements WorldBiomeProvider {
 
     @Override
     public Biome getBiomeAt(int x, int z) {
-        double temp = getTemperatureAt(x, z);
-        double humidity = getHumidityAt(x, z) * temp;
-
-        if (temp >= 0.5 && humidity < 0.3) {
-            return Biome.DESERT;
-        } else if (humidity >= 0.3 && humidity <= 0.6 && temp >= 0.5) {
-            return Biome.PLAINS;
-        } else if (temp <= 0.3 && humidity > 0.5) {
-            return Biome.SNOW;
-        } else if (humidity >= 0.2 && humidity <= 0.6 && temp < 0.5) {
-            return Biome.MOUNTAINS;
-        }
-
-        return Biome.FOREST;
+        return Biome.forClimate(getTemperatureAt(x, z), getHumidityAt(x, z));
     }
 
     @Override
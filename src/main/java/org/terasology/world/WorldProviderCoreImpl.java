@@ -137,11 +137,7 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
                 }
 
                 Region3i affected = new LightPropagator(worldView).update(x, y, z, type, oldType);
-                if (affected.isEmpty()) {
-                    worldView.setDirtyAround(blockPos);
-                } else {
-                    worldView.setDirtyAround(affected);
-                }
+                worldView.setDirtyAround(Region3i.createEncompassing(affected, Region3i.createFromMinAndSize(blockPos, Vector3i.one())));
                 return true;
             } finally {
                 worldView.unlock();
@@ -194,22 +194,24 @@ public class WorldView {
     }
 
     public void setDirtyAround(Vector3i blockPos) {
-        for (Vector3i pos : TeraMath.getChunkRegionAroundBlockPos(blockPos, 1)) {
-            chunks[pos.x + offset.x + chunkRegion.size().x * (pos.z + offset.z)].setDirty(true);
-        }
+        setDirtyAround(Region3i.createFromMinAndSize(blockPos, Vector3i.one()));
     }
 
+    /**
+     * Marks the mesh segments dirty that may show a change of the given region, as the faces and vertex lighting of a
+     * block depend on the blocks next to it.
+     */
     public void setDirtyAround(Region3i blockRegion) {
         Vector3i minPos = new Vector3i(blockRegion.min());
-        minPos.sub(1, 0, 1);
+        minPos.sub(1, 1, 1);
         Vector3i maxPos = new Vector3i(blockRegion.max());
-        maxPos.add(1, 0, 1);
+        maxPos.add(1, 1, 1);
 
         Vector3i minChunk = TeraMath.calcChunkPos(minPos, chunkPower);
         Vector3i maxChunk = TeraMath.calcChunkPos(maxPos, chunkPower);
 
         for (Vector3i pos : Region3i.createFromMinMax(minChunk, maxChunk)) {
-            chunks[pos.x + offset.x + chunkRegion.size().x * (pos.z + offset.z)].setDirty(true);
+            chunks[pos.x + offset.x + chunkRegion.size().x * (pos.z + offset.z)].setDirty(minPos.y, maxPos.y);
         }
     }
 
@@ -46,6 +46,7 @@ import org.terasology.math.Vector3i;
 import org.terasology.rendering.primitives.Mesh;
 import org.terasology.rendering.primitives.Tessellator;
 import org.terasology.rendering.shader.ShaderProgram;
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.block.family.BlockFamily;
 import org.terasology.world.block.shapes.BlockMeshPart;
 
@@ -542,6 +543,29 @@ public class Block {
         return color;
     }
 
+    /**
+     * Calculates the color offset for a specific side of the block in a column of a chunk, using the cached colors
+     * of the chunk's climate.
+     *
+     * @param part    The block side
+     * @param climate The climate of the chunk
+     * @param x       The X-coordinate within the chunk
+     * @param z       The Z-coordinate within the chunk
+     * @param target  The vector to store the color offset in
+     * @return The target
+     */
+    public Vector4f calcColorOffsetFor(BlockPart part, ChunkClimate climate, int x, int z, Vector4f target) {
+        climate.getColor(getColorSource(part), x, z, target);
+
+        Vector4f colorOffset = this.colorOffset.get(part);
+        target.x *= colorOffset.x;
+        target.y *= colorOffset.y;
+        target.z *= colorOffset.z;
+        target.w *= colorOffset.w;
+
+        return target;
+    }
+
     public void setCollision(Vector3f offset, CollisionShape shape) {
         collisionShape = shape;
         collisionOffset = offset;
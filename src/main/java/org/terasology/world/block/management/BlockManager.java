@@ -100,6 +100,18 @@ public class BlockManager {
     }
 
     public void load(Map<String, Byte> knownBlockMappings) {
+        load(knownBlockMappings, true);
+    }
+
+    /**
+     * Loads the block definitions without building the texture atlas, so blocks can be used without a display
+     * (e.g. for pregenerating worlds). Blocks loaded this way cannot be rendered.
+     */
+    public void loadHeadless(Map<String, Byte> knownBlockMappings) {
+        load(knownBlockMappings, false);
+    }
+
+    private void load(Map<String, Byte> knownBlockMappings, boolean buildAtlas) {
         reset();
         for (Map.Entry<String, Byte> entry : knownBlockMappings.entrySet()) {
             idByUri.put(new BlockUri(entry.getKey()), (byte) entry.getValue());
@@ -113,7 +125,9 @@ public class BlockManager {
         for (BlockUri shapelessFamily : blockDefinitions.shapelessDefinitions) {
             shapelessBlockDefinition.add(shapelessFamily);
         }
-        blockLoader.buildAtlas();
+        if (buildAtlas) {
+            blockLoader.buildAtlas();
+        }
         bindBlocks(knownBlockMappings);
     }
 
@@ -78,29 +78,16 @@ public class BlockMeshPart {
     }
 
     public void appendTo(ChunkMesh chunk, int offsetX, int offsetY, int offsetZ, Vector4f colorOffset, int meshBit) {
-        for (Vector2f texCoord : texCoords) {
-            chunk._vertexElements[meshBit].tex.add(texCoord.x);
-            chunk._vertexElements[meshBit].tex.add(texCoord.y);
-            chunk._vertexElements[meshBit].tex.add(1.0f);
-        }
+        ChunkMesh.VertexElements elements = chunk._vertexElements[meshBit];
 
-        int nextIndex = chunk._vertexElements[meshBit].vertCount;
+        int nextIndex = elements.vertCount;
         for (int vIdx = 0; vIdx < vertices.length; ++vIdx) {
-            chunk._vertexElements[meshBit].color.add(colorOffset.x);
-            chunk._vertexElements[meshBit].color.add(colorOffset.y);
-            chunk._vertexElements[meshBit].color.add(colorOffset.z);
-            chunk._vertexElements[meshBit].color.add(colorOffset.w);
-            chunk._vertexElements[meshBit].vertices.add(vertices[vIdx].x + offsetX);
-            chunk._vertexElements[meshBit].vertices.add(vertices[vIdx].y + offsetY);
-            chunk._vertexElements[meshBit].vertices.add(vertices[vIdx].z + offsetZ);
-            chunk._vertexElements[meshBit].normals.add(normals[vIdx].x);
-            chunk._vertexElements[meshBit].normals.add(normals[vIdx].y);
-            chunk._vertexElements[meshBit].normals.add(normals[vIdx].z);
+            elements.addVertex(vertices[vIdx].x + offsetX, vertices[vIdx].y + offsetY, vertices[vIdx].z + offsetZ,
+                    texCoords[vIdx].x, texCoords[vIdx].y, 1.0f, colorOffset, normals[vIdx]);
         }
-        chunk._vertexElements[meshBit].vertCount += vertices.length;
 
         for (int i = 0; i < indices.length; ++i) {
-            chunk._vertexElements[meshBit].indices.add(indices[i] + nextIndex);
+            elements.addIndex(indices[i] + nextIndex);
         }
     }
 
@@ -15,6 +15,7 @@
  */
 package org.terasology.world.chunks;
 
+import java.io.EOFException;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -33,6 +34,7 @@ import org.terasology.rendering.primitives.ChunkMesh;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.liquid.LiquidData;
+import org.terasology.world.scheduling.ChunkBlockUpdates;
 
 import com.google.common.base.Objects;
 
@@ -66,6 +68,8 @@ public class Chunk implements Externalizable {
     public static final int POWER_X = TeraMath.sizeOfPower(SIZE_X);
     public static final int POWER_Z = TeraMath.sizeOfPower(SIZE_Z);
     public static final int VERTICAL_SEGMENTS = Config.getInstance().getVerticalChunkMeshSegments();
+    /* The bit mask of the dirty mesh segments if all of them are dirty */
+    public static final int ALL_SEGMENTS = (VERTICAL_SEGMENTS >= 32) ? -1 : (1 << VERTICAL_SEGMENTS) - 1;
     public static final byte MAX_LIGHT = 0x0f;
     public static final byte MAX_LIQUID_DEPTH = 0x07;
 
@@ -79,9 +83,10 @@ public class Chunk implements Externalizable {
     private final TeraSmartArray sunlight;
     private final TeraSmartArray light;
     private final TeraSmartArray liquid;
+    private final ChunkBlockUpdates blockUpdates;
 
     private State chunkState = State.ADJACENCY_GENERATION_PENDING;
-    private boolean dirty;
+    private int dirtySegments;
     private boolean animated;
     private AABB aabb;
 
@@ -99,6 +104,7 @@ public class Chunk implements Externalizable {
         sunlight = new TeraSmartArray(getChunkSizeX(), getChunkSizeY(), getChunkSizeZ());
         light = new TeraSmartArray(getChunkSizeX(), getChunkSizeY(), getChunkSizeZ());
         liquid = new TeraSmartArray(getChunkSizeX(), getChunkSizeY(), getChunkSizeZ());
+        blockUpdates = new ChunkBlockUpdates();
 
         setDirty(true);
     }
@@ -120,8 +126,9 @@ public class Chunk implements Externalizable {
         sunlight = new TeraSmartArray(other.sunlight);
         light = new TeraSmartArray(other.light);
         liquid = new TeraSmartArray(other.liquid);
+        blockUpdates = new ChunkBlockUpdates(other.blockUpdates);
         chunkState = other.chunkState;
-        dirty = true;
+        dirtySegments = ALL_SEGMENTS;
     }
 
     public void lock() {
@@ -153,13 +160,57 @@ public class Chunk implements Externalizable {
     }
 
     public boolean isDirty() {
-        return dirty;
+        return dirtySegments != 0;
     }
 
     public void setDirty(boolean dirty) {
         lock();
         try {
-            this.dirty = dirty;
+            this.dirtySegments = dirty ? ALL_SEGMENTS : 0;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Marks the mesh segments overlapping the given range of block heights dirty.
+     */
+    public void setDirty(int minY, int maxY) {
+        if (maxY < 0 || minY >= getChunkSizeY() || minY > maxY) {
+            return;
+        }
+        int segmentHeight = getChunkSizeY() / VERTICAL_SEGMENTS;
+        int minSegment = Math.max(minY, 0) / segmentHeight;
+        int maxSegment = Math.min(maxY / segmentHeight, VERTICAL_SEGMENTS - 1);
+
+        lock();
+        try {
+            for (int segment = minSegment; segment <= maxSegment; segment++) {
+                dirtySegments |= 1 << segment;
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * @return The bit mask of the dirty mesh segments, bit i standing for segment i
+     */
+    public int getDirtySegments() {
+        return dirtySegments;
+    }
+
+    /**
+     * Marks all segments clean.
+     *
+     * @return The bit mask of the segments that were dirty
+     */
+    public int takeDirtySegments() {
+        lock();
+        try {
+            int result = dirtySegments;
+            dirtySegments = 0;
+            return result;
         } finally {
             unlock();
         }
@@ -261,6 +312,13 @@ public class Chunk implements Externalizable {
         return new LiquidData((liquid.get(x, y, z)));
     }
 
+    /**
+     * @return The scheduled block updates pending in this chunk
+     */
+    public ChunkBlockUpdates getBlockUpdates() {
+        return blockUpdates;
+    }
+
     public Vector3i getChunkWorldPos() {
         return new Vector3i(getChunkWorldPosX(), getChunkWorldPosY(), getChunkWorldPosZ());
     }
@@ -326,6 +384,8 @@ public class Chunk implements Externalizable {
 
         for (int i = 0; i < liquid.sizePacked(); i++)
             out.writeByte(liquid.getRawByte(i));
+
+        blockUpdates.writeExternal(out);
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
@@ -348,6 +408,12 @@ public class Chunk implements Externalizable {
 
         for (int i = 0; i < liquid.sizePacked(); i++)
             liquid.setRawByte(i, in.readByte());
+
+        try {
+            blockUpdates.readExternal(in, getChunkWorldPos());
+        } catch (EOFException e) {
+            // Chunk saved before scheduled block updates were persisted
+        }
     }
 
     @Override
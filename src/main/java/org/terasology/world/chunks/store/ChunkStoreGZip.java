@@ -180,7 +180,10 @@ public class ChunkStoreGZip implements ChunkStore, Serializable {
         running.set(false);
         compressionThreads.shutdown();
         try {
-            compressionThreads.awaitTermination(30, TimeUnit.SECONDS);
+            // The store is serialized right after disposal, so all queued chunks must have been compressed
+            while (!compressionThreads.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.log(Level.INFO, "Still compressing {0} chunks", compressionQueue.size());
+            }
         } catch (InterruptedException e) {
             logger.log(Level.SEVERE, "Interrupted while awaiting thread disposal");
         }
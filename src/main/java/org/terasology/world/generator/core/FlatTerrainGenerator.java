@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
@@ -115,9 +116,10 @@ public class FlatTerrainGenerator implements ChunkGenerator {
 
     @Override
     public void generateChunk(final Chunk chunk) {
+        final ChunkClimate climate = biomeProvider.getChunkClimate(chunk.getPos().x, chunk.getPos().z);
         for (int x = 0; x < Chunk.SIZE_X; x++) {
             for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                final WorldBiomeProvider.Biome type = biomeProvider.getBiomeAt(chunk.getBlockWorldPosX(x), chunk.getBlockWorldPosZ(z));
+                final WorldBiomeProvider.Biome type = climate.getBiome(x, z);
 
                 for (int y = Chunk.SIZE_Y; y >= 0; y--) {
                     if (y == 0) {
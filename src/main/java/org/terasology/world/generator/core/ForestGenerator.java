@@ -20,6 +20,7 @@ import java.util.Map;
 
 import org.terasology.math.Vector3i;
 import org.terasology.utilities.FastRandom;
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
@@ -57,13 +58,11 @@ public class ForestGenerator implements SecondPassChunkGenerator {
     @Override
     public void postProcessChunk(Vector3i pos, WorldView view) {
         FastRandom random = new FastRandom(seed.hashCode() ^ (pos.x + 39L * (pos.y + 39L * pos.z)));
+        ChunkClimate climate = biomeProvider.getChunkClimate(pos.x, pos.z);
         for (int y = 32; y < Chunk.SIZE_Y; y++) {
             for (int x = 4; x < Chunk.SIZE_X; x += 4) {
                 for (int z = 4; z < Chunk.SIZE_Z; z += 4) {
-                    Vector3i worldPos = new Vector3i(pos);
-                    worldPos.mult(new Vector3i(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z));
-                    worldPos.add(x, y, z);
-                    WorldBiomeProvider.Biome biome = biomeProvider.getBiomeAt(worldPos.x, worldPos.z);
+                    WorldBiomeProvider.Biome biome = climate.getBiome(x, z);
 
                     int randX = x + random.randomInt(3);
                     int randZ = z + random.randomInt(3);
@@ -16,12 +16,17 @@
 
 package org.terasology.world.generator.core;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.vecmath.Vector2f;
 
 import org.terasology.math.TeraMath;
+import org.terasology.utilities.Noise;
 import org.terasology.utilities.PerlinNoise;
+import org.terasology.utilities.ScratchArena;
+import org.terasology.utilities.SimplexNoise;
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
@@ -36,9 +41,35 @@ import org.terasology.world.liquid.LiquidType;
 public class PerlinTerrainGenerator implements ChunkGenerator {
     private static final int SAMPLE_RATE_3D_HOR = 4;
     private static final int SAMPLE_RATE_3D_VERT = 4;
-
-    private PerlinNoise _pGen1, _pGen2, _pGen3, _pGen4, _pGen5, _pGen8;
+    private static final int SAMPLES_HOR = Chunk.SIZE_X / SAMPLE_RATE_3D_HOR + 1;
+    private static final int SAMPLES_VERT = Chunk.SIZE_Y / SAMPLE_RATE_3D_VERT + 1;
+
+    private static final int DENSITY_MAP_SIZE_Y = Chunk.SIZE_Y + 1;
+    private static final int DENSITY_MAP_SIZE_Z = Chunk.SIZE_Z + 1;
+    static final int DENSITY_MAP_SIZE = (Chunk.SIZE_X + 1) * DENSITY_MAP_SIZE_Y * DENSITY_MAP_SIZE_Z;
+
+    private static final ScratchArena.Slot DENSITY_MAP_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot SAMPLES_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot CAVE_DENSITY_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot BASE_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot OCEAN_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot RIVER_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot MOUNTAINS_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot HILLS_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot TERRAIN_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot MOUNTAIN_INTENSITY_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot TEMPERATURE_SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot HUMIDITY_SLOT = ScratchArena.newSlot();
+    private static final double[] ORIGIN = new double[]{0};
+
+    private static final String INIT_PARAMETER_NOISE = "noise";
+    public static final String NOISE_PERLIN = "perlin";
+    public static final String NOISE_SIMPLEX = "simplex";
+
+    private Noise _pGen1, _pGen2, _pGen3, _pGen4, _pGen5, _pGen8;
     private WorldBiomeProvider biomeProvider;
+    private String worldSeed;
+    private String noiseType = NOISE_PERLIN;
 
     private Block air = BlockManager.getInstance().getAir();
     private Block mantle = BlockManager.getInstance().getBlock("engine:MantleStone");
@@ -52,22 +83,30 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
 
     @Override
     public void setWorldSeed(String seed) {
+        worldSeed = seed;
         if (seed != null) {
-            _pGen1 = new PerlinNoise(seed.hashCode());
+            _pGen1 = createNoise(seed.hashCode());
             _pGen1.setOctaves(8);
 
-            _pGen2 = new PerlinNoise(seed.hashCode() + 1);
+            _pGen2 = createNoise(seed.hashCode() + 1);
             _pGen2.setOctaves(8);
 
-            _pGen3 = new PerlinNoise(seed.hashCode() + 2);
+            _pGen3 = createNoise(seed.hashCode() + 2);
             _pGen3.setOctaves(8);
 
-            _pGen4 = new PerlinNoise(seed.hashCode() + 3);
-            _pGen5 = new PerlinNoise(seed.hashCode() + 4);
-            _pGen8 = new PerlinNoise(seed.hashCode() + 7);
+            _pGen4 = createNoise(seed.hashCode() + 3);
+            _pGen5 = createNoise(seed.hashCode() + 4);
+            _pGen8 = createNoise(seed.hashCode() + 7);
         }
     }
 
+    private Noise createNoise(int seed) {
+        if (NOISE_SIMPLEX.equals(noiseType)) {
+            return new SimplexNoise(seed);
+        }
+        return new PerlinNoise(seed);
+    }
+
     @Override
     public void setWorldBiomeProvider(WorldBiomeProvider biomeProvider) {
         this.biomeProvider = biomeProvider;
@@ -75,15 +114,32 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
 
     @Override
     public void generateChunk(Chunk c) {
-        double[][][] densityMap = new double[Chunk.SIZE_X + 1][Chunk.SIZE_Y + 1][Chunk.SIZE_Z + 1];
+        ScratchArena arena = ScratchArena.get();
+        // Reused between chunks without being cleared. Everything below the top layer is written before being read, but
+        // the top layer only has its lattice points written, so only those may be read from it.
+        double[] densityMap = arena.doubles(DENSITY_MAP_SLOT, DENSITY_MAP_SIZE);
 
         /*
          * Create the density map at a lower sample rate.
          */
-        for (int x = 0; x <= Chunk.SIZE_X; x += SAMPLE_RATE_3D_HOR) {
-            for (int z = 0; z <= Chunk.SIZE_Z; z += SAMPLE_RATE_3D_HOR) {
-                for (int y = 0; y <= Chunk.SIZE_Y; y += SAMPLE_RATE_3D_VERT) {
-                    densityMap[x][y][z] = calcDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z));
+        int[] sampleX = new int[SAMPLES_HOR];
+        int[] sampleY = new int[SAMPLES_VERT];
+        int[] sampleZ = new int[SAMPLES_HOR];
+        for (int i = 0; i < SAMPLES_HOR; i++) {
+            sampleX[i] = c.getBlockWorldPosX(i * SAMPLE_RATE_3D_HOR);
+            sampleZ[i] = c.getBlockWorldPosZ(i * SAMPLE_RATE_3D_HOR);
+        }
+        for (int i = 0; i < SAMPLES_VERT; i++) {
+            sampleY[i] = i * SAMPLE_RATE_3D_VERT;
+        }
+        double[] samples = arena.doubles(SAMPLES_SLOT, SAMPLES_HOR * SAMPLES_VERT * SAMPLES_HOR);
+        calcDensity(samples, sampleX, sampleY, sampleZ);
+
+        int index = 0;
+        for (int i = 0; i < SAMPLES_HOR; i++) {
+            for (int j = 0; j < SAMPLES_VERT; j++) {
+                for (int k = 0; k < SAMPLES_HOR; k++) {
+                    densityMap[densityIndex(i * SAMPLE_RATE_3D_HOR, j * SAMPLE_RATE_3D_VERT, k * SAMPLE_RATE_3D_HOR)] = samples[index++];
                 }
             }
         }
@@ -93,15 +149,23 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
          */
         triLerpDensityMap(densityMap);
 
+        /*
+         * Evaluate the cave noise for everything up to the highest solid block in one pass.
+         */
+        int caveHeight = calcSolidHeight(densityMap);
+        double[] caveDensity = arena.doubles(CAVE_DENSITY_SLOT, Chunk.SIZE_X * caveHeight * Chunk.SIZE_Z);
+        calcCaveDensity(caveDensity, c, caveHeight);
+
         /*
          * Generate the chunk from the density map.
          */
+        ChunkClimate climate = biomeProvider.getChunkClimate(c.getPos().x, c.getPos().z);
         for (int x = 0; x < Chunk.SIZE_X; x++) {
             for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                WorldBiomeProvider.Biome type = biomeProvider.getBiomeAt(c.getBlockWorldPosX(x), c.getBlockWorldPosZ(z));
+                WorldBiomeProvider.Biome type = climate.getBiome(x, z);
                 int firstBlockHeight = -1;
 
-                for (int y = Chunk.SIZE_Y; y >= 0; y--) {
+                for (int y = Chunk.SIZE_Y - 1; y >= 0; y--) {
 
                     if (y == 0) { // The very deepest layer of the world is an indestructible mantle
                         c.setBlock(x, y, z, mantle);
@@ -119,7 +183,7 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
                         }
                     }
 
-                    double dens = densityMap[x][y][z];
+                    double dens = densityMap[densityIndex(x, y, z)];
 
                     if ((dens >= 0 && dens < 32)) {
 
@@ -127,7 +191,7 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
                         if (firstBlockHeight == -1)
                             firstBlockHeight = y;
 
-                        if (calcCaveDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z)) > -0.7)
+                        if (caveDensity[(x * caveHeight + y) * Chunk.SIZE_Z + z] > -0.7)
                             GenerateOuterLayer(x, y, z, firstBlockHeight, c, type);
                         else
                             c.setBlock(x, y, z, air);
@@ -139,7 +203,7 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
                         if (firstBlockHeight == -1)
                             firstBlockHeight = y;
 
-                        if (calcCaveDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z)) > -0.6)
+                        if (caveDensity[(x * caveHeight + y) * Chunk.SIZE_Z + z] > -0.6)
                             GenerateInnerLayer(x, y, z, c, type);
                         else
                             c.setBlock(x, y, z, air);
@@ -211,7 +275,14 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
         }
     }
 
-    private void triLerpDensityMap(double[][][] densityMap) {
+    /**
+     * @return The index of the given block position in the flattened density map
+     */
+    static int densityIndex(int x, int y, int z) {
+        return (x * DENSITY_MAP_SIZE_Y + y) * DENSITY_MAP_SIZE_Z + z;
+    }
+
+    private void triLerpDensityMap(double[] densityMap) {
         for (int x = 0; x < Chunk.SIZE_X; x++) {
             for (int y = 0; y < Chunk.SIZE_Y; y++) {
                 for (int z = 0; z < Chunk.SIZE_Z; z++) {
@@ -219,7 +290,7 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
                         int offsetX = (x / SAMPLE_RATE_3D_HOR) * SAMPLE_RATE_3D_HOR;
                         int offsetY = (y / SAMPLE_RATE_3D_VERT) * SAMPLE_RATE_3D_VERT;
                         int offsetZ = (z / SAMPLE_RATE_3D_HOR) * SAMPLE_RATE_3D_HOR;
-                        densityMap[x][y][z] = TeraMath.triLerp(x, y, z, densityMap[offsetX][offsetY][offsetZ], densityMap[offsetX][SAMPLE_RATE_3D_VERT + offsetY][offsetZ], densityMap[offsetX][offsetY][offsetZ + SAMPLE_RATE_3D_HOR], densityMap[offsetX][offsetY + SAMPLE_RATE_3D_VERT][offsetZ + SAMPLE_RATE_3D_HOR], densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY][offsetZ], densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY + SAMPLE_RATE_3D_VERT][offsetZ], densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY][offsetZ + SAMPLE_RATE_3D_HOR], densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY + SAMPLE_RATE_3D_VERT][offsetZ + SAMPLE_RATE_3D_HOR], offsetX, SAMPLE_RATE_3D_HOR + offsetX, offsetY, SAMPLE_RATE_3D_VERT + offsetY, offsetZ, offsetZ + SAMPLE_RATE_3D_HOR);
+                        densityMap[densityIndex(x, y, z)] = TeraMath.triLerp(x, y, z, densityMap[densityIndex(offsetX, offsetY, offsetZ)], densityMap[densityIndex(offsetX, SAMPLE_RATE_3D_VERT + offsetY, offsetZ)], densityMap[densityIndex(offsetX, offsetY, offsetZ + SAMPLE_RATE_3D_HOR)], densityMap[densityIndex(offsetX, offsetY + SAMPLE_RATE_3D_VERT, offsetZ + SAMPLE_RATE_3D_HOR)], densityMap[densityIndex(SAMPLE_RATE_3D_HOR + offsetX, offsetY, offsetZ)], densityMap[densityIndex(SAMPLE_RATE_3D_HOR + offsetX, offsetY + SAMPLE_RATE_3D_VERT, offsetZ)], densityMap[densityIndex(SAMPLE_RATE_3D_HOR + offsetX, offsetY, offsetZ + SAMPLE_RATE_3D_HOR)], densityMap[densityIndex(SAMPLE_RATE_3D_HOR + offsetX, offsetY + SAMPLE_RATE_3D_VERT, offsetZ + SAMPLE_RATE_3D_HOR)], offsetX, SAMPLE_RATE_3D_HOR + offsetX, offsetY, SAMPLE_RATE_3D_VERT + offsetY, offsetZ, offsetZ + SAMPLE_RATE_3D_HOR);
                     }
                 }
             }
@@ -246,6 +317,120 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
         return -y + (((32.0 + height * 32.0) * TeraMath.clamp(river + 0.25) * TeraMath.clamp(ocean + 0.25)) + densityMountains * 1024.0 + densityHills * 128.0) * flatten;
     }
 
+    /**
+     * Calculates the density for a grid of world positions. The density at (xs[i], ys[j], zs[k]) is stored at
+     * (i * ys.length + j) * zs.length + k, and matches {@link #calcDensity(int, int, int)}.
+     *
+     * @param target The array to fill
+     * @param xs     The world x positions to sample
+     * @param ys     The world y positions to sample
+     * @param zs     The world z positions to sample
+     */
+    public void calcDensity(double[] target, int[] xs, int[] ys, int[] zs) {
+        int sizeX = xs.length, sizeY = ys.length, sizeZ = zs.length;
+        ScratchArena arena = ScratchArena.get();
+        double[] columnX = new double[sizeX], columnZ = new double[sizeZ], columnY = ORIGIN;
+        double[] base = arena.doubles(BASE_SLOT, sizeX * sizeZ);
+        double[] ocean = arena.doubles(OCEAN_SLOT, sizeX * sizeZ);
+        double[] river = arena.doubles(RIVER_SLOT, sizeX * sizeZ);
+
+        scaleAxis(xs, 0.004, columnX);
+        scaleAxis(zs, 0.004, columnZ);
+        _pGen1.fBm(base, columnX, columnY, columnZ);
+        scaleAxis(xs, 0.0009, columnX);
+        scaleAxis(zs, 0.0009, columnZ);
+        _pGen2.fBm(ocean, columnX, columnY, columnZ);
+        scaleAxis(xs, 0.0008, columnX);
+        scaleAxis(zs, 0.0008, columnZ);
+        _pGen3.fBm(river, columnX, columnY, columnZ);
+
+        double[] gridX = new double[sizeX], gridY = new double[sizeY], gridZ = new double[sizeZ];
+        double[] mountains = arena.doubles(MOUNTAINS_SLOT, sizeX * sizeY * sizeZ);
+        double[] hills = arena.doubles(HILLS_SLOT, sizeX * sizeY * sizeZ);
+        scaleAxis(xs, 0.002, gridX);
+        scaleAxis(ys, 0.001, gridY);
+        scaleAxis(zs, 0.002, gridZ);
+        _pGen4.fBm(mountains, gridX, gridY, gridZ);
+        scaleAxis(xs, 0.008, gridX);
+        scaleAxis(ys, 0.006, gridY);
+        scaleAxis(zs, 0.008, gridZ);
+        _pGen5.fBm(hills, gridX, gridY, gridZ);
+
+        // Everything that only depends on the column
+        double[] terrain = arena.doubles(TERRAIN_SLOT, sizeX * sizeZ);
+        double[] mountainIntensity = arena.doubles(MOUNTAIN_INTENSITY_SLOT, sizeX * sizeZ);
+        float[] temperature = arena.floats(TEMPERATURE_SLOT, sizeX * sizeZ);
+        float[] humidity = arena.floats(HUMIDITY_SLOT, sizeX * sizeZ);
+        biomeProvider.getTemperatures(temperature, xs, zs);
+        biomeProvider.getHumidities(humidity, xs, zs);
+        for (int column = 0; column < sizeX * sizeZ; column++) {
+            double height = TeraMath.clamp((base[column] + 1.0) / 2.0);
+            double oceanTerrain = TeraMath.clamp(ocean[column] * 8.0);
+            double riverTerrain = TeraMath.clamp((java.lang.Math.sqrt(java.lang.Math.abs(river[column])) - 0.1) * 7.0);
+            terrain[column] = (32.0 + height * 32.0) * TeraMath.clamp(riverTerrain + 0.25) * TeraMath.clamp(oceanTerrain + 0.25);
+
+            float temp = temperature[column];
+            float distanceX = temp - 0.25f, distanceY = humidity[column] * temp - 0.35f;
+            mountainIntensity[column] = TeraMath.clamp(1.0 - (float) Math.sqrt(distanceX * distanceX + distanceY * distanceY) * 3.0);
+        }
+
+        int plateauArea = (int) (Chunk.SIZE_Y * 0.10);
+        int index = 0;
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                for (int k = 0; k < sizeZ; k++) {
+                    int column = i * sizeZ + k;
+                    double mIntens = mountainIntensity[column];
+                    double densityMountains = (mountains[index] > 0.0 ? mountains[index] : 0) * mIntens;
+                    double hillDensity = hills[index] - 0.1;
+                    double densityHills = (hillDensity > 0.0 ? hillDensity : 0) * (1.0 - mIntens);
+
+                    int y = ys[j];
+                    double flatten = TeraMath.clamp(((Chunk.SIZE_Y - 16) - y) / plateauArea);
+
+                    target[index++] = -y + (terrain[column] + densityMountains * 1024.0 + densityHills * 128.0) * flatten;
+                }
+            }
+        }
+    }
+
+    private static void scaleAxis(int[] positions, double scale, double[] target) {
+        for (int i = 0; i < positions.length; i++) {
+            target[i] = positions[i] * scale;
+        }
+    }
+
+    /**
+     * @return The number of layers up to and including the highest solid block of the density map. The top layer of the
+     *         map, above the chunk, is only interpolated from and is not looked at.
+     */
+    static int calcSolidHeight(double[] densityMap) {
+        for (int y = Chunk.SIZE_Y - 1; y > 0; y--) {
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    if (densityMap[densityIndex(x, y, z)] >= 0) {
+                        return y + 1;
+                    }
+                }
+            }
+        }
+        return 1;
+    }
+
+    private void calcCaveDensity(double[] target, Chunk c, int height) {
+        double[] xs = new double[Chunk.SIZE_X], ys = new double[height], zs = new double[Chunk.SIZE_Z];
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            xs[x] = (double) c.getBlockWorldPosX(x) * 0.02;
+        }
+        for (int y = 0; y < height; y++) {
+            ys[y] = (double) y * 0.02;
+        }
+        for (int z = 0; z < Chunk.SIZE_Z; z++) {
+            zs[z] = (double) c.getBlockWorldPosZ(z) * 0.02;
+        }
+        _pGen8.fBm(target, xs, ys, zs);
+    }
+
     private double calcBaseTerrain(double x, double z) {
         return TeraMath.clamp((_pGen1.fBm(0.004 * x, 0, 0.004 * z) + 1.0) / 2.0);
     }
@@ -280,11 +465,23 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
 
     @Override
     public Map<String, String> getInitParameters() {
-        return null;
+        final Map<String, String> initParameters = new HashMap<String, String>();
+        initParameters.put(INIT_PARAMETER_NOISE, noiseType);
+        return initParameters;
     }
 
+    /**
+     * Supports "noise" to select the noise backend, either "perlin" (the default) or "simplex".
+     */
     @Override
     public void setInitParameters(final Map<String, String> initParameters) {
+        if (initParameters != null) {
+            final String noise = initParameters.get(INIT_PARAMETER_NOISE);
+            if (noise != null && !noise.equals(noiseType)) {
+                noiseType = NOISE_SIMPLEX.equals(noise) ? NOISE_SIMPLEX : NOISE_PERLIN;
+                setWorldSeed(worldSeed);
+            }
+        }
     }
 
 }
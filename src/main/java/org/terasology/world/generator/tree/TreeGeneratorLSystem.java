@@ -29,12 +29,16 @@ import org.terasology.world.block.management.BlockManager;
 
 /**
  * Allows the generation of complex trees based on L-Systems.
+ * <p/>
+ * Expanding the rules and walking the turtle is expensive, so a fixed set of seeded variants is expanded once into
+ * {@link TreeTemplate}s, and each generated tree is one of these variants.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
 public class TreeGeneratorLSystem extends TreeGenerator {
 
     public final int MAX_ANGLE_OFFSET = 5;
+    public static final int TEMPLATE_VARIANTS = 16;
 
     /* SETTINGS */
     private int iterations;
@@ -48,6 +52,8 @@ public class TreeGeneratorLSystem extends TreeGenerator {
     private final HashMap<String, String> ruleSet;
     private final HashMap<String, Double> probabilities;
 
+    private volatile TreeTemplate[] templates;
+
     /**
      * Init. a new L-System based tree generator.
      *
@@ -71,6 +77,35 @@ public class TreeGeneratorLSystem extends TreeGenerator {
 
     @Override
     public void generate(WorldView view, FastRandom rand, int posX, int posY, int posZ) {
+        TreeTemplate[] variants = getTemplates();
+        variants[rand.randomIntAbs(variants.length)].apply(view, posX, posY, posZ);
+    }
+
+    private TreeTemplate[] getTemplates() {
+        TreeTemplate[] result = templates;
+        if (result == null) {
+            synchronized (this) {
+                result = templates;
+                if (result == null) {
+                    result = new TreeTemplate[TEMPLATE_VARIANTS];
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = createTemplate(new FastRandom(31L * initialAxiom.hashCode() + i));
+                    }
+                    templates = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expands the rules and walks the turtle to create a single variant of this tree.
+     *
+     * @param rand The random generator
+     * @return The variant, relative to the base of its trunk
+     */
+    private TreeTemplate createTemplate(FastRandom rand) {
+        TreeTemplate.Builder template = new TreeTemplate.Builder(air);
 
         String axiom = initialAxiom;
 
@@ -79,7 +114,7 @@ public class TreeGeneratorLSystem extends TreeGenerator {
 
         for (int i = 0; i < iterations; i++) {
 
-            String temp = "";
+            StringBuilder temp = new StringBuilder(axiom.length());
 
             for (int j = 0; j < axiom.length(); j++) {
                 String c = String.valueOf(axiom.charAt(j));
@@ -87,12 +122,12 @@ public class TreeGeneratorLSystem extends TreeGenerator {
                 double rValue = (rand.randomDouble() + 1.0) / 2.0;
 
                 if (ruleSet.containsKey(c) && probabilities.get(c) > (1.0 - rValue))
-                    temp += ruleSet.get(c);
+                    temp.append(ruleSet.get(c));
                 else
-                    temp += c;
+                    temp.append(c);
             }
 
-            axiom = temp;
+            axiom = temp.toString();
         }
 
         Vector3f position = new Vector3f(0, 0, 0);
@@ -113,10 +148,10 @@ public class TreeGeneratorLSystem extends TreeGenerator {
                 case 'G':
                 case 'F':
                     // Tree trunk
-                    view.setBlock(posX + (int) position.x + 1, posY + (int) position.y, posZ + (int) position.z, barkType, view.getBlock(posX + (int) position.x + 1, posY + (int) position.y, posZ + (int) position.z));
-                    view.setBlock(posX + (int) position.x - 1, posY + (int) position.y, posZ + (int) position.z, barkType, view.getBlock(posX + (int) position.x - 1, posY + (int) position.y, posZ + (int) position.z));
-                    view.setBlock(posX + (int) position.x, posY + (int) position.y, posZ + (int) position.z + 1, barkType, view.getBlock(posX + (int) position.x, posY + (int) position.y, posZ + (int) position.z + 1));
-                    view.setBlock(posX + (int) position.x, posY + (int) position.y, posZ + (int) position.z - 1, barkType, view.getBlock(posX + (int) position.x, posY + (int) position.y, posZ + (int) position.z - 1));
+                    template.setBlock((int) position.x + 1, (int) position.y, (int) position.z, barkType);
+                    template.setBlock((int) position.x - 1, (int) position.y, (int) position.z, barkType);
+                    template.setBlock((int) position.x, (int) position.y, (int) position.z + 1, barkType);
+                    template.setBlock((int) position.x, (int) position.y, (int) position.z - 1, barkType);
 
                     // Generate leaves
                     if (_stackOrientation.size() > 1) {
@@ -128,10 +163,10 @@ public class TreeGeneratorLSystem extends TreeGenerator {
                                     if (Math.abs(x) == size && Math.abs(y) == size && Math.abs(z) == size)
                                         continue;
 
-                                    view.setBlock(posX + (int) position.x + x + 1, posY + (int) position.y + y, posZ + z + (int) position.z, leafType, air);
-                                    view.setBlock(posX + (int) position.x + x - 1, posY + (int) position.y + y, posZ + z + (int) position.z, leafType, air);
-                                    view.setBlock(posX + (int) position.x + x, posY + (int) position.y + y, posZ + z + (int) position.z + 1, leafType, air);
-                                    view.setBlock(posX + (int) position.x + x, posY + (int) position.y + y, posZ + z + (int) position.z - 1, leafType, air);
+                                    template.setBlockIfAir((int) position.x + x + 1, (int) position.y + y, z + (int) position.z, leafType);
+                                    template.setBlockIfAir((int) position.x + x - 1, (int) position.y + y, z + (int) position.z, leafType);
+                                    template.setBlockIfAir((int) position.x + x, (int) position.y + y, z + (int) position.z + 1, leafType);
+                                    template.setBlockIfAir((int) position.x + x, (int) position.y + y, z + (int) position.z - 1, leafType);
                                 }
                             }
                         }
@@ -182,16 +217,20 @@ public class TreeGeneratorLSystem extends TreeGenerator {
                     break;
             }
         }
+
+        return template.build();
     }
 
     public TreeGenerator setLeafType(Block b) {
         leafType = b;
+        templates = null;
         return this;
     }
 
 
     public TreeGenerator setBarkType(Block b) {
         barkType = b;
+        templates = null;
         return this;
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.generator.tree;
+
+import java.util.Map;
+
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A precomputed tree, stored as a list of blocks relative to the base of its trunk.
+ * <p/>
+ * The builder collapses repeated writes to the same position, so each block is placed at most once when the template
+ * is applied.
+ */
+public class TreeTemplate {
+
+    private final Block air;
+    private final int[] positions;
+    private final Block[] blocks;
+    private final boolean[] onlyReplaceAir;
+
+    private TreeTemplate(Block air, int[] positions, Block[] blocks, boolean[] onlyReplaceAir) {
+        this.air = air;
+        this.positions = positions;
+        this.blocks = blocks;
+        this.onlyReplaceAir = onlyReplaceAir;
+    }
+
+    /**
+     * Places the tree in the given view.
+     *
+     * @param posX Position of the base of the trunk on the x-axis
+     * @param posY Position of the base of the trunk on the y-axis
+     * @param posZ Position of the base of the trunk on the z-axis
+     */
+    public void apply(WorldView view, int posX, int posY, int posZ) {
+        for (int i = 0; i < blocks.length; i++) {
+            int x = posX + positions[3 * i];
+            int y = posY + positions[3 * i + 1];
+            int z = posZ + positions[3 * i + 2];
+            if (onlyReplaceAir[i]) {
+                view.setBlock(x, y, z, blocks[i], air);
+            } else {
+                view.setBlock(x, y, z, blocks[i], view.getBlock(x, y, z));
+            }
+        }
+    }
+
+    /**
+     * @return The number of blocks in this template
+     */
+    public int size() {
+        return blocks.length;
+    }
+
+    public static class Builder {
+        private final Block air;
+        private final Map<Vector3i, Entry> entries = Maps.newLinkedHashMap();
+
+        public Builder(Block air) {
+            this.air = air;
+        }
+
+        /**
+         * Sets the block at the given position, replacing whatever is there.
+         */
+        public Builder setBlock(int x, int y, int z, Block block) {
+            entries.put(new Vector3i(x, y, z), new Entry(block, false));
+            return this;
+        }
+
+        /**
+         * Sets the block at the given position if it is air.
+         */
+        public Builder setBlockIfAir(int x, int y, int z, Block block) {
+            Vector3i pos = new Vector3i(x, y, z);
+            Entry entry = entries.get(pos);
+            if (entry == null) {
+                entries.put(pos, new Entry(block, true));
+            } else if (entry.block == air) {
+                entry.block = block;
+            }
+            return this;
+        }
+
+        public TreeTemplate build() {
+            int[] positions = new int[3 * entries.size()];
+            Block[] blocks = new Block[entries.size()];
+            boolean[] onlyReplaceAir = new boolean[entries.size()];
+            int i = 0;
+            for (Map.Entry<Vector3i, Entry> entry : entries.entrySet()) {
+                positions[3 * i] = entry.getKey().x;
+                positions[3 * i + 1] = entry.getKey().y;
+                positions[3 * i + 2] = entry.getKey().z;
+                blocks[i] = entry.getValue().block;
+                onlyReplaceAir[i] = entry.getValue().onlyReplaceAir;
+                i++;
+            }
+            return new TreeTemplate(air, positions, blocks, onlyReplaceAir);
+        }
+    }
+
+    private static class Entry {
+        private Block block;
+        private final boolean onlyReplaceAir;
+
+        public Entry(Block block, boolean onlyReplaceAir) {
+            this.block = block;
+            this.onlyReplaceAir = onlyReplaceAir;
+        }
+    }
+}
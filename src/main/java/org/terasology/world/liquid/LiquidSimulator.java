@@ -40,6 +40,8 @@ import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.chunks.Chunk;
 import org.terasology.world.chunks.ChunkReadyEvent;
+import org.terasology.world.scheduling.BlockUpdateScheduler;
+import org.terasology.world.scheduling.ScheduledBlockUpdateHandler;
 
 import com.google.common.collect.Queues;
 
@@ -55,10 +57,12 @@ public class LiquidSimulator implements EventHandlerSystem {
     private static int NUM_THREADS = 2;
     private static byte MAX_LIQUID_DEPTH = 0x7;
     public static final int PROPAGATION_DELAY = 200;
+    public static final String LIQUID_UPDATE = "engine:liquid";
 
     private Logger logger = Logger.getLogger(getClass().getName());
 
     private WorldProvider world;
+    private BlockUpdateScheduler scheduler;
     private Block air;
     private Block grass;
     private Block snow;
@@ -80,6 +84,14 @@ public class LiquidSimulator implements EventHandlerSystem {
 
         blockQueue = Queues.newLinkedBlockingQueue();
 
+        scheduler = CoreRegistry.get(BlockUpdateScheduler.class);
+        scheduler.registerHandler(LIQUID_UPDATE, new ScheduledBlockUpdateHandler() {
+            @Override
+            public void onScheduledUpdate(Vector3i blockPos) {
+                blockQueue.offer(new SimulateBlock(blockPos));
+            }
+        });
+
         executor = Executors.newFixedThreadPool(NUM_THREADS);
         for (int i = 0; i < NUM_THREADS; ++i) {
             executor.execute(new Runnable() {
@@ -106,6 +118,7 @@ public class LiquidSimulator implements EventHandlerSystem {
 
     @Override
     public void shutdown() {
+        scheduler.unregisterHandler(LIQUID_UPDATE);
         executor.shutdown();
         for (int i = 0; i < NUM_THREADS; ++i) {
             blockQueue.offer(new LiquidSimulationTask() {
@@ -142,12 +155,12 @@ public class LiquidSimulator implements EventHandlerSystem {
                 world.setLiquid(event.getBlockPosition(), new LiquidData(), currentState);
             }
             if (event.getNewType().isPenetrable()) {
-                blockQueue.offer(new SimulateBlock(event.getBlockPosition(), world.getTime() + PROPAGATION_DELAY));
+                scheduler.schedule(LIQUID_UPDATE, event.getBlockPosition(), PROPAGATION_DELAY, 0);
             }
             for (Side side : Side.values()) {
                 Vector3i adjPos = new Vector3i(event.getBlockPosition());
                 adjPos.add(side.getVector3i());
-                blockQueue.offer(new SimulateBlock(adjPos, world.getTime() + PROPAGATION_DELAY));
+                scheduler.schedule(LIQUID_UPDATE, adjPos, PROPAGATION_DELAY, 0);
             }
         } else {
             LiquidData currentState = world.getLiquid(event.getBlockPosition());
@@ -158,7 +171,7 @@ public class LiquidSimulator implements EventHandlerSystem {
             for (Side side : Side.values()) {
                 Vector3i adjPos = new Vector3i(event.getBlockPosition());
                 adjPos.add(side.getVector3i());
-                blockQueue.offer(new SimulateBlock(adjPos, world.getTime() + PROPAGATION_DELAY));
+                scheduler.schedule(LIQUID_UPDATE, adjPos, PROPAGATION_DELAY, 0);
             }
         }
     }
@@ -285,11 +298,9 @@ public class LiquidSimulator implements EventHandlerSystem {
     private class SimulateBlock implements LiquidSimulationTask{
 
         private Vector3i blockPos;
-        private long waitForTime;
 
-        public SimulateBlock(Vector3i blockPos, long time) {
+        public SimulateBlock(Vector3i blockPos) {
             this.blockPos = blockPos;
-            this.waitForTime = time;
         }
 
         @Override
@@ -299,9 +310,7 @@ public class LiquidSimulator implements EventHandlerSystem {
 
         @Override
         public void run() {
-            if (world.getTime() < waitForTime) {
-                blockQueue.offer(this);
-            } else if (world.isBlockActive(blockPos)) {
+            if (world.isBlockActive(blockPos)) {
                 WorldView view = world.getWorldViewAround(TeraMath.calcChunkPos(blockPos));
                 if (view != null && view.isValidView()) {
                     simulate(blockPos, view);
@@ -330,7 +339,7 @@ public class LiquidSimulator implements EventHandlerSystem {
                     LiquidData state = view.getLiquid(pos);
                     LiquidData newState = calcStateFor(pos, view);
                     if (!newState.equals(state)) {
-                        blockQueue.offer(new SimulateBlock(view.toWorldPos(pos), 0));
+                        blockQueue.offer(new SimulateBlock(view.toWorldPos(pos)));
                     }
                 }
             }
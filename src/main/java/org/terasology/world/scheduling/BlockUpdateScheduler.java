@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.scheduling;
+
+import org.terasology.math.Vector3i;
+
+/**
+ * Schedules delayed updates of individual blocks. Pending updates are stored with the chunk they belong to, so they
+ * survive the chunk being unloaded and are resumed when it becomes ready again.
+ * <p/>
+ * Scheduling the same block for the same handler again while an update is pending coalesces the two: the earlier
+ * due time and the higher priority win.
+ */
+public interface BlockUpdateScheduler {
+
+    /**
+     * Registers the handler that receives updates scheduled under the given id. The id is persisted with pending
+     * updates, so it should be stable across sessions (e.g. "engine:liquid").
+     *
+     * @param id
+     * @param handler
+     */
+    public void registerHandler(String id, ScheduledBlockUpdateHandler handler);
+
+    public void unregisterHandler(String id);
+
+    /**
+     * Schedules an update of the given block.
+     *
+     * @param handlerId The id of the handler to receive the update
+     * @param blockPos  The world position of the block
+     * @param delay     The delay in ms from the current world time
+     * @param priority  Updates due in the same tick are dispatched highest priority first
+     * @return Whether the update was scheduled. Will fail if the chunk containing the block is not available
+     */
+    public boolean schedule(String handlerId, Vector3i blockPos, long delay, int priority);
+
+    /**
+     * @param handlerId
+     * @param blockPos
+     * @return Whether an update for the given block and handler is pending
+     */
+    public boolean isScheduled(String handlerId, Vector3i blockPos);
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.scheduling;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.components.world.WorldComponent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.math.TeraMath;
+import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.world.WorldProviderCore;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkProvider;
+import org.terasology.world.chunks.ChunkReadyEvent;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Block update scheduler backed by a {@link BlockUpdateTimerWheel}. Pending updates live in the
+ * {@link ChunkBlockUpdates} of their chunk; the wheel is only used to find which of them are due. Updates of chunks
+ * loaded from a store are added to the wheel when the chunk becomes ready.
+ */
+public class BlockUpdateSchedulerImpl implements BlockUpdateScheduler, EventHandlerSystem, UpdateSubscriberSystem {
+    public static final int TICK_LENGTH = 50;
+    private static final int WHEEL_SIZE = 512;
+
+    private static final Comparator<ScheduledBlockUpdate> PRIORITY_ORDER = new Comparator<ScheduledBlockUpdate>() {
+        @Override
+        public int compare(ScheduledBlockUpdate o1, ScheduledBlockUpdate o2) {
+            return o2.getPriority() - o1.getPriority();
+        }
+    };
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    private final WorldProviderCore world;
+    private final ChunkProvider chunkProvider;
+    private final BlockUpdateTimerWheel wheel = new BlockUpdateTimerWheel(WHEEL_SIZE);
+    private final Map<String, ScheduledBlockUpdateHandler> handlers = Maps.newConcurrentMap();
+    private final List<ScheduledBlockUpdate> dueUpdates = Lists.newArrayList();
+
+    private long lastTickTime = -1;
+
+    public BlockUpdateSchedulerImpl(WorldProviderCore world, ChunkProvider chunkProvider) {
+        this.world = world;
+        this.chunkProvider = chunkProvider;
+    }
+
+    @Override
+    public void initialise() {
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        wheel.clear();
+    }
+
+    @Override
+    public void registerHandler(String id, ScheduledBlockUpdateHandler handler) {
+        handlers.put(id, handler);
+    }
+
+    @Override
+    public void unregisterHandler(String id) {
+        handlers.remove(id);
+    }
+
+    @Override
+    public synchronized boolean schedule(String handlerId, Vector3i blockPos, long delay, int priority) {
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPos(blockPos));
+        if (chunk == null) {
+            return false;
+        }
+        ChunkBlockUpdates chunkUpdates = chunk.getBlockUpdates();
+        int localIndex = ChunkBlockUpdates.localIndex(TeraMath.calcBlockPos(blockPos.x, blockPos.y, blockPos.z));
+        long dueTime = world.getTime() + Math.max(0, delay);
+
+        ScheduledBlockUpdate existing = chunkUpdates.get(handlerId, localIndex);
+        if (existing != null) {
+            if (existing.getDueTime() <= dueTime) {
+                existing.setPriority(Math.max(existing.getPriority(), priority));
+                if (!existing.isQueued()) {
+                    queue(existing);
+                }
+                return true;
+            }
+            existing.cancel();
+            priority = Math.max(existing.getPriority(), priority);
+        }
+
+        ScheduledBlockUpdate update = new ScheduledBlockUpdate(handlerId, blockPos, localIndex, dueTime, priority);
+        chunkUpdates.put(update);
+        queue(update);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isScheduled(String handlerId, Vector3i blockPos) {
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPos(blockPos));
+        if (chunk == null) {
+            return false;
+        }
+        int localIndex = ChunkBlockUpdates.localIndex(TeraMath.calcBlockPos(blockPos.x, blockPos.y, blockPos.z));
+        return chunk.getBlockUpdates().get(handlerId, localIndex) != null;
+    }
+
+    @ReceiveEvent(components = WorldComponent.class)
+    public synchronized void chunkReady(ChunkReadyEvent event, EntityRef worldEntity) {
+        Chunk chunk = chunkProvider.getChunk(event.getChunkPos());
+        if (chunk != null) {
+            for (ScheduledBlockUpdate update : chunk.getBlockUpdates().getAll()) {
+                if (!update.isQueued()) {
+                    queue(update);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void update(float delta) {
+        PerformanceMonitor.startActivity("Scheduled Block Updates");
+        try {
+            collectDueUpdates();
+            Collections.sort(dueUpdates, PRIORITY_ORDER);
+            for (ScheduledBlockUpdate update : dueUpdates) {
+                ScheduledBlockUpdateHandler handler = handlers.get(update.getHandlerId());
+                if (handler != null) {
+                    try {
+                        handler.onScheduledUpdate(update.getBlockPos());
+                    } catch (Exception e) {
+                        logger.log(Level.SEVERE, "Error in scheduled block update " + update, e);
+                    }
+                } else {
+                    logger.log(Level.FINE, "No handler for scheduled block update " + update);
+                }
+            }
+        } finally {
+            dueUpdates.clear();
+            PerformanceMonitor.endActivity();
+        }
+    }
+
+    private synchronized void collectDueUpdates() {
+        long time = world.getTime();
+        if (lastTickTime < 0 || time < lastTickTime) {
+            lastTickTime = time;
+        }
+        long elapsedTicks = (time - lastTickTime) / TICK_LENGTH;
+        if (elapsedTicks == 0) {
+            return;
+        }
+        lastTickTime += elapsedTicks * TICK_LENGTH;
+        wheel.advanceTo(wheel.getCurrentTick() + elapsedTicks, dueUpdates);
+
+        // Drop updates whose chunk has been unloaded or replaced in the meantime - the chunk store holds their
+        // persisted copies, which are queued again once the chunk is ready.
+        int kept = 0;
+        for (int i = 0; i < dueUpdates.size(); ++i) {
+            ScheduledBlockUpdate update = dueUpdates.get(i);
+            Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPos(update.getBlockPos()));
+            if (chunk != null && chunk.getBlockUpdates() == update.getOwner() && update.getOwner().remove(update)) {
+                update.cancel();
+                dueUpdates.set(kept++, update);
+            }
+        }
+        for (int i = dueUpdates.size() - 1; i >= kept; --i) {
+            dueUpdates.remove(i);
+        }
+    }
+
+    private void queue(ScheduledBlockUpdate update) {
+        if (lastTickTime < 0) {
+            lastTickTime = world.getTime();
+        }
+        long delay = Math.max(0, update.getDueTime() - lastTickTime);
+        wheel.add(update, wheel.getCurrentTick() + (delay + TICK_LENGTH - 1) / TICK_LENGTH);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hashed timer wheel of scheduled block updates. Time is divided into ticks, and each update is placed in the slot
+ * of the tick it is due in, modulo the size of the wheel. Advancing the wheel only visits the slots of the elapsed
+ * ticks, so the cost of a tick is independent of the total number of pending updates. Updates due more than one
+ * revolution ahead simply stay in their slot until their tick comes around.
+ * <p/>
+ * Cancelled updates are removed lazily, when their slot is next visited.
+ * <p/>
+ * Not thread safe.
+ */
+public class BlockUpdateTimerWheel {
+
+    private final List<ScheduledBlockUpdate>[] slots;
+    private final int mask;
+    private long currentTick;
+
+    /**
+     * @param size The number of slots in the wheel. Must be a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BlockUpdateTimerWheel(int size) {
+        if (size <= 0 || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + size);
+        }
+        slots = new List[size];
+        for (int i = 0; i < size; ++i) {
+            slots[i] = new ArrayList<ScheduledBlockUpdate>();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * @return The last tick that has been processed
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Adds an update to the wheel. Updates due at or before the current tick are placed in the next tick.
+     *
+     * @param update
+     * @param dueTick
+     */
+    public void add(ScheduledBlockUpdate update, long dueTick) {
+        long tick = Math.max(dueTick, currentTick + 1);
+        update.setDueTick(tick);
+        update.setQueued(true);
+        slots[(int) (tick & mask)].add(update);
+    }
+
+    /**
+     * Advances the wheel to the given tick, collecting all updates that have become due.
+     *
+     * @param tick
+     * @param due  The list to add due updates to, in no particular order
+     */
+    public void advanceTo(long tick, List<ScheduledBlockUpdate> due) {
+        if (tick <= currentTick) {
+            return;
+        }
+        long slotsToVisit = Math.min(tick - currentTick, slots.length);
+        for (long i = 1; i <= slotsToVisit; ++i) {
+            collectDue(slots[(int) ((currentTick + i) & mask)], tick, due);
+        }
+        currentTick = tick;
+    }
+
+    private void collectDue(List<ScheduledBlockUpdate> slot, long tick, List<ScheduledBlockUpdate> due) {
+        int kept = 0;
+        for (int i = 0; i < slot.size(); ++i) {
+            ScheduledBlockUpdate update = slot.get(i);
+            if (update.isCancelled()) {
+                update.setQueued(false);
+            } else if (update.getDueTick() <= tick) {
+                update.setQueued(false);
+                due.add(update);
+            } else {
+                slot.set(kept++, update);
+            }
+        }
+        for (int i = slot.size() - 1; i >= kept; --i) {
+            slot.remove(i);
+        }
+    }
+
+    public void clear() {
+        for (List<ScheduledBlockUpdate> slot : slots) {
+            for (ScheduledBlockUpdate update : slot) {
+                update.setQueued(false);
+            }
+            slot.clear();
+        }
+    }
+}
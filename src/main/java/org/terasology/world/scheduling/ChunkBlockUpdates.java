@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.scheduling;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The pending block updates of a single chunk, keyed by handler and block. This is the persistent half of the
+ * scheduler - it is written out with the chunk - while the {@link BlockUpdateTimerWheel} only holds references to
+ * the updates of chunks that are currently loaded.
+ * <p/>
+ * Accessed from both the main thread and chunk store threads, so all access is synchronized.
+ */
+public class ChunkBlockUpdates {
+
+    private final Map<String, TIntObjectMap<ScheduledBlockUpdate>> updates = Maps.newHashMap();
+    private int size;
+
+    public ChunkBlockUpdates() {
+    }
+
+    /**
+     * Creates a copy of the other chunk's pending updates. The copies are not queued in any timer wheel.
+     *
+     * @param other
+     */
+    public ChunkBlockUpdates(ChunkBlockUpdates other) {
+        for (ScheduledBlockUpdate update : other.getAll()) {
+            put(new ScheduledBlockUpdate(update.getHandlerId(), update.getBlockPos(), update.getLocalIndex(), update.getDueTime(), update.getPriority()));
+        }
+    }
+
+    public static int localIndex(int x, int y, int z) {
+        return x + Chunk.SIZE_X * (z + Chunk.SIZE_Z * y);
+    }
+
+    public static int localIndex(Vector3i blockPos) {
+        return localIndex(blockPos.x, blockPos.y, blockPos.z);
+    }
+
+    public synchronized ScheduledBlockUpdate get(String handlerId, int localIndex) {
+        TIntObjectMap<ScheduledBlockUpdate> handlerUpdates = updates.get(handlerId);
+        if (handlerUpdates != null) {
+            return handlerUpdates.get(localIndex);
+        }
+        return null;
+    }
+
+    /**
+     * Adds an update, replacing any existing update for the same handler and block.
+     *
+     * @param update
+     * @return The replaced update, or null if there was none
+     */
+    public synchronized ScheduledBlockUpdate put(ScheduledBlockUpdate update) {
+        TIntObjectMap<ScheduledBlockUpdate> handlerUpdates = updates.get(update.getHandlerId());
+        if (handlerUpdates == null) {
+            handlerUpdates = new TIntObjectHashMap<ScheduledBlockUpdate>();
+            updates.put(update.getHandlerId(), handlerUpdates);
+        }
+        update.setOwner(this);
+        ScheduledBlockUpdate old = handlerUpdates.put(update.getLocalIndex(), update);
+        if (old == null) {
+            size++;
+        }
+        return old;
+    }
+
+    /**
+     * Removes the given update, if it is still the pending update for its handler and block.
+     *
+     * @param update
+     * @return Whether the update was removed
+     */
+    public synchronized boolean remove(ScheduledBlockUpdate update) {
+        TIntObjectMap<ScheduledBlockUpdate> handlerUpdates = updates.get(update.getHandlerId());
+        if (handlerUpdates != null && handlerUpdates.get(update.getLocalIndex()) == update) {
+            handlerUpdates.remove(update.getLocalIndex());
+            if (handlerUpdates.isEmpty()) {
+                updates.remove(update.getHandlerId());
+            }
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized List<ScheduledBlockUpdate> getAll() {
+        List<ScheduledBlockUpdate> result = Lists.newArrayListWithCapacity(size);
+        for (TIntObjectMap<ScheduledBlockUpdate> handlerUpdates : updates.values()) {
+            result.addAll(handlerUpdates.valueCollection());
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(size);
+        for (Map.Entry<String, TIntObjectMap<ScheduledBlockUpdate>> entry : updates.entrySet()) {
+            for (ScheduledBlockUpdate update : entry.getValue().valueCollection()) {
+                out.writeUTF(update.getHandlerId());
+                out.writeInt(update.getLocalIndex());
+                out.writeLong(update.getDueTime());
+                out.writeInt(update.getPriority());
+            }
+        }
+    }
+
+    /**
+     * Reads updates written by {@link #writeExternal(java.io.ObjectOutput)}.
+     *
+     * @param in
+     * @param chunkWorldPos The world position of the chunk's origin block, used to restore block positions
+     * @throws IOException
+     */
+    public synchronized void readExternal(ObjectInput in, Vector3i chunkWorldPos) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; ++i) {
+            String handlerId = in.readUTF();
+            int localIndex = in.readInt();
+            long dueTime = in.readLong();
+            int priority = in.readInt();
+
+            int x = localIndex % Chunk.SIZE_X;
+            int z = (localIndex / Chunk.SIZE_X) % Chunk.SIZE_Z;
+            int y = localIndex / (Chunk.SIZE_X * Chunk.SIZE_Z);
+            Vector3i blockPos = new Vector3i(chunkWorldPos.x + x, chunkWorldPos.y + y, chunkWorldPos.z + z);
+            put(new ScheduledBlockUpdate(handlerId, blockPos, localIndex, dueTime, priority));
+        }
+    }
+}
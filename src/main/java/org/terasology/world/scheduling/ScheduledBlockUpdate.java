@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.scheduling;
+
+import org.terasology.math.Vector3i;
+
+/**
+ * A single pending block update. Owned by the {@link ChunkBlockUpdates} of the chunk containing the block, and
+ * referenced from the slot of the {@link BlockUpdateTimerWheel} it is due in.
+ */
+public class ScheduledBlockUpdate {
+    private final String handlerId;
+    private final Vector3i blockPos;
+    private final int localIndex;
+    private final long dueTime;
+    private int priority;
+
+    private ChunkBlockUpdates owner;
+    private long dueTick;
+    private boolean queued;
+    private boolean cancelled;
+
+    /**
+     * @param handlerId  The id of the handler to receive the update
+     * @param blockPos   The world position of the block
+     * @param localIndex The index of the block within its chunk
+     * @param dueTime    The world time (in ms) the update is due at
+     * @param priority
+     */
+    public ScheduledBlockUpdate(String handlerId, Vector3i blockPos, int localIndex, long dueTime, int priority) {
+        this.handlerId = handlerId;
+        this.blockPos = new Vector3i(blockPos);
+        this.localIndex = localIndex;
+        this.dueTime = dueTime;
+        this.priority = priority;
+    }
+
+    public String getHandlerId() {
+        return handlerId;
+    }
+
+    public Vector3i getBlockPos() {
+        return new Vector3i(blockPos);
+    }
+
+    public int getLocalIndex() {
+        return localIndex;
+    }
+
+    public long getDueTime() {
+        return dueTime;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    ChunkBlockUpdates getOwner() {
+        return owner;
+    }
+
+    void setOwner(ChunkBlockUpdates owner) {
+        this.owner = owner;
+    }
+
+    long getDueTick() {
+        return dueTick;
+    }
+
+    void setDueTick(long dueTick) {
+        this.dueTick = dueTick;
+    }
+
+    /**
+     * @return Whether this update has been placed in the timer wheel
+     */
+    boolean isQueued() {
+        return queued;
+    }
+
+    void setQueued(boolean queued) {
+        this.queued = queued;
+    }
+
+    /**
+     * @return Whether this update has been superseded or dispatched, and should be skipped by the timer wheel
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduledBlockUpdate(" + handlerId + ", " + blockPos + ", " + dueTime + ")";
+    }
+}
@@ -66,6 +66,29 @@ void main(){
 
     vec4 texCoord = gl_TexCoord[0];
 
+    /* MERGED FACES REPEAT THEIR TILE OF THE ATLAS */
+    /* The third coordinate holds the axis of the normal and the orientation of the tile, see GreedyMesher */
+    bool tiled = texCoord.z > 1.5;
+    float tileOrientation = max(floor(texCoord.z - 1.5), 0.0);
+    float tileAxis = floor(tileOrientation / 8.0);
+    tileOrientation -= tileAxis * 8.0;
+
+    vec2 tilePos = tileAxis < 0.5 ? vertexWorldPosRaw.zy : (tileAxis < 1.5 ? vertexWorldPosRaw.xz : vertexWorldPosRaw.xy);
+    tilePos += 0.5;
+    if (mod(tileOrientation, 2.0) >= 1.0)
+        tilePos = tilePos.yx;
+    if (mod(floor(tileOrientation / 2.0), 2.0) >= 1.0)
+        tilePos.x = -tilePos.x;
+    if (tileOrientation >= 4.0)
+        tilePos.y = -tilePos.y;
+
+    // Derivatives of the continuous position, so the seams between the repetitions don't select a coarser mipmap
+    vec2 tileDx = dFdx(tilePos) * TEXTURE_OFFSET_WIDTH;
+    vec2 tileDy = dFdy(tilePos) * TEXTURE_OFFSET_WIDTH;
+
+    if (tiled)
+        texCoord.xy += fract(tilePos) * TEXTURE_OFFSET_WIDTH;
+
     vec3 normalizedVPos = -normalize(vertexWorldPos.xyz);
     vec3 normalWater;
     bool isWater = false;
@@ -113,6 +136,11 @@ void main(){
         color = texture2D(textureLava, texCoord.xy);
     /* APPLY DEFAULT TEXTURE FROM ATLAS */
     } else {
+#ifdef GL_ARB_shader_texture_lod
+        if (tiled)
+            color = texture2DGradARB(textureAtlas, texCoord.xy, tileDx, tileDy);
+        else
+#endif
         color = texture2D(textureAtlas, texCoord.xy);
     }
 
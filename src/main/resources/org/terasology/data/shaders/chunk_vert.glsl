@@ -38,10 +38,11 @@ uniform float animated;
 
 void main()
 {
-	gl_TexCoord[0] = gl_MultiTexCoord0;
-    gl_TexCoord[1] = gl_MultiTexCoord1;
+    // Unpack the compact vertex format, see ChunkVertexFormat
+	gl_TexCoord[0] = vec4(gl_MultiTexCoord0.xy * VERTEX_TEX_COORD_SCALE, gl_MultiTexCoord0.z, 1.0);
+    gl_TexCoord[1] = gl_SecondaryColor;
 
-	vertexWorldPosRaw = gl_Vertex;
+	vertexWorldPosRaw = vec4(gl_Vertex.xyz * VERTEX_POSITION_SCALE, 1.0);
 
 	vertexWorldPos = gl_ModelViewMatrix * vertexWorldPosRaw;
 
@@ -65,7 +66,7 @@ void main()
     if (animated > 0.0) {
         // GRASS ANIMATION
         for (int i=0; i < WAVING_COORDINATE_COUNT; i+=2) {
-           if (gl_TexCoord[0].x >= wavingCoordinates[i] && gl_TexCoord[0].x < wavingCoordinates[i] + TEXTURE_OFFSET && gl_TexCoord[0].y >= wavingCoordinates[i+1] && gl_TexCoord[0].y < wavingCoordinates[i+1] + TEXTURE_OFFSET) {
+           if (gl_TexCoord[0].z < 1.5 && gl_TexCoord[0].x >= wavingCoordinates[i] && gl_TexCoord[0].x < wavingCoordinates[i] + TEXTURE_OFFSET && gl_TexCoord[0].y >= wavingCoordinates[i+1] && gl_TexCoord[0].y < wavingCoordinates[i+1] + TEXTURE_OFFSET) {
                if (gl_TexCoord[0].y < wavingCoordinates[i+1] + TEXTURE_OFFSET / 2.0) {
                    vertexWorldPos.x += (smoothTriangleWave(timeToTick(time, 0.2) + vertexChunkPos.x * 0.1 + vertexChunkPos.z * 0.1) * 2.0 - 1.0) * 0.1 * blockScale;
                    vertexWorldPos.y += (smoothTriangleWave(timeToTick(time, 0.1) + vertexChunkPos.x * 0.5 + vertexChunkPos.z * -0.5) * 2.0 - 1.0) * 0.05 * blockScale;
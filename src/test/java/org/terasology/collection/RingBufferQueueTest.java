@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class RingBufferQueueTest {
+
+    @Test
+    public void itemsComeOutInOrder() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(4);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(queue.offer(i));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Integer.valueOf(i), queue.poll());
+            }
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void fullQueueRefusesItems() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        assertEquals(2, queue.size());
+
+        queue.poll();
+        assertTrue(queue.offer(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBeAPowerOfTwo() {
+        new RingBufferQueue<Integer>(3);
+    }
+
+    @Test
+    public void producersWaitForTheConsumer() throws InterruptedException {
+        final int producerCount = 4;
+        final int itemsPerProducer = 10000;
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(16);
+        List<Thread> producers = Lists.newArrayList();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < itemsPerProducer; i++) {
+                        queue.put(producer * itemsPerProducer + i);
+                    }
+                }
+            };
+            producers.add(thread);
+            thread.start();
+        }
+
+        int[] lastSeen = new int[producerCount];
+        int received = 0;
+        while (received < producerCount * itemsPerProducer) {
+            Integer item = queue.poll();
+            if (item != null) {
+                int producer = item / itemsPerProducer;
+                int index = item % itemsPerProducer;
+                // Items of each producer arrive in the order they were added
+                assertEquals(lastSeen[producer], index);
+                lastSeen[producer] = index + 1;
+                received++;
+            }
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -3,14 +3,18 @@ package org.terasology.entitySystem;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -190,6 +194,50 @@ public class PojoEntityManagerTest {
         verify(eventSystem).send(entity1, RemovedComponentEvent.newInstance());
     }
     
+    @Test
+    public void addComponentEventsSentTogetherAtEndOfBatch() {
+        EventSystem eventSystem = mock(EventSystem.class);
+        entityManager.setEventSystem(eventSystem);
+
+        entityManager.beginBatch();
+        EntityRef entity1 = entityManager.create(new StringComponent());
+        EntityRef entity2 = entityManager.create(new StringComponent());
+        verify(eventSystem, never()).send(entity1, AddComponentEvent.newInstance());
+        entityManager.endBatch();
+
+        verify(eventSystem).send(Lists.newArrayList(entity1, entity2), AddComponentEvent.newInstance());
+    }
+
+    @Test
+    public void entitiesDestroyedInBatchExistUntilEndOfBatch() {
+        EventSystem eventSystem = mock(EventSystem.class);
+        EntityRef entity1 = entityManager.create(new StringComponent());
+        EntityRef entity2 = entityManager.create(new StringComponent());
+        entityManager.setEventSystem(eventSystem);
+
+        entityManager.beginBatch();
+        entity1.destroy();
+        entityManager.destroy(Lists.newArrayList(entity2));
+        assertTrue(entity1.exists());
+        assertNotNull(entity2.getComponent(StringComponent.class));
+        entityManager.endBatch();
+
+        verify(eventSystem).send(Lists.newArrayList(entity1, entity2), RemovedComponentEvent.newInstance());
+        assertFalse(entity1.exists());
+        assertFalse(entity2.exists());
+        assertEquals(0, entityManager.getComponentCount(StringComponent.class));
+    }
+
+    @Test
+    public void deferredDestructionHappensWhenProcessed() {
+        EntityRef entity = entityManager.create(new StringComponent());
+        entityManager.destroyDeferred(entity);
+        assertTrue(entity.exists());
+
+        entityManager.processDeferredDestruction();
+        assertFalse(entity.exists());
+    }
+
     @Test
     public void iterateEntitiesFindsEntityWithSingleComponent() {
         EntityRef entity1 = entityManager.create();
@@ -253,4 +301,188 @@ public class PojoEntityManagerTest {
 
     }
 
+    @Test
+    public void queryFollowsComponentChanges() {
+        EntityQuery query = entityManager.getQuery(StringComponent.class, IntegerComponent.class);
+        EntityRef entity = entityManager.create(new StringComponent());
+        assertEquals(0, query.size());
+
+        entity.addComponent(new IntegerComponent());
+        assertEquals(Lists.newArrayList(entity), Lists.newArrayList(query));
+
+        entity.removeComponent(StringComponent.class);
+        assertEquals(Lists.newArrayList(), Lists.newArrayList(query));
+    }
+
+    @Test
+    public void queriesAreSharedBySignature() {
+        assertTrue(entityManager.getQuery(StringComponent.class, IntegerComponent.class) == entityManager.getQuery(IntegerComponent.class, StringComponent.class));
+    }
+
+    @Test
+    public void entitiesCanBeDestroyedWhileIteratingOverAQuery() {
+        for (int i = 0; i < 3; i++) {
+            entityManager.create(new StringComponent());
+        }
+        EntityQuery query = entityManager.getQuery(StringComponent.class);
+
+        int count = 0;
+        for (EntityRef entity : query) {
+            entity.destroy();
+            count++;
+        }
+        assertEquals(3, count);
+        assertEquals(0, query.size());
+    }
+
+    @Test
+    public void queriesCanBeIteratedOverWithinThemselves() {
+        entityManager.create(new StringComponent());
+        entityManager.create(new StringComponent());
+        EntityQuery query = entityManager.getQuery(StringComponent.class);
+
+        int count = 0;
+        for (EntityRef outer : query) {
+            for (EntityRef inner : query) {
+                count++;
+            }
+        }
+        assertEquals(4, count);
+    }
+
+    @Test
+    public void firstEntityOfAQueryIsFoundWithoutHoldingOnToItsIterator() {
+        EntityRef entity = entityManager.create(new StringComponent());
+        EntityQuery query = entityManager.getQuery(StringComponent.class);
+
+        assertEquals(entity, query.getFirst());
+        assertEquals(EntityRef.NULL, entityManager.getQuery(IntegerComponent.class).getFirst());
+        Iterator<EntityRef> iterator = query.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        assertSame(iterator, query.iterator());
+    }
+
+    @Test
+    public void componentIteratorIsReusedOnceFinished() {
+        EntityRef entity = entityManager.create(new StringComponent());
+        Iterable<Map.Entry<EntityRef, StringComponent>> components = entityManager.iterateComponents(StringComponent.class);
+
+        Iterator<Map.Entry<EntityRef, StringComponent>> iterator = components.iterator();
+        Iterator<Map.Entry<EntityRef, StringComponent>> nested = components.iterator();
+        assertNotSame(iterator, nested);
+        assertEquals(entity, nested.next().getKey());
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        assertSame(iterator, components.iterator());
+        assertSame(components, entityManager.iterateComponents(StringComponent.class));
+    }
+
+    @Test
+    public void copyOnWriteEntitiesCopyPrefabComponentsWhenRetrieved() {
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("test");
+        StringComponent prefabComp = prefab.setComponent(new StringComponent("Test"));
+        EntityRef entity = entityManager.createCopyOnWrite(prefab);
+
+        StringComponent comp = entity.getComponent(StringComponent.class);
+        assertNotSame(prefabComp, comp);
+        assertSame(comp, entity.getComponent(StringComponent.class));
+
+        comp.value = "Changed";
+        entity.saveComponent(comp);
+        assertEquals("Test", prefabComp.value);
+        assertEquals("Test", entityManager.createCopyOnWrite(prefab).getComponent(StringComponent.class).value);
+    }
+
+    @Test
+    public void copyOnWriteEntitiesCopyPrefabComponentsWhenIterated() {
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("test");
+        StringComponent prefabComp = prefab.setComponent(new StringComponent("Test"));
+        EntityRef entity = entityManager.createCopyOnWrite(prefab);
+        for (Component comp : entity.iterateComponents()) {
+            assertNotSame(prefabComp, comp);
+        }
+
+        entityManager.createCopyOnWrite(prefab);
+        for (Map.Entry<EntityRef, StringComponent> item : entityManager.iterateComponents(StringComponent.class)) {
+            assertNotSame(prefabComp, item.getValue());
+        }
+    }
+
+    @Test
+    public void copyOnWriteEntitiesReadAtTheSameTimeGetTheSameCopy() throws Exception {
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("test");
+        prefab.setComponent(new StringComponent("Test"));
+        final EntityRef[] entities = new EntityRef[10000];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = entityManager.createCopyOnWrite(prefab);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final StringComponent[][] read = new StringComponent[2][entities.length];
+        Thread[] readers = new Thread[read.length];
+        for (int r = 0; r < readers.length; r++) {
+            final StringComponent[] target = read[r];
+            readers[r] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < entities.length; i++) {
+                        target[i] = entities[i].getComponent(StringComponent.class);
+                    }
+                }
+            };
+            readers[r].start();
+        }
+        start.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        for (int i = 0; i < entities.length; i++) {
+            assertSame(read[0][i], read[1][i]);
+            assertSame(read[0][i], entities[i].getComponent(StringComponent.class));
+        }
+    }
+
+    @Test
+    public void destroyedEntitySlotIsReusedWithNewId() {
+        EntityRef destroyed = entityManager.create(new StringComponent());
+        int destroyedId = destroyed.getId();
+        destroyed.destroy();
+
+        EntityRef entity = entityManager.create(new StringComponent());
+        assertTrue(entity.getId() != destroyedId);
+        assertTrue(entity.exists());
+        assertFalse(entityManager.createEntityRefWithId(destroyedId).exists());
+        assertEquals(1, entityManager.getComponentCount(StringComponent.class));
+    }
+
+    @Test
+    public void entityRefsAreShared() {
+        EntityRef entity = entityManager.create();
+        assertSame(entity, entityManager.createEntityRefWithId(entity.getId()));
+    }
+
+    @Test
+    public void loadedFreedIdsKeepTheOldIdsOfTheirSlotsInvalid() {
+        EntityRef entity = entityManager.create();
+        int destroyedId = entity.getId();
+        int otherId = entityManager.create().getId();
+        entity.destroy();
+        int freedId = entityManager.getFreedIds().get(0);
+        entityManager.clear();
+
+        entityManager.setNextId(otherId + 1);
+        entityManager.addFreedId(freedId);
+        assertFalse(entityManager.createEntityRefWithId(destroyedId).exists());
+        assertTrue(entityManager.createEntityRefWithId(otherId).exists());
+        assertEquals(freedId, entityManager.create().getId());
+    }
 }
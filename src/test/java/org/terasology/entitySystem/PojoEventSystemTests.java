@@ -11,6 +11,7 @@ import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
 import org.terasology.entitySystem.pojo.PojoEntityManager;
 import org.terasology.entitySystem.pojo.PojoEventSystem;
 import org.terasology.entitySystem.pojo.PojoPrefabManager;
+import org.terasology.entitySystem.stubs.EntityRefComponent;
 import org.terasology.entitySystem.stubs.IntegerComponent;
 import org.terasology.entitySystem.stubs.StringComponent;
 
@@ -146,6 +147,24 @@ public class PojoEventSystemTests {
         assertEquals(1, handler.receivedList.size());
     }
     
+    @Test
+    public void testSendEventToEntities() {
+        entity.addComponent(new StringComponent());
+        EntityRef other = entityManager.create(new StringComponent(), new IntegerComponent());
+        EntityRef unhandled = entityManager.create(new EntityRefComponent());
+
+        TestCompoundComponentEventHandler handler = new TestCompoundComponentEventHandler();
+        TestHighPriorityEventHandler handlerHigh = new TestHighPriorityEventHandler();
+        eventSystem.registerEventHandler(handler);
+        eventSystem.registerEventHandler(handlerHigh);
+
+        TestEvent event = new TestEvent();
+        eventSystem.send(Lists.newArrayList(entity, other, unhandled), event);
+        assertEquals(3, handlerHigh.receivedList.size());
+        assertEquals(1, handler.receivedList.size());
+        assertEquals(other, handler.receivedList.get(0).entity);
+    }
+
     private static class TestEvent extends AbstractEvent {
         
     }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Test;
+import org.terasology.entitySystem.stubs.GetterSetterComponent;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+
+public class AccessorGeneratorTest {
+
+    private final AccessorGenerator generator = new AccessorGenerator();
+
+    @Test
+    public void primitiveFieldsAreBoxed() throws Exception {
+        Field field = IntegerComponent.class.getDeclaredField("value");
+        FieldAccessor accessor = generator.createFieldAccessor(IntegerComponent.class, field, null, null);
+        assertFalse(accessor instanceof ReflectedFieldAccessor);
+
+        IntegerComponent component = new IntegerComponent(3);
+        assertEquals(3, accessor.getValue(component));
+        accessor.setValue(component, 5);
+        assertEquals(5, component.value);
+
+        IntegerComponent target = new IntegerComponent(0);
+        accessor.copyValue(component, target);
+        assertEquals(5, target.value);
+    }
+
+    @Test
+    public void gettersAndSettersAreUsed() throws Exception {
+        Field field = GetterSetterComponent.class.getDeclaredField("value");
+        FieldAccessor accessor = generator.createFieldAccessor(GetterSetterComponent.class, field,
+                GetterSetterComponent.class.getMethod("getValue"), GetterSetterComponent.class.getMethod("setValue", Vector3f.class));
+        assertFalse(accessor instanceof ReflectedFieldAccessor);
+
+        GetterSetterComponent component = new GetterSetterComponent();
+        accessor.setValue(component, new Vector3f(1, 2, 3));
+        assertEquals(new Vector3f(1, 2, 3), accessor.getValue(component));
+        assertTrue(component.setterUsed);
+        assertTrue(component.getterUsed);
+    }
+
+    @Test
+    public void privateFieldsWithoutAccessorsUseReflection() throws Exception {
+        Field field = GetterSetterComponent.class.getDeclaredField("value");
+        field.setAccessible(true);
+        FieldAccessor accessor = generator.createFieldAccessor(GetterSetterComponent.class, field, null, null);
+        assertTrue(accessor instanceof ReflectedFieldAccessor);
+
+        GetterSetterComponent component = new GetterSetterComponent();
+        accessor.setValue(component, new Vector3f(1, 2, 3));
+        assertEquals(new Vector3f(1, 2, 3), accessor.getValue(component));
+        assertFalse(component.setterUsed);
+    }
+
+    @Test
+    public void instantiatorCreatesNewInstances() throws Exception {
+        Instantiator<IntegerComponent> instantiator = generator.createInstantiator(IntegerComponent.class);
+        assertFalse(instantiator instanceof ReflectedInstantiator);
+        assertNotSame(instantiator.newInstance(), instantiator.newInstance());
+    }
+
+    @Test
+    public void componentsAreCopiedThroughGeneratedAccessors() {
+        ComponentLibrary library = new ComponentLibraryImpl();
+        library.registerComponentClass(IntegerComponent.class);
+
+        IntegerComponent copy = library.copy(new IntegerComponent(7));
+        assertEquals(7, copy.value);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+import org.terasology.entitySystem.stubs.StringComponent;
+
+import com.google.common.collect.Lists;
+
+public class ComponentTableTest {
+
+    private final ComponentTable table = new ComponentTable();
+
+    @Test
+    public void componentsMoveAlongWhenAddingAType() {
+        StringComponent string = new StringComponent("a");
+        IntegerComponent integer = new IntegerComponent(1);
+        table.put(1, string);
+        table.put(1, integer);
+
+        assertSame(string, table.get(1, StringComponent.class));
+        assertSame(integer, table.get(1, IntegerComponent.class));
+        assertEquals(1, table.getComponentCount(StringComponent.class));
+    }
+
+    @Test
+    public void replacingAComponentReturnsTheOldOne() {
+        StringComponent first = new StringComponent("a");
+        table.put(1, first);
+
+        assertSame(first, table.put(1, new StringComponent("b")));
+        assertEquals("b", table.get(1, StringComponent.class).value);
+    }
+
+    @Test
+    public void removingAnEntityKeepsTheOthersIntact() {
+        for (int id = 1; id <= 3; id++) {
+            table.put(id, new IntegerComponent(id));
+        }
+        table.remove(1);
+
+        assertNull(table.get(1, IntegerComponent.class));
+        assertEquals(2, table.get(2, IntegerComponent.class).value);
+        assertEquals(3, table.get(3, IntegerComponent.class).value);
+        assertEquals(2, table.getComponentCount(IntegerComponent.class));
+    }
+
+    @Test
+    public void removingAComponentKeepsTheOthers() {
+        table.put(1, new StringComponent("a"));
+        table.put(1, new IntegerComponent(1));
+        table.put(2, new IntegerComponent(2));
+
+        assertEquals(1, ((IntegerComponent) table.remove(1, IntegerComponent.class)).value);
+        assertNull(table.get(1, IntegerComponent.class));
+        assertEquals("a", table.get(1, StringComponent.class).value);
+        assertEquals(2, table.get(2, IntegerComponent.class).value);
+    }
+
+    @Test
+    public void entitiesWithoutComponentsAreDropped() {
+        table.put(1, new StringComponent("a"));
+        table.remove(1, StringComponent.class);
+
+        assertFalse(table.entityIdIterator().hasNext());
+        assertFalse(table.iterateComponents(1).iterator().hasNext());
+    }
+
+    @Test
+    public void archetypesWithAllTypesAreFound() {
+        table.put(1, new StringComponent("a"));
+        table.put(2, new StringComponent("b"));
+        table.put(2, new IntegerComponent(2));
+        table.put(3, new IntegerComponent(3));
+
+        List<Integer> entities = Lists.newArrayList();
+        for (Archetype archetype : table.archetypesWith(StringComponent.class, IntegerComponent.class)) {
+            for (int row = 0; row < archetype.size(); row++) {
+                entities.add(archetype.getEntity(row));
+            }
+        }
+        assertEquals(Lists.newArrayList(2), entities);
+        assertEquals(2, table.archetypesWith(StringComponent.class).size());
+    }
+
+    @Test
+    public void manyEntitiesGrowTheArchetype() {
+        for (int id = 1; id <= 100; id++) {
+            table.put(id, new IntegerComponent(id));
+        }
+        for (int id = 1; id <= 100; id += 2) {
+            table.remove(id);
+        }
+
+        for (int id = 2; id <= 100; id += 2) {
+            assertEquals(id, table.get(id, IntegerComponent.class).value);
+        }
+        assertEquals(50, table.getComponentCount(IntegerComponent.class));
+    }
+
+    @Test
+    public void staleIdsDoNotSeeTheNextEntityInTheirSlot() {
+        table.put(1, new IntegerComponent(1));
+        table.remove(1);
+        int nextId = EntityIds.nextGeneration(1);
+        table.put(nextId, new IntegerComponent(2));
+
+        assertNull(table.get(1, IntegerComponent.class));
+        assertEquals(2, table.get(nextId, IntegerComponent.class).value);
+        table.remove(1);
+        assertEquals(1, table.getComponentCount(IntegerComponent.class));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Event;
+import org.terasology.entitySystem.EventReceiver;
+
+public class EventReceiverGeneratorTest {
+
+    private final EventReceiverGenerator generator = new EventReceiverGenerator();
+
+    @Test
+    public void generatedReceiverCallsTheMethod() throws Exception {
+        Handler handler = new Handler();
+        EventReceiver<Event> receiver = generator.generate(handler, Handler.class.getMethod("onPublicEvent", PublicEvent.class, EntityRef.class));
+        assertNotNull(receiver);
+
+        PublicEvent event = new PublicEvent();
+        receiver.onEvent(event, EntityRef.NULL);
+        assertSame(event, handler.received);
+        assertEquals(EntityRef.NULL, handler.entity);
+    }
+
+    @Test
+    public void methodsTakingInaccessibleEventsAreNotGenerated() throws Exception {
+        Method method = Handler.class.getMethod("onPrivateEvent", PrivateEvent.class, EntityRef.class);
+        assertNull(generator.generate(new Handler(), method));
+    }
+
+    public static class PublicEvent extends AbstractEvent {
+    }
+
+    private static class PrivateEvent extends AbstractEvent {
+    }
+
+    public static class Handler {
+        private Event received;
+        private EntityRef entity;
+
+        public void onPublicEvent(PublicEvent event, EntityRef entity) {
+            this.received = event;
+            this.entity = entity;
+        }
+
+        public void onPrivateEvent(PrivateEvent event, EntityRef entity) {
+            this.received = event;
+        }
+    }
+}
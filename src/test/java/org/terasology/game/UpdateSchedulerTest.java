@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.ComponentAccess;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventReceiver;
+import org.terasology.entitySystem.EventSystem;
+import org.terasology.entitySystem.event.ChangedComponentEvent;
+import org.terasology.entitySystem.metadata.ComponentLibrary;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.pojo.PojoEventSystem;
+import org.terasology.entitySystem.pojo.PojoPrefabManager;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+import org.terasology.entitySystem.stubs.StringComponent;
+
+import com.google.common.collect.Lists;
+
+public class UpdateSchedulerTest {
+
+    private final UpdateScheduler scheduler = new UpdateScheduler(mock(EventSystem.class), 2);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void nonConflictingSystemsShareAStage() {
+        StringWriter stringWriter = new StringWriter();
+        IntegerWriter integerWriter = new IntegerWriter();
+        scheduler.add(stringWriter);
+        scheduler.add(integerWriter);
+
+        assertEquals(stages(Lists.<UpdateSubscriberSystem>newArrayList(stringWriter, integerWriter)), scheduler.getStages());
+    }
+
+    @Test
+    public void conflictingSystemsKeepTheirOrder() {
+        StringWriter stringWriter = new StringWriter();
+        StringReader firstReader = new StringReader();
+        IntegerWriter integerWriter = new IntegerWriter();
+        StringReader secondReader = new StringReader();
+        scheduler.add(stringWriter);
+        scheduler.add(firstReader);
+        scheduler.add(integerWriter);
+        scheduler.add(secondReader);
+
+        assertEquals(stages(Lists.<UpdateSubscriberSystem>newArrayList(stringWriter, integerWriter), Lists.<UpdateSubscriberSystem>newArrayList(firstReader, secondReader)), scheduler.getStages());
+    }
+
+    @Test
+    public void undeclaredSystemsAreUpdatedAlone() {
+        StringWriter stringWriter = new StringWriter();
+        UndeclaredSystem undeclared = new UndeclaredSystem();
+        IntegerWriter integerWriter = new IntegerWriter();
+        scheduler.add(stringWriter);
+        scheduler.add(undeclared);
+        scheduler.add(integerWriter);
+
+        assertEquals(stages(Lists.<UpdateSubscriberSystem>newArrayList(stringWriter), Lists.<UpdateSubscriberSystem>newArrayList(undeclared), Lists.<UpdateSubscriberSystem>newArrayList(integerWriter)), scheduler.getStages());
+    }
+
+    @Test(timeout = 5000)
+    public void systemsOfAStageAreUpdatedConcurrently() {
+        // Each system waits for the other, so both have to run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        StringWriter stringWriter = new StringWriter(latch);
+        IntegerWriter integerWriter = new IntegerWriter(latch);
+        scheduler.add(stringWriter);
+        scheduler.add(integerWriter);
+
+        scheduler.update(1);
+        assertEquals(1, stringWriter.updates);
+        assertEquals(1, integerWriter.updates);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failuresArePassedOnAfterTheStage() {
+        StringWriter stringWriter = new StringWriter();
+        stringWriter.failure = new IllegalStateException();
+        scheduler.add(stringWriter);
+        scheduler.add(new IntegerWriter());
+
+        scheduler.update(1);
+    }
+
+    @Test(timeout = 10000)
+    public void workersDoNotWaitForTheMainThreadToSendTheirEvents() {
+        // Created here, as the test runs on its own thread because of the timeout
+        ComponentLibrary library = new ComponentLibraryImpl();
+        PojoEntityManager entityManager = new PojoEntityManager(library, new PojoPrefabManager(library));
+        PojoEventSystem eventSystem = new PojoEventSystem(entityManager);
+        entityManager.setEventSystem(eventSystem);
+        final List<EntityRef> changed = Lists.newArrayList();
+        EventReceiver<ChangedComponentEvent> receiver = new EventReceiver<ChangedComponentEvent>() {
+            @Override
+            public void onEvent(ChangedComponentEvent event, EntityRef entity) {
+                changed.add(entity);
+            }
+        };
+        eventSystem.registerEventReceiver(receiver, ChangedComponentEvent.class, StringComponent.class);
+        eventSystem.registerEventReceiver(receiver, ChangedComponentEvent.class, IntegerComponent.class);
+
+        // Together the systems save more often than there is room for pending events
+        StringWriter stringWriter = new StringWriter();
+        stringWriter.save(entityManager.create(new StringComponent()), StringComponent.class, 3000);
+        IntegerWriter integerWriter = new IntegerWriter();
+        integerWriter.save(entityManager.create(new IntegerComponent()), IntegerComponent.class, 3000);
+        UpdateScheduler eventScheduler = new UpdateScheduler(eventSystem, 2);
+        eventScheduler.add(stringWriter);
+        eventScheduler.add(integerWriter);
+        try {
+            eventScheduler.update(1);
+        } finally {
+            eventScheduler.shutdown();
+        }
+
+        assertEquals(0, changed.size());
+        eventSystem.process();
+        assertEquals(6000, changed.size());
+    }
+
+    private static List<List<UpdateSubscriberSystem>> stages(List<UpdateSubscriberSystem>... stages) {
+        return Lists.newArrayList(stages);
+    }
+
+    private abstract static class TestSystem implements UpdateSubscriberSystem {
+        private CountDownLatch latch;
+        private EntityRef savedEntity;
+        private Class<? extends Component> savedType;
+        private int saves;
+        RuntimeException failure;
+        int updates;
+
+        TestSystem(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void update(float delta) {
+            updates++;
+            if (failure != null) {
+                throw failure;
+            }
+            for (int i = 0; i < saves; i++) {
+                savedEntity.saveComponent(savedEntity.getComponent(savedType));
+            }
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    latch.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertEquals(0, latch.getCount());
+            }
+        }
+
+        void save(EntityRef entity, Class<? extends Component> type, int times) {
+            this.savedEntity = entity;
+            this.savedType = type;
+            this.saves = times;
+        }
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    @ComponentAccess(writes = StringComponent.class)
+    private static class StringWriter extends TestSystem {
+        StringWriter() {
+            this(null);
+        }
+
+        StringWriter(CountDownLatch latch) {
+            super(latch);
+        }
+    }
+
+    @ComponentAccess(reads = StringComponent.class)
+    private static class StringReader extends TestSystem {
+        StringReader() {
+            super(null);
+        }
+    }
+
+    @ComponentAccess(writes = IntegerComponent.class)
+    private static class IntegerWriter extends TestSystem {
+        IntegerWriter() {
+            this(null);
+        }
+
+        IntegerWriter(CountDownLatch latch) {
+            super(latch);
+        }
+    }
+
+    private static class UndeclaredSystem extends TestSystem {
+        UndeclaredSystem() {
+            super(null);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Test;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.utilities.FastRandom;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class SpatialIndexTest {
+
+    private final SpatialIndex index = new SpatialIndex(4);
+    private int nextId = 1;
+
+    private EntityRef entityAt(float x, float y, float z) {
+        EntityRef entity = mock(EntityRef.class);
+        when(entity.getId()).thenReturn(nextId++);
+        index.update(entity, new Vector3f(x, y, z));
+        return entity;
+    }
+
+    @Test
+    public void boxContainsTheEntitiesInside() {
+        EntityRef inside = entityAt(1, 1, 1);
+        EntityRef negative = entityAt(-3, -1, -2);
+        entityAt(9, 1, 1);
+
+        Set<EntityRef> found = Sets.newHashSet();
+        assertEquals(2, index.getEntitiesInBox(new Vector3f(-5, -5, -5), new Vector3f(5, 5, 5), found));
+        assertEquals(Sets.newHashSet(inside, negative), found);
+    }
+
+    @Test
+    public void radiusExcludesTheCornersOfItsBox() {
+        EntityRef near = entityAt(2, 0, 0);
+        entityAt(2.5f, 2.5f, 2.5f);
+
+        List<EntityRef> found = Lists.newArrayList();
+        index.getEntitiesInRadius(new Vector3f(), 3, found);
+        assertEquals(Lists.newArrayList(near), found);
+    }
+
+    @Test
+    public void nearestAreSortedByDistance() {
+        EntityRef second = entityAt(5, 0, 0);
+        EntityRef first = entityAt(0, 0, 1);
+        entityAt(20, 0, 0);
+        EntityRef third = entityAt(-7, 7, 0);
+
+        EntityRef[] nearest = new EntityRef[3];
+        assertEquals(3, index.getNearest(new Vector3f(), 100, nearest));
+        assertSame(first, nearest[0]);
+        assertSame(second, nearest[1]);
+        assertSame(third, nearest[2]);
+    }
+
+    @Test
+    public void nearestStopAtTheMaximumDistance() {
+        EntityRef near = entityAt(1, 0, 0);
+        entityAt(10, 0, 0);
+
+        EntityRef[] nearest = new EntityRef[2];
+        assertEquals(1, index.getNearest(new Vector3f(), 5, nearest));
+        assertSame(near, nearest[0]);
+    }
+
+    @Test
+    public void rayHitsTheFirstEntity() {
+        entityAt(20, 0.5f, 0);
+        EntityRef first = entityAt(10, -0.5f, 0);
+        entityAt(5, 3, 0);
+
+        assertSame(first, index.getFirstAlongRay(new Vector3f(), new Vector3f(2, 0, 0), 30, 1));
+        assertSame(EntityRef.NULL, index.getFirstAlongRay(new Vector3f(), new Vector3f(-1, 0, 0), 30, 1));
+        assertSame(EntityRef.NULL, index.getFirstAlongRay(new Vector3f(), new Vector3f(1, 0, 0), 8, 1));
+    }
+
+    @Test
+    public void rayIgnoresEntitiesContainingItsOrigin() {
+        entityAt(0, 0, 0);
+        EntityRef target = entityAt(0, 0, -6);
+
+        assertSame(target, index.getFirstAlongRay(new Vector3f(), new Vector3f(0, 0, -1), 10, 1));
+    }
+
+    @Test
+    public void movedEntitiesAreFoundAtTheirNewPosition() {
+        EntityRef entity = entityAt(1, 1, 1);
+        index.update(entity, new Vector3f(50, 50, 50));
+
+        List<EntityRef> found = Lists.newArrayList();
+        index.getEntitiesInRadius(new Vector3f(1, 1, 1), 2, found);
+        assertFalse(found.contains(entity));
+        index.getEntitiesInRadius(new Vector3f(50, 50, 50), 2, found);
+        assertEquals(Lists.newArrayList(entity), found);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void removingAnEntityKeepsTheOthers() {
+        EntityRef first = entityAt(1, 1, 1);
+        EntityRef second = entityAt(1, 2, 1);
+        EntityRef third = entityAt(30, 1, 1);
+        index.remove(first);
+
+        Set<EntityRef> found = Sets.newHashSet();
+        index.getEntitiesInBox(new Vector3f(-50, -50, -50), new Vector3f(50, 50, 50), found);
+        assertEquals(Sets.newHashSet(second, third), found);
+        assertFalse(index.contains(first));
+    }
+
+    @Test
+    public void queriesMatchCheckingEveryEntity() {
+        FastRandom random = new FastRandom(42);
+        List<EntityRef> entities = Lists.newArrayList();
+        List<Vector3f> positions = Lists.newArrayList();
+        for (int i = 0; i < 500; i++) {
+            Vector3f position = new Vector3f(random.randomFloat() * 50, random.randomFloat() * 20, random.randomFloat() * 50);
+            entities.add(entityAt(position.x, position.y, position.z));
+            positions.add(position);
+        }
+        for (int i = 0; i < 200; i++) {
+            index.remove(entities.get(i));
+        }
+
+        Vector3f center = new Vector3f(3, 2, -7);
+        Set<EntityRef> expected = Sets.newHashSet();
+        EntityRef nearest = null;
+        float nearestDistance = Float.MAX_VALUE;
+        for (int i = 200; i < entities.size(); i++) {
+            Vector3f offset = new Vector3f(positions.get(i));
+            offset.sub(center);
+            if (offset.length() <= 12) {
+                expected.add(entities.get(i));
+            }
+            if (offset.length() < nearestDistance) {
+                nearestDistance = offset.length();
+                nearest = entities.get(i);
+            }
+        }
+
+        Set<EntityRef> found = Sets.newHashSet();
+        index.getEntitiesInRadius(center, 12, found);
+        assertEquals(expected, found);
+        EntityRef[] output = new EntityRef[1];
+        index.getNearest(center, 100, output);
+        assertSame(nearest, output[0]);
+        assertEquals(300, index.size());
+    }
+}
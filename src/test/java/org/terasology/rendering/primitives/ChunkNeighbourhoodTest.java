@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+public class ChunkNeighbourhoodTest {
+
+    private Block airBlock;
+    private Block solidBlock;
+    private WorldView worldView;
+    private ChunkNeighbourhood neighbourhood;
+    private float[] lighting;
+
+    @Before
+    public void setup() {
+        airBlock = BlockManager.getInstance().getBlock((byte) 0);
+        solidBlock = new Block();
+        solidBlock.setDisplayName("Stone");
+        solidBlock.setUri(new BlockUri("engine:stone"));
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(solidBlock.getURI(), solidBlock));
+        solidBlock = BlockManager.getInstance().getBlock(solidBlock.getURI());
+
+        Chunk[] chunks = new Chunk[9];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk(new Vector3i(i % 3 - 1, 0, i / 3 - 1));
+        }
+        worldView = new WorldView(chunks, Region3i.createFromCenterExtents(Vector3i.zero(), new Vector3i(1, 0, 1)), Vector3i.one());
+        neighbourhood = new ChunkNeighbourhood();
+        lighting = new float[3];
+    }
+
+    private void snapshot() {
+        neighbourhood.snapshot(worldView, -1, 9, -1, Chunk.SIZE_X + 2, 12, Chunk.SIZE_Z + 2);
+    }
+
+    @Test
+    public void snapshotIncludesNeighbouringChunks() {
+        worldView.setBlock(-1, 10, 5, solidBlock, airBlock);
+        worldView.setSunlight(-1, 10, 5, (byte) 7);
+        worldView.setLight(Chunk.SIZE_X, 10, 5, (byte) 3);
+        snapshot();
+
+        assertEquals(solidBlock, neighbourhood.getBlock(-1, 10, 5));
+        assertEquals(airBlock, neighbourhood.getBlock(0, 10, 5));
+        assertEquals(7, neighbourhood.getSunlight(-1, 10, 5));
+        assertEquals(3, neighbourhood.getLight(Chunk.SIZE_X, 10, 5));
+    }
+
+    @Test
+    public void lookupsOutsideTheSnapshotUseTheView() {
+        snapshot();
+        worldView.setBlock(5, 30, 5, solidBlock, airBlock);
+
+        assertEquals(solidBlock, neighbourhood.getBlock(5, 30, 5));
+        assertEquals(airBlock, neighbourhood.getBlock(5, 10, 5));
+    }
+
+    @Test
+    public void cornerLighting() {
+        for (int x = 4; x < 6; x++) {
+            for (int z = 4; z < 6; z++) {
+                worldView.setSunlight(x, 11, z, (byte) 15);
+                worldView.setLight(x, 10, z, (byte) 6);
+            }
+        }
+        worldView.setSunlight(4, 11, 4, (byte) 3);
+        worldView.setLight(5, 10, 5, (byte) 0);
+        worldView.setBlock(4, 11, 4, solidBlock, airBlock);
+        snapshot();
+
+        // The upper corner of block (4, 10, 4), dark samples do not count towards the average
+        neighbourhood.calcVertexLighting(4.5f, 10.5f, 4.5f, lighting);
+        assertEquals(0.8f, lighting[0], 0.0001f);
+        assertEquals(0.4f, lighting[1], 0.0001f);
+        assertEquals((0.6f + 1.0f) / 2.0f, lighting[2], 0.0001f);
+    }
+
+    @Test
+    public void cachedCornersAreInvalidatedBySnapshots() {
+        snapshot();
+        neighbourhood.calcVertexLighting(4.5f, 10.5f, 4.5f, lighting);
+        assertEquals(1.0f, lighting[2], 0.0001f);
+
+        worldView.setBlock(5, 11, 5, solidBlock, airBlock);
+        neighbourhood.calcVertexLighting(4.5f, 10.5f, 4.5f, lighting);
+        assertEquals(1.0f, lighting[2], 0.0001f);
+
+        snapshot();
+        neighbourhood.calcVertexLighting(4.5f, 10.5f, 4.5f, lighting);
+        assertEquals((0.6f + 1.0f) / 2.0f, lighting[2], 0.0001f);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.terasology.world.block.Block;
+import org.terasology.world.chunks.Chunk;
+
+public class ChunkVertexFormatTest {
+
+    private ByteBuffer packVertex() {
+        ByteBuffer buffer = ByteBuffer.allocate(ChunkVertexFormat.STRIDE).order(ByteOrder.nativeOrder());
+        ChunkVertexFormat.putPosition(buffer, 15.5f, Chunk.SIZE_Y - 0.5f, -0.5f);
+        ChunkVertexFormat.putTexCoord(buffer, 3 * Block.TEXTURE_OFFSET, 5 * Block.TEXTURE_OFFSET + Block.TEXTURE_OFFSET_WIDTH, 1.0f);
+        ChunkVertexFormat.putColor(buffer, 1.0f, 0.5f, 0.0f, 1.0f);
+        ChunkVertexFormat.putLight(buffer, 1.0f, 0.0f, 0.6f);
+        ChunkVertexFormat.putNormal(buffer, 0.0f, -1.0f, 0.0f);
+        return buffer;
+    }
+
+    @Test
+    public void vertexFillsStride() {
+        assertEquals(ChunkVertexFormat.STRIDE, packVertex().position());
+    }
+
+    @Test
+    public void positionIsScaled() {
+        ByteBuffer buffer = packVertex();
+        float scale = ChunkVertexFormat.POSITION_SCALE;
+        assertEquals(15.5f, buffer.getShort(ChunkVertexFormat.OFFSET_POSITION) / scale, 0.0f);
+        assertEquals(Chunk.SIZE_Y - 0.5f, buffer.getShort(ChunkVertexFormat.OFFSET_POSITION + 2) / scale, 0.0f);
+        assertEquals(-0.5f, buffer.getShort(ChunkVertexFormat.OFFSET_POSITION + 4) / scale, 0.0f);
+    }
+
+    @Test
+    public void texCoordsStayWithinTheirTile() {
+        ByteBuffer buffer = packVertex();
+        float scale = ChunkVertexFormat.TEX_COORD_SCALE;
+        float halfStep = 0.5f / scale;
+        assertEquals(3 * Block.TEXTURE_OFFSET, buffer.getShort(ChunkVertexFormat.OFFSET_TEX_COORD) / scale, halfStep);
+        float v = buffer.getShort(ChunkVertexFormat.OFFSET_TEX_COORD + 2) / scale;
+        assertEquals(5 * Block.TEXTURE_OFFSET + Block.TEXTURE_OFFSET_WIDTH, v, halfStep);
+        assertEquals(true, v < 6 * Block.TEXTURE_OFFSET);
+        assertEquals(1, buffer.getShort(ChunkVertexFormat.OFFSET_TEX_COORD + 4));
+    }
+
+    @Test
+    public void colorAndLightAreNormalizedBytes() {
+        ByteBuffer buffer = packVertex();
+        assertEquals(255, buffer.get(ChunkVertexFormat.OFFSET_COLOR) & 0xFF);
+        assertEquals(128, buffer.get(ChunkVertexFormat.OFFSET_COLOR + 1) & 0xFF);
+        assertEquals(0, buffer.get(ChunkVertexFormat.OFFSET_COLOR + 2) & 0xFF);
+        assertEquals(255, buffer.get(ChunkVertexFormat.OFFSET_COLOR + 3) & 0xFF);
+
+        assertEquals(255, buffer.get(ChunkVertexFormat.OFFSET_LIGHT) & 0xFF);
+        assertEquals(0, buffer.get(ChunkVertexFormat.OFFSET_LIGHT + 1) & 0xFF);
+        assertEquals(153, buffer.get(ChunkVertexFormat.OFFSET_LIGHT + 2) & 0xFF);
+    }
+
+    @Test
+    public void normalIsSignedBytes() {
+        ByteBuffer buffer = packVertex();
+        assertEquals(0, buffer.get(ChunkVertexFormat.OFFSET_NORMAL));
+        assertEquals(-127, buffer.get(ChunkVertexFormat.OFFSET_NORMAL + 1));
+        assertEquals(0, buffer.get(ChunkVertexFormat.OFFSET_NORMAL + 2));
+    }
+
+    @Test
+    public void valuesAreClamped() {
+        assertEquals((byte) 255, ChunkVertexFormat.packUnsigned(1.5f));
+        assertEquals(0, ChunkVertexFormat.packUnsigned(-0.5f));
+        assertEquals(-127, ChunkVertexFormat.packSigned(-2.0f));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+public class ChunkVisibilityTest {
+
+    private static final int SIZE = 4;
+    private static final int MIN_Y = 10;
+
+    private Block airBlock;
+    private Block solidBlock;
+    private WorldView worldView;
+    private ChunkNeighbourhood neighbourhood;
+    private ChunkVisibility visibility;
+
+    @Before
+    public void setup() {
+        airBlock = BlockManager.getInstance().getBlock((byte) 0);
+        solidBlock = new Block();
+        solidBlock.setDisplayName("Stone");
+        solidBlock.setUri(new BlockUri("engine:stone"));
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(solidBlock.getURI(), solidBlock));
+        solidBlock = BlockManager.getInstance().getBlock(solidBlock.getURI());
+        // The block may have been registered by another test, so it is made opaque here and reset afterwards
+        setFullSides(true);
+
+        Chunk[] chunks = new Chunk[9];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk(new Vector3i(i % 3 - 1, 0, i / 3 - 1));
+        }
+        worldView = new WorldView(chunks, Region3i.createFromCenterExtents(Vector3i.zero(), new Vector3i(1, 0, 1)), Vector3i.one());
+        neighbourhood = new ChunkNeighbourhood();
+        visibility = new ChunkVisibility();
+    }
+
+    @After
+    public void tearDown() {
+        setFullSides(false);
+        solidBlock.setTranslucent(false);
+    }
+
+    private void setFullSides(boolean full) {
+        for (Side side : Side.values()) {
+            solidBlock.setFullSide(side, full);
+        }
+    }
+
+    private int calculate() {
+        neighbourhood.snapshot(worldView, -1, MIN_Y - 1, -1, SIZE + 2, SIZE + 2, SIZE + 2);
+        return visibility.calculate(neighbourhood, SIZE, SIZE, MIN_Y, SIZE);
+    }
+
+    private void fill(int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    worldView.setBlock(x, y, z, solidBlock, airBlock);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptySegmentConnectsAllFaces() {
+        assertEquals(ChunkVisibility.ALL, calculate());
+    }
+
+    @Test
+    public void solidSegmentConnectsNoFaces() {
+        fill(0, SIZE - 1, MIN_Y, MIN_Y + SIZE - 1, 0, SIZE - 1);
+
+        assertEquals(ChunkVisibility.NONE, calculate());
+    }
+
+    @Test
+    public void wallSeparatesOppositeFaces() {
+        fill(1, 1, MIN_Y, MIN_Y + SIZE - 1, 0, SIZE - 1);
+        int result = calculate();
+
+        assertFalse(ChunkVisibility.connects(result, Side.LEFT, Side.RIGHT));
+        assertTrue(ChunkVisibility.connects(result, Side.FRONT, Side.BACK));
+        assertTrue(ChunkVisibility.connects(result, Side.TOP, Side.BOTTOM));
+        assertTrue(ChunkVisibility.connects(result, Side.RIGHT, Side.TOP));
+        assertTrue(ChunkVisibility.connects(result, Side.LEFT, Side.BOTTOM));
+    }
+
+    @Test
+    public void tunnelConnectsItsEnds() {
+        fill(0, SIZE - 1, MIN_Y, MIN_Y + SIZE - 1, 0, SIZE - 1);
+        for (int x = 0; x < SIZE; x++) {
+            worldView.setBlock(x, MIN_Y + 1, 2, airBlock, solidBlock);
+        }
+        int result = calculate();
+
+        assertTrue(ChunkVisibility.connects(result, Side.LEFT, Side.RIGHT));
+        assertTrue(ChunkVisibility.connects(result, Side.RIGHT, Side.LEFT));
+        assertFalse(ChunkVisibility.connects(result, Side.LEFT, Side.TOP));
+        assertFalse(ChunkVisibility.connects(result, Side.FRONT, Side.BACK));
+    }
+
+    @Test
+    public void nonOpaqueBlocksDoNotBlockSight() {
+        solidBlock.setTranslucent(true);
+        fill(1, 1, MIN_Y, MIN_Y + SIZE - 1, 0, SIZE - 1);
+
+        assertEquals(ChunkVisibility.ALL, calculate());
+    }
+}
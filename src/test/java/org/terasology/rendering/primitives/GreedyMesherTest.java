@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import javax.vecmath.Vector2f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Side;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.shapes.BlockMeshPart;
+
+public class GreedyMesherTest {
+
+    private static final float[] LIGHT = {1.0f, 0.0f, 0.5f};
+    private static final Vector4f COLOR = new Vector4f(1, 1, 1, 1);
+
+    private GreedyMesher mesher;
+    private ChunkMesh mesh;
+    private Block block;
+    private BlockMeshPart top;
+
+    @Before
+    public void setup() {
+        mesher = new GreedyMesher();
+        mesher.reset(16, 16, 16, 32);
+        mesh = new ChunkMesh();
+        block = new Block();
+        top = createTopPart(0.5f);
+    }
+
+    private BlockMeshPart createTopPart(float extent) {
+        Vector3f[] vertices = {new Vector3f(-extent, 0.5f, -extent), new Vector3f(extent, 0.5f, -extent), new Vector3f(extent, 0.5f, extent), new Vector3f(-extent, 0.5f, extent)};
+        Vector3f[] normals = {new Vector3f(0, 1, 0), new Vector3f(0, 1, 0), new Vector3f(0, 1, 0), new Vector3f(0, 1, 0)};
+        Vector2f[] texCoords = {new Vector2f(0, 0), new Vector2f(1, 0), new Vector2f(1, 1), new Vector2f(0, 1)};
+        return new BlockMeshPart(vertices, normals, texCoords, new int[]{0, 1, 2, 0, 2, 3}).mapTexCoords(new Vector2f(0.125f, 0.25f), Block.TEXTURE_OFFSET_WIDTH);
+    }
+
+    @Test
+    public void onlyFullSquareFacesAreMergeable() {
+        assertTrue(mesher.isMergeable(top, Side.TOP));
+        assertFalse(mesher.isMergeable(createTopPart(0.25f), Side.TOP));
+        assertFalse(mesher.isMergeable(top, Side.LEFT));
+    }
+
+    @Test
+    public void identicalFacesAreMergedIntoOneQuad() {
+        for (int x = 2; x < 5; x++) {
+            for (int z = 0; z < 2; z++) {
+                mesher.addFace(Side.TOP, x, 40, z, block, top, COLOR, LIGHT);
+            }
+        }
+        mesher.appendTo(mesh, 0);
+
+        ChunkMesh.VertexElements elements = mesh._vertexElements[0];
+        elements.finish();
+        assertEquals(4, elements.vertCount);
+        assertEquals(6, elements.indexCount);
+
+        ByteBuffer vertices = elements.finalVertices;
+        for (int i = 0; i < 4; i++) {
+            int vertex = i * ChunkVertexFormat.STRIDE;
+            short x = vertices.getShort(vertex + ChunkVertexFormat.OFFSET_POSITION);
+            short y = vertices.getShort(vertex + ChunkVertexFormat.OFFSET_POSITION + 2);
+            short z = vertices.getShort(vertex + ChunkVertexFormat.OFFSET_POSITION + 4);
+            assertTrue(x == ChunkVertexFormat.packPosition(1.5f) || x == ChunkVertexFormat.packPosition(4.5f));
+            assertEquals(ChunkVertexFormat.packPosition(40.5f), y);
+            assertTrue(z == ChunkVertexFormat.packPosition(-0.5f) || z == ChunkVertexFormat.packPosition(1.5f));
+
+            assertEquals(ChunkVertexFormat.packTexCoord(0.125f), vertices.getShort(vertex + ChunkVertexFormat.OFFSET_TEX_COORD));
+            assertEquals(ChunkVertexFormat.packTexCoord(0.25f), vertices.getShort(vertex + ChunkVertexFormat.OFFSET_TEX_COORD + 2));
+            assertTrue(vertices.getShort(vertex + ChunkVertexFormat.OFFSET_TEX_COORD + 4) > GreedyMesher.TILED_TEX_COORD);
+
+            assertEquals(ChunkVertexFormat.packUnsigned(LIGHT[2]), vertices.get(vertex + ChunkVertexFormat.OFFSET_LIGHT + 2));
+        }
+    }
+
+    @Test
+    public void scaledCellsCoverAllTheirBlocks() {
+        mesher.reset(8, 8, 8, 32, 2);
+        mesher.addFace(Side.TOP, 4, 40, 0, block, top, COLOR, LIGHT);
+        mesher.addFace(Side.TOP, 6, 40, 0, block, top, COLOR, LIGHT);
+        mesher.appendTo(mesh, 0);
+
+        ChunkMesh.VertexElements elements = mesh._vertexElements[0];
+        elements.finish();
+        assertEquals(4, elements.vertCount);
+
+        ByteBuffer vertices = elements.finalVertices;
+        for (int i = 0; i < 4; i++) {
+            int vertex = i * ChunkVertexFormat.STRIDE;
+            short x = vertices.getShort(vertex + ChunkVertexFormat.OFFSET_POSITION);
+            short y = vertices.getShort(vertex + ChunkVertexFormat.OFFSET_POSITION + 2);
+            short z = vertices.getShort(vertex + ChunkVertexFormat.OFFSET_POSITION + 4);
+            assertTrue(x == ChunkVertexFormat.packPosition(3.5f) || x == ChunkVertexFormat.packPosition(7.5f));
+            assertEquals(ChunkVertexFormat.packPosition(41.5f), y);
+            assertTrue(z == ChunkVertexFormat.packPosition(-0.5f) || z == ChunkVertexFormat.packPosition(1.5f));
+        }
+    }
+
+    @Test
+    public void facesWithDifferentLightingAreNotMerged() {
+        mesher.addFace(Side.TOP, 0, 40, 0, block, top, COLOR, LIGHT);
+        mesher.addFace(Side.TOP, 1, 40, 0, block, top, COLOR, new float[]{1.0f, 0.0f, 0.25f});
+        mesher.appendTo(mesh, 0);
+
+        assertEquals(8, mesh._vertexElements[0].vertCount);
+    }
+
+    @Test
+    public void facesOfDifferentBlocksAreNotMerged() {
+        mesher.addFace(Side.TOP, 0, 40, 0, block, top, COLOR, LIGHT);
+        mesher.addFace(Side.TOP, 1, 40, 0, new Block(), top, COLOR, LIGHT);
+        mesher.appendTo(mesh, 0);
+
+        assertEquals(8, mesh._vertexElements[0].vertCount);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.world;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.PriorityQueue;
+
+import org.junit.Test;
+import org.terasology.math.Vector3i;
+import org.terasology.rendering.world.ChunkUpdateManager.ChunkUpdate;
+import org.terasology.rendering.world.ChunkUpdateManager.UPDATE_TYPE;
+import org.terasology.world.chunks.Chunk;
+
+public class ChunkUpdateTest {
+
+    private final Chunk chunk = new Chunk(new Vector3i());
+
+    @Test
+    public void nearerUpdatesComeFirst() {
+        ChunkUpdate far = new ChunkUpdate(chunk, UPDATE_TYPE.DEFAULT, 100.0f, 0);
+        ChunkUpdate near = new ChunkUpdate(chunk, UPDATE_TYPE.DEFAULT, 10.0f, 1);
+
+        assertSame(near, poll(far, near));
+    }
+
+    @Test
+    public void playerTriggeredUpdatesComeFirst() {
+        ChunkUpdate near = new ChunkUpdate(chunk, UPDATE_TYPE.DEFAULT, 10.0f, 0);
+        ChunkUpdate triggered = new ChunkUpdate(chunk, UPDATE_TYPE.PLAYER_TRIGGERED, 100.0f, 1);
+
+        assertSame(triggered, poll(near, triggered));
+    }
+
+    @Test
+    public void earlierRequestsComeFirstAtTheSameDistance() {
+        ChunkUpdate first = new ChunkUpdate(chunk, UPDATE_TYPE.DEFAULT, 10.0f, 0);
+        ChunkUpdate second = new ChunkUpdate(chunk, UPDATE_TYPE.DEFAULT, 10.0f, 1);
+
+        assertSame(first, poll(second, first));
+    }
+
+    private ChunkUpdate poll(ChunkUpdate... updates) {
+        PriorityQueue<ChunkUpdate> queue = new PriorityQueue<ChunkUpdate>();
+        for (ChunkUpdate update : updates) {
+            queue.add(update);
+        }
+        return queue.poll();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.world;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.AABB;
+import org.terasology.math.Vector3i;
+import org.terasology.rendering.primitives.ChunkMesh;
+import org.terasology.rendering.primitives.ChunkVisibility;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+public class ChunkVisibilityWalkerTest {
+
+    private final Vector3f cameraPosition = new Vector3f(8, 100, 8);
+
+    private Chunk cameraChunk;
+    private Chunk nextChunk;
+    private Chunk farChunk;
+    private List<Chunk> chunks;
+    private ChunkVisibilityWalker walker;
+
+    @Before
+    public void setup() {
+        cameraChunk = new Chunk(new Vector3i(0, 0, 0));
+        nextChunk = new Chunk(new Vector3i(1, 0, 0));
+        farChunk = new Chunk(new Vector3i(2, 0, 0));
+        chunks = Arrays.asList(cameraChunk, nextChunk, farChunk);
+        walker = new ChunkVisibilityWalker();
+    }
+
+    private void setVisibility(Chunk chunk, int visibility) {
+        ChunkMesh[] mesh = new ChunkMesh[Chunk.VERTICAL_SEGMENTS];
+        for (int i = 0; i < mesh.length; i++) {
+            mesh[i] = new ChunkMesh();
+            mesh[i].setVisibility(visibility);
+        }
+        chunk.setMesh(mesh);
+    }
+
+    @Test
+    public void chunksWithoutMeshesAreSeenThrough() {
+        walker.walk(chunks, cameraPosition, Predicates.<AABB>alwaysTrue());
+
+        assertEquals(Chunk.ALL_SEGMENTS, walker.getVisibleSegments(cameraChunk));
+        assertEquals(Chunk.ALL_SEGMENTS, walker.getVisibleSegments(nextChunk));
+        assertEquals(Chunk.ALL_SEGMENTS, walker.getVisibleSegments(farChunk));
+    }
+
+    @Test
+    public void solidChunksHideTheChunksBehind() {
+        setVisibility(nextChunk, ChunkVisibility.NONE);
+        walker.walk(chunks, cameraPosition, Predicates.<AABB>alwaysTrue());
+
+        assertEquals(Chunk.ALL_SEGMENTS, walker.getVisibleSegments(nextChunk));
+        assertEquals(0, walker.getVisibleSegments(farChunk));
+    }
+
+    @Test
+    public void chunksOutsideTheViewAreNotWalkedThrough() {
+        walker.walk(chunks, cameraPosition, new Predicate<AABB>() {
+            @Override
+            public boolean apply(AABB aabb) {
+                return aabb != nextChunk.getSubMeshAABB(0);
+            }
+        });
+
+        assertEquals(0, walker.getVisibleSegments(nextChunk));
+        assertEquals(0, walker.getVisibleSegments(farChunk));
+    }
+
+    @Test
+    public void everythingIsVisibleWithoutTheChunkOfTheCamera() {
+        setVisibility(nextChunk, ChunkVisibility.NONE);
+        walker.walk(Arrays.asList(nextChunk, farChunk), cameraPosition, Predicates.<AABB>alwaysTrue());
+
+        assertEquals(Chunk.ALL_SEGMENTS, walker.getVisibleSegments(farChunk));
+    }
+}
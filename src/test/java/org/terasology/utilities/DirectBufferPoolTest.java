@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class DirectBufferPoolTest {
+
+    @Test
+    public void buffersAreRoundedUpToSizeClasses() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+        ByteBuffer buffer = pool.acquire(5000);
+
+        assertTrue(buffer.isDirect());
+        assertEquals(ByteOrder.nativeOrder(), buffer.order());
+        assertEquals(8192, buffer.capacity());
+        assertEquals(4096, pool.acquire(1).capacity());
+    }
+
+    @Test
+    public void releasedBuffersAreReused() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+        ByteBuffer buffer = pool.acquire(5000);
+        buffer.putInt(42);
+        pool.release(buffer);
+        assertEquals(8192, pool.getPooledBytes());
+
+        ByteBuffer reused = pool.acquire(8000);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(0, pool.getPooledBytes());
+        assertNotSame(buffer, pool.acquire(5000));
+    }
+
+    @Test
+    public void poolIsBounded() {
+        DirectBufferPool pool = new DirectBufferPool(8192);
+        pool.release(pool.acquire(8192));
+        pool.release(pool.acquire(8192));
+
+        assertEquals(8192, pool.getPooledBytes());
+    }
+
+    @Test
+    public void foreignBuffersAreNotPooled() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+        pool.release(ByteBuffer.allocate(4096));
+        pool.release(ByteBuffer.allocateDirect(5000));
+
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void growKeepsContents() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+        ByteBuffer buffer = pool.acquire(4096);
+        for (int i = 0; i < 1024; i++) {
+            buffer.putInt(i);
+        }
+
+        ByteBuffer grown = pool.grow(buffer, 4100);
+        assertEquals(8192, grown.capacity());
+        assertEquals(4096, grown.position());
+        for (int i = 0; i < 1024; i++) {
+            assertEquals(i, grown.getInt(i * 4));
+        }
+        assertEquals(4096, pool.getPooledBytes());
+    }
+}
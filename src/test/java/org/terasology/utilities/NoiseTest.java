@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NoiseTest {
+
+    private static final double[] XS = {-17.3, -0.5, 0, 0.25, 3.75, 1024.125};
+    private static final double[] YS = {0, 0.002, 0.5, 12.0, 255.9};
+    private static final double[] ZS = {-300.5, -1, 0, 0.0005, 7.125, 99.99, 1234.5};
+
+    @Test
+    public void perlinBatchMatchesPointEvaluation() {
+        PerlinNoise noise = new PerlinNoise(1234);
+        noise.setOctaves(8);
+        assertBatchMatchesPoints(noise);
+    }
+
+    @Test
+    public void simplexBatchMatchesPointEvaluation() {
+        SimplexNoise noise = new SimplexNoise(1234);
+        assertBatchMatchesPoints(noise);
+    }
+
+    @Test
+    public void batchSupportsFlatGrids() {
+        PerlinNoise noise = new PerlinNoise(-42);
+        double[] ys = {0};
+        double[] result = new double[XS.length * ZS.length];
+        noise.fBm(result, XS, ys, ZS);
+        for (int i = 0; i < XS.length; i++) {
+            for (int k = 0; k < ZS.length; k++) {
+                assertEquals(noise.fBm(XS[i], 0, ZS[k]), result[i * ZS.length + k], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void batchIsUnaffectedByPreviousLargerBatch() {
+        PerlinNoise noise = new PerlinNoise(5);
+        double[] large = new double[ZS.length * YS.length * XS.length];
+        noise.fBm(large, ZS, YS, XS);
+        assertBatchMatchesPoints(noise);
+    }
+
+    @Test
+    public void sameSeedProducesSameNoise() {
+        assertEquals(new SimplexNoise(77).fBm(1.5, 2.5, 3.5), new SimplexNoise(77).fBm(1.5, 2.5, 3.5), 0.0);
+        assertEquals(new PerlinNoise(77).fBm(1.5, 2.5, 3.5), new PerlinNoise(77).fBm(1.5, 2.5, 3.5), 0.0);
+        assertTrue(new SimplexNoise(77).fBm(1.5, 2.5, 3.5) != new SimplexNoise(78).fBm(1.5, 2.5, 3.5));
+    }
+
+    @Test
+    public void simplexNoiseInRange() {
+        SimplexNoise noise = new SimplexNoise(5);
+        for (double x = -20; x < 20; x += 0.37) {
+            for (double z = -20; z < 20; z += 0.41) {
+                double value = noise.noise(x, x * 0.5, z);
+                assertTrue(value >= -1.0 && value <= 1.0);
+            }
+        }
+    }
+
+    private void assertBatchMatchesPoints(Noise noise) {
+        double[] result = new double[XS.length * YS.length * ZS.length];
+        float[] floatResult = new float[result.length];
+        noise.fBm(result, XS, YS, ZS);
+        noise.fBm(floatResult, XS, YS, ZS);
+
+        int index = 0;
+        for (double x : XS) {
+            for (double y : YS) {
+                for (double z : ZS) {
+                    double expected = noise.fBm(x, y, z);
+                    assertEquals(expected, result[index], 0.0);
+                    assertEquals((float) expected, floatResult[index], 0.0f);
+                    index++;
+                }
+            }
+        }
+    }
+}
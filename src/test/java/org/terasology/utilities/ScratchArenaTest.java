@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+
+public class ScratchArenaTest {
+
+    private static final ScratchArena.Slot SLOT = ScratchArena.newSlot();
+    private static final ScratchArena.Slot OTHER_SLOT = ScratchArena.newSlot();
+
+    @Test
+    public void reusesArrayThatIsLargeEnough() {
+        double[] first = ScratchArena.get().doubles(SLOT, 64);
+        assertTrue(first.length >= 64);
+        assertSame(first, ScratchArena.get().doubles(SLOT, 64));
+        assertSame(first, ScratchArena.get().doubles(SLOT, 16));
+    }
+
+    @Test
+    public void growsArrayOnLargerRequest() {
+        int[] first = ScratchArena.get().ints(OTHER_SLOT, 8);
+        int[] second = ScratchArena.get().ints(OTHER_SLOT, 1000);
+        assertNotSame(first, second);
+        assertTrue(second.length >= 1000);
+        assertSame(second, ScratchArena.get().ints(OTHER_SLOT, 8));
+    }
+
+    @Test
+    public void slotsAreIndependent() {
+        ScratchArena.Slot a = ScratchArena.newSlot();
+        ScratchArena.Slot b = ScratchArena.newSlot();
+        assertNotSame(ScratchArena.get().floats(a, 4), ScratchArena.get().floats(b, 4));
+    }
+
+    @Test
+    public void objectIsCreatedOncePerThread() {
+        ScratchArena.Slot slot = ScratchArena.newSlot();
+        Supplier<StringBuilder> factory = new Supplier<StringBuilder>() {
+            @Override
+            public StringBuilder get() {
+                return new StringBuilder();
+            }
+        };
+        StringBuilder builder = ScratchArena.get().object(slot, factory);
+        assertSame(builder, ScratchArena.get().object(slot, factory));
+    }
+
+    @Test
+    public void threadsHaveSeparateArenas() throws InterruptedException {
+        final double[] local = ScratchArena.get().doubles(SLOT, 32);
+        final AtomicReference<double[]> remote = new AtomicReference<double[]>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                remote.set(ScratchArena.get().doubles(SLOT, 32));
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(local, remote.get());
+    }
+}
@@ -1,6 +1,8 @@
 package org.terasology.world;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -29,5 +31,35 @@ public class ChunkTest {
         assertEquals(block, chunk.getBlock(new Vector3i(1, 2, 3)));
     }
 
-}
+    @Test
+    public void newChunkIsEntirelyDirty() {
+        assertTrue(chunk.isDirty());
+        assertEquals(Chunk.ALL_SEGMENTS, chunk.getDirtySegments());
+    }
 
+    @Test
+    public void takingDirtySegmentsMarksThemClean() {
+        assertEquals(Chunk.ALL_SEGMENTS, chunk.takeDirtySegments());
+        assertFalse(chunk.isDirty());
+        assertEquals(0, chunk.takeDirtySegments());
+    }
+
+    @Test
+    public void blockRangesDirtyTheirSegments() {
+        chunk.takeDirtySegments();
+        int segmentHeight = Chunk.SIZE_Y / Chunk.VERTICAL_SEGMENTS;
+
+        chunk.setDirty(-1, 0);
+        assertEquals(1, chunk.takeDirtySegments());
+
+        chunk.setDirty(Chunk.SIZE_Y - 1, Chunk.SIZE_Y);
+        assertEquals(1 << (Chunk.VERTICAL_SEGMENTS - 1), chunk.takeDirtySegments());
+
+        chunk.setDirty(segmentHeight - 1, segmentHeight);
+        assertEquals((Chunk.VERTICAL_SEGMENTS > 1) ? 3 : 1, chunk.takeDirtySegments());
+
+        chunk.setDirty(-3, -1);
+        chunk.setDirty(Chunk.SIZE_Y, Chunk.SIZE_Y + 2);
+        assertFalse(chunk.isDirty());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import javax.vecmath.Vector4f;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.world.block.Block;
+import org.terasology.world.chunks.Chunk;
+
+public class WorldBiomeProviderImplTest {
+
+    private WorldBiomeProviderImpl biomeProvider;
+
+    @Before
+    public void setup() {
+        biomeProvider = new WorldBiomeProviderImpl("climate");
+    }
+
+    @Test
+    public void chunkClimateMatchesPointQueries() {
+        int chunkX = -3, chunkZ = 7;
+        ChunkClimate climate = biomeProvider.getChunkClimate(chunkX, chunkZ);
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int worldX = chunkX * Chunk.SIZE_X + x;
+                int worldZ = chunkZ * Chunk.SIZE_Z + z;
+                assertEquals(biomeProvider.getTemperatureAt(worldX, worldZ), climate.getTemperature(x, z), 0.0f);
+                assertEquals(biomeProvider.getHumidityAt(worldX, worldZ), climate.getHumidity(x, z), 0.0f);
+                assertEquals(biomeProvider.getBiomeAt(worldX, worldZ), climate.getBiome(x, z));
+            }
+        }
+    }
+
+    @Test
+    public void chunkClimateIsCached() {
+        ChunkClimate climate = biomeProvider.getChunkClimate(1, 2);
+        assertSame(climate, biomeProvider.getChunkClimate(1, 2));
+    }
+
+    @Test
+    public void chunkClimateColorsMatchColorSource() {
+        ChunkClimate climate = biomeProvider.getChunkClimate(0, 0);
+        Vector4f color = new Vector4f();
+        for (Block.ColorSource source : Block.ColorSource.values()) {
+            climate.getColor(source, 5, 11, color);
+            assertEquals(source.calcColor(climate.getTemperature(5, 11), climate.getHumidity(5, 11)), color);
+        }
+    }
+}
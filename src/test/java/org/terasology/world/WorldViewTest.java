@@ -17,6 +17,8 @@
 package org.terasology.world;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -119,4 +121,27 @@ public class WorldViewTest {
         WorldView worldView = new WorldView(chunks, Region3i.createFromCenterExtents(new Vector3i(1, 0, 1), new Vector3i(1,0,1)), new Vector3i(1,1,1));
         assertEquals(new Vector3i(Chunk.SIZE_X, 0, Chunk.SIZE_Z), worldView.toWorldPos(Vector3i.zero()));
     }
+
+    @Test
+    public void setDirtyAroundOnlyDirtiesAdjacentChunks() {
+        Chunk[] chunks = new Chunk[9];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk(new Vector3i(i % 3 - 1, 0, i / 3 - 1));
+            chunks[i].setDirty(false);
+        }
+        WorldView worldView = new WorldView(chunks, Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1)), new Vector3i(1, 1, 1));
+
+        worldView.setDirtyAround(new Vector3i(8, 20, 8));
+        for (int i = 0; i < chunks.length; i++) {
+            assertEquals(i == 4, chunks[i].isDirty());
+        }
+
+        chunks[4].setDirty(false);
+        worldView.setDirtyAround(new Vector3i(0, 20, 8));
+        assertTrue(chunks[3].isDirty());
+        assertTrue(chunks[4].isDirty());
+        assertFalse(chunks[5].isDirty());
+        assertFalse(chunks[1].isDirty());
+        assertFalse(chunks[7].isDirty());
+    }
 }
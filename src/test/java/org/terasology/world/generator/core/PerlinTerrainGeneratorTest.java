@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.generator.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.terasology.world.chunks.Chunk;
+
+public class PerlinTerrainGeneratorTest {
+
+    private final double[] densityMap = new double[PerlinTerrainGenerator.DENSITY_MAP_SIZE];
+
+    private void fillUpTo(int x, int z, int height) {
+        for (int y = 0; y <= height; y++) {
+            densityMap[PerlinTerrainGenerator.densityIndex(x, y, z)] = 1;
+        }
+    }
+
+    @Test
+    public void caveHeightFollowsTheTerrainTop() {
+        Arrays.fill(densityMap, -1);
+        fillUpTo(3, 5, 30);
+        fillUpTo(10, 2, 44);
+        // Only the lattice of the top layer is written, the rest is left at zero
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                densityMap[PerlinTerrainGenerator.densityIndex(x, Chunk.SIZE_Y, z)] = 0;
+            }
+        }
+
+        assertEquals(45, PerlinTerrainGenerator.calcSolidHeight(densityMap));
+    }
+
+    @Test
+    public void leftoversAboveTheChunkAreIgnored() {
+        // As left in a reused map by a previous chunk
+        Arrays.fill(densityMap, 5);
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    densityMap[PerlinTerrainGenerator.densityIndex(x, y, z)] = (y <= 20) ? 1 : -1;
+                }
+            }
+        }
+
+        assertEquals(21, PerlinTerrainGenerator.calcSolidHeight(densityMap));
+    }
+
+    @Test
+    public void terrainUpToTheTopOfTheChunkIsAllSolid() {
+        Arrays.fill(densityMap, -1);
+        fillUpTo(0, 0, Chunk.SIZE_Y - 1);
+
+        assertEquals(Chunk.SIZE_Y, PerlinTerrainGenerator.calcSolidHeight(densityMap));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.generator.tree;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+public class TreeTemplateTest {
+
+    private Block air;
+    private Block stone;
+    private Block leaf;
+    private Block bark;
+    private Chunk chunk;
+    private WorldView view;
+
+    @Before
+    public void setup() {
+        air = BlockManager.getInstance().getAir();
+        stone = createBlock("engine:stone");
+        leaf = createBlock("engine:leaf");
+        bark = createBlock("engine:bark");
+
+        chunk = new Chunk(new Vector3i());
+        view = new WorldView(new Chunk[]{chunk}, Region3i.createFromCenterExtents(Vector3i.zero(), Vector3i.zero()), new Vector3i());
+    }
+
+    private Block createBlock(String uri) {
+        Block block = new Block();
+        block.setUri(new BlockUri(uri));
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(block.getURI(), block));
+        return BlockManager.getInstance().getBlock(block.getURI());
+    }
+
+    @Test
+    public void blocksArePlacedRelativeToPosition() {
+        TreeTemplate template = new TreeTemplate.Builder(air).setBlock(0, 0, 0, bark).setBlockIfAir(1, 2, -1, leaf).build();
+        template.apply(view, 4, 5, 6);
+
+        assertEquals(bark, view.getBlock(4, 5, 6));
+        assertEquals(leaf, view.getBlock(5, 7, 5));
+    }
+
+    @Test
+    public void leavesOnlyReplaceAir() {
+        chunk.setBlock(4, 5, 6, stone);
+        chunk.setBlock(4, 6, 6, stone);
+        TreeTemplate template = new TreeTemplate.Builder(air).setBlockIfAir(0, 0, 0, leaf).setBlock(0, 1, 0, bark).build();
+        template.apply(view, 4, 5, 6);
+
+        assertEquals(stone, view.getBlock(4, 5, 6));
+        assertEquals(bark, view.getBlock(4, 6, 6));
+    }
+
+    @Test
+    public void repeatedWritesAreCollapsed() {
+        TreeTemplate template = new TreeTemplate.Builder(air)
+                .setBlockIfAir(0, 0, 0, leaf)
+                .setBlock(0, 0, 0, bark)
+                .setBlock(1, 0, 0, bark)
+                .setBlockIfAir(1, 0, 0, leaf)
+                .build();
+        assertEquals(2, template.size());
+
+        chunk.setBlock(4, 5, 6, stone);
+        template.apply(view, 4, 5, 6);
+
+        assertEquals(bark, view.getBlock(4, 5, 6));
+        assertEquals(bark, view.getBlock(5, 5, 6));
+    }
+}
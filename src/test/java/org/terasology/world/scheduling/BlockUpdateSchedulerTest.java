@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldProviderCore;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkProvider;
+import org.terasology.world.chunks.ChunkReadyEvent;
+
+import com.google.common.collect.Lists;
+
+public class BlockUpdateSchedulerTest {
+    private static final String HANDLER = "test:handler";
+
+    private WorldProviderCore world;
+    private ChunkProvider chunkProvider;
+    private Chunk chunk;
+    private BlockUpdateSchedulerImpl scheduler;
+    private List<Vector3i> received;
+    private long time;
+
+    @Before
+    public void setup() {
+        time = 1000;
+        world = Mockito.mock(WorldProviderCore.class);
+        Mockito.when(world.getTime()).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return time;
+            }
+        });
+        chunk = new Chunk(0, 0, 0);
+        chunkProvider = Mockito.mock(ChunkProvider.class);
+        Mockito.when(chunkProvider.getChunk(new Vector3i(0, 0, 0))).thenReturn(chunk);
+
+        received = Lists.newArrayList();
+        scheduler = new BlockUpdateSchedulerImpl(world, chunkProvider);
+        scheduler.registerHandler(HANDLER, new ScheduledBlockUpdateHandler() {
+            @Override
+            public void onScheduledUpdate(Vector3i blockPos) {
+                received.add(blockPos);
+            }
+        });
+    }
+
+    @Test
+    public void updateDispatchedOnceDue() {
+        assertTrue(scheduler.schedule(HANDLER, new Vector3i(1, 2, 3), 200, 0));
+        advance(150);
+        assertTrue(received.isEmpty());
+        assertTrue(scheduler.isScheduled(HANDLER, new Vector3i(1, 2, 3)));
+        advance(100);
+        assertEquals(Lists.newArrayList(new Vector3i(1, 2, 3)), received);
+        assertFalse(scheduler.isScheduled(HANDLER, new Vector3i(1, 2, 3)));
+        assertTrue(chunk.getBlockUpdates().isEmpty());
+    }
+
+    @Test
+    public void updateDispatchedAfterMultipleRevolutions() {
+        long delay = 2000 * BlockUpdateSchedulerImpl.TICK_LENGTH;
+        scheduler.schedule(HANDLER, new Vector3i(1, 2, 3), delay, 0);
+        for (int i = 0; i < 1999; ++i) {
+            advance(BlockUpdateSchedulerImpl.TICK_LENGTH);
+        }
+        assertTrue(received.isEmpty());
+        advance(BlockUpdateSchedulerImpl.TICK_LENGTH);
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void duplicateSchedulesCoalesced() {
+        scheduler.schedule(HANDLER, new Vector3i(1, 2, 3), 200, 0);
+        scheduler.schedule(HANDLER, new Vector3i(1, 2, 3), 400, 0);
+        scheduler.schedule(HANDLER, new Vector3i(1, 2, 3), 100, 0);
+        assertEquals(1, chunk.getBlockUpdates().size());
+        advance(150);
+        assertEquals(1, received.size());
+        advance(500);
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void dueUpdatesDispatchedByPriority() {
+        scheduler.schedule(HANDLER, new Vector3i(1, 0, 0), 100, 0);
+        scheduler.schedule(HANDLER, new Vector3i(2, 0, 0), 100, 5);
+        scheduler.schedule(HANDLER, new Vector3i(3, 0, 0), 100, 1);
+        advance(100);
+        assertEquals(Lists.newArrayList(new Vector3i(2, 0, 0), new Vector3i(3, 0, 0), new Vector3i(1, 0, 0)), received);
+    }
+
+    @Test
+    public void scheduleFailsForUnavailableChunk() {
+        assertFalse(scheduler.schedule(HANDLER, new Vector3i(100, 0, 0), 100, 0));
+    }
+
+    @Test
+    public void pendingUpdatesPersistedWithChunk() throws Exception {
+        scheduler.schedule(HANDLER, new Vector3i(4, 5, 6), 200, 3);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(baos);
+        out.writeObject(chunk);
+        out.close();
+        Chunk restored = (Chunk) new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())).readObject();
+        assertEquals(1, restored.getBlockUpdates().size());
+
+        // Unloaded updates are dropped, the reloaded chunk's copies are queued once it is ready
+        Mockito.when(chunkProvider.getChunk(new Vector3i(0, 0, 0))).thenReturn(restored);
+        advance(250);
+        assertTrue(received.isEmpty());
+        scheduler.chunkReady(new ChunkReadyEvent(new Vector3i(0, 0, 0)), EntityRef.NULL);
+        advance(BlockUpdateSchedulerImpl.TICK_LENGTH);
+        assertEquals(Lists.newArrayList(new Vector3i(4, 5, 6)), received);
+    }
+
+    private void advance(long ms) {
+        time += ms;
+        scheduler.update(ms / 1000f);
+    }
+}